@@ -0,0 +1,48 @@
+// Writes a .br and a .gz copy next to each compressible file in build/,
+// so that Spring Boot can serve them directly (spring.web.resources.chain.compressed)
+// instead of compressing the bundle on every request.
+// Runs automatically after `npm run build` (see "postbuild" in package.json).
+
+const fs = require("fs");
+const path = require("path");
+const zlib = require("zlib");
+
+const buildDir = path.join(__dirname, "..", "build");
+const compressible = /\.(js|css|html|json|svg|txt|map|ico)$/;
+const minSize = 1024;
+
+function* files(dir) {
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const file = path.join(dir, entry.name);
+    if (entry.isDirectory()) {
+      yield* files(file);
+    } else if (compressible.test(entry.name)) {
+      yield file;
+    }
+  }
+}
+
+let written = 0;
+for (const file of files(buildDir)) {
+  const contents = fs.readFileSync(file);
+  if (contents.length < minSize) {
+    continue;
+  }
+  const variants = {
+    ".br": zlib.brotliCompressSync(contents, {
+      params: {
+        [zlib.constants.BROTLI_PARAM_QUALITY]: zlib.constants.BROTLI_MAX_QUALITY,
+        [zlib.constants.BROTLI_PARAM_SIZE_HINT]: contents.length,
+      },
+    }),
+    ".gz": zlib.gzipSync(contents, { level: zlib.constants.Z_BEST_COMPRESSION }),
+  };
+  for (const [extension, compressed] of Object.entries(variants)) {
+    // only keep a variant that is actually smaller
+    if (compressed.length < contents.length) {
+      fs.writeFileSync(file + extension, compressed);
+      written++;
+    }
+  }
+}
+console.log(`precompress: wrote ${written} compressed files in ${buildDir}`);
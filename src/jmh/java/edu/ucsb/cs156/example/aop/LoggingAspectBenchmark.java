@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.aop;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Benchmarks LoggingAspect.logControllers around a trivial controller method, for each
+ * logging mode and sample rate, against calling the same proxied method with no aspect.
+ * Log output goes to an AsyncAppender in front of a NOPAppender (see logback-test.xml),
+ * so this measures what a request thread pays, not console I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingAspectBenchmark {
+
+  /**
+   * Stands in for a controller; the aspect only looks at the mapping annotation.
+   */
+  public static class Controller {
+    @GetMapping("/api/benchmark")
+    public String handle() {
+      return "ok";
+    }
+  }
+
+  @Param({ "OFF", "ENTRY", "TIMED" })
+  public LoggingAspect.Mode mode;
+
+  @Param({ "1.0", "0.1" })
+  public double sampleRate;
+
+  private Controller withoutAspect;
+  private Controller withAspect;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    LoggingAspect aspect = new LoggingAspect();
+    ReflectionTestUtils.setField(aspect, "mode", mode);
+    ReflectionTestUtils.setField(aspect, "sampleRate", sampleRate);
+
+    withoutAspect = proxy(null);
+    withAspect = proxy(aspect);
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/benchmark");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private static Controller proxy(LoggingAspect aspect) {
+    AspectJProxyFactory factory = new AspectJProxyFactory(new Controller());
+    factory.setProxyTargetClass(true);
+    if (aspect != null) {
+      factory.addAspect(aspect);
+    }
+    return factory.getProxy();
+  }
+
+  @Benchmark
+  public String baseline() {
+    return withoutAspect.handle();
+  }
+
+  @Benchmark
+  public String logControllers() {
+    return withAspect.handle();
+  }
+}
@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.entities;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Benchmarks serializing the list that each /all endpoint returns, using an ObjectMapper
+ * configured the same way as the one Spring MVC uses for response bodies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonSerializationBenchmark {
+
+  private static final LocalDateTime WHEN = LocalDateTime.parse("2022-01-03T00:00:00");
+
+  @Param({ "Articles", "HelpRequest", "MenuItemRating", "MenuItemReview", "RecommendationRequest",
+      "Restaurant", "UCSBDate", "UCSBDiningCommonMenuItem", "UCSBDiningCommons", "UCSBOrganizations", "User" })
+  public String entity;
+
+  @Param({ "10", "1000" })
+  public int size;
+
+  private ObjectWriter writer;
+  private List<Object> rows;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    writer = mapper.writer();
+    IntFunction<Object> row = sample(entity);
+    rows = new ArrayList<>(size);
+    for (int i = 1; i <= size; i++) {
+      rows.add(row.apply(i));
+    }
+  }
+
+  @Benchmark
+  public byte[] serialize() throws JsonProcessingException {
+    return writer.writeValueAsBytes(rows);
+  }
+
+  /**
+   * Make sample rows of one entity type.
+   * @param entity the simple name of the entity class
+   * @return a function that builds the i-th sample row
+   */
+  private static IntFunction<Object> sample(String entity) {
+    return switch (entity) {
+      case "Articles" -> i -> Articles.builder()
+          .id(i)
+          .title("Article " + i)
+          .url("https://example.org/articles/" + i)
+          .explanation("An article worth reading, number " + i)
+          .email("cgaucho@ucsb.edu")
+          .dateAdded(WHEN)
+          .build();
+      case "HelpRequest" -> i -> HelpRequest.builder()
+          .id(i)
+          .requesterEmail("cgaucho@ucsb.edu")
+          .teamId("s22-5pm-3")
+          .tableOrBreakoutRoom("7")
+          .requestTime(WHEN)
+          .explanation("Need help with request " + i)
+          .solved(false)
+          .build();
+      case "MenuItemRating" -> i -> MenuItemRating.builder()
+          .itemId(i)
+          .reviewCount(10)
+          .starsSum(37)
+          .stars1(1)
+          .stars3(2)
+          .stars4(3)
+          .stars5(4)
+          .build();
+      case "MenuItemReview" -> i -> MenuItemReview.builder()
+          .id(i)
+          .itemId(7L)
+          .reviewerEmail("cgaucho@ucsb.edu")
+          .stars(4)
+          .dateReviewed(WHEN)
+          .comments("Pretty good, review " + i)
+          .build();
+      case "RecommendationRequest" -> i -> RecommendationRequest.builder()
+          .id(i)
+          .requesterEmail("cgaucho@ucsb.edu")
+          .professorEmail("prof@ucsb.edu")
+          .explanation("Grad school application " + i)
+          .dateRequested(WHEN)
+          .dateNeeded(WHEN.plusMonths(1))
+          .done(false)
+          .build();
+      case "Restaurant" -> i -> Restaurant.builder()
+          .id(i)
+          .name("Restaurant " + i)
+          .description("Tacos and burritos")
+          .build();
+      case "UCSBDate" -> i -> UCSBDate.builder()
+          .id(i)
+          .name("Date " + i)
+          .quarterYYYYQ("20222")
+          .localDateTime(WHEN)
+          .build();
+      case "UCSBDiningCommonMenuItem" -> i -> UCSBDiningCommonMenuItem.builder()
+          .id(i)
+          .diningCommonsCode("ortega")
+          .name("Menu item " + i)
+          .station("Entrees")
+          .build();
+      case "UCSBDiningCommons" -> i -> UCSBDiningCommons.builder()
+          .code("dc" + i)
+          .name("Dining commons " + i)
+          .hasSackMeal(false)
+          .hasTakeOutMeal(false)
+          .hasDiningCam(true)
+          .latitude(34.41)
+          .longitude(-119.84)
+          .build();
+      case "UCSBOrganizations" -> i -> UCSBOrganizations.builder()
+          .orgCode("ORG" + i)
+          .orgTranslationShort("Org " + i)
+          .orgTranslation("Organization " + i)
+          .inactive(false)
+          .build();
+      case "User" -> i -> User.builder()
+          .id(i)
+          .email("user" + i + "@ucsb.edu")
+          .googleSub("sub" + i)
+          .fullName("User " + i)
+          .givenName("User")
+          .familyName(String.valueOf(i))
+          .emailVerified(true)
+          .locale("en")
+          .hostedDomain("ucsb.edu")
+          .build();
+      default -> throw new IllegalArgumentException("unknown entity " + entity);
+    };
+  }
+}
@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ucsb.cs156.example.entities.IdentityRestaurant;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Benchmarks persisting {@code rows} new restaurants in one transaction, as the /batch
+ * endpoints do, with the id generated either way:
+ * <ul>
+ *   <li>sequence: Restaurant, whose ids Hibernate reads from RESTAURANTS_SEQ 50 at a time,
+ *       so the inserts go to the database in JDBC batches</li>
+ *   <li>identity: IdentityRestaurant, whose ids are only known after each insert, so
+ *       Hibernate runs every insert on its own as soon as the row is persisted</li>
+ * </ul>
+ * Each invocation is rolled back, so the table stays empty. The database is in-memory H2,
+ * where a statement costs no network round trip; against Postgres the difference is larger.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class InsertBenchmark {
+
+  @Param({ "1000", "10000" })
+  public int rows;
+
+  @Param({ "sequence", "identity" })
+  public String ids;
+
+  private ConfigurableApplicationContext context;
+  private EntityManagerFactory entityManagerFactory;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = RepositoryBenchmark.startWithRestaurants("insert-" + ids + "-" + rows, 0);
+    entityManagerFactory = context.getBean(EntityManagerFactory.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int persist() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      for (int i = 1; i <= rows; i++) {
+        String name = "Restaurant " + i;
+        String description = "Tacos and burritos, location " + i;
+        entityManager.persist(ids.equals("sequence")
+            ? Restaurant.builder().name(name).description(description).build()
+            : IdentityRestaurant.builder().name(name).description(description).build());
+      }
+      entityManager.flush();
+      return rows;
+    } finally {
+      entityManager.getTransaction().rollback();
+      entityManager.close();
+    }
+  }
+}
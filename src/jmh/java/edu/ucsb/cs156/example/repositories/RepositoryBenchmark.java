@@ -0,0 +1,117 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+
+/**
+ * Benchmarks reading the restaurants table through RestaurantRepository, against an
+ * in-memory H2 database created by the Liquibase changelog and filled with {@code rows} rows:
+ * <ul>
+ *   <li>findAll: what GET /api/restaurants/all does</li>
+ *   <li>keysetPage: one page of GET /api/restaurants/page, starting in the middle of the table</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class RepositoryBenchmark {
+
+  private static final int BATCH_SIZE = 10_000;
+  private static final int PAGE_SIZE = 100;
+
+  /**
+   * Just the JPA part of the application: no controllers, security or web server.
+   */
+  @Configuration
+  @EnableAutoConfiguration
+  @EntityScan("edu.ucsb.cs156.example.entities")
+  @EnableJpaRepositories("edu.ucsb.cs156.example.repositories")
+  static class JpaOnly {
+  }
+
+  @Param({ "10000", "100000", "1000000" })
+  public int rows;
+
+  private ConfigurableApplicationContext context;
+  private RestaurantRepository restaurantRepository;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = startWithRestaurants("bench-" + rows, rows);
+    restaurantRepository = context.getBean(RestaurantRepository.class);
+  }
+
+  /**
+   * Start the JPA part of the application on a new in-memory H2 database and fill its restaurants table.
+   * @param database the name of the database
+   * @param rows how many restaurants to insert
+   * @param args any other properties, as command line arguments (e.g. "--spring.datasource.hikari.maximum-pool-size=9")
+   * @return the running context
+   */
+  static ConfigurableApplicationContext startWithRestaurants(String database, int rows, String... args) {
+    String url = "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+    List<String> arguments = new ArrayList<>(List.of(
+        "--spring.datasource.url=" + url,
+        "--spring.liquibase.url=" + url,
+        "--spring.jpa.show-sql=false"));
+    arguments.addAll(List.of(args));
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(JpaOnly.class)
+        .web(WebApplicationType.NONE)
+        .run(arguments.toArray(String[]::new));
+
+    JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    for (int i = 1; i <= rows; i++) {
+      batch.add(new Object[] { "Restaurant " + i, "Tacos and burritos, location " + i });
+      if (batch.size() == BATCH_SIZE || i == rows) {
+        jdbc.batchUpdate("INSERT INTO restaurants (name, description) VALUES (?, ?)", batch);
+        batch.clear();
+      }
+    }
+    return context;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<Restaurant> findAll() {
+    return restaurantRepository.findAll();
+  }
+
+  @Benchmark
+  public List<Restaurant> keysetPage() {
+    return restaurantRepository.findByIdGreaterThanOrderByIdAsc(rows / 2, Limit.of(PAGE_SIZE));
+  }
+}
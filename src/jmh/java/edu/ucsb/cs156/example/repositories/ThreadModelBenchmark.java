@@ -0,0 +1,113 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Compares the default request model (a pool of 200 platform threads, as Tomcat has out of the box)
+ * with the virtualthreads profile (a virtual thread per request) at high concurrency.
+ *
+ * Each operation is a burst of {@code concurrency} simulated requests, all in flight at once; each
+ * request looks up a restaurant through the repository (on a pooled connection, sized the way
+ * ConnectionPoolCustomizer would), is blocked for {@code waitMillis} on something other than the
+ * database (a slow client, another service), and serializes the result. Divide {@code concurrency}
+ * by the time per operation for requests per second.
+ *
+ * H2 runs in the same JVM and synchronizes on its session, which pins virtual threads to their
+ * carrier while they are in the database, so the database part favours platform threads more than
+ * it would against Postgres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadModelBenchmark {
+
+  private static final int ROWS = 10_000;
+  private static final int TOMCAT_MAX_THREADS = 200;
+
+  @Param({ "platform", "virtual" })
+  public String model;
+
+  @Param({ "200", "2000" })
+  public int concurrency;
+
+  @Param({ "0", "10" })
+  public int waitMillis;
+
+  private ConfigurableApplicationContext context;
+  private RestaurantRepository restaurantRepository;
+  private ObjectWriter writer;
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    int poolSize = Math.max(2, Math.min(20, 2 * Runtime.getRuntime().availableProcessors() + 1));
+    context = RepositoryBenchmark.startWithRestaurants("threads", ROWS,
+        "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+        "--spring.datasource.hikari.connection-timeout=30000");
+    restaurantRepository = context.getBean(RestaurantRepository.class);
+    writer = Jackson2ObjectMapperBuilder.json().build().writer();
+    executor = model.equals("virtual")
+        ? Executors.newVirtualThreadPerTaskExecutor()
+        : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    executor.close();
+    context.close();
+  }
+
+  @Benchmark
+  public long burst() throws Exception {
+    List<Future<Integer>> responses = new ArrayList<>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      responses.add(executor.submit(this::request));
+    }
+    long bytes = 0;
+    for (Future<Integer> response : responses) {
+      bytes += response.get();
+    }
+    return bytes;
+  }
+
+  /**
+   * One simulated GET /api/restaurants?id=...
+   * @return the size of the response body
+   * @throws Exception if the lookup or serialization fails
+   */
+  private int request() throws Exception {
+    long id = ThreadLocalRandom.current().nextLong(1, ROWS + 1);
+    Object restaurant = restaurantRepository.findById(id).orElseThrow();
+    if (waitMillis > 0) {
+      Thread.sleep(waitMillis);
+    }
+    return writer.writeValueAsBytes(restaurant).length;
+  }
+}
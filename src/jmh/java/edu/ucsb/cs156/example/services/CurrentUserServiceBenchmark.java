@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+/**
+ * Benchmarks CurrentUserServiceImpl.getCurrentUser, which runs on every API request:
+ * <ul>
+ *   <li>sameRequest: the user was already resolved earlier in the same HTTP request</li>
+ *   <li>cachedUser: first call in a request, user found in the UserCacheService</li>
+ *   <li>uncachedUser: first call in a request, user looked up in the (stubbed) repository</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurrentUserServiceBenchmark {
+
+  private static final String EMAIL = "cgaucho@ucsb.edu";
+
+  private CurrentUserServiceImpl currentUserService;
+  private UserCacheService userCacheService;
+  private ServletRequestAttributes requestAttributes;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    User user = User.builder().id(1L).email(EMAIL).fullName("Chris Gaucho").build();
+    UserRepository userRepository = mock(UserRepository.class);
+    when(userRepository.findByEmail(anyString())).thenReturn(Optional.of(user));
+
+    userCacheService = new UserCacheService(10_000, 300);
+    currentUserService = new CurrentUserServiceImpl();
+    ReflectionTestUtils.setField(currentUserService, "userRepository", userRepository);
+    currentUserService.userCacheService = userCacheService;
+    currentUserService.grantedAuthoritiesService = new GrantedAuthoritiesService();
+
+    DefaultOAuth2User principal = new DefaultOAuth2User(
+        List.of(new SimpleGrantedAuthority("ROLE_USER")),
+        Map.of("sub", "12345", "email", EMAIL, "name", "Chris Gaucho", "email_verified", true),
+        "sub");
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(principal, principal.getAuthorities(), "google"));
+    requestAttributes = new ServletRequestAttributes(new MockHttpServletRequest());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public CurrentUser sameRequest() {
+    RequestContextHolder.setRequestAttributes(requestAttributes);
+    return currentUserService.getCurrentUser();
+  }
+
+  @Benchmark
+  public CurrentUser cachedUser() {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    return currentUserService.getCurrentUser();
+  }
+
+  @Benchmark
+  public CurrentUser uncachedUser() {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    userCacheService.evictAll();
+    return currentUserService.getCurrentUser();
+  }
+}
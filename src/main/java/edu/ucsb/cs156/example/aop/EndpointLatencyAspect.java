@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.aop;
+
+import edu.ucsb.cs156.example.metrics.EndpointLatencyRecorder;
+import jakarta.servlet.http.HttpServletRequest;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * This class is an Aspect that times every request handled by a subclass of ApiController
+ * and records it in the EndpointLatencyRecorder, keyed by HTTP method and URL pattern
+ * (e.g. "GET /api/ucsbdates/all"), so that the figures can be read from /actuator/latency.
+ *
+ * @see edu.ucsb.cs156.example.metrics.EndpointLatencyEndpoint
+ */
+
+@Aspect
+@Component
+public class EndpointLatencyAspect {
+  // language=PointcutExpression
+  private static final String pointcut = """
+      within(edu.ucsb.cs156.example.controllers.ApiController+) && (
+      @annotation(org.springframework.web.bind.annotation.RequestMapping) ||
+      @annotation(org.springframework.web.bind.annotation.GetMapping) ||
+      @annotation(org.springframework.web.bind.annotation.PostMapping) ||
+      @annotation(org.springframework.web.bind.annotation.PutMapping) ||
+      @annotation(org.springframework.web.bind.annotation.DeleteMapping) ||
+      @annotation(org.springframework.web.bind.annotation.PatchMapping))
+      """;
+
+  @Autowired
+  EndpointLatencyRecorder recorder;
+
+  /**
+   * This method times an API controller method and records how long it took.
+   * @param joinPoint the join point (injected by Spring framework)
+   * @return whatever the controller method returns
+   * @throws Throwable whatever the controller method throws
+   */
+  @Around(pointcut)
+  public Object timeEndpoint(ProceedingJoinPoint joinPoint) throws Throwable {
+    long start = System.nanoTime();
+    boolean error = true;
+    try {
+      Object result = joinPoint.proceed();
+      error = false;
+      return result;
+    } finally {
+      recorder.record(endpointName(joinPoint), System.nanoTime() - start, error);
+    }
+  }
+
+  /**
+   * Name the endpoint being timed, preferring the matched URL pattern so that
+   * e.g. all ids share one entry.
+   * @param joinPoint the join point
+   * @return e.g. "GET /api/ucsbdates", or the controller method if there is no current request
+   */
+  private static String endpointName(ProceedingJoinPoint joinPoint) {
+    if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+      HttpServletRequest request = attributes.getRequest();
+      Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+      return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+    return joinPoint.getSignature().toShortString();
+  }
+}
@@ -2,25 +2,41 @@ package edu.ucsb.cs156.example.aop;
 
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
-import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.lang.reflect.Method;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * This class is an Aspect that logs all invocations of controller methods that are annotated
  * with {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping},
  * or {@code @PatchMapping}.
- * 
+ *
+ * What is logged is controlled by these properties:
+ * <ul>
+ *   <li>{@code app.logging.controllers.mode}: {@code off}, {@code entry} (log when the request
+ *       is dispatched; the default) or {@code timed} (log when the handler returns, with its duration)</li>
+ *   <li>{@code app.logging.controllers.sample-rate}: fraction of invocations to log, from 0.0 to 1.0</li>
+ * </ul>
+ *
+ * The handler and class names are resolved once per controller method and cached.
+ * Log output for this class goes through an asynchronous appender (see logback-spring.xml),
+ * so request threads do not wait on console I/O.
+ *
  * For more information on Aspect Oriented Programming (AOP)
- * and AspectJ, including what a {@code JoinPoint} is, 
- * refer to <a href="https://www.baeldung.com/aspectj">https://www.baeldung.com/aspectj</a> 
+ * and AspectJ, including what a {@code JoinPoint} is,
+ * refer to <a href="https://www.baeldung.com/aspectj">https://www.baeldung.com/aspectj</a>
  */
 
 
@@ -38,31 +54,89 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+  /**
+   * The ways in which controller invocations can be logged.
+   */
+  public enum Mode {
+    /** do not log controller invocations */
+    OFF,
+    /** log each invocation before the handler runs */
+    ENTRY,
+    /** log each invocation after the handler returns, including how long it took */
+    TIMED
+  }
+
+  /**
+   * What is known about a controller method, resolved the first time it is invoked.
+   * @param handlerName the method name
+   * @param declaringTypeName the fully qualified controller class name
+   * @param logged false if the controller is on the stoplist
+   */
+  private record HandlerInfo(String handlerName, String declaringTypeName, boolean logged) {
+  }
+
+  private static final Set<String> stoplist = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  private final Map<Method, HandlerInfo> handlers = new ConcurrentHashMap<>();
+
+  @Value("${app.logging.controllers.mode:entry}")
+  private Mode mode = Mode.ENTRY;
+
+  @Value("${app.logging.controllers.sample-rate:1.0}")
+  private double sampleRate = 1.0;
 
   /**
-   * This method is called before any controller method that is annotated with
+   * This method wraps any controller method that is annotated with
    * {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping},
-   * or {@code @PatchMapping}.
+   * or {@code @PatchMapping}, and logs the request it handles.
    * @param joinPoint the join point (injected by Spring framework)
+   * @return whatever the controller method returns
+   * @throws Throwable whatever the controller method throws
+   */
+  @Around(pointcut)
+  public Object logControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    if (mode == Mode.OFF || !log.isInfoEnabled() || !sampled()) {
+      return joinPoint.proceed();
+    }
+
+    HandlerInfo handler = handlers.computeIfAbsent(
+        ((MethodSignature) joinPoint.getSignature()).getMethod(),
+        method -> new HandlerInfo(method.getName(), method.getDeclaringClass().getName(),
+            !stoplist.contains(method.getDeclaringClass().getName())));
+    Optional<HttpServletRequest> request = getCurrentHttpRequest();
+    if (!handler.logged() || request.isEmpty()) {
+      return joinPoint.proceed();
+    }
+
+    String method = request.get().getMethod();
+    String uri = request.get().getRequestURI();
+    if (mode == Mode.ENTRY) {
+      log.info("===== {} {} handled by {} in {}", method, uri, handler.handlerName(), handler.declaringTypeName());
+      return joinPoint.proceed();
+    }
+
+    long start = System.nanoTime();
+    try {
+      return joinPoint.proceed();
+    } finally {
+      log.info("===== {} {} handled by {} in {} ({} us)", method, uri, handler.handlerName(),
+          handler.declaringTypeName(), (System.nanoTime() - start) / 1000);
+    }
+  }
+
+  /**
+   * Decide whether this invocation is one of the sampled ones.
+   * @return true if this invocation should be logged
    */
-  @Before(pointcut)
-  public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+  private boolean sampled() {
+    return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
   }
 
   /**
    * The function `getCurrentHttpRequest` returns an `Optional` containing the current
    * `HttpServletRequest` if available.
-   * 
+   *
    * @return An Optional object containing the current HttpServletRequest, if available.
    */
   private static Optional<HttpServletRequest> getCurrentHttpRequest() {
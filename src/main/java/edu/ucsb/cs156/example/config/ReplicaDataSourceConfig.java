@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * The `ReplicaDataSourceConfig` class sends read-only transactions to a read replica,
+ * when app.datasource.replica.url is set; otherwise Spring Boot's single DataSource is used.
+ *
+ * There are two connection pools: primaryDataSource (spring.datasource.*) and replicaDataSource
+ * (app.datasource.replica.*). The application's DataSource hands out connections lazily, so by the
+ * time a statement runs the transaction has marked its connection read-only or not:
+ * {@code @Transactional(readOnly = true)} work (and the streamed /all lists and exports) then reads
+ * from the replica, and everything else, including Liquibase, uses the primary. While the
+ * ReplicaLagMonitor finds the replica too far behind, read-only work uses the primary too.
+ */
+@Configuration
+@ConditionalOnProperty("app.datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+  /**
+   * @param properties the spring.datasource.* settings
+   * @return the primary's pool, configured by spring.datasource.hikari.*
+   */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    dataSource.setPoolName("primary");
+    return dataSource;
+  }
+
+  /**
+   * @param properties the spring.datasource.* settings, for the username and password
+   * @param url the replica's JDBC url
+   * @param username the replica's username, if different from the primary's
+   * @param password the replica's password, if different from the primary's
+   * @return the replica's pool, configured by app.datasource.replica.hikari.*
+   */
+  @Bean
+  @ConfigurationProperties("app.datasource.replica.hikari")
+  public HikariDataSource replicaDataSource(DataSourceProperties properties,
+      @Value("${app.datasource.replica.url}") String url,
+      @Value("${app.datasource.replica.username:}") String username,
+      @Value("${app.datasource.replica.password:}") String password) {
+    HikariDataSource dataSource = DataSourceBuilder.create()
+        .type(HikariDataSource.class)
+        .url(url)
+        .username(username.isEmpty() ? properties.determineUsername() : username)
+        .password(password.isEmpty() ? properties.determinePassword() : password)
+        .build();
+    dataSource.setPoolName("replica");
+    dataSource.setReadOnly(true);
+    return dataSource;
+  }
+
+  /**
+   * @param replica the replica's pool
+   * @param lagQuery a query returning how far behind the replica is, in milliseconds
+   * @param maxLagMillis the most the replica may be behind and still be read from
+   * @param checkIntervalMillis how often the lag is checked
+   * @return the monitor
+   */
+  @Bean
+  public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+      @Value("${app.datasource.replica.lag-query}") String lagQuery,
+      @Value("${app.datasource.replica.max-lag-ms:5000}") long maxLagMillis,
+      @Value("${app.datasource.replica.lag-check-ms:1000}") long checkIntervalMillis) {
+    return new ReplicaLagMonitor(replica, lagQuery, maxLagMillis, checkIntervalMillis);
+  }
+
+  /**
+   * @param primary the primary's pool
+   * @param replica the replica's pool
+   * @param lagMonitor says whether the replica is usable
+   * @return the DataSource used by JPA, JdbcTemplate and Liquibase
+   */
+  @Bean
+  @Primary
+  public LazyConnectionDataSourceProxy dataSource(@Qualifier("primaryDataSource") DataSource primary,
+      @Qualifier("replicaDataSource") DataSource replica, ReplicaLagMonitor lagMonitor) {
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+    dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(replica, primary, lagMonitor));
+    return dataSource;
+  }
+
+  /**
+   * Run the Liquibase changelog on the replica too, for a replica that is not really
+   * replicated, e.g. a second H2 database when trying this out locally (the replica profile).
+   * @param replica the replica's pool, whose url and credentials are used
+   * @param changeLog the Liquibase changelog
+   * @param resourceLoader loads the changelog
+   * @return a bean that migrates the replica when it is initialized
+   */
+  @Bean
+  @ConditionalOnProperty(name = "app.datasource.replica.migrate", havingValue = "true")
+  public InitializingBean replicaMigration(@Qualifier("replicaDataSource") DataSource replica,
+      @Value("${spring.liquibase.change-log}") String changeLog,
+      ResourceLoader resourceLoader) {
+    return () -> {
+      // with a connection of its own, since the pool's connections are read-only
+      HikariDataSource pool = replica.unwrap(HikariDataSource.class);
+      SpringLiquibase liquibase = new SpringLiquibase();
+      liquibase.setDataSource(new DriverManagerDataSource(pool.getJdbcUrl(), pool.getUsername(), pool.getPassword()));
+      liquibase.setChangeLog(changeLog);
+      liquibase.setResourceLoader(resourceLoader);
+      liquibase.afterPropertiesSet();
+    };
+  }
+}
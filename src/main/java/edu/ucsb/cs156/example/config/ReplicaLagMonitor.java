@@ -0,0 +1,96 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class keeps track of how far the read replica is behind the primary, so that
+ * read-only transactions only go to the replica while its data is recent enough.
+ *
+ * Every app.datasource.replica.lag-check-ms the lag query runs on the replica; it returns
+ * the lag in milliseconds. The replica is usable while the lag is at most
+ * app.datasource.replica.max-lag-ms. It is not usable before the first check, or when the
+ * check fails (e.g. the replica is down), so reads fall back to the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+  private final JdbcTemplate replica;
+  private final String lagQuery;
+  private final long maxLagMillis;
+  private final ScheduledExecutorService scheduler;
+  private volatile boolean usable;
+
+  /**
+   * Create the monitor and start checking the replica on a background thread.
+   * @param replica the replica's connection pool
+   * @param lagQuery a query returning how far behind the replica is, in milliseconds
+   * @param maxLagMillis the most the replica may be behind and still be read from
+   * @param checkIntervalMillis how often the lag is checked
+   */
+  public ReplicaLagMonitor(DataSource replica, String lagQuery, long maxLagMillis, long checkIntervalMillis) {
+    this(new JdbcTemplate(replica), lagQuery, maxLagMillis,
+        Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("replica-lag").factory()),
+        checkIntervalMillis);
+  }
+
+  /**
+   * Create the monitor with an explicit scheduler (used in tests).
+   * @param replica runs the lag query on the replica
+   * @param lagQuery a query returning how far behind the replica is, in milliseconds
+   * @param maxLagMillis the most the replica may be behind and still be read from
+   * @param scheduler runs the checks
+   * @param checkIntervalMillis how often the lag is checked
+   */
+  ReplicaLagMonitor(JdbcTemplate replica, String lagQuery, long maxLagMillis,
+      ScheduledExecutorService scheduler, long checkIntervalMillis) {
+    this.replica = replica;
+    this.lagQuery = lagQuery;
+    this.maxLagMillis = maxLagMillis;
+    this.scheduler = scheduler;
+    scheduler.scheduleWithFixedDelay(this::check, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return true if read-only transactions may use the replica
+   */
+  public boolean isReplicaUsable() {
+    return usable;
+  }
+
+  /**
+   * Run the lag query once and decide whether the replica is usable, logging each change.
+   */
+  void check() {
+    boolean wasUsable = usable;
+    try {
+      Number lag = replica.queryForObject(lagQuery, Number.class);
+      usable = lag != null && lag.longValue() <= maxLagMillis;
+      if (usable != wasUsable) {
+        log.info("Read replica is {} ms behind (limit {} ms): read-only transactions now use the {}",
+            lag, maxLagMillis, usable ? "replica" : "primary");
+      }
+    } catch (RuntimeException e) {
+      usable = false;
+      if (wasUsable) {
+        log.warn("Could not check the read replica's lag: read-only transactions now use the primary", e);
+      }
+    }
+  }
+
+  /**
+   * Stop checking when the application shuts down.
+   */
+  @PreDestroy
+  void shutdown() {
+    scheduler.shutdownNow();
+  }
+}
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * This is the DataSource that read-only transactions get their connection from:
+ * the replica while the ReplicaLagMonitor says it is recent enough, otherwise the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+  private final DataSource replica;
+  private final DataSource primary;
+  private final ReplicaLagMonitor lagMonitor;
+
+  /**
+   * @param replica the replica's connection pool
+   * @param primary the primary's connection pool, used while the replica is behind or down
+   * @param lagMonitor says whether the replica is usable
+   */
+  public ReplicaRoutingDataSource(DataSource replica, DataSource primary, ReplicaLagMonitor lagMonitor) {
+    this.replica = replica;
+    this.primary = primary;
+    this.lagMonitor = lagMonitor;
+  }
+
+  /**
+   * @return the pool a read-only transaction should use right now
+   */
+  DataSource target() {
+    return lagMonitor.isReplicaUsable() ? replica : primary;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return target().getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return target().getConnection(username, password);
+  }
+}
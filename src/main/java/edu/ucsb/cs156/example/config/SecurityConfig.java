@@ -2,6 +2,8 @@ package edu.ucsb.cs156.example.config;
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserCacheService;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -62,9 +64,23 @@ public class SecurityConfig {
   @Value("${app.admin.emails}")
   private final List<String> adminEmails = new ArrayList<>();
 
+  private Set<String> adminEmailSet = Set.of();
+
   @Autowired
   UserRepository userRepository;
 
+  @Autowired
+  UserCacheService userCacheService;
+
+  /**
+   * Copy the configured admin emails into a set once at startup, so that each login
+   * is a hash lookup rather than a scan of the list.
+   */
+  @PostConstruct
+  void loadAdminEmails() {
+    adminEmailSet = Set.copyOf(adminEmails);
+  }
+
   /**
    * The `filterChain` method in this Java code configures various security
    * settings for an HTTP request,
@@ -85,7 +101,9 @@ public class SecurityConfig {
             .csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
             .csrfTokenRequestHandler(new SpaCsrfTokenRequestHandler()))
         .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
-        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+        .authorizeHttpRequests(auth -> auth
+            .requestMatchers(antMatcher("/actuator/**")).hasRole("ADMIN")
+            .anyRequest().permitAll())
         .logout(logout -> logout.logoutRequestMatcher(new AntPathRequestMatcher("/logout")).logoutSuccessUrl("/"));
     return http.build();
   }
@@ -135,15 +153,20 @@ public class SecurityConfig {
    * predefined
    * list or by querying the user repository.
    * 
+   * Answers from the user repository are cached in the UserCacheService;
+   * an admin can clear that cache with DELETE /api/admin/users/cache.
+   * 
    * @param email email address of the user
    * @return whether the user with the given email is an admin
    */
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
+    if (adminEmailSet.contains(email)) {
       return true;
     }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return userCacheService.isAdmin(email, e -> {
+      Optional<User> u = userRepository.findByEmail(e);
+      return u.isPresent() && u.get().getAdmin();
+    });
   }
 }
 
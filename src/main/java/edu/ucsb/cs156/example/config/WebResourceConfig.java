@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+/**
+ * The `WebResourceConfig` class configures how the static files of the production frontend are cached.
+ *
+ * Everything under /static/ comes from the React build with a content hash in its name
+ * (e.g. /static/js/main.1a2b3c4d.js), so a URL there never changes meaning and browsers may keep it
+ * for a year without revalidating. The unhashed files at the top level (favicon, manifest, ...)
+ * are revalidated on every use instead (spring.web.resources.cache.cachecontrol in application.properties),
+ * and index.html is served by the FrontendController.
+ */
+@Configuration
+public class WebResourceConfig implements WebMvcConfigurer {
+
+  /**
+   * Serve /static/** as immutable, preferring the precompressed .br/.gz copies made at build time.
+   * @param registry the resource handler registry (injected by Spring framework)
+   */
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    registry.addResourceHandler("/static/**")
+        .addResourceLocations("classpath:/public/static/")
+        .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver());
+  }
+}
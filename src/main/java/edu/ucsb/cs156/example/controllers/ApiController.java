@@ -1,16 +1,43 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BatchTooLargeException;
+import edu.ucsb.cs156.example.errors.DuplicateBatchIdException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidQueryException;
+import edu.ucsb.cs156.example.errors.MissingBatchIdException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
+import edu.ucsb.cs156.example.models.BatchItemResult;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.ListQuery;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.TableVersionService.TableVersion;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * This is an abstract class that provides common functionality for all API controllers.
@@ -18,6 +45,16 @@ import java.util.Map;
 
 @Slf4j
 public abstract class ApiController {
+  /**
+   * The largest page size that may be requested from a keyset paginated endpoint.
+   */
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  /**
+   * The largest number of items that may be sent in one batch create, update or delete request.
+   */
+  public static final int MAX_BATCH_SIZE = 1000;
+
   @Autowired
   private CurrentUserService currentUserService;
 
@@ -38,6 +75,266 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method clamps a requested page size to the range 1..MAX_PAGE_SIZE.
+   * @param limit the requested page size
+   * @return the page size that will actually be used
+   */
+  protected int pageSize(int limit) {
+    return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+  }
+
+  /**
+   * This method builds a keyset page from rows fetched with a limit of pageSize + 1.
+   * The extra row, if present, only signals that another page exists and is not returned.
+   * @param rows the rows fetched from the repository, in cursor order
+   * @param pageSize the number of rows to return
+   * @param cursorOf extracts the cursor value (e.g. the id) from a row
+   * @param <T> the entity type
+   * @return the page, with nextCursor set if there are more rows
+   */
+  protected <T> KeysetPage<T> keysetPage(List<T> rows, int pageSize, Function<T, ?> cursorOf) {
+    if (rows.size() <= pageSize) {
+      return KeysetPage.<T>builder().content(rows).build();
+    }
+    List<T> content = rows.subList(0, pageSize);
+    return KeysetPage.<T>builder()
+      .content(content)
+      .nextCursor(String.valueOf(cursorOf.apply(content.get(pageSize - 1))))
+      .build();
+  }
+
+  /**
+   * This method lists the entities of a repository, filtered and sorted in the database.
+   * @param repository the repository
+   * @param query the fields of the entity that can be filtered and sorted on
+   * @param filter the filter clauses, e.g. ["solved:false"] (null for none; see ListQuery for the syntax)
+   * @param sort the sort, e.g. "-requestTime" (null for no particular order)
+   * @param <T> the entity type
+   * @param <R> the repository type
+   * @return the matching entities, in order
+   * @throws edu.ucsb.cs156.example.errors.InvalidQueryException if the filter or sort cannot be used
+   */
+  protected <T, R extends JpaRepository<T, ?> & JpaSpecificationExecutor<T>> List<T> findAll(R repository,
+      ListQuery<T> query, List<String> filter, String sort) {
+    if (filter == null && sort == null) {
+      return repository.findAll();
+    }
+    return repository.findAll(query.filter(filter), query.sort(sort));
+  }
+
+  /**
+   * This method answers a conditional GET for data that only changes when its table's version does.
+   * If the client's ETag (or Last-Modified date) is still current, the response is a 304
+   * and the body is never loaded; otherwise the body is loaded and sent with the new ETag.
+   * @param request the current request (injected by Spring framework)
+   * @param version the current version of the table the body is read from
+   * @param body loads the response body
+   * @param <T> the body type
+   * @return the response, or null if a 304 has already been set on the request
+   */
+  protected <T> ResponseEntity<T> conditionalGet(WebRequest request, TableVersion version, Supplier<T> body) {
+    if (request.checkNotModified(version.eTag(), version.lastModified())) {
+      return null;
+    }
+    // no-cache lets the browser keep the response but makes it revalidate on every use
+    return ResponseEntity.ok()
+      .cacheControl(CacheControl.noCache().cachePrivate())
+      .body(body.get());
+  }
+
+  /**
+   * This method checks that a batch request is no larger than MAX_BATCH_SIZE.
+   * @param items the items in the request
+   * @throws BatchTooLargeException if there are too many items
+   */
+  protected void checkBatchSize(List<?> items) {
+    if (items.size() > MAX_BATCH_SIZE) {
+      throw new BatchTooLargeException(items.size(), MAX_BATCH_SIZE);
+    }
+  }
+
+  /**
+   * This method checks that every item of a batch request has an id.
+   * @param ids the ids of the items, in request order
+   * @param <ID> the id type
+   * @return the ids
+   * @throws MissingBatchIdException if any id is null
+   */
+  private static <ID> List<ID> checkIds(List<ID> ids) {
+    for (int i = 0; i < ids.size(); i++) {
+      if (ids.get(i) == null) {
+        throw new MissingBatchIdException(i);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * This method checks that every item of a batch request has an id, and that no id is repeated.
+   * @param ids the ids of the items, in request order
+   * @param <ID> the id type
+   * @return the ids
+   * @throws MissingBatchIdException if any id is null
+   * @throws DuplicateBatchIdException if any id is repeated
+   */
+  private static <ID> List<ID> checkDistinctIds(List<ID> ids) {
+    checkIds(ids);
+    Set<ID> seen = new HashSet<>();
+    for (int i = 0; i < ids.size(); i++) {
+      if (!seen.add(ids.get(i))) {
+        throw new DuplicateBatchIdException(i, ids.get(i));
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * This method saves a batch of new entities whose ids are generated by the database.
+   * @param repository the repository to save them in
+   * @param entities the new entities
+   * @param idOf extracts the id from a saved entity
+   * @param <T> the entity type
+   * @return one CREATED result per entity, in request order
+   */
+  protected <T> List<BatchItemResult<T>> batchCreate(JpaRepository<T, ?> repository, List<T> entities,
+      Function<T, ?> idOf) {
+    checkBatchSize(entities);
+    return repository.saveAll(entities).stream()
+      .map(saved -> batchItemResult(idOf.apply(saved), BatchItemResult.Status.CREATED, saved))
+      .toList();
+  }
+
+  /**
+   * This method saves a batch of new entities whose ids are assigned by the client (e.g. a code),
+   * skipping any whose id is already taken.
+   * @param repository the repository to save them in
+   * @param entities the new entities
+   * @param idOf extracts the id from an entity
+   * @param <T> the entity type
+   * @param <ID> the id type
+   * @return a CREATED or ALREADY_EXISTS result per entity, in request order; an id repeated
+   *     within the request is created once and reported as ALREADY_EXISTS after that
+   * @throws MissingBatchIdException if an entity has no id
+   */
+  protected <T, ID> List<BatchItemResult<T>> batchCreateIfAbsent(JpaRepository<T, ID> repository,
+      List<T> entities, Function<T, ID> idOf) {
+    checkBatchSize(entities);
+    List<ID> ids = checkIds(entities.stream().map(idOf).toList());
+    Set<ID> taken = repository.findAllById(ids).stream()
+      .map(idOf)
+      .collect(Collectors.toCollection(HashSet::new));
+    List<Boolean> creating = ids.stream().map(taken::add).toList();
+    List<T> absent = new ArrayList<>();
+    for (int i = 0; i < entities.size(); i++) {
+      if (creating.get(i)) {
+        absent.add(entities.get(i));
+      }
+    }
+    Iterator<T> saved = repository.saveAll(absent).iterator();
+    List<BatchItemResult<T>> results = new ArrayList<>();
+    for (int i = 0; i < entities.size(); i++) {
+      results.add(creating.get(i)
+        ? batchItemResult(ids.get(i), BatchItemResult.Status.CREATED, saved.next())
+        : batchItemResult(ids.get(i), BatchItemResult.Status.ALREADY_EXISTS, null));
+    }
+    return results;
+  }
+
+  /**
+   * This method updates a batch of existing entities, loading them all with one query.
+   * Callers should be transactional so that the changes are flushed as batched updates.
+   * @param repository the repository holding the entities
+   * @param incoming the new contents, each carrying the id of the entity to update
+   * @param idOf extracts the id from an entity
+   * @param update copies the new contents (second argument) onto the stored entity (first argument)
+   * @param <T> the entity type
+   * @param <ID> the id type
+   * @return an UPDATED or NOT_FOUND result per item, in request order
+   * @throws MissingBatchIdException if an item has no id
+   * @throws DuplicateBatchIdException if two items have the same id, since each entity can
+   *     only be updated (and reported) once
+   */
+  protected <T, ID> List<BatchItemResult<T>> batchUpdate(JpaRepository<T, ID> repository, List<T> incoming,
+      Function<T, ID> idOf, BiConsumer<T, T> update) {
+    checkBatchSize(incoming);
+    Map<ID, T> stored = repository.findAllById(checkDistinctIds(incoming.stream().map(idOf).toList())).stream()
+      .collect(Collectors.toMap(idOf, Function.identity()));
+    List<BatchItemResult<T>> results = new ArrayList<>();
+    List<T> updated = new ArrayList<>();
+    for (T item : incoming) {
+      ID id = idOf.apply(item);
+      T entity = stored.get(id);
+      if (entity == null) {
+        results.add(batchItemResult(id, BatchItemResult.Status.NOT_FOUND, null));
+      } else {
+        update.accept(entity, item);
+        updated.add(entity);
+        results.add(batchItemResult(id, BatchItemResult.Status.UPDATED, entity));
+      }
+    }
+    repository.saveAll(updated);
+    return results;
+  }
+
+  /**
+   * This method deletes a batch of entities with a single delete statement.
+   * @param repository the repository holding the entities
+   * @param ids the ids of the entities to delete
+   * @param idOf extracts the id from an entity
+   * @param <T> the entity type
+   * @param <ID> the id type
+   * @return a DELETED or NOT_FOUND result per id, in request order
+   */
+  protected <T, ID> List<BatchItemResult<T>> batchDelete(JpaRepository<T, ID> repository, List<ID> ids,
+      Function<T, ID> idOf) {
+    return batchDelete(repository, ids, idOf, deleted -> { });
+  }
+
+  /**
+   * This method deletes a batch of entities with a single delete statement,
+   * passing the entities that were found (and so deleted) to onDelete.
+   * @param repository the repository holding the entities
+   * @param ids the ids of the entities to delete
+   * @param idOf extracts the id from an entity
+   * @param onDelete called with the entities being deleted, e.g. to update derived data
+   * @param <T> the entity type
+   * @param <ID> the id type
+   * @return a DELETED or NOT_FOUND result per id, in request order
+   * @throws MissingBatchIdException if an id is null
+   */
+  protected <T, ID> List<BatchItemResult<T>> batchDelete(JpaRepository<T, ID> repository, List<ID> ids,
+      Function<T, ID> idOf, Consumer<List<T>> onDelete) {
+    checkBatchSize(ids);
+    List<T> deleted = repository.findAllById(checkIds(ids));
+    Set<ID> found = deleted.stream()
+      .map(idOf)
+      .collect(Collectors.toSet());
+    repository.deleteAllByIdInBatch(found);
+    onDelete.accept(deleted);
+    return ids.stream()
+      .<BatchItemResult<T>>map(id -> batchItemResult(id,
+        found.contains(id) ? BatchItemResult.Status.DELETED : BatchItemResult.Status.NOT_FOUND, null))
+      .toList();
+  }
+
+  private static <T> BatchItemResult<T> batchItemResult(Object id, BatchItemResult.Status status, T entity) {
+    return BatchItemResult.<T>builder().id(id).status(status).entity(entity).build();
+  }
+
+  /**
+   * This method answers an import: 200 with the number of rows imported, or 400 with the
+   * errors if the file was rejected (in which case nothing was imported).
+   * @param result the result of the import
+   * @return the response
+   */
+  protected ResponseEntity<ImportResult> importResponse(ImportResult result) {
+    if (!result.getErrors().isEmpty()) {
+      return ResponseEntity.badRequest().body(result);
+    }
+    return ResponseEntity.ok(result);
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    * @param e the exception
@@ -51,4 +348,72 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * This method handles the BatchTooLargeException, MissingBatchIdException, DuplicateBatchIdException
+   * and InvalidQueryException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ BatchTooLargeException.class, MissingBatchIdException.class, DuplicateBatchIdException.class,
+    InvalidQueryException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequestException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles a request body that fails its validation constraints (@Valid).
+   * @param e the exception
+   * @return a map with the type of the exception and the invalid fields
+   */
+  @ExceptionHandler({ MethodArgumentNotValidException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleMethodArgumentNotValidException(MethodArgumentNotValidException e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getFieldErrors().stream()
+        .map(error -> error.getField() + " " + error.getDefaultMessage())
+        .sorted()
+        .collect(Collectors.joining(", "))
+    );
+  }
+
+  /**
+   * This method handles an entity that fails its validation constraints when it is written.
+   * @param e the exception
+   * @return a map with the type of the exception and the invalid fields
+   */
+  @ExceptionHandler({ ConstraintViolationException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleConstraintViolationException(ConstraintViolationException e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getConstraintViolations().stream()
+        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+        .sorted()
+        .collect(Collectors.joining(", "))
+    );
+  }
+
+  /**
+   * This method handles a transaction that fails to commit. If that is because an entity
+   * failed its validation constraints when it was flushed, the response is a 400 as for
+   * handleConstraintViolationException; otherwise it is a 500.
+   * @param e the exception
+   * @return the response, with a map with the type and message of the exception
+   */
+  @ExceptionHandler({ TransactionSystemException.class })
+  public ResponseEntity<Object> handleTransactionSystemException(TransactionSystemException e) {
+    if (e.getRootCause() instanceof ConstraintViolationException violation) {
+      return ResponseEntity.badRequest().body(handleConstraintViolationException(violation));
+    }
+    return ResponseEntity.internalServerError().body(Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    ));
+  }
 }
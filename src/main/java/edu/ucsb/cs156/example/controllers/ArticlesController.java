@@ -2,7 +2,11 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.EntityStreamService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +16,28 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "Articles")
 @RequestMapping("/api/articles")
@@ -36,17 +48,83 @@ public class ArticlesController extends ApiController {
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    /**
+     * List all articles, optionally filtered and sorted
+     * 
+     * @param filter only articles matching every clause are returned, e.g. email:cgaucho@ucsb.edu
+     * @param sort the order of the articles, e.g. -dateAdded for the newest first
+     * @return an iterable of Articles
+     */
     @Operation(summary = "List all articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Articles> allArticles() {
-        Iterable<Articles> records = articlesRepository.findAll();
-        return records;
+    @Transactional(readOnly = true)
+    public Iterable<Articles> allArticles(
+            @Parameter(name = "filter", description = "e.g. dateAdded:>=2024-01-01T00:00:00; clauses are field:value, field:!value, field:a|b or field:>value (also >=, <, <=), on email or dateAdded") @RequestParam(required = false) List<String> filter,
+            @Parameter(name = "sort", description = "e.g. -dateAdded; comma separated, - for descending, on id or dateAdded") @RequestParam(required = false) String sort) {
+        return findAll(articlesRepository, ArticlesRepository.LIST_QUERY, filter, sort);
+    }
+
+    /**
+     * Export all articles, for reports, streamed from the database as they are written
+     * 
+     * @param format csv (with a header row) or ndjson (one JSON object per line)
+     * @return the file
+     */
+    @Operation(summary= "Export all articles as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportArticles(
+            @Parameter(name="format", description="csv or ndjson") @RequestParam(defaultValue = "csv") String format) {
+        return entityStreamService.export(Articles.class, format, articlesRepository::streamAllByOrderByIdAsc);
+    }
+
+    /**
+     * Follow the changes to articles as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to articles (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter articleChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(Articles.class, lastEventId, after);
+    }
+
+    /**
+     * List articles one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only articles with an id after this cursor are returned
+     * @param limit the maximum number of articles to return (at most 1000)
+     * @return a page of Articles, with the cursor for the next page
+     */
+    @Operation(summary= "List articles one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<Articles> pageArticles(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<Articles> rows = articlesRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, Articles::getId);
     }
 
     @Operation(summary = "Create a new article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public Articles postArticles(
             @Parameter(name = "title") @RequestParam String title,
             @Parameter(name = "url") @RequestParam String url,
@@ -68,6 +146,7 @@ public class ArticlesController extends ApiController {
         records.setDateAdded(dateAdded);
 
         Articles savedArticles = articlesRepository.save(records);
+        changeFeedService.inserted(Articles.class, savedArticles.getId(), savedArticles);
 
         return savedArticles;
     }
@@ -75,6 +154,7 @@ public class ArticlesController extends ApiController {
     @Operation(summary = "Get a single article")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
+    @Transactional(readOnly = true)
     public Articles getById(
             @Parameter(name = "id") @RequestParam Long id) {
         Articles article = articlesRepository.findById(id)
@@ -86,6 +166,7 @@ public class ArticlesController extends ApiController {
     @Operation(summary = "Update a single article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public Articles updateArticles(
             @Parameter(name = "id") @RequestParam Long id,
             @RequestBody @Valid Articles incoming) {
@@ -100,6 +181,7 @@ public class ArticlesController extends ApiController {
         article.setDateAdded(incoming.getDateAdded());
 
         articlesRepository.save(article);
+        changeFeedService.updated(Articles.class, article.getId(), article);
 
         return article;
     }
@@ -107,13 +189,66 @@ public class ArticlesController extends ApiController {
     @Operation(summary = "Delete an article")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteArticle(
             @Parameter(name = "id") @RequestParam Long id) {
         Articles article = articlesRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
 
         articlesRepository.delete(article);
+        changeFeedService.deleted(Articles.class, article.getId());
         return genericMessage("Article with id %s deleted".formatted(id));
     }
 
+    /**
+     * Create many articles at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new articles; any ids in the request are ignored
+     * @return one result per article, in request order, with the id set by the database
+     */
+    @Operation(summary= "Create many articles at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<Articles>> postArticlesBatch(
+            @RequestBody List<Articles> incoming) {
+        incoming.forEach(article -> article.setId(0));
+        return changeFeedService.publishAll(Articles.class,
+                batchCreate(articlesRepository, incoming, Articles::getId));
+    }
+
+    /**
+     * Update many articles at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new contents, each with the id of the article to update
+     * @return one result per article, in request order
+     */
+    @Operation(summary= "Update many articles at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<Articles>> updateArticlesBatch(
+            @RequestBody List<Articles> incoming) {
+        List<BatchItemResult<Articles>> results = batchUpdate(articlesRepository, incoming, Articles::getId, (article, changes) -> {
+            article.setTitle(changes.getTitle());
+            article.setUrl(changes.getUrl());
+            article.setExplanation(changes.getExplanation());
+            article.setEmail(changes.getEmail());
+            article.setDateAdded(changes.getDateAdded());
+        });
+        return changeFeedService.publishAll(Articles.class, results);
+    }
+
+    /**
+     * Delete many articles at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param ids the ids of the articles to delete
+     * @return one result per id, in request order
+     */
+    @Operation(summary= "Delete many articles at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<Articles>> deleteArticlesBatch(
+            @RequestBody List<Long> ids) {
+        return changeFeedService.publishAll(Articles.class,
+                batchDelete(articlesRepository, ids, Articles::getId));
+    }
 }
@@ -1,12 +1,25 @@
 package edu.ucsb.cs156.example.controllers;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import jakarta.annotation.PostConstruct;
 
 /**
  * The FrontendController is used to serve the frontend of the application.
@@ -15,6 +28,7 @@ import edu.ucsb.cs156.example.services.wiremock.WiremockService;
  * For development, see the FrontendProxyController.
  * 
  * @see edu.ucsb.cs156.example.controllers.FrontendProxyController
+ * @see edu.ucsb.cs156.example.config.WebResourceConfig
  */
 
 @Profile("!development")
@@ -23,15 +37,93 @@ public class FrontendController {
 
   @Autowired
   WiremockService wiremockService;
+
+  @Value("classpath:/public/index.html")
+  Resource indexHtmlResource;
+
+  /** The content codings of the precompressed copies written by frontend/scripts/precompress.js, best first. */
+  private static final Map<String, String> PRECOMPRESSED = Map.of("br", ".br", "gzip", ".gz");
+  private static final List<String> PREFERRED_CODINGS = List.of("br", "gzip");
+  private static final String IDENTITY = "identity";
+
+  private final Map<String, byte[]> indexHtml = new LinkedHashMap<>();
+  private String indexHtmlETag;
+  private long indexHtmlLastModified;
+
+  /**
+   * Read index.html, and the .br/.gz copies the frontend build writes next to it, once at startup;
+   * they only change when the application is rebuilt.
+   * If the frontend has not been built, every page is a 404.
+   * @throws IOException if index.html exists but cannot be read
+   */
+  @PostConstruct
+  void loadIndexHtml() throws IOException {
+    if (!indexHtmlResource.exists()) {
+      return;
+    }
+    byte[] contents = indexHtmlResource.getContentAsByteArray();
+    indexHtml.put(IDENTITY, contents);
+    for (String coding : PREFERRED_CODINGS) {
+      Resource variant = indexHtmlResource.createRelative(indexHtmlResource.getFilename() + PRECOMPRESSED.get(coding));
+      if (variant.exists()) {
+        indexHtml.put(coding, variant.getContentAsByteArray());
+      }
+    }
+    indexHtmlETag = "W/\"" + DigestUtils.md5DigestAsHex(contents) + "\"";
+    indexHtmlLastModified = indexHtmlResource.lastModified();
+  }
   
   /**
-   * Serve home page of application
-   * @return the home page (via index.html)
+   * Serve home page of application.
+   * index.html names the current hashed bundle, so browsers must revalidate it on every visit
+   * (a cheap 304 while it is unchanged) to pick up a new release.
+   * The best precompressed copy the browser accepts is sent as is, like the bundle under /static.
+   * @param acceptEncoding the content codings the browser accepts
+   * @return the home page (index.html)
    */
 
   @GetMapping("/**/{path:[^\\.]*}")
-  public String index() {
-    return "forward:/index.html";
+  public ResponseEntity<byte[]> index(
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, defaultValue = "") String acceptEncoding) {
+    if (indexHtml.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    String coding = PREFERRED_CODINGS.stream()
+        .filter(c -> indexHtml.containsKey(c) && accepts(acceptEncoding, c))
+        .findFirst()
+        .orElse(IDENTITY);
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .contentType(MediaType.TEXT_HTML)
+        .cacheControl(CacheControl.noCache())
+        .eTag(indexHtmlETag)
+        .lastModified(indexHtmlLastModified)
+        .varyBy(HttpHeaders.ACCEPT_ENCODING);
+    if (!coding.equals(IDENTITY)) {
+      response.header(HttpHeaders.CONTENT_ENCODING, coding);
+    }
+    return response.body(indexHtml.get(coding));
+  }
+
+  /**
+   * Whether an Accept-Encoding header lists a content coding (or *) without q=0.
+   * @param acceptEncoding the Accept-Encoding header, empty if absent
+   * @param coding a content coding such as gzip
+   * @return true if the coding may be sent
+   */
+  static boolean accepts(String acceptEncoding, String coding) {
+    boolean wildcard = false;
+    for (String element : acceptEncoding.split(",")) {
+      String[] parts = element.split(";");
+      String name = parts[0].trim();
+      boolean allowed = parts.length < 2 || !parts[1].trim().matches("(?i)q=0(\\.0{0,3})?");
+      if (name.equalsIgnoreCase(coding)) {
+        return allowed;
+      }
+      if (name.equals("*")) {
+        wildcard = allowed;
+      }
+    }
+    return wildcard;
   }
 
   /**
@@ -2,7 +2,12 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.HelpRequestQueueService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +17,28 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "HelpRequest")
 @RequestMapping("/api/helprequest")
@@ -37,17 +50,107 @@ public class HelpRequestController extends ApiController {
   @Autowired
   HelpRequestRepository helpRequestRepository;
 
+  @Autowired
+  ChangeFeedService changeFeedService;
+
+  @Autowired
+  EntityStreamService entityStreamService;
+
+  @Autowired
+  HelpRequestQueueService helpRequestQueueService;
+
   /**
-     * List all HelpRequests 
+     * List all HelpRequests, optionally filtered and sorted
      * 
+     * @param filter only requests matching every clause are returned, e.g. solved:false
+     * @param sort the order of the requests, e.g. -requestTime for the newest first
      * @return an iterable of HelpRequest
      */
     @Operation(summary= "List all HelpRequests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
-        Iterable<HelpRequest> requests = helpRequestRepository.findAll();
-        return requests;
+    @Transactional(readOnly = true)
+    public Iterable<HelpRequest> allHelpRequests(
+            @Parameter(name="filter", description="e.g. solved:false,requestTime:>=2024-10-01T00:00:00; clauses are field:value, field:!value, field:a|b or field:>value (also >=, <, <=), on solved, teamId, requesterEmail or requestTime") @RequestParam(required=false) List<String> filter,
+            @Parameter(name="sort", description="e.g. -requestTime; comma separated, - for descending, on id or requestTime") @RequestParam(required=false) String sort) {
+        return findAll(helpRequestRepository, HelpRequestRepository.LIST_QUERY, filter, sort);
+    }
+
+    /**
+     * Export all help requests, for reports, streamed from the database as they are written
+     * 
+     * @param format csv (with a header row) or ndjson (one JSON object per line)
+     * @return the file
+     */
+    @Operation(summary= "Export all help requests as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportHelpRequests(
+            @Parameter(name="format", description="csv or ndjson") @RequestParam(defaultValue = "csv") String format) {
+        return entityStreamService.export(HelpRequest.class, format, helpRequestRepository::streamAllByOrderByIdAsc);
+    }
+
+    /**
+     * List the open queue: the HelpRequests that are not solved yet, oldest first
+     * 
+     * @return the unsolved HelpRequests, ordered by requestTime
+     */
+    @Operation(summary= "List the HelpRequests that are not solved yet, oldest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/open")
+    @Transactional(readOnly = true)
+    public List<HelpRequest> openHelpRequests() {
+        return helpRequestRepository.findBySolvedFalseOrderByRequestTimeAscIdAsc();
+    }
+
+    /**
+     * Follow changes to the open queue as Server-Sent Events: an "open" event with the
+     * HelpRequest when one is created or changed while unsolved, and a "closed" event
+     * with its id when one is solved or deleted
+     * 
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to the open queue (Server-Sent Events); subscribe before fetching /open")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/open/stream", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOpenHelpRequests() {
+        return helpRequestQueueService.subscribe();
+    }
+
+    /**
+     * Follow the changes to help requests as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to help requests (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter helpRequestChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(HelpRequest.class, lastEventId, after);
+    }
+
+    /**
+     * List HelpRequests one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only requests with an id after this cursor are returned
+     * @param limit the maximum number of requests to return (at most 1000)
+     * @return a page of HelpRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List HelpRequests one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<HelpRequest> pageHelpRequests(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<HelpRequest> rows = helpRequestRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, HelpRequest::getId);
     }
 
     /**
@@ -64,6 +167,7 @@ public class HelpRequestController extends ApiController {
     @Operation(summary= "Create a new HelpRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public HelpRequest postMenuItemReview(
             @Parameter(name="requesterEmail") @RequestParam String requesterEmail,
             @Parameter(name="teamId") @RequestParam String teamId,
@@ -86,6 +190,8 @@ public class HelpRequestController extends ApiController {
               helpRequest.setExplanation(explanation);
               helpRequest.setSolved(solved);
               HelpRequest savedMenuItemReview = helpRequestRepository.save(helpRequest);
+              changeFeedService.inserted(HelpRequest.class, savedMenuItemReview.getId(), savedMenuItemReview);
+              helpRequestQueueService.changed(savedMenuItemReview);
               return savedMenuItemReview;
           }
           
@@ -98,6 +204,7 @@ public class HelpRequestController extends ApiController {
            @Operation(summary= "Get a single request")
            @PreAuthorize("hasRole('ROLE_USER')")
            @GetMapping("")
+           @Transactional(readOnly = true)
            public HelpRequest getById(
                    @Parameter(name="id") @RequestParam Long id) {
                HelpRequest helpRequest = helpRequestRepository.findById(id)
@@ -115,12 +222,15 @@ public class HelpRequestController extends ApiController {
              @Operation(summary= "Delete a HelpRequest")
              @PreAuthorize("hasRole('ROLE_ADMIN')")
              @DeleteMapping("")
+             @Transactional
              public Object deleteHelpRequest(
                    @Parameter(name="id") @RequestParam Long id) {
                HelpRequest helpRequest = helpRequestRepository.findById(id)
                        .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
                 
                helpRequestRepository.delete(helpRequest);
+               changeFeedService.deleted(HelpRequest.class, helpRequest.getId());
+               helpRequestQueueService.removed(id);
                return genericMessage("HelpRequest with id %s deleted".formatted(id));
              }
                   
@@ -135,6 +245,7 @@ public class HelpRequestController extends ApiController {
              @Operation(summary= "Update a single request")
              @PreAuthorize("hasRole('ROLE_ADMIN')")
              @PutMapping("")
+             @Transactional
              public HelpRequest updateMenuItemReview(
                @Parameter(name="id") @RequestParam Long id,
                @RequestBody @Valid HelpRequest incoming) {
@@ -150,6 +261,76 @@ public class HelpRequestController extends ApiController {
                   helpRequest.setSolved(incoming.getSolved());
 
                helpRequestRepository.save(helpRequest);
+               changeFeedService.updated(HelpRequest.class, helpRequest.getId(), helpRequest);
+               helpRequestQueueService.changed(helpRequest);
                return helpRequest;
      }
-}
\ No newline at end of file
+
+  /**
+   * Create many help requests at once. Accessible only to users with the role "ROLE_ADMIN".
+   * @param incoming the new help requests; any ids in the request are ignored
+   * @return one result per help request, in request order, with the id set by the database
+   */
+  @Operation(summary= "Create many help requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/batch")
+  @Transactional
+  public List<BatchItemResult<HelpRequest>> postHelpRequestsBatch(
+      @RequestBody List<HelpRequest> incoming) {
+    incoming.forEach(helpRequest -> helpRequest.setId(0));
+    return publish(batchCreate(helpRequestRepository, incoming, HelpRequest::getId));
+  }
+
+  /**
+   * Update many help requests at once. Accessible only to users with the role "ROLE_ADMIN".
+   * @param incoming the new contents, each with the id of the help request to update
+   * @return one result per help request, in request order
+   */
+  @Operation(summary= "Update many help requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/batch")
+  @Transactional
+  public List<BatchItemResult<HelpRequest>> updateHelpRequestsBatch(
+      @RequestBody List<HelpRequest> incoming) {
+    return publish(batchUpdate(helpRequestRepository, incoming, HelpRequest::getId, (helpRequest, changes) -> {
+      helpRequest.setRequesterEmail(changes.getRequesterEmail());
+      helpRequest.setTeamId(changes.getTeamId());
+      helpRequest.setTableOrBreakoutRoom(changes.getTableOrBreakoutRoom());
+      helpRequest.setRequestTime(changes.getRequestTime());
+      helpRequest.setExplanation(changes.getExplanation());
+      helpRequest.setSolved(changes.getSolved());
+    }));
+  }
+
+  /**
+   * Delete many help requests at once. Accessible only to users with the role "ROLE_ADMIN".
+   * @param ids the ids of the help requests to delete
+   * @return one result per id, in request order
+   */
+  @Operation(summary= "Delete many help requests at once")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/batch")
+  @Transactional
+  public List<BatchItemResult<HelpRequest>> deleteHelpRequestsBatch(
+      @RequestBody List<Long> ids) {
+    return publish(batchDelete(helpRequestRepository, ids, HelpRequest::getId));
+  }
+
+  /**
+   * Publish every help request a batch created, updated or deleted to the change feed
+   * and to the open queue's subscribers.
+   * @param results the results of the batch
+   * @return the same results
+   */
+  private List<BatchItemResult<HelpRequest>> publish(List<BatchItemResult<HelpRequest>> results) {
+    changeFeedService.publishAll(HelpRequest.class, results);
+    for (BatchItemResult<HelpRequest> result : results) {
+      switch (result.getStatus()) {
+        case CREATED, UPDATED -> helpRequestQueueService.changed(result.getEntity());
+        case DELETED -> helpRequestQueueService.removed((Long) result.getId());
+        default -> { }
+      }
+    }
+    return results;
+  }
+}
@@ -1,25 +1,41 @@
 package edu.ucsb.cs156.example.controllers;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This is a REST controller for MenuItemReviews
@@ -33,19 +49,111 @@ public class MenuItemReviewController extends ApiController {
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    MenuItemRatingService menuItemRatingService;
+
     /**
-     * List all MenuItemReviews 
+     * List all MenuItemReviews, streamed from the database as they are written
      * 
-     * @return an iterable of MenuItemReview
+     * @return a JSON array of MenuItemReview
      */
     @Operation(summary= "List all MenuItemReviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allMenuItemReviewS() {
-        Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> allMenuItemReviewS() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(entityStreamService.jsonArray(menuItemReviewRepository::streamAllByOrderByIdAsc));
+    }
+
+    /**
+     * Export all menu item reviews, for reports, streamed from the database as they are written
+     * 
+     * @param format csv (with a header row) or ndjson (one JSON object per line)
+     * @return the file
+     */
+    @Operation(summary= "Export all menu item reviews as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMenuItemReviews(
+            @Parameter(name="format", description="csv or ndjson") @RequestParam(defaultValue = "csv") String format) {
+        return entityStreamService.export(MenuItemReview.class, format, menuItemReviewRepository::streamAllByOrderByIdAsc);
+    }
+
+    /**
+     * List all MenuItemReviews for one menu item
+     * 
+     * @param itemId the id of the menu item
+     * @return an iterable of MenuItemReview
+     */
+    @Operation(summary= "List all MenuItemReviews for a menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "itemId")
+    @Transactional(readOnly = true)
+    public Iterable<MenuItemReview> menuItemReviewsForItem(
+            @Parameter(name="itemId") @RequestParam long itemId) {
+        Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAllByItemId(itemId);
         return reviews;
     }
 
+    /**
+     * Get the aggregate star ratings of many menu items at once
+     * 
+     * @param itemIds the ids of the menu items (at most 1000)
+     * @return one MenuItemRating per distinct item id, in id order
+     */
+    @Operation(summary= "Get the aggregate ratings of many menu items")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/ratings")
+    @Transactional(readOnly = true)
+    public List<MenuItemRating> menuItemRatings(
+            @Parameter(name="itemIds", description="comma separated menu item ids") @RequestParam List<Long> itemIds) {
+        checkBatchSize(itemIds);
+        return menuItemRatingService.getRatings(itemIds);
+    }
+
+    /**
+     * Follow the changes to menu item reviews as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to menu item reviews (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter menuItemReviewChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(MenuItemReview.class, lastEventId, after);
+    }
+
+    /**
+     * List MenuItemReviews one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only reviews with an id after this cursor are returned
+     * @param limit the maximum number of reviews to return (at most 1000)
+     * @return a page of MenuItemReview, with the cursor for the next page
+     */
+    @Operation(summary= "List MenuItemReviews one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<MenuItemReview> pageMenuItemReviews(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<MenuItemReview> rows = menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, MenuItemReview::getId);
+    }
+
     /**
      * Post a new MenuItemReview 
      * 
@@ -59,6 +167,7 @@ public class MenuItemReviewController extends ApiController {
     @Operation(summary= "Create a new MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public MenuItemReview postMenuItemReview(
             @Parameter(name="itemId") @RequestParam long itemId,
             @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
@@ -79,6 +188,8 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setStars(stars);
         menuItemReview.setDateReviewed(dateReviewed);
         MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
+        changeFeedService.inserted(MenuItemReview.class, savedMenuItemReview.getId(), savedMenuItemReview);
+        menuItemRatingService.reviewsChanged(List.of(menuItemReview), List.of());
         return savedMenuItemReview;
     }
 
@@ -90,6 +201,7 @@ public class MenuItemReviewController extends ApiController {
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')") 
     @GetMapping("")
+    @Transactional(readOnly = true)
     public MenuItemReview getById(
             @Parameter(name="id") @RequestParam Long id) {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
@@ -107,12 +219,15 @@ public class MenuItemReviewController extends ApiController {
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
         menuItemReviewRepository.delete(menuItemReview);
+        changeFeedService.deleted(MenuItemReview.class, menuItemReview.getId());
+        menuItemRatingService.reviewsChanged(List.of(), List.of(menuItemReview));
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
   
@@ -127,6 +242,7 @@ public class MenuItemReviewController extends ApiController {
     @Operation(summary= "Update a single review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public MenuItemReview updateMenuItemReview(
         @Parameter(name="id") @RequestParam Long id,
         @RequestBody @Valid MenuItemReview incoming) {
@@ -134,6 +250,7 @@ public class MenuItemReviewController extends ApiController {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
+        MenuItemReview before = ratedPart(menuItemReview);
         menuItemReview.setItemId(incoming.getItemId());
         menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
         menuItemReview.setStars(incoming.getStars());
@@ -142,7 +259,79 @@ public class MenuItemReviewController extends ApiController {
 
 
         menuItemReviewRepository.save(menuItemReview);
+        changeFeedService.updated(MenuItemReview.class, menuItemReview.getId(), menuItemReview);
+        menuItemRatingService.reviewsChanged(List.of(menuItemReview), List.of(before));
 
         return menuItemReview;
     }
-}
\ No newline at end of file
+
+    /**
+     * Create many menu item reviews at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new menu item reviews; any ids in the request are ignored
+     * @return one result per menu item review, in request order, with the id set by the database
+     */
+    @Operation(summary= "Create many menu item reviews at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<MenuItemReview>> postMenuItemReviewsBatch(
+            @RequestBody List<MenuItemReview> incoming) {
+        incoming.forEach(menuItemReview -> menuItemReview.setId(0));
+        List<BatchItemResult<MenuItemReview>> results = batchCreate(menuItemReviewRepository, incoming, MenuItemReview::getId);
+        menuItemRatingService.reviewsChanged(incoming, List.of());
+        return changeFeedService.publishAll(MenuItemReview.class, results);
+    }
+
+    /**
+     * Update many menu item reviews at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new contents, each with the id of the menu item review to update
+     * @return one result per menu item review, in request order
+     */
+    @Operation(summary= "Update many menu item reviews at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<MenuItemReview>> updateMenuItemReviewsBatch(
+            @RequestBody List<MenuItemReview> incoming) {
+        // keyed by id, so each review counts once: as it was before, and as it is after all its changes
+        Map<Long, MenuItemReview> before = new LinkedHashMap<>();
+        Map<Long, MenuItemReview> after = new LinkedHashMap<>();
+        List<BatchItemResult<MenuItemReview>> results = batchUpdate(menuItemReviewRepository, incoming, MenuItemReview::getId, (menuItemReview, changes) -> {
+            before.putIfAbsent(menuItemReview.getId(), ratedPart(menuItemReview));
+            menuItemReview.setItemId(changes.getItemId());
+            menuItemReview.setReviewerEmail(changes.getReviewerEmail());
+            menuItemReview.setStars(changes.getStars());
+            menuItemReview.setDateReviewed(changes.getDateReviewed());
+            menuItemReview.setComments(changes.getComments());
+            after.put(menuItemReview.getId(), menuItemReview);
+        });
+        menuItemRatingService.reviewsChanged(List.copyOf(after.values()), List.copyOf(before.values()));
+        return changeFeedService.publishAll(MenuItemReview.class, results);
+    }
+
+    /**
+     * Delete many menu item reviews at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param ids the ids of the menu item reviews to delete
+     * @return one result per id, in request order
+     */
+    @Operation(summary= "Delete many menu item reviews at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<MenuItemReview>> deleteMenuItemReviewsBatch(
+            @RequestBody List<Long> ids) {
+        List<BatchItemResult<MenuItemReview>> results = batchDelete(menuItemReviewRepository, ids, MenuItemReview::getId,
+                deleted -> menuItemRatingService.reviewsChanged(List.of(), deleted));
+        return changeFeedService.publishAll(MenuItemReview.class, results);
+    }
+
+    /**
+     * Copy the fields of a review that count towards its item's rating, before they are edited.
+     * 
+     * @param review the review
+     * @return a new MenuItemReview with only itemId and stars set
+     */
+    private static MenuItemReview ratedPart(MenuItemReview review) {
+        return MenuItemReview.builder().itemId(review.getItemId()).stars(review.getStars()).build();
+    }
+}
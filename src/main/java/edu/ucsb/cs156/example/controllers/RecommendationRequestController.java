@@ -1,24 +1,36 @@
 package edu.ucsb.cs156.example.controllers;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.EntityStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -38,17 +50,77 @@ public class RecommendationRequestController extends ApiController{
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    EntityStreamService entityStreamService;
+
     /**
-     * List all Recommendation requests
+     * List all Recommendation requests, optionally filtered and sorted
      * 
+     * @param filter only requests matching every clause are returned, e.g. done:false
+     * @param sort the order of the requests, e.g. dateNeeded for the most urgent first
      * @return an iterable of RecommendationRequest
      */
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<RecommendationRequest> allRecommendationRequests() {
-        Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
-        return requests;
+    @Transactional(readOnly = true)
+    public Iterable<RecommendationRequest> allRecommendationRequests(
+            @Parameter(name="filter", description="e.g. done:false,professorEmail:prof@ucsb.edu; clauses are field:value, field:!value, field:a|b or field:>value (also >=, <, <=), on done, requesterEmail, professorEmail, dateRequested or dateNeeded") @RequestParam(required=false) List<String> filter,
+            @Parameter(name="sort", description="e.g. dateNeeded; comma separated, - for descending, on id, dateRequested or dateNeeded") @RequestParam(required=false) String sort) {
+        return findAll(recommendationRequestRepository, RecommendationRequestRepository.LIST_QUERY, filter, sort);
+    }
+
+    /**
+     * Export all recommendation requests, for reports, streamed from the database as they are written
+     * 
+     * @param format csv (with a header row) or ndjson (one JSON object per line)
+     * @return the file
+     */
+    @Operation(summary= "Export all recommendation requests as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecommendationRequests(
+            @Parameter(name="format", description="csv or ndjson") @RequestParam(defaultValue = "csv") String format) {
+        return entityStreamService.export(RecommendationRequest.class, format, recommendationRequestRepository::streamAllByOrderByIdAsc);
+    }
+
+    /**
+     * Follow the changes to recommendation requests as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to recommendation requests (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter recommendationRequestChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(RecommendationRequest.class, lastEventId, after);
+    }
+
+    /**
+     * List recommendation requests one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only requests with an id after this cursor are returned
+     * @param limit the maximum number of requests to return (at most 1000)
+     * @return a page of RecommendationRequest, with the cursor for the next page
+     */
+    @Operation(summary= "List recommendation requests one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<RecommendationRequest> pageRecommendationRequests(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<RecommendationRequest> rows = recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, RecommendationRequest::getId);
     }
 
     /**
@@ -65,6 +137,7 @@ public class RecommendationRequestController extends ApiController{
     @Operation(summary= "Create a new recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public RecommendationRequest postRecommendationRequest(
             @Parameter(name="requesterEmail") @RequestParam String requesterEmail,
             @Parameter(name="professorEmail") @RequestParam String professorEmail,
@@ -88,6 +161,7 @@ public class RecommendationRequestController extends ApiController{
         recommendationRequest.setDone(done);
 
         RecommendationRequest savedRecommendationRequest = recommendationRequestRepository.save(recommendationRequest);
+        changeFeedService.inserted(RecommendationRequest.class, savedRecommendationRequest.getId(), savedRecommendationRequest);
 
         return savedRecommendationRequest;
     }
@@ -101,6 +175,7 @@ public class RecommendationRequestController extends ApiController{
     @Operation(summary= "Get a single recommendation request")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
+    @Transactional(readOnly = true)
     public RecommendationRequest getById(
             @Parameter(name="id") @RequestParam Long id) {
         RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
@@ -118,12 +193,14 @@ public class RecommendationRequestController extends ApiController{
     @Operation(summary= "Delete a RecommendationRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id) {
         RecommendationRequest recommendationRequest = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
         recommendationRequestRepository.delete(recommendationRequest);
+        changeFeedService.deleted(RecommendationRequest.class, recommendationRequest.getId());
         return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
     }
 
@@ -137,6 +214,7 @@ public class RecommendationRequestController extends ApiController{
     @Operation(summary= "Update a single recommendation request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public RecommendationRequest updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid RecommendationRequest incoming) {
@@ -152,8 +230,61 @@ public class RecommendationRequestController extends ApiController{
         recommendationRequest.setDone(incoming.getDone());
 
         recommendationRequestRepository.save(recommendationRequest);
+        changeFeedService.updated(RecommendationRequest.class, recommendationRequest.getId(), recommendationRequest);
 
         return recommendationRequest;
     }
 
-}
\ No newline at end of file
+    /**
+     * Create many recommendation requests at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new recommendation requests; any ids in the request are ignored
+     * @return one result per recommendation request, in request order, with the id set by the database
+     */
+    @Operation(summary= "Create many recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<RecommendationRequest>> postRecommendationRequestsBatch(
+            @RequestBody List<RecommendationRequest> incoming) {
+        incoming.forEach(recommendationRequest -> recommendationRequest.setId(0));
+        return changeFeedService.publishAll(RecommendationRequest.class,
+                batchCreate(recommendationRequestRepository, incoming, RecommendationRequest::getId));
+    }
+
+    /**
+     * Update many recommendation requests at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new contents, each with the id of the recommendation request to update
+     * @return one result per recommendation request, in request order
+     */
+    @Operation(summary= "Update many recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<RecommendationRequest>> updateRecommendationRequestsBatch(
+            @RequestBody List<RecommendationRequest> incoming) {
+        List<BatchItemResult<RecommendationRequest>> results = batchUpdate(recommendationRequestRepository, incoming, RecommendationRequest::getId, (recommendationRequest, changes) -> {
+            recommendationRequest.setRequesterEmail(changes.getRequesterEmail());
+            recommendationRequest.setProfessorEmail(changes.getProfessorEmail());
+            recommendationRequest.setExplanation(changes.getExplanation());
+            recommendationRequest.setDateRequested(changes.getDateRequested());
+            recommendationRequest.setDateNeeded(changes.getDateNeeded());
+            recommendationRequest.setDone(changes.getDone());
+        });
+        return changeFeedService.publishAll(RecommendationRequest.class, results);
+    }
+
+    /**
+     * Delete many recommendation requests at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param ids the ids of the recommendation requests to delete
+     * @return one result per id, in request order
+     */
+    @Operation(summary= "Delete many recommendation requests at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<RecommendationRequest>> deleteRecommendationRequestsBatch(
+            @RequestBody List<Long> ids) {
+        return changeFeedService.publishAll(RecommendationRequest.class,
+                batchDelete(recommendationRequestRepository, ids, RecommendationRequest::getId));
+    }
+}
@@ -2,24 +2,36 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
+import java.util.List;
 
 /**
  * This is a REST controller for Restaurants
@@ -33,16 +45,63 @@ public class RestaurantsController extends ApiController {
     @Autowired
     RestaurantRepository restaurantRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
     /**
-     * This method returns a list of all restaurants.
+     * This method returns a list of all restaurants,
+     * or a 304 if the client's copy (identified by its ETag) is still current.
+     * The list is read in a read-write transaction so that it comes from the primary database,
+     * whose copy the ETag describes, even when read-only transactions go to a replica.
+     * @param webRequest the current request (injected by Spring framework)
      * @return a list of all restaurants
      */
     @Operation(summary = "List all restaurants")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Restaurant> allRestaurants() {
-        Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-        return restaurants;
+    @Transactional
+    public ResponseEntity<Iterable<Restaurant>> allRestaurants(WebRequest webRequest) {
+        return conditionalGet(webRequest, tableVersionService.current(Restaurant.class),
+                restaurantRepository::findAll);
+    }
+
+    /**
+     * Follow the changes to restaurants as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to restaurants (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter restaurantChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(Restaurant.class, lastEventId, after);
+    }
+
+    /**
+     * List restaurants one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only restaurants with an id after this cursor are returned
+     * @param limit the maximum number of restaurants to return (at most 1000)
+     * @return a page of Restaurant, with the cursor for the next page
+     */
+    @Operation(summary= "List restaurants one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<Restaurant> pageRestaurants(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<Restaurant> rows = restaurantRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, Restaurant::getId);
     }
 
     /**
@@ -53,6 +112,7 @@ public class RestaurantsController extends ApiController {
     @Operation(summary = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
+    @Transactional(readOnly = true)
     public Restaurant getById(
             @Parameter(name = "id") @RequestParam Long id) {
         Restaurant restaurant = restaurantRepository.findById(id)
@@ -70,6 +130,7 @@ public class RestaurantsController extends ApiController {
     @Operation(summary = "Create a new restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public Restaurant postRestaurant(
             @Parameter(name = "name") @RequestParam String name,
             @Parameter(name = "description") @RequestParam String description) {
@@ -79,6 +140,8 @@ public class RestaurantsController extends ApiController {
         restaurant.setDescription(description);
         
         Restaurant savedrestaurant = restaurantRepository.save(restaurant);
+        changeFeedService.inserted(Restaurant.class, savedrestaurant.getId(), savedrestaurant);
+        tableVersionService.bump(Restaurant.class);
         return savedrestaurant;
     }
 
@@ -90,12 +153,15 @@ public class RestaurantsController extends ApiController {
     @Operation(summary = "Delete a Restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteRestaurant(
             @Parameter(name = "id") @RequestParam Long id) {
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
         restaurantRepository.delete(restaurant);
+        changeFeedService.deleted(Restaurant.class, restaurant.getId());
+        tableVersionService.bump(Restaurant.class);
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
@@ -108,6 +174,7 @@ public class RestaurantsController extends ApiController {
     @Operation(summary = "Update a single restaurant")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public Restaurant updateRestaurant(
             @Parameter(name = "id") @RequestParam Long id,
             @RequestBody @Valid Restaurant incoming) {
@@ -119,7 +186,61 @@ public class RestaurantsController extends ApiController {
         restaurant.setDescription(incoming.getDescription());
 
         restaurantRepository.save(restaurant);
+        changeFeedService.updated(Restaurant.class, restaurant.getId(), restaurant);
 
+        tableVersionService.bump(Restaurant.class);
         return restaurant;
     }
-}
\ No newline at end of file
+
+    /**
+     * Create many restaurants at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new restaurants; any ids in the request are ignored
+     * @return one result per restaurant, in request order, with the id set by the database
+     */
+    @Operation(summary= "Create many restaurants at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<Restaurant>> postRestaurantsBatch(
+            @RequestBody List<Restaurant> incoming) {
+        incoming.forEach(restaurant -> restaurant.setId(0));
+        tableVersionService.bump(Restaurant.class);
+        return changeFeedService.publishAll(Restaurant.class,
+                batchCreate(restaurantRepository, incoming, Restaurant::getId));
+    }
+
+    /**
+     * Update many restaurants at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new contents, each with the id of the restaurant to update
+     * @return one result per restaurant, in request order
+     */
+    @Operation(summary= "Update many restaurants at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<Restaurant>> updateRestaurantsBatch(
+            @RequestBody List<Restaurant> incoming) {
+        tableVersionService.bump(Restaurant.class);
+        List<BatchItemResult<Restaurant>> results = batchUpdate(restaurantRepository, incoming, Restaurant::getId, (restaurant, changes) -> {
+            restaurant.setName(changes.getName());
+            restaurant.setDescription(changes.getDescription());
+        });
+        return changeFeedService.publishAll(Restaurant.class, results);
+    }
+
+    /**
+     * Delete many restaurants at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param ids the ids of the restaurants to delete
+     * @return one result per id, in request order
+     */
+    @Operation(summary= "Delete many restaurants at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<Restaurant>> deleteRestaurantsBatch(
+            @RequestBody List<Long> ids) {
+        tableVersionService.bump(Restaurant.class);
+        return changeFeedService.publishAll(Restaurant.class,
+                batchDelete(restaurantRepository, ids, Restaurant::getId));
+    }
+}
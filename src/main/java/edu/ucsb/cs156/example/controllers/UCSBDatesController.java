@@ -2,7 +2,14 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.UCSBDateCacheService;
+import edu.ucsb.cs156.example.services.ImportService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,20 +19,30 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * This is a REST controller for UCSBDates
@@ -40,17 +57,114 @@ public class UCSBDatesController extends ApiController {
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    UCSBDateCacheService ucsbDateCacheService;
+
+    @Autowired
+    ImportService importService;
+
     /**
-     * List all UCSB dates
+     * List all UCSB dates, streamed from the database as they are written
      * 
-     * @return an iterable of UCSBDate
+     * @return a JSON array of UCSBDate
      */
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
-        Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-        return dates;
+    public ResponseEntity<StreamingResponseBody> allUCSBDates() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(entityStreamService.jsonArray(ucsbDateRepository::streamAllByOrderByIdAsc));
+    }
+
+    /**
+     * Export all ucsb dates, for reports, streamed from the database as they are written
+     * 
+     * @param format csv (with a header row) or ndjson (one JSON object per line)
+     * @return the file
+     */
+    @Operation(summary= "Export all ucsb dates as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDates(
+            @Parameter(name="format", description="csv or ndjson") @RequestParam(defaultValue = "csv") String format) {
+        return entityStreamService.export(UCSBDate.class, format, ucsbDateRepository::streamAllByOrderByIdAsc);
+    }
+
+    /**
+     * List the dates of one quarter (cached, since quarters rarely change once published)
+     * A quarter is loaded in a read-write transaction so that it comes from the primary database:
+     * it is reloaded right after a write evicts it, when a replica may not have the write yet.
+     * 
+     * @param quarter the quarter in the format YYYYQ (e.g. 20241 for Winter 2024)
+     * @return a list of UCSBDate
+     */
+    @Operation(summary= "List the dates of a quarter")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "quarter")
+    @Transactional
+    public List<UCSBDate> ucsbDatesForQuarter(
+            @Parameter(name="quarter", description="quarter in the format YYYYQ, e.g. 20241") @RequestParam String quarter) {
+        return ucsbDateCacheService.getQuarter(quarter, q -> List.copyOf(ucsbDateRepository.findAllByQuarterYYYYQ(q)));
+    }
+
+    /**
+     * List the dates between two date/times, earliest first
+     * 
+     * @param start the earliest date/time to include
+     * @param end   the latest date/time to include
+     * @return a list of UCSBDate
+     */
+    @Operation(summary= "List the dates between two date/times")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/range")
+    @Transactional(readOnly = true)
+    public List<UCSBDate> ucsbDatesInRange(
+            @Parameter(name="start", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)") @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @Parameter(name="end", description="date (in iso format, e.g. YYYY-mm-ddTHH:MM:SS; see https://en.wikipedia.org/wiki/ISO_8601)") @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        return ucsbDateRepository.findAllByLocalDateTimeBetweenOrderByLocalDateTimeAsc(start, end);
+    }
+
+    /**
+     * Follow the changes to ucsbdates as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to ucsbdates (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter ucsbDateChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(UCSBDate.class, lastEventId, after);
+    }
+
+    /**
+     * List ucsb dates one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only dates with an id after this cursor are returned
+     * @param limit the maximum number of dates to return (at most 1000)
+     * @return a page of UCSBDate, with the cursor for the next page
+     */
+    @Operation(summary= "List ucsb dates one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<UCSBDate> pageUCSBDates(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<UCSBDate> rows = ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, UCSBDate::getId);
     }
 
     /**
@@ -62,6 +176,7 @@ public class UCSBDatesController extends ApiController {
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
+    @Transactional(readOnly = true)
     public UCSBDate getById(
             @Parameter(name="id") @RequestParam Long id) {
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
@@ -81,6 +196,7 @@ public class UCSBDatesController extends ApiController {
     @Operation(summary= "Create a new date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public UCSBDate postUCSBDate(
             @Parameter(name="quarterYYYYQ") @RequestParam String quarterYYYYQ,
             @Parameter(name="name") @RequestParam String name,
@@ -98,6 +214,8 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        changeFeedService.inserted(UCSBDate.class, savedUcsbDate.getId(), savedUcsbDate);
+        ucsbDateCacheService.evict(quarterYYYYQ);
 
         return savedUcsbDate;
     }
@@ -111,12 +229,15 @@ public class UCSBDatesController extends ApiController {
     @Operation(summary= "Delete a UCSBDate")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
         ucsbDateRepository.delete(ucsbDate);
+        changeFeedService.deleted(UCSBDate.class, ucsbDate.getId());
+        ucsbDateCacheService.evict(ucsbDate.getQuarterYYYYQ());
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
@@ -130,6 +251,7 @@ public class UCSBDatesController extends ApiController {
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBDate updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid UCSBDate incoming) {
@@ -137,12 +259,90 @@ public class UCSBDatesController extends ApiController {
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
+        String oldQuarterYYYYQ = ucsbDate.getQuarterYYYYQ();
         ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
         ucsbDate.setName(incoming.getName());
         ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
 
         ucsbDateRepository.save(ucsbDate);
+        changeFeedService.updated(UCSBDate.class, ucsbDate.getId(), ucsbDate);
+        ucsbDateCacheService.evict(oldQuarterYYYYQ);
+        ucsbDateCacheService.evict(incoming.getQuarterYYYYQ());
 
         return ucsbDate;
     }
+
+    /**
+     * Import ucsbdates from a file, e.g. a quarter's worth at once. Accessible only to users with the role "ROLE_ADMIN".
+     * The file is imported only if every row in it is valid.
+     * @param contentType text/csv (with a header row naming the fields) or application/x-ndjson
+     * @param body the file
+     * @return the number of ucsbdates imported, or the rows that must be fixed (with a 400)
+     */
+    @Operation(summary= "Import ucsbdates from a CSV or NDJSON file")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<ImportResult> importUCSBDates(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) {
+        ImportResult result = importService.importRows(UCSBDate.class, contentType, body);
+        if (result.getImported() > 0) {
+            ucsbDateCacheService.evictAll();
+            changeFeedService.reset(UCSBDate.class);
+        }
+        return importResponse(result);
+    }
+
+    /**
+     * Create many ucsbdates at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new ucsbdates; any ids in the request are ignored
+     * @return one result per ucsbdate, in request order, with the id set by the database
+     */
+    @Operation(summary= "Create many ucsbdates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDate>> postUCSBDatesBatch(
+            @RequestBody List<UCSBDate> incoming) {
+        incoming.forEach(ucsbDate -> ucsbDate.setId(0));
+        ucsbDateCacheService.evictAll();
+        return changeFeedService.publishAll(UCSBDate.class,
+                batchCreate(ucsbDateRepository, incoming, UCSBDate::getId));
+    }
+
+    /**
+     * Update many ucsbdates at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new contents, each with the id of the ucsbdate to update
+     * @return one result per ucsbdate, in request order
+     */
+    @Operation(summary= "Update many ucsbdates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDate>> updateUCSBDatesBatch(
+            @RequestBody List<UCSBDate> incoming) {
+        ucsbDateCacheService.evictAll();
+        List<BatchItemResult<UCSBDate>> results = batchUpdate(ucsbDateRepository, incoming, UCSBDate::getId, (ucsbDate, changes) -> {
+            ucsbDate.setQuarterYYYYQ(changes.getQuarterYYYYQ());
+            ucsbDate.setName(changes.getName());
+            ucsbDate.setLocalDateTime(changes.getLocalDateTime());
+        });
+        return changeFeedService.publishAll(UCSBDate.class, results);
+    }
+
+    /**
+     * Delete many ucsbdates at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param ids the ids of the ucsbdates to delete
+     * @return one result per id, in request order
+     */
+    @Operation(summary= "Delete many ucsbdates at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDate>> deleteUCSBDatesBatch(
+            @RequestBody List<Long> ids) {
+        ucsbDateCacheService.evictAll();
+        return changeFeedService.publishAll(UCSBDate.class,
+                batchDelete(ucsbDateRepository, ids, UCSBDate::getId));
+    }
 }
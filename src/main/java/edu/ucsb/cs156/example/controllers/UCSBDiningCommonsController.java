@@ -2,7 +2,11 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,17 +14,25 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
+import java.util.List;
 
 /**
  * This is a REST controller for UCSBDiningCommons
@@ -35,16 +47,63 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
     /**
-     * THis method returns a list of all ucsbdiningcommons.
+     * THis method returns a list of all ucsbdiningcommons,
+     * or a 304 if the client's copy (identified by its ETag) is still current.
+     * The list is read in a read-write transaction so that it comes from the primary database,
+     * whose copy the ETag describes, even when read-only transactions go to a replica.
+     * @param webRequest the current request (injected by Spring framework)
      * @return a list of all ucsbdiningcommons
      */
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    @Transactional
+    public ResponseEntity<Iterable<UCSBDiningCommons>> allCommonss(WebRequest webRequest) {
+        return conditionalGet(webRequest, tableVersionService.current(UCSBDiningCommons.class),
+                ucsbDiningCommonsRepository::findAll);
+    }
+
+    /**
+     * Follow the changes to dining commons as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to dining commons (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter ucsbDiningCommonsChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(UCSBDiningCommons.class, lastEventId, after);
+    }
+
+    /**
+     * List ucsb dining commons one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only commons with a code after this cursor are returned
+     * @param limit the maximum number of commons to return (at most 1000)
+     * @return a page of UCSBDiningCommons, with the cursor for the next page
+     */
+    @Operation(summary= "List ucsb dining commons one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<UCSBDiningCommons> pageCommons(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="") String after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<UCSBDiningCommons> rows = ucsbDiningCommonsRepository.findByCodeGreaterThanOrderByCodeAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, UCSBDiningCommons::getCode);
     }
 
     /**
@@ -55,6 +114,7 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
+    @Transactional(readOnly = true)
     public UCSBDiningCommons getById(
             @Parameter(name="code") @RequestParam String code) {
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
@@ -77,6 +137,7 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Create a new commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public UCSBDiningCommons postCommons(
         @Parameter(name="code") @RequestParam String code,
         @Parameter(name="name") @RequestParam String name,
@@ -98,7 +159,9 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        changeFeedService.inserted(UCSBDiningCommons.class, savedCommons.getCode(), savedCommons);
 
+        tableVersionService.bump(UCSBDiningCommons.class);
         return savedCommons;
     }
 
@@ -112,12 +175,15 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Delete a UCSBDiningCommons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
         UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
         ucsbDiningCommonsRepository.delete(commons);
+        changeFeedService.deleted(UCSBDiningCommons.class, commons.getCode());
+        tableVersionService.bump(UCSBDiningCommons.class);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
@@ -130,6 +196,7 @@ public class UCSBDiningCommonsController extends ApiController {
     @Operation(summary= "Update a single commons")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
             @RequestBody @Valid UCSBDiningCommons incoming) {
@@ -146,7 +213,65 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(incoming.getLongitude());
 
         ucsbDiningCommonsRepository.save(commons);
+        changeFeedService.updated(UCSBDiningCommons.class, commons.getCode(), commons);
 
+        tableVersionService.bump(UCSBDiningCommons.class);
         return commons;
     }
+
+    /**
+     * Create many dining commons at once. Accessible only to users with the role "ROLE_ADMIN".
+     * Dining commons whose code is already taken are not changed.
+     * @param incoming the new dining commons
+     * @return one result per dining commons, in request order
+     */
+    @Operation(summary= "Create many dining commons at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDiningCommons>> postUCSBDiningCommonsBatch(
+            @RequestBody List<UCSBDiningCommons> incoming) {
+        tableVersionService.bump(UCSBDiningCommons.class);
+        return changeFeedService.publishAll(UCSBDiningCommons.class,
+                batchCreateIfAbsent(ucsbDiningCommonsRepository, incoming, UCSBDiningCommons::getCode));
+    }
+
+    /**
+     * Update many dining commons at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new contents, each with the code of the dining commons to update
+     * @return one result per dining commons, in request order
+     */
+    @Operation(summary= "Update many dining commons at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDiningCommons>> updateUCSBDiningCommonsBatch(
+            @RequestBody List<UCSBDiningCommons> incoming) {
+        tableVersionService.bump(UCSBDiningCommons.class);
+        List<BatchItemResult<UCSBDiningCommons>> results = batchUpdate(ucsbDiningCommonsRepository, incoming, UCSBDiningCommons::getCode, (commons, changes) -> {
+            commons.setName(changes.getName());
+            commons.setHasSackMeal(changes.getHasSackMeal());
+            commons.setHasTakeOutMeal(changes.getHasTakeOutMeal());
+            commons.setHasDiningCam(changes.getHasDiningCam());
+            commons.setLatitude(changes.getLatitude());
+            commons.setLongitude(changes.getLongitude());
+        });
+        return changeFeedService.publishAll(UCSBDiningCommons.class, results);
+    }
+
+    /**
+     * Delete many dining commons at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param codes the codes of the dining commons to delete
+     * @return one result per code, in request order
+     */
+    @Operation(summary= "Delete many dining commons at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDiningCommons>> deleteUCSBDiningCommonsBatch(
+            @RequestBody List<String> codes) {
+        tableVersionService.bump(UCSBDiningCommons.class);
+        return changeFeedService.publishAll(UCSBDiningCommons.class,
+                batchDelete(ucsbDiningCommonsRepository, codes, UCSBDiningCommons::getCode));
+    }
 }
@@ -3,8 +3,14 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.ImportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,20 +19,30 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "UCSBDiningCommonsMenuItem")
 @RequestMapping("/api/ucsbdiningcommonsmenuitem")
@@ -37,17 +53,80 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    ImportService importService;
+
     @Operation(summary= "List all menu items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonMenuItem> allUCSBDiningCommonsMenuItems() {
-        Iterable<UCSBDiningCommonMenuItem> menuItem = ucsbDiningCommonsMenuItemRepository.findAll();
-        return menuItem;
+    public ResponseEntity<StreamingResponseBody> allUCSBDiningCommonsMenuItems() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(entityStreamService.jsonArray(ucsbDiningCommonsMenuItemRepository::streamAllByOrderByIdAsc));
+    }
+
+    /**
+     * List all menu items served at one dining commons
+     * 
+     * @param diningCommonsCode the code of the dining commons (e.g. ortega)
+     * @return an iterable of UCSBDiningCommonMenuItem
+     */
+    @Operation(summary= "List all menu items at a dining commons")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "", params = "diningCommonsCode")
+    @Transactional(readOnly = true)
+    public Iterable<UCSBDiningCommonMenuItem> menuItemsForDiningCommons(
+            @Parameter(name="diningCommonsCode") @RequestParam String diningCommonsCode) {
+        Iterable<UCSBDiningCommonMenuItem> menuItems = ucsbDiningCommonsMenuItemRepository.findAllByDiningCommonsCode(diningCommonsCode);
+        return menuItems;
+    }
+
+    /**
+     * Follow the changes to dining commons menu items as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to dining commons menu items (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter ucsbDiningCommonsMenuItemChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(UCSBDiningCommonMenuItem.class, lastEventId, after);
+    }
+
+    /**
+     * List menu items one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only menu items with an id after this cursor are returned
+     * @param limit the maximum number of menu items to return (at most 1000)
+     * @return a page of UCSBDiningCommonMenuItem, with the cursor for the next page
+     */
+    @Operation(summary= "List menu items one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<UCSBDiningCommonMenuItem> pageUCSBDiningCommonsMenuItems(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="0") long after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<UCSBDiningCommonMenuItem> rows = ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, UCSBDiningCommonMenuItem::getId);
     }
 
     @Operation(summary= "Get a single menu item")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
+    @Transactional(readOnly = true)
     public UCSBDiningCommonMenuItem getById(
             @Parameter(name="id") @RequestParam Long id) {
         UCSBDiningCommonMenuItem ucsbDiningCommonMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
@@ -59,6 +138,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Operation(summary= "Create a new menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public UCSBDiningCommonMenuItem postUCSBDiningCommonsMenuItem(
         @Parameter(name="diningCommonsCode") @RequestParam String diningCommonsCode,
         @Parameter(name="name") @RequestParam String name,
@@ -76,6 +156,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     ucsbDiningCommonMenuItem.setStation(station);
 
     UCSBDiningCommonMenuItem savedUcsbDiningCommonMenuItem = ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonMenuItem);
+    changeFeedService.inserted(UCSBDiningCommonMenuItem.class, savedUcsbDiningCommonMenuItem.getId(), savedUcsbDiningCommonMenuItem);
 
     return savedUcsbDiningCommonMenuItem;
 }
@@ -83,18 +164,21 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
     @Operation(summary= "Delete a menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteUCSBDiningCommonMenuItem(
             @Parameter(name="id") @RequestParam Long id) {
         UCSBDiningCommonMenuItem ucsbDiningCommonMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonMenuItem.class, id));
 
         ucsbDiningCommonsMenuItemRepository.delete(ucsbDiningCommonMenuItem);
+        changeFeedService.deleted(UCSBDiningCommonMenuItem.class, ucsbDiningCommonMenuItem.getId());
         return genericMessage("UCSBDiningCommonMenuItem with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBDiningCommonMenuItem updateUCSBDiningCommonMenuItem(
             @Parameter(name="id") @RequestParam Long id,
             @RequestBody @Valid UCSBDiningCommonMenuItem incoming) {
@@ -107,8 +191,78 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
         ucsbDiningCommonMenuItem.setStation(incoming.getStation());
 
         ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonMenuItem);
+        changeFeedService.updated(UCSBDiningCommonMenuItem.class, ucsbDiningCommonMenuItem.getId(), ucsbDiningCommonMenuItem);
 
         return ucsbDiningCommonMenuItem;
     }
 
+    /**
+     * Import menu items from a file, e.g. a quarter's worth at once. Accessible only to users with the role "ROLE_ADMIN".
+     * The file is imported only if every row in it is valid.
+     * @param contentType text/csv (with a header row naming the fields) or application/x-ndjson
+     * @param body the file
+     * @return the number of menu items imported, or the rows that must be fixed (with a 400)
+     */
+    @Operation(summary= "Import menu items from a CSV or NDJSON file")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<ImportResult> importUCSBDiningCommonMenuItems(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) {
+        ImportResult result = importService.importRows(UCSBDiningCommonMenuItem.class, contentType, body);
+        if (result.getImported() > 0) {
+            changeFeedService.reset(UCSBDiningCommonMenuItem.class);
+        }
+        return importResponse(result);
+    }
+
+    /**
+     * Create many menu items at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new menu items; any ids in the request are ignored
+     * @return one result per menu item, in request order, with the id set by the database
+     */
+    @Operation(summary= "Create many menu items at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDiningCommonMenuItem>> postUCSBDiningCommonMenuItemsBatch(
+            @RequestBody List<UCSBDiningCommonMenuItem> incoming) {
+        incoming.forEach(ucsbDiningCommonMenuItem -> ucsbDiningCommonMenuItem.setId(0));
+        return changeFeedService.publishAll(UCSBDiningCommonMenuItem.class,
+                batchCreate(ucsbDiningCommonsMenuItemRepository, incoming, UCSBDiningCommonMenuItem::getId));
+    }
+
+    /**
+     * Update many menu items at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new contents, each with the id of the menu item to update
+     * @return one result per menu item, in request order
+     */
+    @Operation(summary= "Update many menu items at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDiningCommonMenuItem>> updateUCSBDiningCommonMenuItemsBatch(
+            @RequestBody List<UCSBDiningCommonMenuItem> incoming) {
+        List<BatchItemResult<UCSBDiningCommonMenuItem>> results = batchUpdate(ucsbDiningCommonsMenuItemRepository, incoming, UCSBDiningCommonMenuItem::getId, (ucsbDiningCommonMenuItem, changes) -> {
+            ucsbDiningCommonMenuItem.setDiningCommonsCode(changes.getDiningCommonsCode());
+            ucsbDiningCommonMenuItem.setName(changes.getName());
+            ucsbDiningCommonMenuItem.setStation(changes.getStation());
+        });
+        return changeFeedService.publishAll(UCSBDiningCommonMenuItem.class, results);
+    }
+
+    /**
+     * Delete many menu items at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param ids the ids of the menu items to delete
+     * @return one result per id, in request order
+     */
+    @Operation(summary= "Delete many menu items at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBDiningCommonMenuItem>> deleteUCSBDiningCommonMenuItemsBatch(
+            @RequestBody List<Long> ids) {
+        return changeFeedService.publishAll(UCSBDiningCommonMenuItem.class,
+                batchDelete(ucsbDiningCommonsMenuItemRepository, ids, UCSBDiningCommonMenuItem::getId));
+    }
 }
@@ -2,7 +2,13 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
+import edu.ucsb.cs156.example.services.ChangeFeedService;
+import edu.ucsb.cs156.example.services.ImportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,19 +16,29 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import jakarta.validation.Valid;
+import java.io.InputStream;
+import java.util.List;
 
 @Tag(name = "UCSBOrganizations")
 @RequestMapping("/api/ucsborganizations")
@@ -31,16 +47,67 @@ import jakarta.validation.Valid;
 public class UCSBOrganizationController extends ApiController{
     @Autowired
     UCSBOrganizationsRepository ucsbOrganizationsRepository;
+
+    @Autowired
+    ChangeFeedService changeFeedService;
+
+    @Autowired
+    TableVersionService tableVersionService;
+
+    @Autowired
+    ImportService importService;
+
     /**
-     * This method returns a list of all ucsborganizations.
+     * This method returns a list of all ucsborganizations,
+     * or a 304 if the client's copy (identified by its ETag) is still current.
+     * The list is read in a read-write transaction so that it comes from the primary database,
+     * whose copy the ETag describes, even when read-only transactions go to a replica.
+     * @param webRequest the current request (injected by Spring framework)
      * @return a list of all ucsborganizations
      */
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganizations> allOrganizations() {
-        Iterable<UCSBOrganizations> organizations = ucsbOrganizationsRepository.findAll();
-        return organizations;
+    @Transactional
+    public ResponseEntity<Iterable<UCSBOrganizations>> allOrganizations(WebRequest webRequest) {
+        return conditionalGet(webRequest, tableVersionService.current(UCSBOrganizations.class),
+                ucsbOrganizationsRepository::findAll);
+    }
+
+    /**
+     * Follow the changes to organizations as Server-Sent Events: "insert", "update" and "delete",
+     * or "reset" when the client must load the whole list again
+     * 
+     * @param lastEventId sent by the browser when it reconnects
+     * @param after the id of the last change the client has applied, to resume from a copy it kept
+     * @return the event stream
+     */
+    @Operation(summary= "Follow changes to organizations (Server-Sent Events)")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter ucsbOrganizationChanges(
+            @Parameter(hidden=true) @RequestHeader(name="Last-Event-ID", required=false) String lastEventId,
+            @Parameter(name="after", description="id of the last change applied; a reset event is sent if it is too old") @RequestParam(required=false) String after) {
+        return changeFeedService.subscribe(UCSBOrganizations.class, lastEventId, after);
+    }
+
+    /**
+     * List ucsb organizations one page at a time, using keyset (cursor) pagination
+     * 
+     * @param after only organizations with a orgCode after this cursor are returned
+     * @param limit the maximum number of organizations to return (at most 1000)
+     * @return a page of UCSBOrganizations, with the cursor for the next page
+     */
+    @Operation(summary= "List ucsb organizations one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    @Transactional(readOnly = true)
+    public KeysetPage<UCSBOrganizations> pageOrganizations(
+            @Parameter(name="after", description="cursor returned as nextCursor by the previous page") @RequestParam(defaultValue="") String after,
+            @Parameter(name="limit") @RequestParam(defaultValue="100") int limit) {
+        int pageSize = pageSize(limit);
+        List<UCSBOrganizations> rows = ucsbOrganizationsRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(after, Limit.of(pageSize + 1));
+        return keysetPage(rows, pageSize, UCSBOrganizations::getOrgCode);
     }
 
     /**
@@ -51,6 +118,7 @@ public class UCSBOrganizationController extends ApiController{
     @Operation(summary= "Get a single organization")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
+    @Transactional(readOnly = true)
     public UCSBOrganizations getById(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
         UCSBOrganizations org = ucsbOrganizationsRepository.findById(orgCode)
@@ -69,6 +137,7 @@ public class UCSBOrganizationController extends ApiController{
     @Operation(summary= "Create a new organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public UCSBOrganizations postOrgs(
         @Parameter(name="orgCode") @RequestParam String orgCode,
         @Parameter(name="orgTranslationShort") @RequestParam String orgTranslationShort,
@@ -82,6 +151,8 @@ public class UCSBOrganizationController extends ApiController{
         org.setOrgTranslation(orgTranslation);
         org.setInactive(inactive);
         UCSBOrganizations savedOrg = ucsbOrganizationsRepository.save(org);
+        changeFeedService.inserted(UCSBOrganizations.class, savedOrg.getOrgCode(), savedOrg);
+        tableVersionService.bump(UCSBOrganizations.class);
         return savedOrg;
     }
 
@@ -94,6 +165,7 @@ public class UCSBOrganizationController extends ApiController{
     @Operation(summary= "Update a single organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public UCSBOrganizations updateOrgs(
             @Parameter(name="orgCode") @RequestParam String orgCode,
             @RequestBody @Valid UCSBOrganizations incoming) {
@@ -104,6 +176,8 @@ public class UCSBOrganizationController extends ApiController{
         org.setOrgTranslation(incoming.getOrgTranslation());
         org.setInactive(incoming.getInactive());
         ucsbOrganizationsRepository.save(org);
+        changeFeedService.updated(UCSBOrganizations.class, org.getOrgCode(), org);
+        tableVersionService.bump(UCSBOrganizations.class);
         return org;
     }
 
@@ -115,11 +189,88 @@ public class UCSBOrganizationController extends ApiController{
     @Operation(summary= "Delete a UCSBOrganization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteOrgs(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
         UCSBOrganizations org = ucsbOrganizationsRepository.findById(orgCode)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganizations.class, orgCode));
         ucsbOrganizationsRepository.delete(org);
+        changeFeedService.deleted(UCSBOrganizations.class, org.getOrgCode());
+        tableVersionService.bump(UCSBOrganizations.class);
         return genericMessage("UCSBOrganizations with id %s deleted".formatted(orgCode));
     }
-}
\ No newline at end of file
+
+    /**
+     * Import organizations from a file, e.g. the whole list at once. Accessible only to users with the role "ROLE_ADMIN".
+     * The file is imported only if every row in it is valid.
+     * @param contentType text/csv (with a header row naming the fields) or application/x-ndjson
+     * @param body the file
+     * @return the number of organizations imported, or the rows that must be fixed (with a 400)
+     */
+    @Operation(summary= "Import organizations from a CSV or NDJSON file")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<ImportResult> importUCSBOrganizations(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) {
+        ImportResult result = importService.importRows(UCSBOrganizations.class, contentType, body);
+        if (result.getImported() > 0) {
+            tableVersionService.bump(UCSBOrganizations.class);
+            changeFeedService.reset(UCSBOrganizations.class);
+        }
+        return importResponse(result);
+    }
+
+    /**
+     * Create many organizations at once. Accessible only to users with the role "ROLE_ADMIN".
+     * Organizations whose orgCode is already taken are not changed.
+     * @param incoming the new organizations
+     * @return one result per organization, in request order
+     */
+    @Operation(summary= "Create many organizations at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBOrganizations>> postUCSBOrganizationsBatch(
+            @RequestBody List<UCSBOrganizations> incoming) {
+        tableVersionService.bump(UCSBOrganizations.class);
+        return changeFeedService.publishAll(UCSBOrganizations.class,
+                batchCreateIfAbsent(ucsbOrganizationsRepository, incoming, UCSBOrganizations::getOrgCode));
+    }
+
+    /**
+     * Update many organizations at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param incoming the new contents, each with the orgCode of the organization to update
+     * @return one result per organization, in request order
+     */
+    @Operation(summary= "Update many organizations at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBOrganizations>> updateUCSBOrganizationsBatch(
+            @RequestBody List<UCSBOrganizations> incoming) {
+        tableVersionService.bump(UCSBOrganizations.class);
+        List<BatchItemResult<UCSBOrganizations>> results = batchUpdate(ucsbOrganizationsRepository, incoming, UCSBOrganizations::getOrgCode, (org, changes) -> {
+            org.setOrgTranslationShort(changes.getOrgTranslationShort());
+            org.setOrgTranslation(changes.getOrgTranslation());
+            org.setInactive(changes.getInactive());
+        });
+        return changeFeedService.publishAll(UCSBOrganizations.class, results);
+    }
+
+    /**
+     * Delete many organizations at once. Accessible only to users with the role "ROLE_ADMIN".
+     * @param orgCodes the orgCodes of the organizations to delete
+     * @return one result per orgCode, in request order
+     */
+    @Operation(summary= "Delete many organizations at once")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/batch")
+    @Transactional
+    public List<BatchItemResult<UCSBOrganizations>> deleteUCSBOrganizationsBatch(
+            @RequestBody List<String> orgCodes) {
+        tableVersionService.bump(UCSBOrganizations.class);
+        return changeFeedService.publishAll(UCSBOrganizations.class,
+                batchDelete(ucsbOrganizationsRepository, orgCodes, UCSBOrganizations::getOrgCode));
+    }
+}
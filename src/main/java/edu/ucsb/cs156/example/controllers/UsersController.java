@@ -6,12 +6,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserCacheService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
@@ -31,6 +34,9 @@ public class UsersController extends ApiController {
     @Autowired
     ObjectMapper mapper;
 
+    @Autowired
+    UserCacheService userCacheService;
+
     /**
      * This method returns a list of all users.  Accessible only to users with the role "ROLE_ADMIN".
      * @return a list of all users
@@ -39,10 +45,24 @@ public class UsersController extends ApiController {
     @Operation(summary= "Get a list of all users")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
+    @Transactional(readOnly = true)
     public ResponseEntity<String> users()
             throws JsonProcessingException {
         Iterable<User> users = userRepository.findAll();
         String body = mapper.writeValueAsString(users);
         return ResponseEntity.ok().body(body);
     }
-}
\ No newline at end of file
+
+    /**
+     * This method clears the cached users and admin flags, e.g. after a user's admin
+     * column has been changed directly in the database.  Accessible only to users with the role "ROLE_ADMIN".
+     * @return a message indicating that the cache was cleared
+     */
+    @Operation(summary= "Clear the cache of users and admin flags")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @DeleteMapping("/cache")
+    public Object clearUserCache() {
+        userCacheService.evictAll();
+        return genericMessage("User cache cleared");
+    }
+}
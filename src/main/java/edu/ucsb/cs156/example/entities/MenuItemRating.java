@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents the star ratings of one menu item, aggregated
+ * over all of its MenuItemReviews: how many reviews there are, the total of their stars,
+ * and how many reviews gave each number of stars.
+ *
+ * Rows are kept up to date by MenuItemRatingService whenever a review changes.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "menuitemrating")
+public class MenuItemRating {
+  @Id
+  private long itemId;
+
+  private long reviewCount;
+  private long starsSum;
+  private long stars1;
+  private long stars2;
+  private long stars3;
+  private long stars4;
+  private long stars5;
+
+  /**
+   * @return the mean number of stars, or 0 if the item has no reviews
+   */
+  public double getAverageStars() {
+    return reviewCount == 0 ? 0 : (double) starsSum / reviewCount;
+  }
+}
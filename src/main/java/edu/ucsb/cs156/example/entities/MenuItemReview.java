@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,7 +23,8 @@ import java.time.LocalDateTime;
 @Entity(name = "menuitemreview")
 public class MenuItemReview {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "MENUITEMREVIEW_SEQ")
+  @SequenceGenerator(name = "MENUITEMREVIEW_SEQ", allocationSize = 50)
   private long id;
   
   private long itemId;
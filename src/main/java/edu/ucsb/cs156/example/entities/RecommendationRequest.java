@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,7 +22,8 @@ import java.time.LocalDateTime;
 @Entity(name = "recommendationrequest")
 public class RecommendationRequest{
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "RECOMMENDATIONREQUEST_SEQ")
+  @SequenceGenerator(name = "RECOMMENDATIONREQUEST_SEQ", allocationSize = 50)
   private long id;
 
   private String requesterEmail;
@@ -4,6 +4,10 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,10 +27,15 @@ import java.time.LocalDateTime;
 @Entity(name = "ucsbdates")
 public class UCSBDate {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "UCSBDATES_SEQ")
+  @SequenceGenerator(name = "UCSBDATES_SEQ", allocationSize = 50)
   private long id;
 
+  @NotNull
+  @Pattern(regexp = "\\d{4}[1-4]", message = "must be a year and a quarter 1-4, e.g. 20224")
   private String quarterYYYYQ;
+  @NotBlank
   private String name;
+  @NotNull
   private LocalDateTime localDateTime;
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -22,10 +24,14 @@ import java.time.LocalDateTime;
 @Entity(name = "ucsbdiningcommonmenuitem")
 public class UCSBDiningCommonMenuItem {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "UCSBDININGCOMMONMENUITEM_SEQ")
+  @SequenceGenerator(name = "UCSBDININGCOMMONMENUITEM_SEQ", allocationSize = 50)
   private long id;
 
+  @NotBlank
   private String diningCommonsCode;
+  @NotBlank
   private String name;
+  @NotBlank
   private String station;
 }
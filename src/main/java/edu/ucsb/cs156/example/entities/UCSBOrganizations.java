@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,8 +17,11 @@ import lombok.NoArgsConstructor;
 @Entity(name = "ucsborganizations")
 public class UCSBOrganizations {
     @Id
+    @NotBlank
     private String orgCode;
+    @NotBlank
     private String orgTranslationShort;
+    @NotBlank
     private String orgTranslation;
     private boolean inactive;
 }
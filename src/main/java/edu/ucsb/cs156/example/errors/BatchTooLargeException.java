@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a batch request contains more items than are allowed in one request.
+ */
+public class BatchTooLargeException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   * 
+   * @param size the number of items in the request
+   * @param maxSize the largest number of items allowed
+   */
+  public BatchTooLargeException(int size, int maxSize) {
+    super("Batch of %d items is larger than the maximum of %d"
+      .formatted(size, maxSize));
+  }
+}
@@ -0,0 +1,17 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that two items of a batch update request are for the same entity.
+ */
+public class DuplicateBatchIdException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   * 
+   * @param index the position of the repeated item in the request, counting from 0
+   * @param id the id that an earlier item already has
+   */
+  public DuplicateBatchIdException(int index, Object id) {
+    super("Item %d of the batch repeats the id %s".formatted(index, id));
+  }
+}
@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that the filter or sort parameters of a list request cannot be used, e.g. because
+ * they name a field that cannot be filtered or sorted on, or that an export format
+ * is not supported.
+ */
+public class InvalidQueryException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   * 
+   * @param message what is wrong with the query
+   */
+  public InvalidQueryException(String message) {
+    super(message);
+  }
+}
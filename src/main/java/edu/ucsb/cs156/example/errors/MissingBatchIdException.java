@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that an item of a batch update or delete request does not say which entity it is for.
+ */
+public class MissingBatchIdException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   * 
+   * @param index the position of the item in the request, counting from 0
+   */
+  public MissingBatchIdException(int index) {
+    super("Item %d of the batch has no id".formatted(index));
+  }
+}
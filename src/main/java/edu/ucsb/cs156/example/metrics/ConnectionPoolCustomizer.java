@@ -0,0 +1,157 @@
+package edu.ucsb.cs156.example.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * This component sizes and instruments the HikariCP connection pool before it opens any connections.
+ *
+ * Unless spring.datasource.hikari.maximum-pool-size is set, the pool gets
+ * min(app.datasource.pool.expected-concurrency, 2 x CPUs + 1) connections (but at least 2):
+ * past about twice the number of cores, extra connections only move the queue from the pool
+ * into the database.
+ *
+ * Pool metrics are published through Micrometer as hikaricp.connections.* (active, idle, pending,
+ * acquire, usage, timeout; see /actuator/metrics), and every acquisition that takes longer than
+ * app.datasource.pool.slow-acquire-ms is logged along with the state of the pool.
+ */
+@Slf4j
+@Component
+public class ConnectionPoolCustomizer implements BeanPostProcessor {
+
+  private final ObjectProvider<MeterRegistry> meterRegistry;
+  private final Environment environment;
+  private final int expectedConcurrency;
+  private final long slowAcquireNanos;
+  private final int cpus;
+
+  /**
+   * Create the customizer using the settings in application.properties and the CPUs of this machine.
+   * @param meterRegistry where pool metrics are published, if metrics are enabled
+   * @param environment used to tell whether the pool size has been set explicitly
+   * @param expectedConcurrency the most requests expected to use the database at the same time
+   * @param slowAcquireMs acquisitions taking at least this many milliseconds are logged
+   */
+  @Autowired
+  public ConnectionPoolCustomizer(ObjectProvider<MeterRegistry> meterRegistry, Environment environment,
+      @Value("${app.datasource.pool.expected-concurrency:20}") int expectedConcurrency,
+      @Value("${app.datasource.pool.slow-acquire-ms:100}") long slowAcquireMs) {
+    this(meterRegistry, environment, expectedConcurrency, slowAcquireMs, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create the customizer for a given number of CPUs (used in tests).
+   * @param meterRegistry where pool metrics are published, if metrics are enabled
+   * @param environment used to tell whether the pool size has been set explicitly
+   * @param expectedConcurrency the most requests expected to use the database at the same time
+   * @param slowAcquireMs acquisitions taking at least this many milliseconds are logged
+   * @param cpus the number of CPUs available
+   */
+  ConnectionPoolCustomizer(ObjectProvider<MeterRegistry> meterRegistry, Environment environment,
+      int expectedConcurrency, long slowAcquireMs, int cpus) {
+    this.meterRegistry = meterRegistry;
+    this.environment = environment;
+    this.expectedConcurrency = expectedConcurrency;
+    this.slowAcquireNanos = TimeUnit.MILLISECONDS.toNanos(slowAcquireMs);
+    this.cpus = cpus;
+  }
+
+  /**
+   * Customize each HikariDataSource once Spring has bound its properties,
+   * before DataSourceProxyPostProcessor wraps it.
+   * @param bean the bean being created
+   * @param beanName the name of the bean
+   * @return the same bean
+   */
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    if (bean instanceof HikariDataSource dataSource) {
+      customize(dataSource);
+    }
+    return bean;
+  }
+
+  /**
+   * Size the pool and install the metrics tracker.
+   * @param dataSource a pool that has not been started yet
+   */
+  void customize(HikariDataSource dataSource) {
+    if (!environment.containsProperty("spring.datasource.hikari.maximum-pool-size")) {
+      dataSource.setMaximumPoolSize(poolSize(cpus, expectedConcurrency));
+    }
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    MetricsTrackerFactory metrics = registry == null
+        ? (poolName, poolStats) -> new IMetricsTracker() { }
+        : new MicrometerMetricsTrackerFactory(registry);
+    dataSource.setMetricsTrackerFactory((poolName, poolStats) ->
+        new SlowAcquireTracker(metrics.create(poolName, poolStats), poolName, poolStats, slowAcquireNanos));
+    log.info("Connection pool sized to {} connections ({} CPUs, expected concurrency {})",
+        dataSource.getMaximumPoolSize(), cpus, expectedConcurrency);
+  }
+
+  /**
+   * Work out how many connections the pool should have.
+   * @param cpus the number of CPUs available
+   * @param expectedConcurrency the most requests expected to use the database at the same time
+   * @return the pool size
+   */
+  static int poolSize(int cpus, int expectedConcurrency) {
+    return Math.max(2, Math.min(expectedConcurrency, 2 * cpus + 1));
+  }
+
+  /**
+   * Passes pool events on to another tracker, logging slow connection acquisitions on the way.
+   * @param delegate the tracker that publishes the metrics
+   * @param poolName the name of the pool
+   * @param poolStats the live state of the pool
+   * @param slowAcquireNanos acquisitions taking at least this long are logged
+   */
+  record SlowAcquireTracker(IMetricsTracker delegate, String poolName, PoolStats poolStats, long slowAcquireNanos)
+      implements IMetricsTracker {
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+      delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+      if (elapsedAcquiredNanos >= slowAcquireNanos) {
+        log.warn("Waited {} ms for a connection from {} (active {}, idle {}, waiting {}, max {})",
+            TimeUnit.NANOSECONDS.toMillis(elapsedAcquiredNanos), poolName, poolStats.getActiveConnections(),
+            poolStats.getIdleConnections(), poolStats.getPendingThreads(), poolStats.getMaxConnections());
+      }
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+      delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+      delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+      delegate.recordConnectionTimeout();
+    }
+
+    @Override
+    public void close() {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package edu.ucsb.cs156.example.metrics;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * This component wraps every DataSource in a datasource-proxy ProxyDataSource
+ * that reports each statement to the QueryStatsRecorder.
+ *
+ * Wrapping happens after initialization, so the ConnectionPoolCustomizer (which runs before it)
+ * still sees the HikariDataSource itself. DataSources that only pass connections on to other
+ * DataSource beans (e.g. the one ReplicaDataSourceConfig routes with) are not wrapped, since
+ * their statements are already counted by the pools they delegate to.
+ */
+@Component
+public class DataSourceProxyPostProcessor implements BeanPostProcessor {
+
+  private final ObjectProvider<QueryStatsRecorder> recorder;
+
+  /**
+   * Create the post processor.
+   * @param recorder the listener that is told about each statement (looked up when the DataSource is created)
+   */
+  @Autowired
+  public DataSourceProxyPostProcessor(ObjectProvider<QueryStatsRecorder> recorder) {
+    this.recorder = recorder;
+  }
+
+  /**
+   * Wrap each DataSource bean.
+   * @param bean the bean being created
+   * @param beanName the name of the bean
+   * @return a ProxyDataSource around the bean if it is a DataSource with its own connections, otherwise the bean itself
+   */
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)
+        && !(bean instanceof DelegatingDataSource)) {
+      return ProxyDataSourceBuilder.create(dataSource)
+          .name(beanName)
+          .listener(recorder.getObject())
+          .build();
+    }
+    return bean;
+  }
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.metrics;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a snapshot of the latency and throughput of one endpoint,
+ * as reported by the latency actuator endpoint.  Latencies are in microseconds.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class EndpointLatency {
+  private long count;
+  private long errors;
+  private double requestsPerSecond;
+  private double mean;
+  private long p50;
+  private long p95;
+  private long p99;
+  private long max;
+}
@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.metrics;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is an actuator endpoint, at /actuator/latency, that reports latency percentiles
+ * and throughput for every API endpoint.
+ * 
+ * GET returns the current figures; DELETE starts counting again from zero.
+ */
+@Component
+@Endpoint(id = "latency")
+public class EndpointLatencyEndpoint {
+
+  @Autowired
+  EndpointLatencyRecorder recorder;
+
+  /**
+   * @return latency summaries keyed by endpoint
+   */
+  @ReadOperation
+  public Map<String, EndpointLatency> latency() {
+    return recorder.snapshot();
+  }
+
+  /**
+   * Reset all latency figures.
+   */
+  @DeleteOperation
+  public void reset() {
+    recorder.reset();
+  }
+}
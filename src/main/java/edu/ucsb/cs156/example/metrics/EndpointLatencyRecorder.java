@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.metrics;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * This component keeps a LatencyHistogram per endpoint (e.g. "GET /api/ucsbdates/all").
+ * 
+ * Recording is lock-free; snapshot can be called at any time without pausing recording.
+ */
+@Component
+public class EndpointLatencyRecorder {
+
+  private static class Stats {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final LongAdder errors = new LongAdder();
+  }
+
+  private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+  private final Clock clock;
+  private volatile long since;
+
+  /**
+   * Create a recorder using the system clock.
+   */
+  @Autowired
+  public EndpointLatencyRecorder() {
+    this(Clock.systemUTC());
+  }
+
+  /**
+   * Create a recorder with an explicit clock (used in tests).
+   * @param clock used to compute requests per second
+   */
+  EndpointLatencyRecorder(Clock clock) {
+    this.clock = clock;
+    this.since = clock.millis();
+  }
+
+  /**
+   * Record one request.
+   * @param endpoint the endpoint, e.g. "GET /api/ucsbdates/all"
+   * @param nanos how long the request took, in nanoseconds
+   * @param error whether the request ended with an exception
+   */
+  public void record(String endpoint, long nanos, boolean error) {
+    Stats s = stats.computeIfAbsent(endpoint, e -> new Stats());
+    s.histogram.record(nanos / 1000);
+    if (error) {
+      s.errors.increment();
+    }
+  }
+
+  /**
+   * Summarize every endpoint recorded since startup or the last reset.
+   * @return the summaries, keyed and sorted by endpoint
+   */
+  public Map<String, EndpointLatency> snapshot() {
+    double seconds = Math.max(1, clock.millis() - since) / 1000.0;
+    Map<String, EndpointLatency> result = new TreeMap<>();
+    stats.forEach((endpoint, s) -> result.put(endpoint, EndpointLatency.builder()
+        .count(s.histogram.getCount())
+        .errors(s.errors.sum())
+        .requestsPerSecond(s.histogram.getCount() / seconds)
+        .mean(s.histogram.getMean())
+        .p50(s.histogram.getPercentile(50))
+        .p95(s.histogram.getPercentile(95))
+        .p99(s.histogram.getPercentile(99))
+        .max(s.histogram.getMax())
+        .build()));
+    return result;
+  }
+
+  /**
+   * Discard everything recorded so far.
+   */
+  public void reset() {
+    stats.clear();
+    since = clock.millis();
+  }
+}
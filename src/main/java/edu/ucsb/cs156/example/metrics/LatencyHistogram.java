@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This is a lock-free histogram of latencies, in microseconds.
+ *
+ * Like an HDR histogram, buckets are exact below 32us and above that each power of two
+ * is split into 32 equal sub-buckets, so any percentile it reports is within about 3%
+ * of the true value while the whole histogram stays a fixed ~10KB.
+ * Recording is a few atomic increments, so it is safe to call from every request thread.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_MAGNITUDE = 40;
+  private static final long MAX_TRACKABLE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(bucketIndex(MAX_TRACKABLE) + 1);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Record one latency.
+   * @param micros the latency in microseconds; negative values are recorded as 0,
+   *               values over 2^41 (about 25 days) as 2^41
+   */
+  public void record(long micros) {
+    long value = Math.min(Math.max(micros, 0), MAX_TRACKABLE);
+    buckets.incrementAndGet(bucketIndex(value));
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * @return the number of latencies recorded
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * @return the mean latency in microseconds, or 0 if nothing has been recorded
+   */
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * @return the largest latency recorded, in microseconds
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Estimate a percentile of the recorded latencies.
+   * @param percentile the percentile, between 0 and 100 (e.g. 99 for p99)
+   * @return the upper bound, in microseconds, of the bucket holding that percentile
+   *         (never more than the largest latency recorded), or 0 if nothing has been recorded
+   */
+  public long getPercentile(double percentile) {
+    long[] snapshot = new long[buckets.length()];
+    long total = 0;
+    for (int i = 0; i < snapshot.length; i++) {
+      snapshot[i] = buckets.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long target = Math.min(total, Math.max(1, (long) Math.ceil(total * percentile / 100.0)));
+    int i = 0;
+    long seen = snapshot[0];
+    while (seen < target) {
+      seen += snapshot[++i];
+    }
+    return Math.min(bucketUpperBound(i), getMax());
+  }
+
+  /**
+   * Find the bucket a value belongs in.
+   * @param value a value between 0 and MAX_TRACKABLE
+   * @return the index of its bucket
+   */
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+  }
+
+  /**
+   * Find the largest value that belongs in a bucket.
+   * @param index the index of the bucket
+   * @return the largest value that bucketIndex maps to index
+   */
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.metrics;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a summary of every execution of one shape of SQL statement,
+ * as reported by the queries actuator endpoint.  Times are in milliseconds.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class QueryStats {
+  private long count;
+  private long slow;
+  private long totalMillis;
+  private double meanMillis;
+  private long maxMillis;
+}
@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.metrics;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * This is an actuator endpoint, at /actuator/queries, that reports how often each shape
+ * of SQL statement has run and how long it took, most total time first.
+ * 
+ * GET returns the current figures; DELETE starts counting again from zero.
+ */
+@Component
+@Endpoint(id = "queries")
+public class QueryStatsEndpoint {
+
+  @Autowired
+  QueryStatsRecorder recorder;
+
+  /**
+   * @return query summaries keyed by query shape
+   */
+  @ReadOperation
+  public Map<String, QueryStats> queries() {
+    return recorder.snapshot();
+  }
+
+  /**
+   * Reset all query figures.
+   */
+  @DeleteOperation
+  public void reset() {
+    recorder.reset();
+  }
+}
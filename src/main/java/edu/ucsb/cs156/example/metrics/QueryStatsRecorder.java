@@ -0,0 +1,140 @@
+package edu.ucsb.cs156.example.metrics;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * This component times every SQL statement the application runs (see DataSourceProxyPostProcessor),
+ * logs the ones slower than app.datasource.slow-query-ms, and aggregates them by shape:
+ * literals and IN lists are collapsed, so e.g. every "where id in (?,?,...)" counts as one query.
+ *
+ * Recording is lock-free; snapshot can be called at any time without pausing recording.
+ */
+@Slf4j
+@Component
+public class QueryStatsRecorder implements QueryExecutionListener {
+
+  /**
+   * The most distinct query shapes that are tracked; any further shapes are counted together.
+   */
+  static final int MAX_SHAPES = 1000;
+  static final String OTHER = "(other)";
+
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private static class Stats {
+    final LongAdder count = new LongAdder();
+    final LongAdder slow = new LongAdder();
+    final LongAdder totalMillis = new LongAdder();
+    final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+  }
+
+  private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+  @Value("${app.datasource.slow-query-ms:200}")
+  long slowQueryMillis = 200;
+
+  /**
+   * Nothing to do before a statement runs.
+   * @param execInfo the statement being run
+   * @param queryInfoList the SQL being run
+   */
+  @Override
+  public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+  }
+
+  /**
+   * Record a statement once it has run.
+   * @param execInfo how the statement ran, including how long it took
+   * @param queryInfoList the SQL that was run (several entries for a JDBC batch)
+   */
+  @Override
+  public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    String sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+    record(sql, execInfo.getElapsedTime());
+  }
+
+  /**
+   * Record one execution of a statement.
+   * @param sql the SQL that was run
+   * @param millis how long it took, in milliseconds
+   */
+  public void record(String sql, long millis) {
+    boolean slow = millis >= slowQueryMillis;
+    if (slow) {
+      log.warn("Slow query ({} ms): {}", millis, sql);
+    }
+    String shape = normalize(sql);
+    Stats s = stats.get(shape);
+    if (s == null) {
+      s = stats.size() < MAX_SHAPES
+          ? stats.computeIfAbsent(shape, k -> new Stats())
+          : stats.computeIfAbsent(OTHER, k -> new Stats());
+    }
+    s.count.increment();
+    s.totalMillis.add(millis);
+    s.maxMillis.accumulate(millis);
+    if (slow) {
+      s.slow.increment();
+    }
+  }
+
+  /**
+   * Summarize every query shape recorded since startup or the last reset.
+   * @return the summaries, keyed by query shape, with the most total time first
+   */
+  public Map<String, QueryStats> snapshot() {
+    Map<String, QueryStats> result = new LinkedHashMap<>();
+    stats.entrySet().stream()
+        .map(e -> Map.entry(e.getKey(), QueryStats.builder()
+            .count(e.getValue().count.sum())
+            .slow(e.getValue().slow.sum())
+            .totalMillis(e.getValue().totalMillis.sum())
+            .meanMillis((double) e.getValue().totalMillis.sum() / Math.max(1, e.getValue().count.sum()))
+            .maxMillis(e.getValue().maxMillis.get())
+            .build()))
+        .sorted(Comparator.comparingLong((Map.Entry<String, QueryStats> e) -> e.getValue().getTotalMillis())
+            .reversed()
+            .thenComparing(Map.Entry::getKey))
+        .forEach(e -> result.put(e.getKey(), e.getValue()));
+    return result;
+  }
+
+  /**
+   * Discard everything recorded so far.
+   */
+  public void reset() {
+    stats.clear();
+  }
+
+  /**
+   * Reduce a SQL statement to its shape, so that executions differing only in
+   * literal values or in the length of an IN list are counted together.
+   * @param sql a SQL statement
+   * @return its shape
+   */
+  static String normalize(String sql) {
+    String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+    shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+    shape = PARAMETER_LIST.matcher(shape).replaceAll("(?)");
+    return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+  }
+}
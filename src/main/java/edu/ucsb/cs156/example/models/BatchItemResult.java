@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents the outcome for one item of a batch
+ * create, update or delete request.
+ * 
+ * Results are returned in the same order as the items in the request.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BatchItemResult<T> {
+  /**
+   * What happened to one item of a batch request.
+   */
+  public enum Status {
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    ALREADY_EXISTS
+  }
+
+  private Object id;
+  private Status status;
+  private T entity;
+}
@@ -0,0 +1,40 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the outcome of importing a file.
+ *
+ * A file is imported only if every row in it is valid, so either rows were
+ * imported and there are no errors, or nothing was imported and the errors
+ * say which rows to fix.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ImportResult {
+  /**
+   * A problem with one row of an imported file. The line is 0 (and the field null) when
+   * the database rejected the file as a whole, e.g. for a duplicate key.
+   */
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor(access = AccessLevel.PROTECTED)
+  @Builder
+  public static class RowError {
+    private long line;
+    private String field;
+    private String message;
+  }
+
+  private long imported;
+  private List<RowError> errors;
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * This is a model class that represents one page of a keyset (cursor) paginated listing.
+ * 
+ * To fetch the following page, pass nextCursor back as the {@code after} parameter.
+ * When nextCursor is null, there are no more rows.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T> {
+  private List<T> content;
+  private String nextCursor;
+}
@@ -2,10 +2,28 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Articles;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
-public interface ArticlesRepository extends CrudRepository<Articles, Long> {
+public interface ArticlesRepository extends JpaRepository<Articles, Long>, JpaSpecificationExecutor<Articles>, StreamingRepository<Articles> {
+  /**
+   * The fields that GET /api/articles/all can filter and sort on; each has an index.
+   */
+  ListQuery<Articles> LIST_QUERY = ListQuery.of(Articles.class,
+      List.of("email", "dateAdded"),
+      List.of("id", "dateAdded"));
 
+  /**
+   * This method returns the Articles entities whose id comes after the given cursor,
+   * in id order. It is used for keyset (cursor) pagination.
+   * @param id the cursor; only entities with a larger id are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit Articles entities, ordered by id
+   */
+  List<Articles> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
 }
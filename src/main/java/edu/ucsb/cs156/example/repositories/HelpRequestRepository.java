@@ -2,12 +2,38 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
-}
\ No newline at end of file
+public interface HelpRequestRepository extends JpaRepository<HelpRequest, Long>, JpaSpecificationExecutor<HelpRequest>, StreamingRepository<HelpRequest> {
+  /**
+   * The fields that GET /api/helprequest/all can filter and sort on; each has an index.
+   */
+  ListQuery<HelpRequest> LIST_QUERY = ListQuery.of(HelpRequest.class,
+      List.of("solved", "teamId", "requesterEmail", "requestTime"),
+      List.of("id", "requestTime"));
+
+  /**
+   * This method returns the HelpRequest entities whose id comes after the given cursor,
+   * in id order. It is used for keyset (cursor) pagination.
+   * @param id the cursor; only entities with a larger id are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit HelpRequest entities, ordered by id
+   */
+  List<HelpRequest> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+
+  /**
+   * This method returns the open queue: the HelpRequest entities that are not solved yet,
+   * oldest first. It is backed by a partial index on Postgres, so it never reads solved rows.
+   * @return the unsolved HelpRequest entities, ordered by requestTime then id
+   */
+  List<HelpRequest> findBySolvedFalseOrderByRequestTimeAscIdAsc();
+}
@@ -0,0 +1,213 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.errors.InvalidQueryException;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * This class turns the {@code filter} and {@code sort} parameters of a list endpoint into a
+ * JPA Specification and a Sort, so that filtering and sorting happen in the database.
+ *
+ * A filter is one or more clauses, all of which must match, either comma separated or as
+ * repeated {@code filter} parameters:
+ * <ul>
+ *   <li>{@code field:value} the field equals the value</li>
+ *   <li>{@code field:!value} the field does not equal the value</li>
+ *   <li>{@code field:a|b|c} the field equals one of the values</li>
+ *   <li>{@code field:>value}, {@code field:>=value}, {@code field:<value}, {@code field:<=value}
+ *       range comparisons, for number and date fields</li>
+ * </ul>
+ * Dates are in ISO format, e.g. {@code requestTime:>=2024-10-01T00:00:00}.
+ *
+ * A sort is a comma separated list of fields, each optionally prefixed with {@code -} for
+ * descending order, e.g. {@code -requestTime,teamId}; ties are broken by id.
+ *
+ * Only the fields each repository lists can be used, and it should only list fields that
+ * have an index, so that no query the API accepts has to scan the whole table.
+ *
+ * @param <T> the entity type
+ */
+public final class ListQuery<T> {
+
+  /**
+   * The most clauses a single filter may have.
+   */
+  public static final int MAX_CLAUSES = 10;
+
+  private static final String ID = "id";
+  private static final Map<Class<?>, Class<?>> BOXED = Map.of(
+      boolean.class, Boolean.class, int.class, Integer.class, long.class, Long.class);
+  private static final Set<Class<?>> RANGE_TYPES = Set.of(Integer.class, Long.class, LocalDateTime.class);
+  private static final Set<Class<?>> SUPPORTED_TYPES = Set.of(
+      String.class, Boolean.class, Integer.class, Long.class, LocalDateTime.class);
+
+  private final Map<String, Class<?>> filterable = new LinkedHashMap<>();
+  private final Set<String> sortable;
+
+  /**
+   * Create the query support for an entity.
+   * @param entity the entity class
+   * @param filterable the fields that can be filtered on
+   * @param sortable the fields that can be sorted on
+   * @param <T> the entity type
+   * @return the query support
+   * @throws IllegalArgumentException if the entity has no such field, or it has a type that cannot be filtered on
+   */
+  public static <T> ListQuery<T> of(Class<T> entity, List<String> filterable, List<String> sortable) {
+    return new ListQuery<>(entity, filterable, sortable);
+  }
+
+  private ListQuery(Class<T> entity, List<String> filterable, List<String> sortable) {
+    for (String field : filterable) {
+      Class<?> type = fieldType(entity, field);
+      if (!SUPPORTED_TYPES.contains(type)) {
+        throw new IllegalArgumentException("cannot filter on %s.%s of type %s"
+            .formatted(entity.getSimpleName(), field, type.getSimpleName()));
+      }
+      this.filterable.put(field, type);
+    }
+    sortable.forEach(field -> fieldType(entity, field));
+    this.sortable = Set.copyOf(sortable);
+  }
+
+  private static Class<?> fieldType(Class<?> entity, String field) {
+    try {
+      Class<?> type = entity.getDeclaredField(field).getType();
+      return BOXED.getOrDefault(type, type);
+    } catch (NoSuchFieldException e) {
+      throw new IllegalArgumentException("%s has no field %s".formatted(entity.getSimpleName(), field), e);
+    }
+  }
+
+  /**
+   * This method builds the Specification for a filter.
+   * @param clauses the filter clauses (null or empty for no filter)
+   * @return a Specification matching the rows that satisfy every clause, or null for no filter
+   * @throws InvalidQueryException if a clause cannot be parsed or uses a field that cannot be filtered on
+   */
+  public Specification<T> filter(List<String> clauses) {
+    if (clauses == null || clauses.isEmpty()) {
+      return null;
+    }
+    if (clauses.size() > MAX_CLAUSES) {
+      throw new InvalidQueryException("filter has %d clauses; at most %d are allowed".formatted(clauses.size(), MAX_CLAUSES));
+    }
+    Specification<T> spec = Specification.where(null);
+    for (String clause : clauses) {
+      spec = spec.and(clause(clause.trim()));
+    }
+    return spec;
+  }
+
+  /**
+   * This method builds the Sort for a sort parameter.
+   * @param sort e.g. "-requestTime,teamId" (null or blank for no particular order)
+   * @return the Sort, with id appended as a tie breaker
+   * @throws InvalidQueryException if it uses a field that cannot be sorted on
+   */
+  public Sort sort(String sort) {
+    if (sort == null || sort.isBlank()) {
+      return Sort.unsorted();
+    }
+    List<Sort.Order> orders = new ArrayList<>();
+    for (String item : sort.split(",")) {
+      String field = item.trim();
+      boolean descending = field.startsWith("-");
+      if (descending) {
+        field = field.substring(1);
+      }
+      if (!sortable.contains(field)) {
+        throw new InvalidQueryException("cannot sort on '%s'; sortable fields are %s".formatted(field, sortable));
+      }
+      orders.add(descending ? Sort.Order.desc(field) : Sort.Order.asc(field));
+    }
+    if (orders.stream().noneMatch(order -> order.getProperty().equals(ID))) {
+      orders.add(Sort.Order.asc(ID));
+    }
+    return Sort.by(orders);
+  }
+
+  private Specification<T> clause(String clause) {
+    int colon = clause.indexOf(':');
+    if (colon <= 0) {
+      throw new InvalidQueryException("filter clause '%s' is not of the form field:value".formatted(clause));
+    }
+    String field = clause.substring(0, colon);
+    Class<?> type = filterable.get(field);
+    if (type == null) {
+      throw new InvalidQueryException("cannot filter on '%s'; filterable fields are %s".formatted(field, filterable.keySet()));
+    }
+    String operand = clause.substring(colon + 1);
+
+    for (String op : List.of(">=", "<=", ">", "<")) {
+      if (operand.startsWith(op)) {
+        if (!RANGE_TYPES.contains(type)) {
+          throw new InvalidQueryException("'%s' cannot be compared with %s".formatted(field, op));
+        }
+        Comparable<Object> value = comparable(convert(field, type, operand.substring(op.length())));
+        return (root, query, cb) -> range(cb, root.get(field), op, value);
+      }
+    }
+    if (operand.startsWith("!")) {
+      Object value = convert(field, type, operand.substring(1));
+      return (root, query, cb) -> cb.notEqual(root.get(field), value);
+    }
+    if (operand.contains("|")) {
+      List<Object> values = Arrays.stream(operand.split("\\|")).map(v -> convert(field, type, v)).toList();
+      return (root, query, cb) -> root.get(field).in(values);
+    }
+    Object value = convert(field, type, operand);
+    return (root, query, cb) -> cb.equal(root.get(field), value);
+  }
+
+  private static Predicate range(CriteriaBuilder cb, Path<Comparable<Object>> path, String op, Comparable<Object> value) {
+    return switch (op) {
+      case ">=" -> cb.greaterThanOrEqualTo(path, value);
+      case "<=" -> cb.lessThanOrEqualTo(path, value);
+      case ">" -> cb.greaterThan(path, value);
+      default -> cb.lessThan(path, value);
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Comparable<Object> comparable(Object value) {
+    return (Comparable<Object>) value;
+  }
+
+  private static Object convert(String field, Class<?> type, String value) {
+    try {
+      if (type == Boolean.class) {
+        if (!value.equals("true") && !value.equals("false")) {
+          throw new IllegalArgumentException();
+        }
+        return Boolean.valueOf(value);
+      }
+      if (type == Integer.class) {
+        return Integer.valueOf(value);
+      }
+      if (type == Long.class) {
+        return Long.valueOf(value);
+      }
+      if (type == LocalDateTime.class) {
+        return LocalDateTime.parse(value);
+      }
+      return value;
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      throw new InvalidQueryException("'%s' is not a valid value for %s".formatted(value, field));
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The MenuItemRatingRepository is a repository for MenuItemRating entities.
+ */
+
+@Repository
+public interface MenuItemRatingRepository extends JpaRepository<MenuItemRating, Long> {
+  /**
+   * This method adds a change to the aggregate rating of one item in a single update
+   * statement, so that concurrent changes to the same item are not lost.
+   * @param delta the item id, and the amounts to add to each of its counts (may be negative)
+   * @return the number of rows updated: 0 if the item has no rating row yet, otherwise 1
+   */
+  @Modifying
+  @Query("""
+      update menuitemrating r set
+        r.reviewCount = r.reviewCount + :#{#delta.reviewCount},
+        r.starsSum = r.starsSum + :#{#delta.starsSum},
+        r.stars1 = r.stars1 + :#{#delta.stars1},
+        r.stars2 = r.stars2 + :#{#delta.stars2},
+        r.stars3 = r.stars3 + :#{#delta.stars3},
+        r.stars4 = r.stars4 + :#{#delta.stars4},
+        r.stars5 = r.stars5 + :#{#delta.stars5}
+      where r.itemId = :#{#delta.itemId}
+      """)
+  int addToRating(MenuItemRating delta);
+
+  /**
+   * This method creates an empty rating row for an item that has none, in its own transaction,
+   * so that the row is visible to (and can be locked by) every transaction that then adds to it.
+   * Postgres skips an existing row; H2 emulates this with a merge that can still fail with a
+   * DataIntegrityViolationException when two transactions create the same row at once, which
+   * the caller can ignore, since the row then exists either way.
+   * @param itemId the item id
+   * @return the number of rows inserted: 1 if the item had no rating row, otherwise 0
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Modifying
+  @Query("""
+      insert into menuitemrating (itemId, reviewCount, starsSum, stars1, stars2, stars3, stars4, stars5)
+      values (:itemId, 0, 0, 0, 0, 0, 0, 0)
+      on conflict do nothing
+      """)
+  int createRatingIfAbsent(long itemId);
+}
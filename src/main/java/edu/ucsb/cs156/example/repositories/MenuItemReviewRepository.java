@@ -2,14 +2,31 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * The MenuItemReviewRepository is a repository for MenuItemReview entities.
  */
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
-  
-}
\ No newline at end of file
+public interface MenuItemReviewRepository extends JpaRepository<MenuItemReview, Long>, StreamingRepository<MenuItemReview> {
+  /**
+   * This method returns all MenuItemReview entities for a given menu item.
+   * @param itemId the id of the menu item
+   * @return all MenuItemReview entities with the given itemId
+   */
+  Iterable<MenuItemReview> findAllByItemId(long itemId);
+
+  /**
+   * This method returns the MenuItemReview entities whose id comes after the given cursor,
+   * in id order. It is used for keyset (cursor) pagination.
+   * @param id the cursor; only entities with a larger id are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit MenuItemReview entities, ordered by id
+   */
+  List<MenuItemReview> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+}
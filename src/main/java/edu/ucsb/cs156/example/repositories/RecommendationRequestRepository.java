@@ -2,12 +2,31 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * The RecRequestRepository is a repository for RecRequest entities
  */
 @Repository
-public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
-}
\ No newline at end of file
+public interface RecommendationRequestRepository extends JpaRepository<RecommendationRequest, Long>, JpaSpecificationExecutor<RecommendationRequest>, StreamingRepository<RecommendationRequest> {
+  /**
+   * The fields that GET /api/recommendationrequest/all can filter and sort on; each has an index.
+   */
+  ListQuery<RecommendationRequest> LIST_QUERY = ListQuery.of(RecommendationRequest.class,
+      List.of("done", "requesterEmail", "professorEmail", "dateRequested", "dateNeeded"),
+      List.of("id", "dateRequested", "dateNeeded"));
+
+  /**
+   * This method returns the RecommendationRequest entities whose id comes after the given cursor,
+   * in id order. It is used for keyset (cursor) pagination.
+   * @param id the cursor; only entities with a larger id are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit RecommendationRequest entities, ordered by id
+   */
+  List<RecommendationRequest> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+}
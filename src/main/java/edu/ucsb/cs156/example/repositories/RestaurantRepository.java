@@ -2,12 +2,23 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+public interface RestaurantRepository extends JpaRepository<Restaurant, Long> {
+  /**
+   * This method returns the Restaurant entities whose id comes after the given cursor,
+   * in id order. It is used for keyset (cursor) pagination.
+   * @param id the cursor; only entities with a larger id are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit Restaurant entities, ordered by id
+   */
+  List<Restaurant> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
 }
@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.Repository;
+
+import jakarta.persistence.QueryHint;
+
+/**
+ * The StreamingRepository is extended by the repositories of tables that can be too large to
+ * load into a list, so that they can be read row by row (see EntityStreamService).
+ * @param <T> the entity type, which must have an id property
+ */
+
+@NoRepositoryBean
+public interface StreamingRepository<T> extends Repository<T, Long> {
+  /**
+   * The number of rows the JDBC driver fetches from the database at a time while streaming.
+   */
+  String FETCH_SIZE = "500";
+
+  /**
+   * This method streams every entity, in id order, from a server-side cursor, so that only
+   * FETCH_SIZE rows are held by the driver at a time. It must be called in a transaction,
+   * and the stream must be closed.
+   * @return a stream of all the entities
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = FETCH_SIZE))
+  Stream<T> streamAllByOrderByIdAsc();
+}
@@ -2,19 +2,40 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * The UCSBDateRepository is a repository for UCSBDate entities.
  */
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends JpaRepository<UCSBDate, Long>, StreamingRepository<UCSBDate> {
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    * @param quarterYYYYQ quarter in the format YYYYQ (e.g. 20241 for Winter 2024, 20242 for Spring 2024, 20243 for Summer 2024, 20244 for Fall 2024)
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
-  Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+  List<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
+
+  /**
+   * This method returns all UCSBDate entities between two date/times, in date order.
+   * @param start the earliest date/time to include
+   * @param end the latest date/time to include
+   * @return all UCSBDate entities with a localDateTime from start to end inclusive, earliest first
+   */
+  List<UCSBDate> findAllByLocalDateTimeBetweenOrderByLocalDateTimeAsc(LocalDateTime start, LocalDateTime end);
+
+  /**
+   * This method returns the UCSBDate entities whose id comes after the given cursor,
+   * in id order. It is used for keyset (cursor) pagination.
+   * @param id the cursor; only entities with a larger id are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit UCSBDate entities, ordered by id
+   */
+  List<UCSBDate> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+}
@@ -2,14 +2,31 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonMenuItem;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * The UCSBDateRepository is a repository for UCSBDate entities.
  */
 
 @Repository
-public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonMenuItem, Long> {
-  
-}
\ No newline at end of file
+public interface UCSBDiningCommonsMenuItemRepository extends JpaRepository<UCSBDiningCommonMenuItem, Long>, StreamingRepository<UCSBDiningCommonMenuItem> {
+  /**
+   * This method returns all UCSBDiningCommonMenuItem entities served at a given dining commons.
+   * @param diningCommonsCode the code of the dining commons (e.g. ortega)
+   * @return all UCSBDiningCommonMenuItem entities with the given diningCommonsCode
+   */
+  Iterable<UCSBDiningCommonMenuItem> findAllByDiningCommonsCode(String diningCommonsCode);
+
+  /**
+   * This method returns the UCSBDiningCommonMenuItem entities whose id comes after the given cursor,
+   * in id order. It is used for keyset (cursor) pagination.
+   * @param id the cursor; only entities with a larger id are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit UCSBDiningCommonMenuItem entities, ordered by id
+   */
+  List<UCSBDiningCommonMenuItem> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
+}
@@ -3,13 +3,23 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities
  */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+public interface UCSBDiningCommonsRepository extends JpaRepository<UCSBDiningCommons, String> {
+  /**
+   * This method returns the UCSBDiningCommons entities whose code comes after the given cursor,
+   * in code order. It is used for keyset (cursor) pagination.
+   * @param code the cursor; only entities with a larger code are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit UCSBDiningCommons entities, ordered by code
+   */
+  List<UCSBDiningCommons> findByCodeGreaterThanOrderByCodeAsc(String code, Limit limit);
+}
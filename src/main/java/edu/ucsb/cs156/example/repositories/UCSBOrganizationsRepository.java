@@ -3,14 +3,24 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 // public class UCSBOrganizationsRepository {
     
 // }
 
 @Repository
-public interface UCSBOrganizationsRepository extends CrudRepository<UCSBOrganizations, String> {
- 
-}
\ No newline at end of file
+public interface UCSBOrganizationsRepository extends JpaRepository<UCSBOrganizations, String> {
+  /**
+   * This method returns the UCSBOrganizations entities whose orgCode comes after the given cursor,
+   * in orgCode order. It is used for keyset (cursor) pagination.
+   * @param orgCode the cursor; only entities with a larger orgCode are returned
+   * @param limit the maximum number of entities to return
+   * @return up to limit UCSBOrganizations entities, ordered by orgCode
+   */
+  List<UCSBOrganizations> findByOrgCodeGreaterThanOrderByOrgCodeAsc(String orgCode, Limit limit);
+}
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.User;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -13,8 +14,12 @@ import java.util.Optional;
 public interface UserRepository extends CrudRepository<User, Long> {
   /**
    * This method returns a User entity with a given email.
+   * It runs in a read-write transaction (unless called in another one) so that it reads the
+   * primary database even when read-only transactions go to a replica: logins and admin checks
+   * cache what it returns, and a login creates the user if it finds none.
    * @param email email address of the user
    * @return Optional of User (empty if not found)
    */
+  @Transactional
   Optional<User> findByEmail(String email);
 }
@@ -0,0 +1,314 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.models.BatchItemResult;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This is a service that keeps a feed of the changes made to each table, so that a client
+ * can follow a table as Server-Sent Events and apply the changes to its copy instead of
+ * downloading the whole table again after every change.
+ *
+ * The controllers publish every insert, update and delete they make. Each change gets the
+ * next sequence number of its table and is kept in a fixed-size ring buffer, so a client that
+ * reconnects (sending the last event id it saw) is sent the changes it missed. When those are
+ * no longer in the buffer, or the application has restarted since, the client is sent a
+ * {@code reset} event instead and should load the table again.
+ *
+ * Changes are recorded once the transaction commits, in commit order, on a single background
+ * thread, which is also the only thread that touches the buffers; each change is serialized
+ * to JSON once however many clients follow the table.
+ */
+
+@Slf4j
+@Service
+public class ChangeFeedService {
+
+  /**
+   * The name of the event sent when a row is inserted.
+   */
+  public static final String INSERT = "insert";
+
+  /**
+   * The name of the event sent when a row is updated.
+   */
+  public static final String UPDATE = "update";
+
+  /**
+   * The name of the event sent when a row is deleted.
+   */
+  public static final String DELETE = "delete";
+
+  /**
+   * The name of the event sent when the client must load the table again.
+   */
+  public static final String RESET = "reset";
+
+  /**
+   * The data of an insert, update or delete event.
+   * @param id the id of the row
+   * @param entity the row as saved (absent for a delete)
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public record Change(Object id, Object entity) {
+  }
+
+  private record Event(long sequence, String name, String data) {
+  }
+
+  /**
+   * The changes and subscribers of one table.
+   */
+  private static class Feed {
+    private final Event[] buffer;
+    private final Set<SseEmitter> subscribers = ConcurrentHashMap.newKeySet();
+    private long latest;
+
+    Feed(int bufferSize) {
+      this.buffer = new Event[bufferSize];
+    }
+  }
+
+  private final Map<Class<?>, Feed> feeds = new ConcurrentHashMap<>();
+  private final ObjectMapper mapper;
+  private final int bufferSize;
+  private final String epoch;
+  private final ExecutorService sender;
+  private final Supplier<SseEmitter> emitters;
+
+  /**
+   * Create the service using the sizes configured in application.properties.
+   * @param mapper serializes the changes
+   * @param bufferSize how many of the latest changes of each table are kept for clients that reconnect
+   * @param timeoutMillis how long, in milliseconds, a stream stays open; browsers reconnect on their own
+   */
+  @Autowired
+  public ChangeFeedService(ObjectMapper mapper,
+      @Value("${app.changes.buffer-size:1000}") int bufferSize,
+      @Value("${app.changes.stream-timeout-ms:1800000}") long timeoutMillis) {
+    this(mapper, bufferSize, Long.toString(System.currentTimeMillis(), 36),
+        Executors.newSingleThreadExecutor(Thread.ofVirtual().name("change-feed").factory()),
+        () -> new SseEmitter(timeoutMillis));
+  }
+
+  /**
+   * Create the service with an explicit epoch, sender and emitters (used in tests).
+   * @param mapper serializes the changes
+   * @param bufferSize how many of the latest changes of each table are kept
+   * @param epoch identifies this run of the application in event ids
+   * @param sender runs the code that records each change and sends it to the subscribers
+   * @param emitters makes the emitter for each new subscriber
+   */
+  ChangeFeedService(ObjectMapper mapper, int bufferSize, String epoch, ExecutorService sender,
+      Supplier<SseEmitter> emitters) {
+    this.mapper = mapper;
+    this.bufferSize = bufferSize;
+    this.epoch = epoch;
+    this.sender = sender;
+    this.emitters = emitters;
+  }
+
+  /**
+   * This method publishes a row that was inserted.
+   * @param table the entity class stored in the table
+   * @param id the id of the row
+   * @param entity the row as saved
+   */
+  public void inserted(Class<?> table, Object id, Object entity) {
+    publish(table, INSERT, new Change(id, entity));
+  }
+
+  /**
+   * This method publishes a row that was updated.
+   * @param table the entity class stored in the table
+   * @param id the id of the row
+   * @param entity the row as saved
+   */
+  public void updated(Class<?> table, Object id, Object entity) {
+    publish(table, UPDATE, new Change(id, entity));
+  }
+
+  /**
+   * This method publishes a row that was deleted.
+   * @param table the entity class stored in the table
+   * @param id the id of the row
+   */
+  public void deleted(Class<?> table, Object id) {
+    publish(table, DELETE, new Change(id, null));
+  }
+
+  /**
+   * This method publishes every row a batch request created, updated or deleted.
+   * @param table the entity class stored in the table
+   * @param results the results of the batch
+   * @param <T> the entity type
+   * @return the same results
+   */
+  public <T> List<BatchItemResult<T>> publishAll(Class<T> table, List<BatchItemResult<T>> results) {
+    for (BatchItemResult<T> result : results) {
+      switch (result.getStatus()) {
+        case CREATED -> inserted(table, result.getId(), result.getEntity());
+        case UPDATED -> updated(table, result.getId(), result.getEntity());
+        case DELETED -> deleted(table, result.getId());
+        default -> { }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * This method tells the clients following a table to load it again, after a change too
+   * large to send row by row (e.g. an import).
+   * @param table the entity class stored in the table
+   */
+  public void reset(Class<?> table) {
+    Feed feed = feed(table);
+    TransactionHooks.afterCommit(() -> sender.execute(() -> record(feed, new Event(feed.latest + 1, RESET, "{}"))));
+  }
+
+  /**
+   * This method opens a new stream of the changes to a table.
+   * @param table the entity class stored in the table
+   * @param lastEventId the Last-Event-ID header, which browsers send when they reconnect (may be null)
+   * @param after the id of the last event the client has applied, for a client resuming from a
+   *              copy it kept (may be null; ignored if lastEventId is set)
+   * @return the emitter to return from the controller; it starts with the changes after the given
+   *         event, or with a reset event if there is none or those changes are no longer known
+   */
+  public SseEmitter subscribe(Class<?> table, String lastEventId, String after) {
+    Feed feed = feed(table);
+    SseEmitter emitter = emitters.get();
+    emitter.onCompletion(() -> feed.subscribers.remove(emitter));
+    emitter.onError(e -> feed.subscribers.remove(emitter));
+    emitter.onTimeout(emitter::complete);
+    long resumeFrom = sequenceOf(lastEventId != null ? lastEventId : after);
+    sender.execute(() -> {
+      if (catchUp(feed, emitter, resumeFrom)) {
+        feed.subscribers.add(emitter);
+      }
+    });
+    return emitter;
+  }
+
+  /**
+   * @param table the entity class stored in the table
+   * @return the number of open streams of the table
+   */
+  public int getSubscriberCount(Class<?> table) {
+    return feed(table).subscribers.size();
+  }
+
+  /**
+   * Close every stream and stop the sender when the application shuts down.
+   */
+  @PreDestroy
+  void shutdown() {
+    sender.shutdown();
+    feeds.values().forEach(feed -> {
+      feed.subscribers.forEach(SseEmitter::complete);
+      feed.subscribers.clear();
+    });
+  }
+
+  private Feed feed(Class<?> table) {
+    return feeds.computeIfAbsent(table, t -> new Feed(bufferSize));
+  }
+
+  private void publish(Class<?> table, String name, Change change) {
+    Feed feed = feed(table);
+    TransactionHooks.afterCommit(() -> sender.execute(() -> {
+      Event event;
+      try {
+        event = new Event(++feed.latest, name, mapper.writeValueAsString(change));
+      } catch (JsonProcessingException e) {
+        // Clients cannot apply a change they are not sent, so tell them to start over.
+        log.error("Cannot serialize the change to {} {}", table.getSimpleName(), change.id(), e);
+        event = new Event(feed.latest, RESET, "{}");
+      }
+      record(feed, event);
+    }));
+  }
+
+  /**
+   * Keep an event in the buffer of its table and send it to the table's subscribers.
+   */
+  private void record(Feed feed, Event event) {
+    feed.latest = event.sequence();
+    feed.buffer[(int) (event.sequence() % bufferSize)] = event;
+    for (SseEmitter emitter : feed.subscribers) {
+      if (!send(emitter, event)) {
+        feed.subscribers.remove(emitter);
+      }
+    }
+  }
+
+  /**
+   * Send a new subscriber the changes it missed, or a reset event.
+   * @param feed the table it follows
+   * @param emitter the subscriber
+   * @param resumeFrom the sequence of the last change it has applied, or -1 if unknown
+   * @return true if the subscriber is still connected
+   */
+  private boolean catchUp(Feed feed, SseEmitter emitter, long resumeFrom) {
+    long oldest = Math.max(1, feed.latest - bufferSize + 1);
+    if (resumeFrom < oldest - 1 || resumeFrom > feed.latest) {
+      return send(emitter, new Event(feed.latest, RESET, "{}"));
+    }
+    for (long sequence = resumeFrom + 1; sequence <= feed.latest; sequence++) {
+      if (!send(emitter, feed.buffer[(int) (sequence % bufferSize)])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean send(SseEmitter emitter, Event event) {
+    try {
+      emitter.send(SseEmitter.event()
+          .id(epoch + "-" + event.sequence())
+          .name(event.name())
+          .data(event.data(), MediaType.APPLICATION_JSON));
+      return true;
+    } catch (IOException | IllegalStateException e) {
+      // The client went away; the container reports the error to the emitter.
+      return false;
+    }
+  }
+
+  /**
+   * Find the sequence number in an event id handed out by this run of the application.
+   * @param eventId an event id of the form epoch-sequence, or null
+   * @return the sequence number, or -1 if there is none or it is from another run
+   */
+  private long sequenceOf(String eventId) {
+    String prefix = epoch + "-";
+    if (eventId == null || !eventId.startsWith(prefix)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(eventId.substring(prefix.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads CSV (RFC 4180) one record at a time, the reverse of CsvEncoder.
+ * Quoted fields may hold commas, doubled quotes and line breaks; records end with
+ * \n or \r\n. Blank lines are skipped.
+ */
+final class CsvDecoder {
+
+  private final BufferedReader in;
+  private long line = 1;
+  private long recordLine;
+
+  /**
+   * @param in the reader; it is read one character at a time, so it must be buffered
+   */
+  CsvDecoder(BufferedReader in) {
+    this.in = in;
+  }
+
+  /**
+   * @return the line number (starting at 1) on which the last record read starts
+   */
+  long getLine() {
+    return recordLine;
+  }
+
+  /**
+   * This method reads the next record.
+   * @return its fields, or null at the end of the input
+   * @throws IOException if the reader does
+   */
+  List<String> next() throws IOException {
+    List<String> record;
+    do {
+      record = read();
+    } while (record != null && record.size() == 1 && record.get(0).isEmpty());
+    return record;
+  }
+
+  private List<String> read() throws IOException {
+    int c = in.read();
+    if (c == -1) {
+      return null;
+    }
+    recordLine = line;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c == '"' && peek() != '"') {
+          quoted = false;
+        } else if (c == -1) {
+          // an unclosed quote runs to the end of the input
+          fields.add(field.toString());
+          return fields;
+        } else {
+          if (c == '"') {
+            in.read();
+          } else if (c == '\n') {
+            line++;
+          }
+          field.append((char) c);
+        }
+      } else if (c == '"' && field.isEmpty()) {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\r' || c == '\n' || c == -1) {
+        if (c == '\r' && peek() == '\n') {
+          in.read();
+        }
+        line++;
+        fields.add(field.toString());
+        return fields;
+      } else {
+        field.append((char) c);
+      }
+      c = in.read();
+    }
+  }
+
+  private int peek() throws IOException {
+    in.mark(1);
+    int c = in.read();
+    in.reset();
+    return c;
+  }
+}
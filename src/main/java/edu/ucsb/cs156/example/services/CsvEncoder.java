@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * This class writes entities as CSV (RFC 4180), one column per field in declaration order,
+ * straight to a writer: values are written as they are read from the entity, without
+ * building a string, map or JSON tree for each row.
+ * @param <T> the entity type
+ */
+final class CsvEncoder<T> {
+
+  private final List<Field> columns;
+
+  private CsvEncoder(List<Field> columns) {
+    this.columns = columns;
+  }
+
+  /**
+   * @param type the entity class
+   * @param <T> the entity type
+   * @return an encoder with a column for each instance field of the class
+   */
+  static <T> CsvEncoder<T> of(Class<T> type) {
+    List<Field> columns = Arrays.stream(type.getDeclaredFields())
+        .filter(field -> !Modifier.isStatic(field.getModifiers()))
+        .toList();
+    columns.forEach(ReflectionUtils::makeAccessible);
+    return new CsvEncoder<>(columns);
+  }
+
+  /**
+   * This method writes the header row, which holds the field names.
+   * @param out the writer
+   * @throws IOException if the writer does
+   */
+  void writeHeader(Writer out) throws IOException {
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      writeString(out, columns.get(i).getName());
+    }
+    out.write("\r\n");
+  }
+
+  /**
+   * This method writes one row. Null values are written as empty fields.
+   * @param out the writer
+   * @param row the entity
+   * @throws IOException if the writer does
+   */
+  void writeRow(Writer out, T row) throws IOException {
+    for (int i = 0; i < columns.size(); i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      writeValue(out, ReflectionUtils.getField(columns.get(i), row));
+    }
+    out.write("\r\n");
+  }
+
+  /**
+   * This method writes one field. Null is written as an empty field, and an empty string
+   * as a quoted one ("") so that the two can be told apart (as Postgres COPY does).
+   * @param out the writer
+   * @param value the value of the field
+   * @throws IOException if the writer does
+   */
+  static void writeValue(Writer out, Object value) throws IOException {
+    if (value instanceof LocalDateTime dateTime) {
+      DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(dateTime, out);
+    } else if (value != null) {
+      writeString(out, value.toString());
+    }
+  }
+
+  /**
+   * Write a value, quoting it if it is empty or holds a comma, quote or line break.
+   */
+  private static void writeString(Writer out, String value) throws IOException {
+    if (!needsQuotes(value)) {
+      out.write(value);
+      return;
+    }
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        out.write('"');
+      }
+      out.write(c);
+    }
+    out.write('"');
+  }
+
+  private static boolean needsQuotes(String value) {
+    if (value.isEmpty()) {
+      return true;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -20,20 +20,30 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * This is a service that provides information about the current user.
  * 
  * This is the version of the service used in production.
+ * 
+ * The resolved user is remembered for the rest of the HTTP request, and across
+ * requests in the UserCacheService, so most calls do not touch the database.
  */
 
 @Slf4j
 @Service("currentUser")
 @Primary
 public class CurrentUserServiceImpl extends CurrentUserService {
+  private static final String REQUEST_USER_ATTRIBUTE = CurrentUserServiceImpl.class.getName() + ".user";
+
   @Autowired
   private UserRepository userRepository;
 
+  @Autowired
+  UserCacheService userCacheService;
+
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
@@ -65,8 +75,35 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    */
   
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
-    OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
+    RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+    if (requestAttributes != null
+        && requestAttributes.getAttribute(REQUEST_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User u) {
+      return u;
+    }
+
+    User u = lookupOAuth2AuthenticatedUser(((OAuth2AuthenticationToken) authentication).getPrincipal());
+
+    if (requestAttributes != null) {
+      requestAttributes.setAttribute(REQUEST_USER_ATTRIBUTE, u, RequestAttributes.SCOPE_REQUEST);
+    }
+    return u;
+  }
+
+  /**
+   * This method finds the User for an OAuth2 principal, first in the user cache and
+   * then in the database, creating the database row if it does not exist yet.
+   * 
+   * @param oAuthUser the OAuth2 principal
+   * @return the User object representing the principal
+   */
+  private User lookupOAuth2AuthenticatedUser(OAuth2User oAuthUser) {
     String email = oAuthUser.getAttribute("email");
+
+    Optional<User> cached = userCacheService.get(email);
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
     String fullName = oAuthUser.getAttribute("name");
@@ -86,6 +123,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         u.setAdmin(true);
         userRepository.save(u);
       }
+      userCacheService.put(u);
       return u;
     }
 
@@ -102,6 +140,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .admin(adminEmails.contains(email))
         .build();
     userRepository.save(u);
+    userCacheService.put(u);
     return u;
   }
 
@@ -0,0 +1,194 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import edu.ucsb.cs156.example.errors.InvalidQueryException;
+import jakarta.persistence.EntityManager;
+
+/**
+ * This is a service that writes large query results to the response as they are read,
+ * instead of loading them into a list and serializing the list.
+ *
+ * The rows are read from a stream (see StreamingRepository) in a read-only transaction that
+ * is opened on the thread writing the response, after the controller method has returned.
+ * Each row is detached once it has been written, so the memory used stays the same however
+ * many rows there are. Exports are written as CSV or newline-delimited JSON.
+ */
+
+@Service
+public class EntityStreamService {
+
+  /**
+   * The content type of a CSV export.
+   */
+  public static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+  /**
+   * Writes one row to the response.
+   * @param <T> the entity type
+   */
+  @FunctionalInterface
+  public interface RowWriter<T> {
+    /**
+     * @param row the row to write
+     * @throws IOException if the client cannot be written to
+     */
+    void write(T row) throws IOException;
+  }
+
+  private final ObjectWriter writer;
+  private final ObjectWriter lines;
+  private final TransactionTemplate readOnly;
+  private final EntityManager entityManager;
+
+  /**
+   * Create the service.
+   * @param mapper the application's object mapper, which serializes the rows
+   * @param transactionManager opens the read-only transactions the rows are streamed in
+   * @param entityManager the shared entity manager, from which written rows are detached
+   */
+  @Autowired
+  public EntityStreamService(ObjectMapper mapper, PlatformTransactionManager transactionManager,
+      EntityManager entityManager) {
+    // the generator flushes whenever its buffer fills, not after every row
+    this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    // each row ends with its own newline instead of the usual space between root values
+    this.lines = writer.withRootValueSeparator("");
+    this.readOnly = new TransactionTemplate(transactionManager);
+    this.readOnly.setReadOnly(true);
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * This method makes a response body that writes the rows as a JSON array.
+   * @param rows opens the stream of rows (e.g. repository::streamAllByOrderByIdAsc)
+   * @param <T> the entity type
+   * @return the response body
+   */
+  public <T> StreamingResponseBody jsonArray(Supplier<Stream<T>> rows) {
+    return out -> {
+      try (JsonGenerator json = writer.createGenerator(out)) {
+        json.writeStartArray();
+        forEach(rows, row -> writer.writeValue(json, row));
+        json.writeEndArray();
+      }
+    };
+  }
+
+  /**
+   * This method makes a response body that writes the rows as newline-delimited JSON,
+   * one object per line.
+   * @param rows opens the stream of rows
+   * @param <T> the entity type
+   * @return the response body
+   */
+  public <T> StreamingResponseBody ndjson(Supplier<Stream<T>> rows) {
+    return out -> {
+      try (JsonGenerator json = lines.createGenerator(out)) {
+        forEach(rows, row -> {
+          lines.writeValue(json, row);
+          json.writeRaw('\n');
+        });
+      }
+    };
+  }
+
+  /**
+   * This method makes a response body that writes the rows as CSV, after a header row
+   * naming the fields of the entity.
+   * @param type the entity class
+   * @param rows opens the stream of rows
+   * @param <T> the entity type
+   * @return the response body
+   */
+  public <T> StreamingResponseBody csv(Class<T> type, Supplier<Stream<T>> rows) {
+    CsvEncoder<T> encoder = CsvEncoder.of(type);
+    return out -> {
+      try (Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+        encoder.writeHeader(csv);
+        forEach(rows, row -> encoder.writeRow(csv, row));
+      }
+    };
+  }
+
+  /**
+   * This method exports every row of a table as a file download. The response is
+   * gzipped by the server as it is written when the client accepts gzip.
+   * @param type the entity class
+   * @param format csv or ndjson
+   * @param rows opens the stream of rows
+   * @param <T> the entity type
+   * @return the response, named after the table (e.g. articles.csv)
+   * @throws InvalidQueryException if the format is not supported
+   */
+  public <T> ResponseEntity<StreamingResponseBody> export(Class<T> type, String format, Supplier<Stream<T>> rows) {
+    MediaType contentType;
+    StreamingResponseBody body;
+    switch (format) {
+      case "csv" -> {
+        contentType = TEXT_CSV;
+        body = csv(type, rows);
+      }
+      case "ndjson" -> {
+        contentType = MediaType.APPLICATION_NDJSON;
+        body = ndjson(rows);
+      }
+      default -> throw new InvalidQueryException(
+          String.format("export format '%s' is not supported; use csv or ndjson", format));
+    }
+    String filename = type.getSimpleName().toLowerCase() + "." + format;
+    return ResponseEntity.ok()
+        .contentType(contentType)
+        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+        .body(body);
+  }
+
+  /**
+   * This method reads the rows in a read-only transaction and writes each of them.
+   * @param rows opens the stream of rows
+   * @param rowWriter writes one row
+   * @param <T> the entity type
+   * @throws IOException if rowWriter does
+   */
+  public <T> void forEach(Supplier<Stream<T>> rows, RowWriter<T> rowWriter) throws IOException {
+    try {
+      readOnly.executeWithoutResult(status -> {
+        try (Stream<T> stream = rows.get()) {
+          Iterator<T> iterator = stream.iterator();
+          while (iterator.hasNext()) {
+            T row = iterator.next();
+            rowWriter.write(row);
+            entityManager.detach(row);
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * This is a service that pushes changes to the queue of open (unsolved) help requests
+ * to every staff screen subscribed to it, as Server-Sent Events, so that the screens
+ * do not have to poll the helprequest table.
+ *
+ * A subscriber receives an {@code open} event, carrying the help request, whenever a request
+ * joins the queue or changes while in it, and a {@code closed} event, carrying only the id,
+ * whenever a request is solved or deleted. Events are sent once the change commits, in commit
+ * order, from a single background thread, so a slow screen never holds up the request that
+ * made the change.
+ */
+
+@Service
+public class HelpRequestQueueService {
+
+  /**
+   * The name of the event sent when a help request joins the open queue or changes while in it.
+   */
+  public static final String OPEN = "open";
+
+  /**
+   * The name of the event sent when a help request leaves the open queue.
+   */
+  public static final String CLOSED = "closed";
+
+  private final Set<SseEmitter> subscribers = ConcurrentHashMap.newKeySet();
+  private final ExecutorService sender;
+  private final Supplier<SseEmitter> emitters;
+
+  /**
+   * Create the service using the stream timeout configured in application.properties.
+   * @param timeoutMillis how long, in milliseconds, a stream stays open; browsers reconnect on their own
+   */
+  @Autowired
+  public HelpRequestQueueService(@Value("${app.helprequest.queue.stream-timeout-ms:1800000}") long timeoutMillis) {
+    this(Executors.newSingleThreadExecutor(Thread.ofVirtual().name("helprequest-queue").factory()),
+        () -> new SseEmitter(timeoutMillis));
+  }
+
+  /**
+   * Create the service with an explicit sender and emitters (used in tests).
+   * @param sender runs the code that sends each event to the subscribers
+   * @param emitters makes the emitter for each new subscriber
+   */
+  HelpRequestQueueService(ExecutorService sender, Supplier<SseEmitter> emitters) {
+    this.sender = sender;
+    this.emitters = emitters;
+  }
+
+  /**
+   * This method opens a new stream of changes to the open queue.
+   * Events are only sent for changes made after this call, so a client should
+   * subscribe before it fetches the current queue.
+   * @return the emitter to return from the controller
+   */
+  public SseEmitter subscribe() {
+    SseEmitter emitter = emitters.get();
+    emitter.onCompletion(() -> subscribers.remove(emitter));
+    emitter.onError(e -> subscribers.remove(emitter));
+    emitter.onTimeout(emitter::complete);
+    subscribers.add(emitter);
+    return emitter;
+  }
+
+  /**
+   * This method publishes a help request that was created or updated.
+   * @param helpRequest the help request as saved
+   */
+  public void changed(HelpRequest helpRequest) {
+    if (helpRequest.getSolved()) {
+      removed(helpRequest.getId());
+    } else {
+      publish(OPEN, helpRequest);
+    }
+  }
+
+  /**
+   * This method publishes a help request that was deleted.
+   * @param id the id of the help request
+   */
+  public void removed(long id) {
+    publish(CLOSED, Map.of("id", id));
+  }
+
+  /**
+   * @return the number of open streams
+   */
+  public int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  /**
+   * Close every stream and stop the sender when the application shuts down.
+   */
+  @PreDestroy
+  void shutdown() {
+    sender.shutdown();
+    subscribers.forEach(SseEmitter::complete);
+    subscribers.clear();
+  }
+
+  private void publish(String name, Object data) {
+    TransactionHooks.afterCommit(() -> sender.execute(() -> send(name, data)));
+  }
+
+  private void send(String name, Object data) {
+    for (SseEmitter emitter : subscribers) {
+      try {
+        emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+      } catch (IOException | IllegalStateException e) {
+        // The client went away; the container reports the error to the emitter,
+        // but there is no point sending it anything else in the meantime.
+        subscribers.remove(emitter);
+      }
+    }
+  }
+}
@@ -0,0 +1,435 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.BufferedReader;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import edu.ucsb.cs156.example.errors.InvalidQueryException;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.ImportResult.RowError;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * This is a service that loads an uploaded file of new rows into a table in one go.
+ *
+ * The file is read as it arrives, either as CSV with a header row naming the fields or as
+ * NDJSON with one JSON object per line. Each row is checked against the validation
+ * constraints of the entity, then written straight to the table: with COPY on Postgres, or
+ * with batched inserts on other databases (H2). Rows do not go through JPA, so nothing is
+ * kept in memory however long the file is.
+ *
+ * A file is imported only if every row in it is valid. Once a row is rejected nothing more
+ * is written, but the rest of the file is still checked (up to MAX_ERRORS errors) so that
+ * all of its problems can be fixed at once, and the transaction is rolled back.
+ */
+
+@Service
+public class ImportService {
+
+  /**
+   * The largest number of errors reported for one file; reading stops after that many.
+   */
+  public static final int MAX_ERRORS = 100;
+
+  /**
+   * The number of rows sent in each batch of inserts.
+   */
+  static final int BATCH_SIZE = 1000;
+
+  /**
+   * The number of characters buffered before they are sent to COPY.
+   */
+  static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+  private final ObjectMapper mapper;
+  private final Validator validator;
+  private final TransactionTemplate transactionTemplate;
+  private final JdbcTemplate jdbcTemplate;
+  private final Function<Class<?>, ImportTable<?>> tableOf;
+  private final Map<Class<?>, ImportTable<?>> tables = new ConcurrentHashMap<>();
+
+  /**
+   * Create the service, reading the tables of the entities from the Hibernate mapping.
+   * @param mapper reads the rows
+   * @param validator checks the rows against the constraints of the entity
+   * @param transactionManager the transaction manager; the whole file is imported in one transaction
+   * @param jdbcTemplate writes the rows
+   * @param entityManagerFactory the entity manager factory, which knows the table of each entity
+   */
+  @Autowired
+  public ImportService(ObjectMapper mapper, Validator validator, PlatformTransactionManager transactionManager,
+      JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+    this(mapper, validator, transactionManager, jdbcTemplate, type -> ImportTable.of(entityManagerFactory, type));
+  }
+
+  /**
+   * Create the service with explicit tables (used in tests).
+   * @param mapper reads the rows
+   * @param validator checks the rows against the constraints of the entity
+   * @param transactionManager the transaction manager
+   * @param jdbcTemplate writes the rows
+   * @param tableOf finds the table of an entity class
+   */
+  ImportService(ObjectMapper mapper, Validator validator, PlatformTransactionManager transactionManager,
+      JdbcTemplate jdbcTemplate, Function<Class<?>, ImportTable<?>> tableOf) {
+    this.mapper = mapper;
+    this.validator = validator;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.jdbcTemplate = jdbcTemplate;
+    this.tableOf = tableOf;
+  }
+
+  /**
+   * This method imports a file of new rows into the table of an entity.
+   * @param type the entity class
+   * @param contentType the type of the file: text/csv or application/x-ndjson
+   * @param body the file
+   * @param <T> the entity type
+   * @return the number of rows imported, or (if there are any) the errors and no rows imported
+   * @throws InvalidQueryException if the type of the file is not supported, or the CSV header
+   *         names a column that is not a field of the entity
+   */
+  public <T> ImportResult importRows(Class<T> type, MediaType contentType, InputStream body) {
+    @SuppressWarnings("unchecked")
+    ImportTable<T> table = (ImportTable<T>) tables.computeIfAbsent(type, tableOf);
+    BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    RowReader rows = rowReader(table, contentType, in);
+    try {
+      return transactionTemplate.execute(status -> {
+        ImportResult result = jdbcTemplate.execute((ConnectionCallback<ImportResult>) con -> load(table, rows, con));
+        if (!result.getErrors().isEmpty()) {
+          status.setRollbackOnly();
+        }
+        return result;
+      });
+    } catch (DataIntegrityViolationException e) {
+      // e.g. a duplicate key; with batches and COPY the database does not say which row it is
+      return ImportResult.builder()
+          .imported(0)
+          .errors(List.of(RowError.builder().message(e.getMostSpecificCause().getMessage()).build()))
+          .build();
+    }
+  }
+
+  private <T> ImportResult load(ImportTable<T> table, RowReader rows, Connection con) throws SQLException {
+    ObjectReader reader = mapper.readerFor(table.getType()).with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    List<RowError> errors = new ArrayList<>();
+    long imported = 0;
+    try (RowSink<T> sink = con.isWrapperFor(PGConnection.class) ? new CopySink<>(table, con) : new BatchSink<>(table, con)) {
+      JsonNode node;
+      while (errors.size() < MAX_ERRORS && (node = next(rows, errors)) != null) {
+        T row;
+        try {
+          row = reader.readValue(node);
+        } catch (JsonProcessingException e) {
+          errors.add(rowError(rows.line(), e));
+          continue;
+        }
+        List<RowError> invalid = validate(rows.line(), row);
+        if (errors.isEmpty() && invalid.isEmpty()) {
+          sink.add(row);
+          imported++;
+        }
+        errors.addAll(invalid);
+      }
+      if (errors.isEmpty()) {
+        sink.finish();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return ImportResult.builder()
+        .imported(errors.isEmpty() ? imported : 0)
+        .errors(errors.size() > MAX_ERRORS ? errors.subList(0, MAX_ERRORS) : errors)
+        .build();
+  }
+
+  /**
+   * Read the next row, skipping (and reporting) rows that are not well-formed.
+   * @return the row, or null at the end of the file or once there are MAX_ERRORS errors
+   */
+  private JsonNode next(RowReader rows, List<RowError> errors) throws IOException {
+    while (errors.size() < MAX_ERRORS) {
+      try {
+        return rows.next();
+      } catch (JsonProcessingException e) {
+        errors.add(rowError(rows.line(), e));
+      } catch (InvalidRowException e) {
+        errors.add(RowError.builder().line(rows.line()).message(e.getMessage()).build());
+      }
+    }
+    return null;
+  }
+
+  private <T> List<RowError> validate(long line, T row) {
+    return validator.validate(row).stream()
+        .sorted(Comparator.comparing((ConstraintViolation<T> v) -> v.getPropertyPath().toString())
+            .thenComparing(ConstraintViolation::getMessage))
+        .map(v -> RowError.builder()
+            .line(line)
+            .field(v.getPropertyPath().toString())
+            .message(v.getMessage())
+            .build())
+        .toList();
+  }
+
+  /**
+   * Describe a row Jackson could not read, naming the field it was reading if it knows.
+   */
+  static RowError rowError(long line, JsonProcessingException e) {
+    String field = null;
+    if (e instanceof JsonMappingException mapping && !mapping.getPath().isEmpty()) {
+      field = mapping.getPath().stream()
+          .map(JsonMappingException.Reference::getFieldName)
+          .collect(Collectors.joining("."));
+    }
+    return RowError.builder().line(line).field(field).message(e.getOriginalMessage()).build();
+  }
+
+  private RowReader rowReader(ImportTable<?> table, MediaType contentType, BufferedReader in) {
+    if (EntityStreamService.TEXT_CSV.isCompatibleWith(contentType)) {
+      return new CsvRowReader(table, new CsvDecoder(in));
+    }
+    if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+      return new NdjsonRowReader(in);
+    }
+    throw new InvalidQueryException(String.format(
+        "import content type '%s' is not supported; use text/csv or application/x-ndjson", contentType));
+  }
+
+  /**
+   * A row that cannot be read, e.g. a CSV record with the wrong number of fields.
+   */
+  private static class InvalidRowException extends Exception {
+    InvalidRowException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Reads the rows of a file as JSON objects.
+   */
+  private interface RowReader {
+    /**
+     * @return the next row, or null at the end of the file
+     */
+    JsonNode next() throws IOException, InvalidRowException;
+
+    /**
+     * @return the line of the file on which the last row read starts
+     */
+    long line();
+  }
+
+  /**
+   * Reads CSV with a header row. Each record becomes an object with a string for each
+   * non-empty field; empty fields are left out, so they are null in the entity.
+   */
+  private final class CsvRowReader implements RowReader {
+    private final CsvDecoder decoder;
+    private final List<String> header;
+
+    CsvRowReader(ImportTable<?> table, CsvDecoder decoder) {
+      this.decoder = decoder;
+      try {
+        List<String> names = decoder.next();
+        this.header = names == null ? List.of() : names;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      for (String name : header) {
+        if (!table.hasProperty(name)) {
+          throw new InvalidQueryException(String.format(
+              "unknown column '%s' in the CSV header; the columns are %s", name, table.getProperties()));
+        }
+      }
+    }
+
+    @Override
+    public JsonNode next() throws IOException, InvalidRowException {
+      List<String> fields = decoder.next();
+      if (fields == null) {
+        return null;
+      }
+      if (fields.size() != header.size()) {
+        throw new InvalidRowException(String.format(
+            "expected %d fields but found %d", header.size(), fields.size()));
+      }
+      ObjectNode node = mapper.createObjectNode();
+      for (int i = 0; i < fields.size(); i++) {
+        if (!fields.get(i).isEmpty()) {
+          node.put(header.get(i), fields.get(i));
+        }
+      }
+      return node;
+    }
+
+    @Override
+    public long line() {
+      return decoder.getLine();
+    }
+  }
+
+  /**
+   * Reads one JSON object per line, skipping blank lines.
+   */
+  private final class NdjsonRowReader implements RowReader {
+    private final BufferedReader in;
+    private long line;
+
+    NdjsonRowReader(BufferedReader in) {
+      this.in = in;
+    }
+
+    @Override
+    public JsonNode next() throws IOException, InvalidRowException {
+      String text;
+      do {
+        text = in.readLine();
+        line++;
+      } while (text != null && text.isBlank());
+      if (text == null) {
+        return null;
+      }
+      JsonNode node = mapper.readTree(text);
+      if (!node.isObject()) {
+        throw new InvalidRowException("expected a JSON object");
+      }
+      return node;
+    }
+
+    @Override
+    public long line() {
+      return line;
+    }
+  }
+
+  /**
+   * Writes the valid rows to the table.
+   */
+  private interface RowSink<T> extends AutoCloseable {
+    void add(T row) throws SQLException, IOException;
+
+    /**
+     * Write any rows still buffered; called only if the whole file is valid.
+     */
+    void finish() throws SQLException, IOException;
+
+    @Override
+    void close() throws SQLException;
+  }
+
+  /**
+   * Streams the rows to Postgres as CSV with COPY, the fastest way to load a table.
+   */
+  private static final class CopySink<T> implements RowSink<T> {
+    private final ImportTable<T> table;
+    private final CopyIn copyIn;
+    private final CharArrayWriter buffer = new CharArrayWriter(COPY_BUFFER_SIZE);
+
+    CopySink(ImportTable<T> table, Connection con) throws SQLException {
+      this.table = table;
+      this.copyIn = con.unwrap(PGConnection.class).getCopyAPI().copyIn(table.copySql());
+    }
+
+    @Override
+    public void add(T row) throws SQLException, IOException {
+      table.writeCsv(buffer, row);
+      if (buffer.size() >= COPY_BUFFER_SIZE) {
+        flush();
+      }
+    }
+
+    @Override
+    public void finish() throws SQLException, IOException {
+      flush();
+      copyIn.endCopy();
+    }
+
+    private void flush() throws SQLException {
+      byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+      copyIn.writeToCopy(bytes, 0, bytes.length);
+      buffer.reset();
+    }
+
+    @Override
+    public void close() throws SQLException {
+      if (copyIn.isActive()) {
+        copyIn.cancelCopy();
+      }
+    }
+  }
+
+  /**
+   * Inserts the rows with a prepared statement, BATCH_SIZE rows per round trip.
+   */
+  private static final class BatchSink<T> implements RowSink<T> {
+    private final ImportTable<T> table;
+    private final PreparedStatement statement;
+    private int pending;
+
+    BatchSink(ImportTable<T> table, Connection con) throws SQLException {
+      this.table = table;
+      this.statement = con.prepareStatement(table.insertSql());
+    }
+
+    @Override
+    public void add(T row) throws SQLException {
+      for (int i = 0; i < table.size(); i++) {
+        statement.setObject(i + 1, table.value(row, i));
+      }
+      statement.addBatch();
+      if (++pending == BATCH_SIZE) {
+        statement.executeBatch();
+        pending = 0;
+      }
+    }
+
+    @Override
+    public void finish() throws SQLException {
+      if (pending > 0) {
+        statement.executeBatch();
+      }
+    }
+
+    @Override
+    public void close() throws SQLException {
+      statement.close();
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.Assigned;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.util.ReflectionUtils;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * This class describes the table an entity is imported into: its name, and the columns
+ * that are written, with the entity field each one is read from. The id column is only
+ * written when the id is assigned by the application (e.g. orgCode); generated ids are
+ * left to the database.
+ * @param <T> the entity type
+ */
+final class ImportTable<T> {
+
+  private final Class<T> type;
+  private final String name;
+  private final String idProperty;
+  private final List<String> properties;
+  private final List<String> columns;
+  private final List<Field> fields;
+
+  /**
+   * @param type the entity class
+   * @param name the table name
+   * @param idProperty the name of the id field
+   * @param properties the fields that are written, in column order
+   * @param columns the column each field is written to
+   */
+  ImportTable(Class<T> type, String name, String idProperty, List<String> properties, List<String> columns) {
+    this.type = type;
+    this.name = name;
+    this.idProperty = idProperty;
+    this.properties = properties;
+    this.columns = columns;
+    this.fields = properties.stream()
+        .map(property -> ReflectionUtils.findField(type, property))
+        .toList();
+    fields.forEach(ReflectionUtils::makeAccessible);
+  }
+
+  /**
+   * This method reads the table and column names of an entity from the Hibernate mapping.
+   * @param entityManagerFactory the application's entity manager factory
+   * @param type the entity class
+   * @param <T> the entity type
+   * @return the table the entity is imported into
+   */
+  static <T> ImportTable<T> of(EntityManagerFactory entityManagerFactory, Class<T> type) {
+    AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory
+        .unwrap(SessionFactoryImplementor.class)
+        .getMappingMetamodel()
+        .getEntityDescriptor(type);
+    List<String> properties = new ArrayList<>();
+    List<String> columns = new ArrayList<>();
+    if (persister.getGenerator() instanceof Assigned) {
+      properties.add(persister.getIdentifierPropertyName());
+      columns.add(persister.getIdentifierColumnNames()[0]);
+    }
+    for (String property : persister.getPropertyNames()) {
+      properties.add(property);
+      columns.add(persister.getPropertyColumnNames(property)[0]);
+    }
+    return new ImportTable<>(type, persister.getTableName(), persister.getIdentifierPropertyName(),
+        properties, columns);
+  }
+
+  /**
+   * @return the entity class
+   */
+  Class<T> getType() {
+    return type;
+  }
+
+  /**
+   * @param property the name of a column in an imported file
+   * @return true if it is a field of the entity (the id is accepted even when it is not written)
+   */
+  boolean hasProperty(String property) {
+    return property.equals(idProperty) || properties.contains(property);
+  }
+
+  /**
+   * @return the fields of the entity that may be columns of an imported file
+   */
+  List<String> getProperties() {
+    List<String> all = new ArrayList<>(properties);
+    if (!all.contains(idProperty)) {
+      all.add(0, idProperty);
+    }
+    return all;
+  }
+
+  /**
+   * @return a COPY statement that reads the written columns as CSV
+   */
+  String copySql() {
+    return "COPY " + name + " (" + String.join(", ", columns) + ") FROM STDIN (FORMAT csv)";
+  }
+
+  /**
+   * @return an INSERT statement with a parameter for each written column
+   */
+  String insertSql() {
+    return "INSERT INTO " + name + " (" + String.join(", ", columns) + ") VALUES ("
+        + String.join(", ", columns.stream().map(column -> "?").toList()) + ")";
+  }
+
+  /**
+   * @return the number of written columns
+   */
+  int size() {
+    return fields.size();
+  }
+
+  /**
+   * @param row the entity
+   * @param column the index of a written column
+   * @return the value written to the column
+   */
+  Object value(T row, int column) {
+    return ReflectionUtils.getField(fields.get(column), row);
+  }
+
+  /**
+   * This method writes the columns of an entity as one line of CSV, as COPY reads it.
+   * @param out the writer
+   * @param row the entity
+   * @throws IOException if the writer does
+   */
+  void writeCsv(Writer out, T row) throws IOException {
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        out.write(',');
+      }
+      CsvEncoder.writeValue(out, value(row, i));
+    }
+    out.write('\n');
+  }
+}
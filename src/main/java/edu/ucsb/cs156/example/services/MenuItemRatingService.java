@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that keeps the MenuItemRating aggregates in step with the MenuItemReviews,
+ * so that showing an item's rating never needs to read its reviews.
+ *
+ * Changes are applied incrementally, one update statement per affected item, and should be
+ * made in the same transaction as the review changes they describe. The first review of an
+ * item first creates its (empty) rating row in a transaction of its own, so that concurrent
+ * first reviews update the same row instead of each inserting one.
+ */
+
+@Service
+public class MenuItemRatingService {
+
+  @Autowired
+  MenuItemRatingRepository menuItemRatingRepository;
+
+  /**
+   * This method returns the aggregate ratings of many items at once.
+   * @param itemIds the ids of the menu items
+   * @return one rating per distinct item id, in id order; items without reviews have a zero count
+   */
+  public List<MenuItemRating> getRatings(Collection<Long> itemIds) {
+    Map<Long, MenuItemRating> ratings = new TreeMap<>();
+    itemIds.forEach(itemId -> ratings.put(itemId, MenuItemRating.builder().itemId(itemId).build()));
+    menuItemRatingRepository.findAllById(ratings.keySet())
+        .forEach(rating -> ratings.put(rating.getItemId(), rating));
+    return List.copyOf(ratings.values());
+  }
+
+  /**
+   * This method updates the ratings after reviews have been created, edited or deleted.
+   * @param added reviews that now exist (new reviews, and edited reviews as they are now)
+   * @param removed reviews that no longer exist (deleted reviews, and edited reviews as they were)
+   */
+  public void reviewsChanged(Collection<MenuItemReview> added, Collection<MenuItemReview> removed) {
+    Map<Long, MenuItemRating> deltas = new TreeMap<>();
+    added.forEach(review -> addReview(deltas, review, 1));
+    removed.forEach(review -> addReview(deltas, review, -1));
+    for (MenuItemRating delta : deltas.values()) {
+      if (delta.equals(MenuItemRating.builder().itemId(delta.getItemId()).build())) {
+        continue;
+      }
+      if (menuItemRatingRepository.addToRating(delta) == 0 && delta.getReviewCount() > 0) {
+        createRatingIfAbsent(delta.getItemId());
+        menuItemRatingRepository.addToRating(delta);
+      }
+    }
+  }
+
+  private void createRatingIfAbsent(long itemId) {
+    try {
+      menuItemRatingRepository.createRatingIfAbsent(itemId);
+    } catch (DataIntegrityViolationException e) {
+      // another transaction created the row at the same time
+    }
+  }
+
+  /**
+   * Add (sign 1) or subtract (sign -1) one review to the delta for its item.
+   * Stars outside 1 to 5 are counted in the nearest histogram bucket.
+   */
+  private static void addReview(Map<Long, MenuItemRating> deltas, MenuItemReview review, int sign) {
+    MenuItemRating delta = deltas.computeIfAbsent(review.getItemId(),
+        itemId -> MenuItemRating.builder().itemId(itemId).build());
+    delta.setReviewCount(delta.getReviewCount() + sign);
+    delta.setStarsSum(delta.getStarsSum() + (long) sign * review.getStars());
+    switch (Math.max(1, Math.min(5, review.getStars()))) {
+      case 1 -> delta.setStars1(delta.getStars1() + sign);
+      case 2 -> delta.setStars2(delta.getStars2() + sign);
+      case 3 -> delta.setStars3(delta.getStars3() + sign);
+      case 4 -> delta.setStars4(delta.getStars4() + sign);
+      default -> delta.setStars5(delta.getStars5() + sign);
+    }
+  }
+}
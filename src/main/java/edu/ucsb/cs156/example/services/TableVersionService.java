@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that keeps a version number for each table of reference data,
+ * bumped by the controllers on every write, so that GET endpoints can answer
+ * {@code If-None-Match} / {@code If-Modified-Since} with a 304 without querying the table.
+ *
+ * Versions live in memory and start over when the application restarts; the ETag includes
+ * the start time so that tags handed out before a restart never match afterwards.
+ */
+
+@Service
+public class TableVersionService {
+
+  /**
+   * The version of a table at some moment.
+   * @param eTag an ETag (including the quotes) that changes whenever the table does; it is weak
+   *             because the same version may be sent gzipped or not (Tomcat never compresses
+   *             a response that carries a strong ETag)
+   * @param lastModified when the table last changed, in milliseconds since the epoch,
+   *                     always a whole second so that it survives the Last-Modified header
+   */
+  public record TableVersion(String eTag, long lastModified) {
+  }
+
+  private final Map<Class<?>, TableVersion> versions = new ConcurrentHashMap<>();
+  private final LongSupplier clock;
+  private final String epoch;
+  private final AtomicLong counter = new AtomicLong();
+
+  /**
+   * Create the service using the system clock.
+   */
+  @Autowired
+  public TableVersionService() {
+    this(System::currentTimeMillis);
+  }
+
+  /**
+   * Create the service with an explicit time source (used in tests).
+   * @param clock returns the current time in milliseconds since the epoch
+   */
+  TableVersionService(LongSupplier clock) {
+    this.clock = clock;
+    this.epoch = Long.toString(clock.getAsLong(), 36);
+  }
+
+  /**
+   * This method returns the current version of a table.
+   * @param table the entity class stored in the table
+   * @return the current version
+   */
+  public TableVersion current(Class<?> table) {
+    return versions.computeIfAbsent(table, t -> next(null));
+  }
+
+  /**
+   * This method records that a table has changed. Inside a transaction the new version
+   * only takes effect once the transaction commits, so that a reader can never pair
+   * the new version with rows from before the change.
+   * @param table the entity class stored in the table
+   */
+  public void bump(Class<?> table) {
+    TransactionHooks.afterCommit(() -> versions.compute(table, (t, previous) -> next(previous)));
+  }
+
+  /**
+   * Make a version that has never been handed out before.
+   * @param previous the version being replaced, or null
+   * @return the new version
+   */
+  private TableVersion next(TableVersion previous) {
+    long now = clock.getAsLong() / 1000 * 1000;
+    // Last-Modified only has whole seconds, so a change within the same second
+    // as the previous one must still move it forward.
+    long lastModified = previous == null ? now : Math.max(now, previous.lastModified() + 1000);
+    return new TableVersion("W/\"" + epoch + "-" + counter.incrementAndGet() + "\"", lastModified);
+  }
+}
@@ -0,0 +1,33 @@
+package edu.ucsb.cs156.example.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helpers for running code around the current transaction.
+ */
+
+public final class TransactionHooks {
+
+  private TransactionHooks() {
+  }
+
+  /**
+   * Run an action now, or, inside a transaction, once the transaction commits,
+   * so that a concurrent request cannot observe its effect before the rows it describes.
+   * If the transaction rolls back, the action is not run at all.
+   * @param action the action to run
+   */
+  public static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        action.run();
+      }
+    });
+  }
+}
@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that caches the UCSBDate entities of each quarter, so that
+ * calendar views asking for the same quarter again do not each query the ucsbdates table.
+ *
+ * Dates rarely change once a quarter is published, so entries are kept for a long time;
+ * the controller evicts a quarter whenever one of its dates is created, updated or deleted.
+ * Evictions made inside a transaction take effect when it commits.
+ */
+
+@Service
+public class UCSBDateCacheService {
+
+  private final Cache<String, List<UCSBDate>> quarters;
+
+  /**
+   * Create the cache using the sizes configured in application.properties.
+   * @param maxSize the maximum number of quarters kept in the cache
+   * @param ttlSeconds how long, in seconds, a cached quarter remains valid
+   */
+  @Autowired
+  public UCSBDateCacheService(
+      @Value("${app.cache.ucsbdates.max-size:200}") long maxSize,
+      @Value("${app.cache.ucsbdates.ttl-seconds:3600}") long ttlSeconds) {
+    this(maxSize, ttlSeconds, Ticker.systemTicker());
+  }
+
+  /**
+   * Create the cache with an explicit time source (used in tests).
+   * @param maxSize the maximum number of quarters kept in the cache
+   * @param ttlSeconds how long, in seconds, a cached quarter remains valid
+   * @param ticker the time source used to expire entries
+   */
+  UCSBDateCacheService(long maxSize, long ttlSeconds, Ticker ticker) {
+    this.quarters = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .ticker(ticker)
+        .executor(Runnable::run)
+        .build();
+  }
+
+  /**
+   * This method returns the dates of a quarter, loading them on a cache miss.
+   * @param quarterYYYYQ quarter in the format YYYYQ (e.g. 20241 for Winter 2024)
+   * @param loader looks up the dates of a quarter in the database (called at most once per cache miss)
+   * @return the dates of the quarter
+   */
+  public List<UCSBDate> getQuarter(String quarterYYYYQ, Function<String, List<UCSBDate>> loader) {
+    return quarters.get(quarterYYYYQ, loader);
+  }
+
+  /**
+   * This method removes a single quarter from the cache.
+   * @param quarterYYYYQ quarter in the format YYYYQ
+   */
+  public void evict(String quarterYYYYQ) {
+    TransactionHooks.afterCommit(() -> quarters.invalidate(quarterYYYYQ));
+  }
+
+  /**
+   * This method removes every quarter from the cache.
+   */
+  public void evictAll() {
+    TransactionHooks.afterCommit(quarters::invalidateAll);
+  }
+}
@@ -0,0 +1,118 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import edu.ucsb.cs156.example.entities.User;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that caches User entities by email address, so that
+ * authenticated requests do not each need a round trip to the users table.
+ * 
+ * It also caches the admin flag looked up for each email at OAuth login time,
+ * including for emails that do not (yet) have a row in the users table.
+ * 
+ * Both caches are bounded in size and entries expire a fixed time after they are written.
+ * Call evict or evictAll whenever a user's row (e.g. their admin flag) changes.
+ */
+
+@Slf4j
+@Service("userCache")
+public class UserCacheService {
+
+  private final Cache<String, User> users;
+  private final Cache<String, Boolean> adminFlags;
+
+  /**
+   * Create the cache using the sizes configured in application.properties.
+   * @param maxSize the maximum number of users (and admin flags) kept in the cache
+   * @param ttlSeconds how long, in seconds, a cached user remains valid
+   */
+  @Autowired
+  public UserCacheService(
+      @Value("${app.cache.users.max-size:10000}") long maxSize,
+      @Value("${app.cache.users.ttl-seconds:300}") long ttlSeconds) {
+    this(maxSize, ttlSeconds, Ticker.systemTicker());
+  }
+
+  /**
+   * Create the cache with an explicit time source (used in tests).
+   * @param maxSize the maximum number of users (and admin flags) kept in the cache
+   * @param ttlSeconds how long, in seconds, a cached user remains valid
+   * @param ticker the time source used to expire entries
+   */
+  UserCacheService(long maxSize, long ttlSeconds, Ticker ticker) {
+    this.users = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .ticker(ticker)
+        .executor(Runnable::run)
+        .build();
+    this.adminFlags = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .ticker(ticker)
+        .executor(Runnable::run)
+        .build();
+  }
+
+  /**
+   * This method returns the cached user with a given email, if any.
+   * @param email email address of the user
+   * @return Optional of User (empty if not cached or expired)
+   */
+  public Optional<User> get(String email) {
+    return Optional.ofNullable(users.getIfPresent(email));
+  }
+
+  /**
+   * This method stores a user in the cache, keyed by their email address.
+   * @param user the user to cache
+   */
+  public void put(User user) {
+    users.put(user.getEmail(), user);
+  }
+
+  /**
+   * This method returns whether the user with a given email is an admin according to the
+   * database. A cached user is used if present; otherwise the answer from loader is cached.
+   * @param email email address of the user
+   * @param loader looks up the admin flag in the database (called at most once per cache miss)
+   * @return whether the user is an admin
+   */
+  public boolean isAdmin(String email, Predicate<String> loader) {
+    Optional<User> u = get(email);
+    if (u.isPresent()) {
+      return u.get().getAdmin();
+    }
+    return adminFlags.get(email, loader::test);
+  }
+
+  /**
+   * This method removes a single user, and their admin flag, from the cache.
+   * @param email email address of the user
+   */
+  public void evict(String email) {
+    users.invalidate(email);
+    adminFlags.invalidate(email);
+  }
+
+  /**
+   * This method removes every user and admin flag from the cache.
+   */
+  public void evictAll() {
+    log.info("evicting all cached users");
+    users.invalidateAll();
+    adminFlags.invalidateAll();
+  }
+}
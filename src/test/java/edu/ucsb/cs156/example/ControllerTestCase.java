@@ -13,7 +13,17 @@ import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManager;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
@@ -30,14 +40,66 @@ public abstract class ControllerTestCase {
   @Autowired
   public MockMvc mockMvc;
 
+  @Autowired
+  WebApplicationContext webApplicationContext;
+
   @Autowired
   public ObjectMapper mapper;
 
   @MockBean
   WiremockService mockWiremockService;
 
+  // used by EntityStreamService, which streams the /all lists and exports
+  @MockBean
+  public PlatformTransactionManager transactionManager;
+
+  @MockBean
+  public EntityManager entityManager;
+
   protected Map<String, Object> responseToJson(MvcResult result) throws UnsupportedEncodingException, JsonProcessingException {
     String responseString = result.getResponse().getContentAsString();
     return mapper.readValue(responseString, Map.class);
   }
+
+  /**
+   * Open a change feed (see ChangeFeedService) and wait for the first event it sends.
+   * @param url the url of the feed, e.g. /api/restaurants/changes
+   * @return the text of the stream once it holds a complete event
+   */
+  protected String firstChangeEvent(String url) throws Exception {
+    // the event is written by another thread, maybe while mockMvc is still printing the
+    // response for the test report, so open the feed with a MockMvc that does not print
+    MockMvc feedMockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+    MvcResult result = feedMockMvc.perform(get(url))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+    long deadline = System.currentTimeMillis() + 5000;
+    String content = result.getResponse().getContentAsString();
+    while (!content.endsWith("\n\n") && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      content = result.getResponse().getContentAsString();
+    }
+    return content;
+  }
+
+  /**
+   * Wait for a response streamed from the database (see EntityStreamService) to be written.
+   * @param result the result of a request whose async processing has started
+   * @return the text of the response
+   */
+  protected String streamedContent(MvcResult result) throws Exception {
+    return mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+  }
+
+  /**
+   * Find the sequence number of the latest change to a table, from the reset event its feed starts with.
+   * @param url the url of the feed, e.g. /api/restaurants/changes
+   * @return the sequence number (0 if the table has not changed)
+   */
+  protected long latestChange(String url) throws Exception {
+    String event = firstChangeEvent(url);
+    return Long.parseLong(event.substring(event.indexOf('-') + 1, event.indexOf('\n')));
+  }
 }
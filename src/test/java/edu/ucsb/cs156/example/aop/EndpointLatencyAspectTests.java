@@ -0,0 +1,83 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import edu.ucsb.cs156.example.metrics.EndpointLatencyRecorder;
+
+class EndpointLatencyAspectTests {
+
+  private final EndpointLatencyAspect aspect = new EndpointLatencyAspect();
+  private final ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+
+  EndpointLatencyAspectTests() {
+    aspect.recorder = mock(EndpointLatencyRecorder.class);
+  }
+
+  @AfterEach
+  void clearRequest() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private void currentRequest(String method, String uri, String pattern) {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+    if (pattern != null) {
+      request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+    }
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+  }
+
+  @Test
+  void test_records_url_pattern_of_successful_request() throws Throwable {
+    currentRequest("GET", "/api/ucsbdates", "/api/ucsbdates");
+    when(joinPoint.proceed()).thenReturn("result");
+
+    assertEquals("result", aspect.timeEndpoint(joinPoint));
+
+    verify(aspect.recorder).record(eq("GET /api/ucsbdates"), anyLong(), eq(false));
+  }
+
+  @Test
+  void test_records_uri_when_there_is_no_pattern() throws Throwable {
+    currentRequest("DELETE", "/api/ucsbdates", null);
+
+    aspect.timeEndpoint(joinPoint);
+
+    verify(aspect.recorder).record(eq("DELETE /api/ucsbdates"), anyLong(), eq(false));
+  }
+
+  @Test
+  void test_records_error_when_handler_throws() throws Throwable {
+    currentRequest("GET", "/api/ucsbdates", "/api/ucsbdates");
+    when(joinPoint.proceed()).thenThrow(new IllegalStateException("boom"));
+
+    assertThrows(IllegalStateException.class, () -> aspect.timeEndpoint(joinPoint));
+
+    verify(aspect.recorder).record(eq("GET /api/ucsbdates"), anyLong(), eq(true));
+  }
+
+  @Test
+  void test_records_method_name_outside_a_request() throws Throwable {
+    Signature signature = mock(Signature.class);
+    when(signature.toShortString()).thenReturn("UCSBDatesController.allUCSBDates()");
+    when(joinPoint.getSignature()).thenReturn(signature);
+
+    aspect.timeEndpoint(joinPoint);
+
+    verify(aspect.recorder).record(eq("UCSBDatesController.allUCSBDates()"), anyLong(), eq(false));
+  }
+}
@@ -0,0 +1,120 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+class ReplicaDataSourceConfigTests {
+
+  private final ReplicaDataSourceConfig config = new ReplicaDataSourceConfig();
+
+  private DataSourceProperties primaryProperties() throws Exception {
+    DataSourceProperties properties = new DataSourceProperties();
+    properties.setUrl("jdbc:h2:mem:configtest-primary");
+    properties.setUsername("sa");
+    properties.setPassword("password");
+    properties.afterPropertiesSet();
+    return properties;
+  }
+
+  private String databaseName(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT DATABASE()")) {
+      resultSet.next();
+      return resultSet.getString(1);
+    }
+  }
+
+  @Test
+  void test_the_primary_pool_uses_the_spring_datasource_settings() throws Exception {
+    try (HikariDataSource primary = config.primaryDataSource(primaryProperties())) {
+      assertEquals("primary", primary.getPoolName());
+      assertEquals("jdbc:h2:mem:configtest-primary", primary.getJdbcUrl());
+      assertEquals("sa", primary.getUsername());
+      assertFalse(primary.isReadOnly());
+    }
+  }
+
+  @Test
+  void test_the_replica_pool_defaults_to_the_primary_credentials() throws Exception {
+    try (HikariDataSource replica = config.replicaDataSource(primaryProperties(),
+        "jdbc:h2:mem:configtest-replica", "", "")) {
+      assertEquals("replica", replica.getPoolName());
+      assertEquals("jdbc:h2:mem:configtest-replica", replica.getJdbcUrl());
+      assertEquals("sa", replica.getUsername());
+      assertEquals("password", replica.getPassword());
+      assertTrue(replica.isReadOnly());
+    }
+  }
+
+  @Test
+  void test_the_replica_pool_may_have_its_own_credentials() throws Exception {
+    try (HikariDataSource replica = config.replicaDataSource(primaryProperties(),
+        "jdbc:h2:mem:configtest-replica", "reader", "secret")) {
+      assertEquals("reader", replica.getUsername());
+      assertEquals("secret", replica.getPassword());
+    }
+  }
+
+  @Test
+  void test_the_lag_monitor_checks_the_replica() {
+    ReplicaLagMonitor lagMonitor = config.replicaLagMonitor(
+        new DriverManagerDataSource("jdbc:h2:mem:configtest-replica", "sa", ""), "SELECT 0", 5000, 1000);
+
+    lagMonitor.shutdown();
+  }
+
+  @Test
+  void test_read_only_connections_go_to_the_replica_while_it_is_usable() throws Exception {
+    DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:routingtest-primary", "sa", "");
+    DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:routingtest-replica", "sa", "");
+    ReplicaLagMonitor lagMonitor = mock(ReplicaLagMonitor.class);
+    LazyConnectionDataSourceProxy dataSource = config.dataSource(primary, replica, lagMonitor);
+
+    when(lagMonitor.isReplicaUsable()).thenReturn(true);
+    try (Connection connection = dataSource.getConnection()) {
+      assertEquals("ROUTINGTEST-PRIMARY", databaseName(connection));
+    }
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setReadOnly(true);
+      assertEquals("ROUTINGTEST-REPLICA", databaseName(connection));
+    }
+
+    when(lagMonitor.isReplicaUsable()).thenReturn(false);
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setReadOnly(true);
+      assertEquals("ROUTINGTEST-PRIMARY", databaseName(connection));
+    }
+  }
+
+  @Test
+  void test_the_replica_migration_creates_the_schema_on_the_replica() throws Exception {
+    String url = "jdbc:h2:mem:migrationtest-replica;DB_CLOSE_DELAY=-1";
+
+    try (HikariDataSource pool = config.replicaDataSource(primaryProperties(), url, "", "")) {
+      config.replicaMigration(pool, "db/migration/changelog-master.json", new DefaultResourceLoader())
+          .afterPropertiesSet();
+    }
+
+    JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(url, "sa", "password"));
+    assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM RESTAURANTS", Integer.class));
+  }
+}
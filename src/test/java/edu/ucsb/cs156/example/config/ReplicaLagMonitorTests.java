@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class ReplicaLagMonitorTests {
+
+  private static final String LAG_QUERY = "SELECT lag";
+
+  private final JdbcTemplate replica = mock(JdbcTemplate.class);
+  private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+  private final ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, LAG_QUERY, 5000, scheduler, 1000);
+
+  private void lagIs(Long lag) {
+    when(replica.queryForObject(LAG_QUERY, Number.class)).thenReturn(lag);
+  }
+
+  @Test
+  void test_checks_are_scheduled_and_the_replica_is_not_used_before_the_first() {
+    verify(scheduler).scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(1000L), eq(TimeUnit.MILLISECONDS));
+    assertFalse(monitor.isReplicaUsable());
+  }
+
+  @Test
+  void test_the_replica_is_used_while_it_is_within_the_limit() {
+    lagIs(5000L);
+    monitor.check();
+    assertTrue(monitor.isReplicaUsable());
+
+    lagIs(0L);
+    monitor.check();
+    assertTrue(monitor.isReplicaUsable());
+
+    lagIs(5001L);
+    monitor.check();
+    assertFalse(monitor.isReplicaUsable());
+
+    lagIs(6000L);
+    monitor.check();
+    assertFalse(monitor.isReplicaUsable());
+  }
+
+  @Test
+  void test_the_replica_is_not_used_when_the_lag_is_unknown() {
+    lagIs(0L);
+    monitor.check();
+
+    lagIs(null);
+    monitor.check();
+
+    assertFalse(monitor.isReplicaUsable());
+  }
+
+  @Test
+  void test_the_replica_is_not_used_when_the_check_fails() {
+    lagIs(0L);
+    monitor.check();
+    when(replica.queryForObject(LAG_QUERY, Number.class))
+        .thenThrow(new DataAccessResourceFailureException("replica is down"));
+
+    monitor.check();
+    assertFalse(monitor.isReplicaUsable());
+
+    monitor.check();
+    assertFalse(monitor.isReplicaUsable());
+  }
+
+  @Test
+  void test_shutdown_stops_the_checks() {
+    monitor.shutdown();
+
+    verify(scheduler).shutdownNow();
+  }
+
+  @Test
+  void test_the_lag_is_checked_in_the_background() throws Exception {
+    ReplicaLagMonitor running = new ReplicaLagMonitor(
+        new DriverManagerDataSource("jdbc:h2:mem:lagmonitortest", "sa", ""), "SELECT 0", 5000, 10);
+    try {
+      for (int i = 0; i < 500 && !running.isReplicaUsable(); i++) {
+        Thread.sleep(10);
+      }
+      assertTrue(running.isReplicaUsable());
+    } finally {
+      running.shutdown();
+    }
+  }
+}
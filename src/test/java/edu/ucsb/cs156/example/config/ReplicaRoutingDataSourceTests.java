@@ -0,0 +1,43 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+class ReplicaRoutingDataSourceTests {
+
+  private final DataSource replica = mock(DataSource.class);
+  private final DataSource primary = mock(DataSource.class);
+  private final ReplicaLagMonitor lagMonitor = mock(ReplicaLagMonitor.class);
+  private final ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(replica, primary, lagMonitor);
+
+  @Test
+  void test_connections_come_from_the_replica_while_it_is_usable() throws Exception {
+    Connection connection = mock(Connection.class);
+    Connection userConnection = mock(Connection.class);
+    when(lagMonitor.isReplicaUsable()).thenReturn(true);
+    when(replica.getConnection()).thenReturn(connection);
+    when(replica.getConnection("reader", "secret")).thenReturn(userConnection);
+
+    assertSame(connection, dataSource.getConnection());
+    assertSame(userConnection, dataSource.getConnection("reader", "secret"));
+  }
+
+  @Test
+  void test_connections_come_from_the_primary_while_the_replica_is_not_usable() throws Exception {
+    Connection connection = mock(Connection.class);
+    Connection userConnection = mock(Connection.class);
+    when(lagMonitor.isReplicaUsable()).thenReturn(false);
+    when(primary.getConnection()).thenReturn(connection);
+    when(primary.getConnection("reader", "secret")).thenReturn(userConnection);
+
+    assertSame(connection, dataSource.getConnection());
+    assertSame(userConnection, dataSource.getConnection("reader", "secret"));
+  }
+}
@@ -4,15 +4,22 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Articles;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,12 +31,16 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = ArticlesController.class)
@@ -301,7 +312,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
         // assert
         verify(articlesRepository, times(1)).findById(15L);
-        verify(articlesRepository, times(1)).delete(any());
+        verify(articlesRepository, times(1)).delete(any(Articles.class));
 
         Map<String, Object> json = responseToJson(response);
         assertEquals("Article with id 15 deleted", json.get("message"));
@@ -327,4 +338,418 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals("Articles with id 15 not found", json.get("message"));
         }
 
+    // Tests for GET /api/articles/page
+
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+        mockMvc.perform(get("/api/articles/page"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_page_with_a_next_cursor() throws Exception {
+        // arrange
+        Articles first = Articles.builder()
+                .id(4L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles second = Articles.builder()
+                .id(7L)
+                .title("bravo")
+                .url("https://example.org/bravo")
+                .explanation("bravo")
+                .email("bravo@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles extra = Articles.builder()
+                .id(9L)
+                .title("charlie")
+                .url("https://example.org/charlie")
+                .explanation("charlie")
+                .email("charlie@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+
+        when(articlesRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), eq(Limit.of(3))))
+                .thenReturn(new ArrayList<>(Arrays.asList(first, second, extra)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/page?after=3&limit=2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        KeysetPage<Articles> expectedPage = KeysetPage.<Articles>builder()
+                .content(Arrays.asList(first, second))
+                .nextCursor("7")
+                .build();
+        String expectedJson = mapper.writeValueAsString(expectedPage);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void last_page_has_no_next_cursor_and_limit_is_capped() throws Exception {
+        // arrange
+        Articles only = Articles.builder()
+                .id(4L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+
+        when(articlesRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(ApiController.MAX_PAGE_SIZE + 1))))
+                .thenReturn(new ArrayList<>(Arrays.asList(only)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/page?limit=5000"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        KeysetPage<Articles> expectedPage = KeysetPage.<Articles>builder()
+                .content(Arrays.asList(only))
+                .build();
+        String expectedJson = mapper.writeValueAsString(expectedPage);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    // Tests for POST, PUT and DELETE /api/articles/batch
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_post_a_batch() throws Exception {
+        mockMvc.perform(post("/api/articles/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]")
+                        .with(csrf()))
+                        .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_post_a_batch_and_ids_are_set_by_the_database() throws Exception {
+        // arrange
+        Articles first = Articles.builder()
+                .id(0L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles second = Articles.builder()
+                .id(0L)
+                .title("bravo")
+                .url("https://example.org/bravo")
+                .explanation("bravo")
+                .email("bravo@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles firstSaved = Articles.builder()
+                .id(1L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles secondSaved = Articles.builder()
+                .id(2L)
+                .title("bravo")
+                .url("https://example.org/bravo")
+                .explanation("bravo")
+                .email("bravo@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+
+        when(articlesRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+        // act (the ids in the request are ignored)
+        MvcResult response = mockMvc.perform(
+                        post("/api/articles/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(firstSaved, secondSaved)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(articlesRepository, times(1)).saveAll(Arrays.asList(first, second));
+        List<BatchItemResult<Articles>> expected = Arrays.asList(
+                        BatchItemResult.<Articles>builder().id(1L).status(BatchItemResult.Status.CREATED).entity(firstSaved).build(),
+                        BatchItemResult.<Articles>builder().id(2L).status(BatchItemResult.Status.CREATED).entity(secondSaved).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_put_a_batch_and_missing_ones_are_reported() throws Exception {
+        // arrange
+        Articles stored = Articles.builder()
+                .id(1L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles changes = Articles.builder()
+                .id(1L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        changes.setTitle("changed");
+        Articles missing = Articles.builder()
+                .id(2L)
+                .title("bravo")
+                .url("https://example.org/bravo")
+                .explanation("bravo")
+                .email("bravo@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+
+        when(articlesRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        put("/api/articles/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(changes, missing)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(articlesRepository, times(1)).saveAll(Arrays.asList(changes));
+        List<BatchItemResult<Articles>> expected = Arrays.asList(
+                        BatchItemResult.<Articles>builder().id(1L).status(BatchItemResult.Status.UPDATED).entity(changes).build(),
+                        BatchItemResult.<Articles>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_delete_a_batch_and_missing_ones_are_reported() throws Exception {
+        // arrange
+        Articles stored = Articles.builder()
+                .id(1L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+
+        when(articlesRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        delete("/api/articles/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(1L, 2L)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(articlesRepository, times(1)).deleteAllByIdInBatch(Set.of(1L));
+        List<BatchItemResult<Articles>> expected = Arrays.asList(
+                        BatchItemResult.<Articles>builder().id(1L).status(BatchItemResult.Status.DELETED).entity(null).build(),
+                        BatchItemResult.<Articles>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_send_a_batch_larger_than_the_maximum() throws Exception {
+        // arrange
+        String requestBody = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        put("/api/articles/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(requestBody)
+                                        .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        verify(articlesRepository, times(0)).findAllById(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("BatchTooLargeException", json.get("type"));
+        assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_articles_filtered_and_sorted_by_the_database() throws Exception {
+        // arrange
+        Articles first = Articles.builder()
+                .id(1L)
+                .title("first")
+                .url("https://example.org/first")
+                .explanation("first")
+                .email("first@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles second = Articles.builder()
+                .id(2L)
+                .title("second")
+                .url("https://example.org/second")
+                .explanation("second")
+                .email("second@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        List<Articles> articles = List.of(second, first);
+        when(articlesRepository.findAll(any(Specification.class), eq(Sort.by(Sort.Order.desc("dateAdded"), Sort.Order.asc("id")))))
+            .thenReturn(articles);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/all")
+                .param("filter", "dateAdded:>=2022-01-01T00:00:00")
+                .param("sort", "-dateAdded"))
+            .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(articlesRepository, times(1)).findAll(any(Specification.class), eq(Sort.by(Sort.Order.desc("dateAdded"), Sort.Order.asc("id"))));
+        verify(articlesRepository, times(0)).findAll();
+        assertEquals(mapper.writeValueAsString(articles), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_cannot_sort_articles_on_a_field_without_an_index() throws Exception {
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/all").param("sort", "title"))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("InvalidQueryException", json.get("type"));
+        assertTrue(((String) json.get("message")).startsWith("cannot sort on 'title'; sortable fields are ["));
+        verifyNoInteractions(articlesRepository);
+    }
+
+    @Test
+    public void logged_out_users_cannot_follow_changes() throws Exception {
+        mockMvc.perform(get("/api/articles/changes"))
+            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_follow_changes_starting_with_a_reset() throws Exception {
+        String event = firstChangeEvent("/api/articles/changes");
+        assertTrue(event.matches("id:\\w+-\\d+\nevent:reset\ndata:\\{\\}\n\n"), event);
+    }
+
+    // Tests for GET /api/articles/export
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/articles/export"))
+            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/articles/export"))
+            .andExpect(status().is(403)); // only admins can export
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_export_as_csv() throws Exception {
+        // arrange
+        Articles alpha = Articles.builder()
+                .id(1L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles beta = Articles.builder()
+                .id(2L)
+                .title("beta")
+                .url("https://example.org/beta")
+                .explanation("beta")
+                .email("beta@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        when(articlesRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/export"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"articles.csv\""))
+            .andReturn();
+
+        // assert
+        assertEquals("id,title,url,explanation,email,dateAdded\r\n"
+            + "1,alpha,https://example.org/alpha,alpha,alpha@ucsb.edu,2022-01-03T00:00:00\r\n"
+            + "2,beta,https://example.org/beta,beta,beta@ucsb.edu,2022-01-03T00:00:00\r\n",
+            streamedContent(response));
+        verify(entityManager).detach(alpha);
+        verify(entityManager).detach(beta);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_export_as_ndjson() throws Exception {
+        // arrange
+        Articles alpha = Articles.builder()
+                .id(1L)
+                .title("alpha")
+                .url("https://example.org/alpha")
+                .explanation("alpha")
+                .email("alpha@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        Articles beta = Articles.builder()
+                .id(2L)
+                .title("beta")
+                .url("https://example.org/beta")
+                .explanation("beta")
+                .email("beta@ucsb.edu")
+                .dateAdded(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .build();
+        when(articlesRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/articles/export?format=ndjson"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string("Content-Type", "application/x-ndjson"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"articles.ndjson\""))
+            .andReturn();
+
+        // assert
+        assertEquals(mapper.writeValueAsString(alpha) + "\n" + mapper.writeValueAsString(beta) + "\n",
+            streamedContent(response));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_cannot_export_in_an_unknown_format() throws Exception {
+        MvcResult response = mockMvc.perform(get("/api/articles/export?format=xlsx"))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("InvalidQueryException", json.get("type"));
+        assertEquals("export format 'xlsx' is not supported; use csv or ndjson", json.get("message"));
+    }
 }
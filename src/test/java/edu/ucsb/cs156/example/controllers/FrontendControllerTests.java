@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+public class FrontendControllerTests {
+
+  private static final byte[] INDEX_HTML = "<html>index</html>".getBytes();
+  private static final byte[] INDEX_HTML_BR = "brotli".getBytes();
+  private static final byte[] INDEX_HTML_GZ = "gzip".getBytes();
+
+  @TempDir
+  Path build;
+
+  private MockMvc frontend(String... variants) throws Exception {
+    Files.write(build.resolve("index.html"), INDEX_HTML);
+    Files.deleteIfExists(build.resolve("index.html.br"));
+    Files.deleteIfExists(build.resolve("index.html.gz"));
+    for (String variant : variants) {
+      Files.write(build.resolve("index.html" + variant), variant.equals(".br") ? INDEX_HTML_BR : INDEX_HTML_GZ);
+    }
+    return frontendAt(build.resolve("index.html"));
+  }
+
+  private static MockMvc frontendAt(Path indexHtml) throws Exception {
+    FrontendController controller = new FrontendController();
+    controller.indexHtmlResource = new FileSystemResource(indexHtml);
+    controller.loadIndexHtml();
+    // the application uses the ant path matcher (spring.mvc.pathmatch.matching-strategy)
+    return MockMvcBuilders.standaloneSetup(controller).setPatternParser(null).build();
+  }
+
+  @Test
+  public void every_page_is_not_found_when_the_frontend_is_not_built() throws Exception {
+    frontendAt(build.resolve("index.html"))
+        .perform(get("/ucsbdates"))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  public void pages_serve_index_html_that_must_be_revalidated() throws Exception {
+    frontend()
+        .perform(get("/ucsbdates/create"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("text/html"))
+        .andExpect(header().string("Cache-Control", "no-cache"))
+        .andExpect(header().exists("ETag"))
+        .andExpect(header().exists("Last-Modified"))
+        .andExpect(header().string("Vary", "Accept-Encoding"))
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andExpect(content().bytes(INDEX_HTML));
+  }
+
+  @Test
+  public void an_unchanged_index_html_is_not_modified() throws Exception {
+    MockMvc mockMvc = frontend(".br", ".gz");
+    String eTag = mockMvc.perform(get("/ucsbdates")).andReturn().getResponse().getHeader("ETag");
+
+    MvcResult response = mockMvc.perform(get("/ucsbdates").header("If-None-Match", eTag).header("Accept-Encoding", "br"))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", eTag))
+        .andReturn();
+
+    assertTrue(response.getResponse().getContentAsByteArray().length == 0);
+  }
+
+  @Test
+  public void brotli_is_preferred_when_accepted() throws Exception {
+    frontend(".br", ".gz")
+        .perform(get("/ucsbdates").header("Accept-Encoding", "gzip, deflate, br"))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Encoding", "br"))
+        .andExpect(header().string("Vary", "Accept-Encoding"))
+        .andExpect(content().bytes(INDEX_HTML_BR));
+  }
+
+  @Test
+  public void gzip_is_served_when_brotli_is_refused_or_missing() throws Exception {
+    frontend(".br", ".gz")
+        .perform(get("/ucsbdates").header("Accept-Encoding", "br;q=0, gzip"))
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andExpect(content().bytes(INDEX_HTML_GZ));
+
+    frontend(".gz")
+        .perform(get("/ucsbdates").header("Accept-Encoding", "br, gzip"))
+        .andExpect(header().string("Content-Encoding", "gzip"))
+        .andExpect(content().bytes(INDEX_HTML_GZ));
+  }
+
+  @Test
+  public void the_uncompressed_page_is_served_when_nothing_else_is_accepted() throws Exception {
+    frontend(".br", ".gz")
+        .perform(get("/ucsbdates").header("Accept-Encoding", "identity"))
+        .andExpect(header().doesNotExist("Content-Encoding"))
+        .andExpect(content().bytes(INDEX_HTML));
+  }
+
+  @Test
+  public void accepts_honours_wildcards_and_q_zero() {
+    assertTrue(FrontendController.accepts("*", "br"));
+    assertTrue(FrontendController.accepts("GZIP;q=0.5", "gzip"));
+    assertFalse(FrontendController.accepts("gzip;q=0.000", "gzip"));
+    assertFalse(FrontendController.accepts("*;q=0", "br"));
+    assertFalse(FrontendController.accepts("br;q=0, *", "br"));
+    assertFalse(FrontendController.accepts("", "gzip"));
+  }
+
+}
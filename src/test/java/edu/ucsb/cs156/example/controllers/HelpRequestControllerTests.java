@@ -4,19 +4,28 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.HelpRequestQueueService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -25,12 +34,16 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -45,6 +58,9 @@ public class HelpRequestControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @MockBean
+  HelpRequestQueueService helpRequestQueueService;
+
    // Authorization tests for /api/helprequest/admin/all
 
    @Test
@@ -117,6 +133,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             ArgumentCaptor<HelpRequest> captor = ArgumentCaptor.forClass(HelpRequest.class);
             verify(helpRequestRepository).save(captor.capture());
             HelpRequest savedRequest = captor.getValue();
+            verify(helpRequestQueueService, times(1)).changed(savedRequest);
             
             // Assert each field, including solved, is set correctly in the HelpRequest object
             assertEquals("test.user@example.com", savedRequest.getRequesterEmail());
@@ -198,7 +215,8 @@ public void admin_can_delete_a_help_request() throws Exception {
 
     // Assert
     verify(helpRequestRepository, times(1)).findById(15L);
-    verify(helpRequestRepository, times(1)).delete(any());
+    verify(helpRequestRepository, times(1)).delete(any(HelpRequest.class));
+    verify(helpRequestQueueService, times(1)).removed(15L);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -219,7 +237,8 @@ public void admin_tries_to_delete_non_existent_help_request_and_gets_error_messa
 
     // Assert
     verify(helpRequestRepository, times(1)).findById(15L);
-    verify(helpRequestRepository, times(0)).delete(any());
+    verify(helpRequestRepository, times(0)).delete(any(HelpRequest.class));
+    verifyNoInteractions(helpRequestQueueService);
 
     Map<String, Object> json = responseToJson(response);
     assertEquals("EntityNotFoundException", json.get("type"));
@@ -273,6 +292,7 @@ public void admin_can_update_existing_help_request() throws Exception {
     ArgumentCaptor<HelpRequest> captor = ArgumentCaptor.forClass(HelpRequest.class);
     verify(helpRequestRepository).save(captor.capture());
     HelpRequest savedRequest = captor.getValue();
+    verify(helpRequestQueueService, times(1)).changed(savedRequest);
 
     // Assert each field in the updated HelpRequest object
     assertEquals("updated@example.com", savedRequest.getRequesterEmail());
@@ -378,5 +398,512 @@ public void admin_cannot_update_help_request_that_does_not_exist() throws Except
         assertEquals("EntityNotFoundException", json.get("type"));
         assertEquals(expectedMessage, json.get("message"));
     }
-        
+
+  // Tests for GET /api/helprequest/page
+
+  @Test
+  public void logged_out_users_cannot_get_page() throws Exception {
+    mockMvc.perform(get("/api/helprequest/page"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_gets_a_page_with_a_next_cursor() throws Exception {
+    // arrange
+    HelpRequest first = HelpRequest.builder()
+        .id(4L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+    HelpRequest second = HelpRequest.builder()
+        .id(7L)
+        .requesterEmail("bravo@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("bravo")
+        .solved(false)
+        .build();
+    HelpRequest extra = HelpRequest.builder()
+        .id(9L)
+        .requesterEmail("charlie@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("charlie")
+        .solved(false)
+        .build();
+
+    when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), eq(Limit.of(3))))
+        .thenReturn(new ArrayList<>(Arrays.asList(first, second, extra)));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/helprequest/page?after=3&limit=2"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    KeysetPage<HelpRequest> expectedPage = KeysetPage.<HelpRequest>builder()
+        .content(Arrays.asList(first, second))
+        .nextCursor("7")
+        .build();
+    String expectedJson = mapper.writeValueAsString(expectedPage);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void last_page_has_no_next_cursor_and_limit_is_capped() throws Exception {
+    // arrange
+    HelpRequest only = HelpRequest.builder()
+        .id(4L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+
+    when(helpRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(ApiController.MAX_PAGE_SIZE + 1))))
+        .thenReturn(new ArrayList<>(Arrays.asList(only)));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/helprequest/page?limit=5000"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    KeysetPage<HelpRequest> expectedPage = KeysetPage.<HelpRequest>builder()
+        .content(Arrays.asList(only))
+        .build();
+    String expectedJson = mapper.writeValueAsString(expectedPage);
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+  }
+
+  // Tests for POST, PUT and DELETE /api/helprequest/batch
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void regular_users_cannot_post_a_batch() throws Exception {
+    mockMvc.perform(post("/api/helprequest/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[]")
+            .with(csrf()))
+            .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin_can_post_a_batch_and_ids_are_set_by_the_database() throws Exception {
+    // arrange
+    HelpRequest first = HelpRequest.builder()
+        .id(0L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+    HelpRequest second = HelpRequest.builder()
+        .id(0L)
+        .requesterEmail("bravo@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("bravo")
+        .solved(false)
+        .build();
+    HelpRequest firstSaved = HelpRequest.builder()
+        .id(1L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+    HelpRequest secondSaved = HelpRequest.builder()
+        .id(2L)
+        .requesterEmail("bravo@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("bravo")
+        .solved(false)
+        .build();
+
+    when(helpRequestRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+    // act (the ids in the request are ignored)
+    MvcResult response = mockMvc.perform(
+            post("/api/helprequest/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(Arrays.asList(firstSaved, secondSaved)))
+                    .with(csrf()))
+            .andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).saveAll(Arrays.asList(first, second));
+    verify(helpRequestQueueService, times(1)).changed(firstSaved);
+    verify(helpRequestQueueService, times(1)).changed(secondSaved);
+    List<BatchItemResult<HelpRequest>> expected = Arrays.asList(
+            BatchItemResult.<HelpRequest>builder().id(1L).status(BatchItemResult.Status.CREATED).entity(firstSaved).build(),
+            BatchItemResult.<HelpRequest>builder().id(2L).status(BatchItemResult.Status.CREATED).entity(secondSaved).build());
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin_can_put_a_batch_and_missing_ones_are_reported() throws Exception {
+    // arrange
+    HelpRequest stored = HelpRequest.builder()
+        .id(1L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+    HelpRequest changes = HelpRequest.builder()
+        .id(1L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+    changes.setExplanation("changed");
+    HelpRequest missing = HelpRequest.builder()
+        .id(2L)
+        .requesterEmail("bravo@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("bravo")
+        .solved(false)
+        .build();
+
+    when(helpRequestRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+    // act
+    MvcResult response = mockMvc.perform(
+            put("/api/helprequest/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(Arrays.asList(changes, missing)))
+                    .with(csrf()))
+            .andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).saveAll(Arrays.asList(changes));
+    verify(helpRequestQueueService, times(1)).changed(changes);
+    verify(helpRequestQueueService, times(0)).changed(missing);
+    List<BatchItemResult<HelpRequest>> expected = Arrays.asList(
+            BatchItemResult.<HelpRequest>builder().id(1L).status(BatchItemResult.Status.UPDATED).entity(changes).build(),
+            BatchItemResult.<HelpRequest>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin_can_delete_a_batch_and_missing_ones_are_reported() throws Exception {
+    // arrange
+    HelpRequest stored = HelpRequest.builder()
+        .id(1L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+
+    when(helpRequestRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+    // act
+    MvcResult response = mockMvc.perform(
+            delete("/api/helprequest/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(Arrays.asList(1L, 2L)))
+                    .with(csrf()))
+            .andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).deleteAllByIdInBatch(Set.of(1L));
+    verify(helpRequestQueueService, times(1)).removed(1L);
+    verify(helpRequestQueueService, times(0)).removed(2L);
+    List<BatchItemResult<HelpRequest>> expected = Arrays.asList(
+            BatchItemResult.<HelpRequest>builder().id(1L).status(BatchItemResult.Status.DELETED).entity(null).build(),
+            BatchItemResult.<HelpRequest>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin_cannot_send_a_batch_larger_than_the_maximum() throws Exception {
+    // arrange
+    String requestBody = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+    // act
+    MvcResult response = mockMvc.perform(
+            put("/api/helprequest/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(requestBody)
+                    .with(csrf()))
+            .andExpect(status().isBadRequest()).andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(0)).findAllById(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("BatchTooLargeException", json.get("type"));
+    assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_get_helprequests_filtered_and_sorted_by_the_database() throws Exception {
+    // arrange
+    HelpRequest first = HelpRequest.builder()
+        .id(1L)
+        .requesterEmail("first@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("first")
+        .solved(false)
+        .build();
+    HelpRequest second = HelpRequest.builder()
+        .id(2L)
+        .requesterEmail("second@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("second")
+        .solved(false)
+        .build();
+    List<HelpRequest> helpRequests = List.of(second, first);
+    when(helpRequestRepository.findAll(any(Specification.class), eq(Sort.by(Sort.Order.desc("requestTime"), Sort.Order.asc("id")))))
+      .thenReturn(helpRequests);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/helprequest/all")
+        .param("filter", "solved:false")
+        .param("sort", "-requestTime"))
+      .andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).findAll(any(Specification.class), eq(Sort.by(Sort.Order.desc("requestTime"), Sort.Order.asc("id"))));
+    verify(helpRequestRepository, times(0)).findAll();
+    assertEquals(mapper.writeValueAsString(helpRequests), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_gets_a_400_for_an_invalid_helprequests_filter() throws Exception {
+    // act
+    MvcResult response = mockMvc.perform(get("/api/helprequest/all").param("filter", "explanation:help"))
+      .andExpect(status().isBadRequest()).andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidQueryException", json.get("type"));
+    assertEquals("cannot filter on 'explanation'; filterable fields are [solved, teamId, requesterEmail, requestTime]", json.get("message"));
+    verifyNoInteractions(helpRequestRepository);
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_get_helprequests_sorted_without_a_filter() throws Exception {
+    // arrange
+    when(helpRequestRepository.findAll((Specification<HelpRequest>) eq(null), eq(Sort.by(Sort.Order.asc("requestTime"), Sort.Order.asc("id")))))
+      .thenReturn(List.of());
+
+    // act
+    mockMvc.perform(get("/api/helprequest/all").param("sort", "requestTime"))
+      .andExpect(status().isOk());
+
+    // assert
+    verify(helpRequestRepository, times(1)).findAll((Specification<HelpRequest>) eq(null), eq(Sort.by(Sort.Order.asc("requestTime"), Sort.Order.asc("id"))));
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_the_open_queue() throws Exception {
+    mockMvc.perform(get("/api/helprequest/open"))
+        .andExpect(status().is(403));
+    mockMvc.perform(get("/api/helprequest/open/stream"))
+        .andExpect(status().is(403));
+    verifyNoInteractions(helpRequestQueueService);
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_get_the_open_queue() throws Exception {
+    // arrange
+    HelpRequest first = HelpRequest.builder()
+        .id(2L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+    HelpRequest second = HelpRequest.builder()
+        .id(1L)
+        .requesterEmail("bravo@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-04T00:00:00"))
+        .explanation("bravo")
+        .solved(false)
+        .build();
+    List<HelpRequest> open = Arrays.asList(first, second);
+    when(helpRequestRepository.findBySolvedFalseOrderByRequestTimeAscIdAsc()).thenReturn(open);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/helprequest/open"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(helpRequestRepository, times(1)).findBySolvedFalseOrderByRequestTimeAscIdAsc();
+    verify(helpRequestRepository, times(0)).findAll();
+    assertEquals(mapper.writeValueAsString(open), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_follow_the_open_queue() throws Exception {
+    // arrange
+    SseEmitter emitter = new SseEmitter();
+    when(helpRequestQueueService.subscribe()).thenReturn(emitter);
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/helprequest/open/stream"))
+        .andExpect(request().asyncStarted()).andReturn();
+    emitter.send(SseEmitter.event().name(HelpRequestQueueService.CLOSED).data("{\"id\":7}"));
+    emitter.complete();
+
+    // assert
+    verify(helpRequestQueueService, times(1)).subscribe();
+    mockMvc.perform(asyncDispatch(response))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+        .andExpect(content().string("event:closed\ndata:{\"id\":7}\n\n"));
+  }
+
+  @Test
+  public void logged_out_users_cannot_follow_changes() throws Exception {
+    mockMvc.perform(get("/api/helprequest/changes"))
+      .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_user_can_follow_changes_starting_with_a_reset() throws Exception {
+    String event = firstChangeEvent("/api/helprequest/changes");
+    assertTrue(event.matches("id:\\w+-\\d+\nevent:reset\ndata:\\{\\}\n\n"), event);
+  }
+
+  // Tests for GET /api/helprequest/export
+
+  @Test
+  public void logged_out_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/helprequest/export"))
+      .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void logged_in_regular_users_cannot_export() throws Exception {
+    mockMvc.perform(get("/api/helprequest/export"))
+      .andExpect(status().is(403)); // only admins can export
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void an_admin_user_can_export_as_csv() throws Exception {
+    // arrange
+    HelpRequest alpha = HelpRequest.builder()
+        .id(1L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+    HelpRequest beta = HelpRequest.builder()
+        .id(2L)
+        .requesterEmail("beta@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("beta")
+        .solved(false)
+        .build();
+    when(helpRequestRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/helprequest/export"))
+      .andExpect(request().asyncStarted())
+      .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+      .andExpect(header().string("Content-Disposition", "attachment; filename=\"helprequest.csv\""))
+      .andReturn();
+
+    // assert
+    assertEquals("id,requesterEmail,teamId,tableOrBreakoutRoom,requestTime,explanation,solved\r\n"
+      + "1,alpha@ucsb.edu,s22-5pm-3,7,2022-01-03T00:00:00,alpha,false\r\n"
+      + "2,beta@ucsb.edu,s22-5pm-3,7,2022-01-03T00:00:00,beta,false\r\n",
+      streamedContent(response));
+    verify(entityManager).detach(alpha);
+    verify(entityManager).detach(beta);
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void an_admin_user_can_export_as_ndjson() throws Exception {
+    // arrange
+    HelpRequest alpha = HelpRequest.builder()
+        .id(1L)
+        .requesterEmail("alpha@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("alpha")
+        .solved(false)
+        .build();
+    HelpRequest beta = HelpRequest.builder()
+        .id(2L)
+        .requesterEmail("beta@ucsb.edu")
+        .teamId("s22-5pm-3")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("beta")
+        .solved(false)
+        .build();
+    when(helpRequestRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/helprequest/export?format=ndjson"))
+      .andExpect(request().asyncStarted())
+      .andExpect(header().string("Content-Type", "application/x-ndjson"))
+      .andExpect(header().string("Content-Disposition", "attachment; filename=\"helprequest.ndjson\""))
+      .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(alpha) + "\n" + mapper.writeValueAsString(beta) + "\n",
+      streamedContent(response));
+  }
 }
@@ -3,16 +3,23 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.MenuItemRating;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,8 +31,11 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -42,6 +52,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    MenuItemRatingService menuItemRatingService;
+
     // Authorization tests for /api/ucsbdates/admin/all
     @Test
     public void logged_out_users_cannot_get_all() throws Exception {
@@ -108,17 +121,18 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
         ArrayList<MenuItemReview> expectedReviews = new ArrayList<>();
         expectedReviews.addAll(Arrays.asList(menuItemReview1, menuItemReview2));
 
-        when(menuItemReviewRepository.findAll()).thenReturn(expectedReviews);
+        when(menuItemReviewRepository.streamAllByOrderByIdAsc()).thenReturn(expectedReviews.stream());
 
         // act
         MvcResult response = mockMvc.perform(get("/api/menuitemreviews/all"))
-                        .andExpect(status().isOk()).andReturn();
+                        .andExpect(request().asyncStarted()).andReturn();
 
         // assert
 
-        verify(menuItemReviewRepository, times(1)).findAll();
+        String responseString = streamedContent(response);
+        verify(menuItemReviewRepository, times(1)).streamAllByOrderByIdAsc();
+        expectedReviews.forEach(row -> verify(entityManager).detach(row));
         String expectedJson = mapper.writeValueAsString(expectedReviews);
-        String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
     }
 
@@ -145,6 +159,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
                         .andExpect(status().isOk()).andReturn();
 
         verify(menuItemReviewRepository, times(1)).save(menuItemReview);
+        verify(menuItemRatingService, times(1)).reviewsChanged(List.of(menuItemReview), List.of());
         String expectedJson = mapper.writeValueAsString(menuItemReview);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
@@ -215,6 +230,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
         // assert
         verify(menuItemReviewRepository, times(1)).findById(15L);
         verify(menuItemReviewRepository, times(1)).delete(any());
+        verify(menuItemRatingService, times(1)).reviewsChanged(List.of(), List.of(menuItemReview1));
         Map<String, Object> json = responseToJson(response);
         assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
     }
@@ -278,6 +294,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
         // assert
         verify(menuItemReviewRepository, times(1)).findById(67L);
         verify(menuItemReviewRepository, times(1)).save(menuItemReviewEdited); // should be saved with correct user
+        verify(menuItemRatingService, times(1)).reviewsChanged(List.of(menuItemReviewEdited),
+                        List.of(MenuItemReview.builder().itemId(1).stars(5).build()));
         String responseString = response.getResponse().getContentAsString();
         assertEquals(requestBody, responseString);
     }
@@ -316,4 +334,491 @@ public class MenuItemReviewControllerTests extends ControllerTestCase{
         Map<String, Object> json = responseToJson(response);
         assertEquals("MenuItemReview with id 67 not found", json.get("message"));
     }
-}
\ No newline at end of file
+
+    // Tests for GET /api/menuitemreviews/page
+
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+        mockMvc.perform(get("/api/menuitemreviews/page"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_page_with_a_next_cursor() throws Exception {
+        // arrange
+        MenuItemReview first = MenuItemReview.builder()
+                .id(4L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        MenuItemReview second = MenuItemReview.builder()
+                .id(7L)
+                .itemId(7L)
+                .reviewerEmail("bravo@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("bravo")
+                .build();
+        MenuItemReview extra = MenuItemReview.builder()
+                .id(9L)
+                .itemId(7L)
+                .reviewerEmail("charlie@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("charlie")
+                .build();
+
+        when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), eq(Limit.of(3))))
+                .thenReturn(new ArrayList<>(Arrays.asList(first, second, extra)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreviews/page?after=3&limit=2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        KeysetPage<MenuItemReview> expectedPage = KeysetPage.<MenuItemReview>builder()
+                .content(Arrays.asList(first, second))
+                .nextCursor("7")
+                .build();
+        String expectedJson = mapper.writeValueAsString(expectedPage);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void last_page_has_no_next_cursor_and_limit_is_capped() throws Exception {
+        // arrange
+        MenuItemReview only = MenuItemReview.builder()
+                .id(4L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+
+        when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(ApiController.MAX_PAGE_SIZE + 1))))
+                .thenReturn(new ArrayList<>(Arrays.asList(only)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreviews/page?limit=5000"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        KeysetPage<MenuItemReview> expectedPage = KeysetPage.<MenuItemReview>builder()
+                .content(Arrays.asList(only))
+                .build();
+        String expectedJson = mapper.writeValueAsString(expectedPage);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    // Tests for POST, PUT and DELETE /api/menuitemreviews/batch
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_post_a_batch() throws Exception {
+        mockMvc.perform(post("/api/menuitemreviews/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]")
+                        .with(csrf()))
+                        .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_post_a_batch_and_ids_are_set_by_the_database() throws Exception {
+        // arrange
+        MenuItemReview first = MenuItemReview.builder()
+                .id(0L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        MenuItemReview second = MenuItemReview.builder()
+                .id(0L)
+                .itemId(7L)
+                .reviewerEmail("bravo@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("bravo")
+                .build();
+        MenuItemReview firstSaved = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        MenuItemReview secondSaved = MenuItemReview.builder()
+                .id(2L)
+                .itemId(7L)
+                .reviewerEmail("bravo@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("bravo")
+                .build();
+
+        when(menuItemReviewRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+        // act (the ids in the request are ignored)
+        MvcResult response = mockMvc.perform(
+                        post("/api/menuitemreviews/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(firstSaved, secondSaved)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemReviewRepository, times(1)).saveAll(Arrays.asList(first, second));
+        verify(menuItemRatingService, times(1)).reviewsChanged(Arrays.asList(first, second), List.of());
+        List<BatchItemResult<MenuItemReview>> expected = Arrays.asList(
+                        BatchItemResult.<MenuItemReview>builder().id(1L).status(BatchItemResult.Status.CREATED).entity(firstSaved).build(),
+                        BatchItemResult.<MenuItemReview>builder().id(2L).status(BatchItemResult.Status.CREATED).entity(secondSaved).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_put_a_batch_and_missing_ones_are_reported() throws Exception {
+        // arrange
+        MenuItemReview stored = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        MenuItemReview changes = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        changes.setComments("changed");
+        MenuItemReview missing = MenuItemReview.builder()
+                .id(2L)
+                .itemId(7L)
+                .reviewerEmail("bravo@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("bravo")
+                .build();
+
+        when(menuItemReviewRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreviews/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(changes, missing)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemReviewRepository, times(1)).saveAll(Arrays.asList(changes));
+        verify(menuItemRatingService, times(1)).reviewsChanged(Arrays.asList(changes),
+                Arrays.asList(MenuItemReview.builder().itemId(7L).stars(4).build()));
+        List<BatchItemResult<MenuItemReview>> expected = Arrays.asList(
+                        BatchItemResult.<MenuItemReview>builder().id(1L).status(BatchItemResult.Status.UPDATED).entity(changes).build(),
+                        BatchItemResult.<MenuItemReview>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_put_a_batch_that_repeats_a_review() throws Exception {
+        // arrange: changing one review's stars from 1 to 3 and then to 5 would count its rating twice
+        MenuItemReview three = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(3)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        MenuItemReview five = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(5)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreviews/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(three, five)))
+                                        .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        verify(menuItemReviewRepository, times(0)).saveAll(any());
+        verify(menuItemRatingService, times(0)).reviewsChanged(any(), any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("DuplicateBatchIdException", json.get("type"));
+        assertEquals("Item 1 of the batch repeats the id 1", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_delete_a_batch_and_missing_ones_are_reported() throws Exception {
+        // arrange
+        MenuItemReview stored = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+
+        when(menuItemReviewRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        delete("/api/menuitemreviews/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(1L, 2L)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemReviewRepository, times(1)).deleteAllByIdInBatch(Set.of(1L));
+        verify(menuItemRatingService, times(1)).reviewsChanged(List.of(), Arrays.asList(stored));
+        List<BatchItemResult<MenuItemReview>> expected = Arrays.asList(
+                        BatchItemResult.<MenuItemReview>builder().id(1L).status(BatchItemResult.Status.DELETED).entity(null).build(),
+                        BatchItemResult.<MenuItemReview>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_send_a_batch_larger_than_the_maximum() throws Exception {
+        // arrange
+        String requestBody = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        put("/api/menuitemreviews/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(requestBody)
+                                        .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        verify(menuItemReviewRepository, times(0)).findAllById(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("BatchTooLargeException", json.get("type"));
+        assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+    }
+
+    // Tests for GET /api/menuitemreviews?itemId=...
+
+    @Test
+    public void logged_out_users_cannot_get_by_itemId() throws Exception {
+        mockMvc.perform(get("/api/menuitemreviews?itemId=7"))
+                        .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_only_the_rows_for_one_menu_item() throws Exception {
+        // arrange
+        MenuItemReview first = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        MenuItemReview second = MenuItemReview.builder()
+                .id(2L)
+                .itemId(7L)
+                .reviewerEmail("bravo@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("bravo")
+                .build();
+
+        when(menuItemReviewRepository.findAllByItemId(eq(7L))).thenReturn(new ArrayList<>(Arrays.asList(first, second)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreviews?itemId=7"))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(menuItemReviewRepository, times(1)).findAllByItemId(7L);
+        verify(menuItemReviewRepository, times(0)).findById(any());
+        String expectedJson = mapper.writeValueAsString(Arrays.asList(first, second));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    // Tests for GET /api/menuitemreviews/ratings
+
+    @Test
+    public void logged_out_users_cannot_get_ratings() throws Exception {
+        mockMvc.perform(get("/api/menuitemreviews/ratings?itemIds=7"))
+                        .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_ratings_for_many_items() throws Exception {
+        // arrange
+        MenuItemRating rated = MenuItemRating.builder()
+                        .itemId(3L)
+                        .reviewCount(2)
+                        .starsSum(9)
+                        .stars4(1)
+                        .stars5(1)
+                        .build();
+        MenuItemRating unrated = MenuItemRating.builder().itemId(7L).build();
+
+        when(menuItemRatingService.getRatings(eq(Arrays.asList(7L, 3L)))).thenReturn(Arrays.asList(rated, unrated));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreviews/ratings?itemIds=7,3"))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        String expectedJson = mapper.writeValueAsString(Arrays.asList(rated, unrated));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+        assertTrue(response.getResponse().getContentAsString().contains("\"averageStars\":4.5"));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_cannot_ask_for_too_many_ratings() throws Exception {
+        // arrange
+        String itemIds = String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "7"));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreviews/ratings?itemIds=" + itemIds))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        verify(menuItemRatingService, times(0)).getRatings(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+    }
+
+    @Test
+    public void logged_out_users_cannot_follow_changes() throws Exception {
+        mockMvc.perform(get("/api/menuitemreviews/changes"))
+            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_follow_changes_starting_with_a_reset() throws Exception {
+        String event = firstChangeEvent("/api/menuitemreviews/changes");
+        assertTrue(event.matches("id:\\w+-\\d+\nevent:reset\ndata:\\{\\}\n\n"), event);
+    }
+
+    // Tests for GET /api/menuitemreviews/export
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/menuitemreviews/export"))
+            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/menuitemreviews/export"))
+            .andExpect(status().is(403)); // only admins can export
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_export_as_csv() throws Exception {
+        // arrange
+        MenuItemReview alpha = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        MenuItemReview beta = MenuItemReview.builder()
+                .id(2L)
+                .itemId(7L)
+                .reviewerEmail("beta@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("beta")
+                .build();
+        when(menuItemReviewRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreviews/export"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"menuitemreview.csv\""))
+            .andReturn();
+
+        // assert
+        assertEquals("id,itemId,reviewerEmail,stars,dateReviewed,comments\r\n"
+            + "1,7,alpha@ucsb.edu,4,2022-01-03T00:00:00,alpha\r\n"
+            + "2,7,beta@ucsb.edu,4,2022-01-03T00:00:00,beta\r\n",
+            streamedContent(response));
+        verify(entityManager).detach(alpha);
+        verify(entityManager).detach(beta);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_export_as_ndjson() throws Exception {
+        // arrange
+        MenuItemReview alpha = MenuItemReview.builder()
+                .id(1L)
+                .itemId(7L)
+                .reviewerEmail("alpha@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("alpha")
+                .build();
+        MenuItemReview beta = MenuItemReview.builder()
+                .id(2L)
+                .itemId(7L)
+                .reviewerEmail("beta@ucsb.edu")
+                .stars(4)
+                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .comments("beta")
+                .build();
+        when(menuItemReviewRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/menuitemreviews/export?format=ndjson"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().string("Content-Type", "application/x-ndjson"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"menuitemreview.ndjson\""))
+            .andReturn();
+
+        // assert
+        assertEquals(mapper.writeValueAsString(alpha) + "\n" + mapper.writeValueAsString(beta) + "\n",
+            streamedContent(response));
+    }
+}
@@ -4,15 +4,22 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,12 +31,16 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = RecommendationRequestController.class)
@@ -310,7 +321,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(recommendationRequestRepository, times(1)).findById(15L);
-                verify(recommendationRequestRepository, times(1)).delete(any());
+                verify(recommendationRequestRepository, times(1)).delete(any(RecommendationRequest.class));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 deleted", json.get("message"));
@@ -335,4 +346,426 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
         }
-}
\ No newline at end of file
+
+        // Tests for GET /api/recommendationrequest/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_page_with_a_next_cursor() throws Exception {
+                // arrange
+                RecommendationRequest first = RecommendationRequest.builder()
+                                .id(4L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest second = RecommendationRequest.builder()
+                                .id(7L)
+                                .requesterEmail("bravo@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("bravo")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest extra = RecommendationRequest.builder()
+                                .id(9L)
+                                .requesterEmail("charlie@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("charlie")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(first, second, extra)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/page?after=3&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<RecommendationRequest> expectedPage = KeysetPage.<RecommendationRequest>builder()
+                                .content(Arrays.asList(first, second))
+                                .nextCursor("7")
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_has_no_next_cursor_and_limit_is_capped() throws Exception {
+                // arrange
+                RecommendationRequest only = RecommendationRequest.builder()
+                                .id(4L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                when(recommendationRequestRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(only)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/page?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<RecommendationRequest> expectedPage = KeysetPage.<RecommendationRequest>builder()
+                                .content(Arrays.asList(only))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST, PUT and DELETE /api/recommendationrequest/batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_post_a_batch() throws Exception {
+                mockMvc.perform(post("/api/recommendationrequest/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("[]")
+                                                .with(csrf()))
+                                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_and_ids_are_set_by_the_database() throws Exception {
+                // arrange
+                RecommendationRequest first = RecommendationRequest.builder()
+                                .id(0L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest second = RecommendationRequest.builder()
+                                .id(0L)
+                                .requesterEmail("bravo@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("bravo")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest firstSaved = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest secondSaved = RecommendationRequest.builder()
+                                .id(2L)
+                                .requesterEmail("bravo@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("bravo")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                when(recommendationRequestRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act (the ids in the request are ignored)
+                MvcResult response = mockMvc.perform(
+                                                post("/api/recommendationrequest/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(firstSaved, secondSaved)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).saveAll(Arrays.asList(first, second));
+                List<BatchItemResult<RecommendationRequest>> expected = Arrays.asList(
+                                                BatchItemResult.<RecommendationRequest>builder().id(1L).status(BatchItemResult.Status.CREATED).entity(firstSaved).build(),
+                                                BatchItemResult.<RecommendationRequest>builder().id(2L).status(BatchItemResult.Status.CREATED).entity(secondSaved).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_and_missing_ones_are_reported() throws Exception {
+                // arrange
+                RecommendationRequest stored = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest changes = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                changes.setExplanation("changed");
+                RecommendationRequest missing = RecommendationRequest.builder()
+                                .id(2L)
+                                .requesterEmail("bravo@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("bravo")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                when(recommendationRequestRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/recommendationrequest/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(changes, missing)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).saveAll(Arrays.asList(changes));
+                List<BatchItemResult<RecommendationRequest>> expected = Arrays.asList(
+                                                BatchItemResult.<RecommendationRequest>builder().id(1L).status(BatchItemResult.Status.UPDATED).entity(changes).build(),
+                                                BatchItemResult.<RecommendationRequest>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_and_missing_ones_are_reported() throws Exception {
+                // arrange
+                RecommendationRequest stored = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                when(recommendationRequestRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                delete("/api/recommendationrequest/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(1L, 2L)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).deleteAllByIdInBatch(Set.of(1L));
+                List<BatchItemResult<RecommendationRequest>> expected = Arrays.asList(
+                                                BatchItemResult.<RecommendationRequest>builder().id(1L).status(BatchItemResult.Status.DELETED).entity(null).build(),
+                                                BatchItemResult.<RecommendationRequest>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_send_a_batch_larger_than_the_maximum() throws Exception {
+                // arrange
+                String requestBody = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/recommendationrequest/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(requestBody)
+                                                                                .with(csrf()))
+                                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(0)).findAllById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BatchTooLargeException", json.get("type"));
+                assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_recommendationrequests_filtered_and_sorted_by_the_database() throws Exception {
+                // arrange
+                RecommendationRequest first = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("first@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("first")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest second = RecommendationRequest.builder()
+                                .id(2L)
+                                .requesterEmail("second@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("second")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                List<RecommendationRequest> requests = List.of(second, first);
+                when(recommendationRequestRepository.findAll(any(Specification.class), eq(Sort.by(Sort.Order.asc("dateNeeded"), Sort.Order.asc("id")))))
+                        .thenReturn(requests);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all")
+                                .param("filter", "done:false,professorEmail:prof@ucsb.edu")
+                                .param("sort", "dateNeeded"))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findAll(any(Specification.class), eq(Sort.by(Sort.Order.asc("dateNeeded"), Sort.Order.asc("id"))));
+                verify(recommendationRequestRepository, times(0)).findAll();
+                assertEquals(mapper.writeValueAsString(requests), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_400_for_an_invalid_recommendationrequests_filter() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/all").param("filter", "done:maybe"))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidQueryException", json.get("type"));
+                assertEquals("'maybe' is not a valid value for done", json.get("message"));
+                verifyNoInteractions(recommendationRequestRepository);
+        }
+
+        @Test
+        public void logged_out_users_cannot_follow_changes() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/changes"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_follow_changes_starting_with_a_reset() throws Exception {
+                String event = firstChangeEvent("/api/recommendationrequest/changes");
+                assertTrue(event.matches("id:\\w+-\\d+\nevent:reset\ndata:\\{\\}\n\n"), event);
+        }
+
+        // Tests for GET /api/recommendationrequest/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/export"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/export"))
+                        .andExpect(status().is(403)); // only admins can export
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_as_csv() throws Exception {
+                // arrange
+                RecommendationRequest alpha = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest beta = RecommendationRequest.builder()
+                                .id(2L)
+                                .requesterEmail("beta@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("beta")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                when(recommendationRequestRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/export"))
+                        .andExpect(request().asyncStarted())
+                        .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                        .andExpect(header().string("Content-Disposition", "attachment; filename=\"recommendationrequest.csv\""))
+                        .andReturn();
+
+                // assert
+                assertEquals("id,requesterEmail,professorEmail,explanation,dateRequested,dateNeeded,done\r\n"
+                        + "1,alpha@ucsb.edu,prof@ucsb.edu,alpha,2022-01-03T00:00:00,2022-02-03T00:00:00,false\r\n"
+                        + "2,beta@ucsb.edu,prof@ucsb.edu,beta,2022-01-03T00:00:00,2022-02-03T00:00:00,false\r\n",
+                        streamedContent(response));
+                verify(entityManager).detach(alpha);
+                verify(entityManager).detach(beta);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_as_ndjson() throws Exception {
+                // arrange
+                RecommendationRequest alpha = RecommendationRequest.builder()
+                                .id(1L)
+                                .requesterEmail("alpha@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("alpha")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                RecommendationRequest beta = RecommendationRequest.builder()
+                                .id(2L)
+                                .requesterEmail("beta@ucsb.edu")
+                                .professorEmail("prof@ucsb.edu")
+                                .explanation("beta")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+                when(recommendationRequestRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/export?format=ndjson"))
+                        .andExpect(request().asyncStarted())
+                        .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                        .andExpect(header().string("Content-Disposition", "attachment; filename=\"recommendationrequest.ndjson\""))
+                        .andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(alpha) + "\n" + mapper.writeValueAsString(beta) + "\n",
+                        streamedContent(response));
+        }
+}
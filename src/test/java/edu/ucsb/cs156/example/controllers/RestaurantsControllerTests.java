@@ -4,26 +4,35 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.TableVersionService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -31,7 +40,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = RestaurantsController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, TableVersionService.class})
 public class RestaurantsControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -294,4 +303,282 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/restaurants/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/restaurants/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_page_with_a_next_cursor() throws Exception {
+                // arrange
+                Restaurant first = Restaurant.builder()
+                                .id(4L)
+                                .name("alpha")
+                                .description("alpha")
+                                .build();
+                Restaurant second = Restaurant.builder()
+                                .id(7L)
+                                .name("bravo")
+                                .description("bravo")
+                                .build();
+                Restaurant extra = Restaurant.builder()
+                                .id(9L)
+                                .name("charlie")
+                                .description("charlie")
+                                .build();
+
+                when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(first, second, extra)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/page?after=3&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<Restaurant> expectedPage = KeysetPage.<Restaurant>builder()
+                                .content(Arrays.asList(first, second))
+                                .nextCursor("7")
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_has_no_next_cursor_and_limit_is_capped() throws Exception {
+                // arrange
+                Restaurant only = Restaurant.builder()
+                                .id(4L)
+                                .name("alpha")
+                                .description("alpha")
+                                .build();
+
+                when(restaurantRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(only)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/page?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<Restaurant> expectedPage = KeysetPage.<Restaurant>builder()
+                                .content(Arrays.asList(only))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST, PUT and DELETE /api/restaurants/batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_post_a_batch() throws Exception {
+                mockMvc.perform(post("/api/restaurants/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("[]")
+                                                .with(csrf()))
+                                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_and_ids_are_set_by_the_database() throws Exception {
+                // arrange
+                Restaurant first = Restaurant.builder()
+                                .id(0L)
+                                .name("alpha")
+                                .description("alpha")
+                                .build();
+                Restaurant second = Restaurant.builder()
+                                .id(0L)
+                                .name("bravo")
+                                .description("bravo")
+                                .build();
+                Restaurant firstSaved = Restaurant.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .description("alpha")
+                                .build();
+                Restaurant secondSaved = Restaurant.builder()
+                                .id(2L)
+                                .name("bravo")
+                                .description("bravo")
+                                .build();
+
+                when(restaurantRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act (the ids in the request are ignored)
+                MvcResult response = mockMvc.perform(
+                                                post("/api/restaurants/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(firstSaved, secondSaved)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).saveAll(Arrays.asList(first, second));
+                List<BatchItemResult<Restaurant>> expected = Arrays.asList(
+                                                BatchItemResult.<Restaurant>builder().id(1L).status(BatchItemResult.Status.CREATED).entity(firstSaved).build(),
+                                                BatchItemResult.<Restaurant>builder().id(2L).status(BatchItemResult.Status.CREATED).entity(secondSaved).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_and_missing_ones_are_reported() throws Exception {
+                // arrange
+                Restaurant stored = Restaurant.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .description("alpha")
+                                .build();
+                Restaurant changes = Restaurant.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .description("alpha")
+                                .build();
+                changes.setName("changed");
+                Restaurant missing = Restaurant.builder()
+                                .id(2L)
+                                .name("bravo")
+                                .description("bravo")
+                                .build();
+
+                when(restaurantRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/restaurants/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(changes, missing)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).saveAll(Arrays.asList(changes));
+                List<BatchItemResult<Restaurant>> expected = Arrays.asList(
+                                                BatchItemResult.<Restaurant>builder().id(1L).status(BatchItemResult.Status.UPDATED).entity(changes).build(),
+                                                BatchItemResult.<Restaurant>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_and_missing_ones_are_reported() throws Exception {
+                // arrange
+                Restaurant stored = Restaurant.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .description("alpha")
+                                .build();
+
+                when(restaurantRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                delete("/api/restaurants/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(1L, 2L)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).deleteAllByIdInBatch(Set.of(1L));
+                List<BatchItemResult<Restaurant>> expected = Arrays.asList(
+                                                BatchItemResult.<Restaurant>builder().id(1L).status(BatchItemResult.Status.DELETED).entity(null).build(),
+                                                BatchItemResult.<Restaurant>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_send_a_batch_larger_than_the_maximum() throws Exception {
+                // arrange
+                String requestBody = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/restaurants/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(requestBody)
+                                                                                .with(csrf()))
+                                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(0)).findAllById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BatchTooLargeException", json.get("type"));
+                assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_restaurants_returns_304_while_the_etag_is_current() throws Exception {
+
+                // arrange
+
+                String etag = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andExpect(header().exists("Last-Modified"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act
+
+                mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andExpect(content().string(""));
+
+                // assert
+
+                verify(restaurantRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void get_all_restaurants_returns_200_after_a_write() throws Exception {
+
+                // arrange
+
+                String etag = mockMvc.perform(get("/api/restaurants/all"))
+                                .andReturn().getResponse().getHeader("ETag");
+                mockMvc.perform(delete("/api/restaurants/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON).content("[]"))
+                                .andExpect(status().isOk());
+
+                // act
+
+                mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", not(etag)));
+
+                // assert
+
+                verify(restaurantRepository, times(2)).findAll();
+        }
+
+        @Test
+        public void logged_out_users_cannot_follow_changes() throws Exception {
+                mockMvc.perform(get("/api/restaurants/changes"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_follow_changes_starting_with_a_reset() throws Exception {
+                String event = firstChangeEvent("/api/restaurants/changes");
+                assertTrue(event.matches("id:\\w+-\\d+\nevent:reset\ndata:\\{\\}\n\n"), event);
+        }
 }
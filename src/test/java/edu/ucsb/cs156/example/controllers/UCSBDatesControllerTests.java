@@ -4,15 +4,23 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.ImportService;
+import edu.ucsb.cs156.example.services.UCSBDateCacheService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,16 +32,20 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, UCSBDateCacheService.class})
 public class UCSBDatesControllerTests extends ControllerTestCase {
 
         @MockBean
@@ -42,6 +54,9 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ImportService importService;
+
         // Tests for GET /api/ucsbdates/all
         
         @Test
@@ -81,17 +96,18 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 ArrayList<UCSBDate> expectedDates = new ArrayList<>();
                 expectedDates.addAll(Arrays.asList(ucsbDate1, ucsbDate2));
 
-                when(ucsbDateRepository.findAll()).thenReturn(expectedDates);
+                when(ucsbDateRepository.streamAllByOrderByIdAsc()).thenReturn(expectedDates.stream());
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdates/all"))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(request().asyncStarted()).andReturn();
 
                 // assert
 
-                verify(ucsbDateRepository, times(1)).findAll();
+                String responseString = streamedContent(response);
+                verify(ucsbDateRepository, times(1)).streamAllByOrderByIdAsc();
+                expectedDates.forEach(row -> verify(entityManager).detach(row));
                 String expectedJson = mapper.writeValueAsString(expectedDates);
-                String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
@@ -320,4 +336,560 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_ucsbdate_to_have_an_invalid_quarter() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                UCSBDate ucsbEditedDate = UCSBDate.builder()
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20225")
+                                .localDateTime(ldt1)
+                                .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(ucsbEditedDate))
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MethodArgumentNotValidException", json.get("type"));
+                assertEquals("quarterYYYYQ must be a year and a quarter 1-4, e.g. 20224", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdates/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_page_with_a_next_cursor() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                                .id(4L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate second = UCSBDate.builder()
+                                .id(7L)
+                                .name("bravo")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate extra = UCSBDate.builder()
+                                .id(9L)
+                                .name("charlie")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(first, second, extra)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?after=3&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<UCSBDate> expectedPage = KeysetPage.<UCSBDate>builder()
+                                .content(Arrays.asList(first, second))
+                                .nextCursor("7")
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_has_no_next_cursor_and_limit_is_capped() throws Exception {
+                // arrange
+                UCSBDate only = UCSBDate.builder()
+                                .id(4L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(only)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<UCSBDate> expectedPage = KeysetPage.<UCSBDate>builder()
+                                .content(Arrays.asList(only))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST, PUT and DELETE /api/ucsbdates/batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_post_a_batch() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("[]")
+                                                .with(csrf()))
+                                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_and_ids_are_set_by_the_database() throws Exception {
+                // arrange
+                UCSBDate first = UCSBDate.builder()
+                                .id(0L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate second = UCSBDate.builder()
+                                .id(0L)
+                                .name("bravo")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate firstSaved = UCSBDate.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate secondSaved = UCSBDate.builder()
+                                .id(2L)
+                                .name("bravo")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+                // act (the ids in the request are ignored)
+                MvcResult response = mockMvc.perform(
+                                                post("/api/ucsbdates/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(firstSaved, secondSaved)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(Arrays.asList(first, second));
+                List<BatchItemResult<UCSBDate>> expected = Arrays.asList(
+                                                BatchItemResult.<UCSBDate>builder().id(1L).status(BatchItemResult.Status.CREATED).entity(firstSaved).build(),
+                                                BatchItemResult.<UCSBDate>builder().id(2L).status(BatchItemResult.Status.CREATED).entity(secondSaved).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_and_missing_ones_are_reported() throws Exception {
+                // arrange
+                UCSBDate stored = UCSBDate.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate changes = UCSBDate.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                changes.setName("changed");
+                UCSBDate missing = UCSBDate.builder()
+                                .id(2L)
+                                .name("bravo")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/ucsbdates/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(changes, missing)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(Arrays.asList(changes));
+                List<BatchItemResult<UCSBDate>> expected = Arrays.asList(
+                                                BatchItemResult.<UCSBDate>builder().id(1L).status(BatchItemResult.Status.UPDATED).entity(changes).build(),
+                                                BatchItemResult.<UCSBDate>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_and_missing_ones_are_reported() throws Exception {
+                // arrange
+                UCSBDate stored = UCSBDate.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                delete("/api/ucsbdates/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(1L, 2L)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).deleteAllByIdInBatch(Set.of(1L));
+                List<BatchItemResult<UCSBDate>> expected = Arrays.asList(
+                                                BatchItemResult.<UCSBDate>builder().id(1L).status(BatchItemResult.Status.DELETED).entity(null).build(),
+                                                BatchItemResult.<UCSBDate>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_delete_a_batch_with_a_null_id() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(
+                                                delete("/api/ucsbdates/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content("[1, null]")
+                                                                                .with(csrf()))
+                                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findAllById(any());
+                verify(ucsbDateRepository, times(0)).deleteAllByIdInBatch(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MissingBatchIdException", json.get("type"));
+                assertEquals("Item 1 of the batch has no id", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_send_a_batch_larger_than_the_maximum() throws Exception {
+                // arrange
+                String requestBody = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/ucsbdates/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(requestBody)
+                                                                                .with(csrf()))
+                                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findAllById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BatchTooLargeException", json.get("type"));
+                assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdates?quarter=... and /api/ucsbdates/range
+
+        @Test
+        public void logged_out_users_cannot_get_a_quarter() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates?quarter=20221"))
+                                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_quarter_and_it_is_cached() throws Exception {
+                // arrange
+                UCSBDate firstDay = UCSBDate.builder()
+                                                .id(1L)
+                                                .name("firstDayOfClasses")
+                                                .quarterYYYYQ("20211")
+                                                .localDateTime(LocalDateTime.parse("2021-01-04T00:00:00"))
+                                                .build();
+                UCSBDate lastDay = UCSBDate.builder()
+                                                .id(2L)
+                                                .name("lastDayOfClasses")
+                                                .quarterYYYYQ("20211")
+                                                .localDateTime(LocalDateTime.parse("2021-03-12T00:00:00"))
+                                                .build();
+
+                when(ucsbDateRepository.findAllByQuarterYYYYQ(eq("20211"))).thenReturn(new ArrayList<>(Arrays.asList(firstDay, lastDay)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?quarter=20211"))
+                                                .andExpect(status().isOk()).andReturn();
+                MvcResult cachedResponse = mockMvc.perform(get("/api/ucsbdates?quarter=20211"))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQ("20211");
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(firstDay, lastDay));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+                assertEquals(expectedJson, cachedResponse.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void editing_a_date_evicts_its_old_and_new_quarters() throws Exception {
+                // arrange
+                UCSBDate dateOrig = UCSBDate.builder()
+                                                .id(67L)
+                                                .name("firstDayOfClasses")
+                                                .quarterYYYYQ("20212")
+                                                .localDateTime(LocalDateTime.parse("2021-03-29T00:00:00"))
+                                                .build();
+                UCSBDate dateEdited = UCSBDate.builder()
+                                                .id(67L)
+                                                .name("firstDayOfClasses")
+                                                .quarterYYYYQ("20213")
+                                                .localDateTime(LocalDateTime.parse("2021-06-21T00:00:00"))
+                                                .build();
+
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(dateOrig));
+                when(ucsbDateRepository.findAllByQuarterYYYYQ(any())).thenReturn(new ArrayList<>());
+                mockMvc.perform(get("/api/ucsbdates?quarter=20212")).andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdates?quarter=20213")).andExpect(status().isOk());
+
+                // act
+                mockMvc.perform(
+                                                put("/api/ucsbdates?id=67")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(dateEdited))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdates?quarter=20212")).andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdates?quarter=20213")).andExpect(status().isOk());
+
+                // assert
+                verify(ucsbDateRepository, times(2)).findAllByQuarterYYYYQ("20212");
+                verify(ucsbDateRepository, times(2)).findAllByQuarterYYYYQ("20213");
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_a_range() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/range?start=2022-01-01T00:00:00&end=2022-03-31T23:59:59"))
+                                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_dates_in_a_range() throws Exception {
+                // arrange
+                UCSBDate date = UCSBDate.builder()
+                                                .id(1L)
+                                                .name("firstDayOfClasses")
+                                                .quarterYYYYQ("20221")
+                                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                                .build();
+
+                when(ucsbDateRepository.findAllByLocalDateTimeBetweenOrderByLocalDateTimeAsc(
+                                                eq(LocalDateTime.parse("2022-01-01T00:00:00")), eq(LocalDateTime.parse("2022-03-31T23:59:59"))))
+                                                .thenReturn(new ArrayList<>(Arrays.asList(date)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?start=2022-01-01T00:00:00&end=2022-03-31T23:59:59"))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(Arrays.asList(date));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void logged_out_users_cannot_follow_changes() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/changes"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_follow_changes_starting_with_a_reset() throws Exception {
+                String event = firstChangeEvent("/api/ucsbdates/changes");
+                assertTrue(event.matches("id:\\w+-\\d+\nevent:reset\ndata:\\{\\}\n\n"), event);
+        }
+
+        // Tests for GET /api/ucsbdates/export
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/export"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/export"))
+                        .andExpect(status().is(403)); // only admins can export
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_as_csv() throws Exception {
+                // arrange
+                UCSBDate alpha = UCSBDate.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate beta = UCSBDate.builder()
+                                .id(2L)
+                                .name("beta")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                when(ucsbDateRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/export"))
+                        .andExpect(request().asyncStarted())
+                        .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                        .andExpect(header().string("Content-Disposition", "attachment; filename=\"ucsbdate.csv\""))
+                        .andReturn();
+
+                // assert
+                assertEquals("id,quarterYYYYQ,name,localDateTime\r\n"
+                        + "1,20222,alpha,2022-01-03T00:00:00\r\n"
+                        + "2,20222,beta,2022-01-03T00:00:00\r\n",
+                        streamedContent(response));
+                verify(entityManager).detach(alpha);
+                verify(entityManager).detach(beta);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_export_as_ndjson() throws Exception {
+                // arrange
+                UCSBDate alpha = UCSBDate.builder()
+                                .id(1L)
+                                .name("alpha")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                UCSBDate beta = UCSBDate.builder()
+                                .id(2L)
+                                .name("beta")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .build();
+                when(ucsbDateRepository.streamAllByOrderByIdAsc()).thenReturn(Stream.of(alpha, beta));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/export?format=ndjson"))
+                        .andExpect(request().asyncStarted())
+                        .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                        .andExpect(header().string("Content-Disposition", "attachment; filename=\"ucsbdate.ndjson\""))
+                        .andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(alpha) + "\n" + mapper.writeValueAsString(beta) + "\n",
+                        streamedContent(response));
+        }
+
+        // Tests for POST /api/ucsbdates/import
+
+        @Test
+        public void logged_out_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/import").contentType("text/csv").content("").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/import").contentType("text/csv").content("").with(csrf()))
+                        .andExpect(status().is(403)); // only admins can import
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_a_file() throws Exception {
+                // arrange
+                ImportResult imported = ImportResult.builder().imported(2).errors(List.of()).build();
+                when(importService.importRows(eq(UCSBDate.class), argThat(type -> type.isCompatibleWith(MediaType.parseMediaType("text/csv"))), any())).thenReturn(imported);
+                when(ucsbDateRepository.findAllByQuarterYYYYQ(any())).thenReturn(new ArrayList<>());
+                mockMvc.perform(get("/api/ucsbdates?quarter=20224")).andExpect(status().isOk());
+                long before = latestChange("/api/ucsbdates/changes");
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdates/import")
+                                .contentType("text/csv")
+                                .content("quarterYYYYQ,name,localDateTime\n20224,firstDayOfClasses,2022-09-22T00:00:00\n")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(imported), response.getResponse().getContentAsString());
+                // followers of the table are told to load it again
+                assertEquals(before + 1, latestChange("/api/ucsbdates/changes"));
+                // the cached quarters are evicted
+                mockMvc.perform(get("/api/ucsbdates?quarter=20224")).andExpect(status().isOk());
+                verify(ucsbDateRepository, times(2)).findAllByQuarterYYYYQ("20224");
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_import_with_errors_is_a_bad_request() throws Exception {
+                // arrange
+                ImportResult rejected = ImportResult.builder()
+                        .imported(0)
+                        .errors(List.of(ImportResult.RowError.builder().line(2).field("name").message("must not be blank").build()))
+                        .build();
+                when(importService.importRows(eq(UCSBDate.class), argThat(type -> type.isCompatibleWith(MediaType.APPLICATION_NDJSON)), any())).thenReturn(rejected);
+                long before = latestChange("/api/ucsbdates/changes");
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdates/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}")
+                                .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(rejected), response.getResponse().getContentAsString());
+                assertEquals(before, latestChange("/api/ucsbdates/changes"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_import_of_another_content_type_is_unsupported() throws Exception {
+                mockMvc.perform(
+                        post("/api/ucsbdates/import")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                        .andExpect(status().isUnsupportedMediaType());
+        }
 }
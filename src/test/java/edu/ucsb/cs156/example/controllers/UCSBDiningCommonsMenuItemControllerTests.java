@@ -4,16 +4,23 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonMenuItem;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.ImportService;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -25,9 +32,12 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -43,6 +53,9 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    ImportService importService;
+
      @Test
         public void logged_out_users_cannot_get_all() throws Exception {
                 mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
@@ -145,17 +158,18 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
                 ArrayList<UCSBDiningCommonMenuItem> expectedItems = new ArrayList<>();
                 expectedItems.addAll(Arrays.asList(UCSBDiningCommonsMenuItem1, UCSBDiningCommonsMenuItem2));
 
-                when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(expectedItems);
+                when(ucsbDiningCommonsMenuItemRepository.streamAllByOrderByIdAsc()).thenReturn(expectedItems.stream());
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/all"))
-                                .andExpect(status().isOk()).andReturn();
+                                .andExpect(request().asyncStarted()).andReturn();
 
                 // assert
 
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll();
+                String responseString = streamedContent(response);
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).streamAllByOrderByIdAsc();
+                expectedItems.forEach(row -> verify(entityManager).detach(row));
                 String expectedJson = mapper.writeValueAsString(expectedItems);
-                String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
@@ -301,4 +315,356 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
         }
 
+    // Tests for GET /api/ucsbdiningcommonsmenuitem/page
+
+    @Test
+    public void logged_out_users_cannot_get_page() throws Exception {
+        mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_a_page_with_a_next_cursor() throws Exception {
+        // arrange
+        UCSBDiningCommonMenuItem first = UCSBDiningCommonMenuItem.builder()
+                .id(4L)
+                .diningCommonsCode("ortega")
+                .name("alpha")
+                .station("Entrees")
+                .build();
+        UCSBDiningCommonMenuItem second = UCSBDiningCommonMenuItem.builder()
+                .id(7L)
+                .diningCommonsCode("ortega")
+                .name("bravo")
+                .station("Entrees")
+                .build();
+        UCSBDiningCommonMenuItem extra = UCSBDiningCommonMenuItem.builder()
+                .id(9L)
+                .diningCommonsCode("ortega")
+                .name("charlie")
+                .station("Entrees")
+                .build();
+
+        when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), eq(Limit.of(3))))
+                .thenReturn(new ArrayList<>(Arrays.asList(first, second, extra)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?after=3&limit=2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        KeysetPage<UCSBDiningCommonMenuItem> expectedPage = KeysetPage.<UCSBDiningCommonMenuItem>builder()
+                .content(Arrays.asList(first, second))
+                .nextCursor("7")
+                .build();
+        String expectedJson = mapper.writeValueAsString(expectedPage);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void last_page_has_no_next_cursor_and_limit_is_capped() throws Exception {
+        // arrange
+        UCSBDiningCommonMenuItem only = UCSBDiningCommonMenuItem.builder()
+                .id(4L)
+                .diningCommonsCode("ortega")
+                .name("alpha")
+                .station("Entrees")
+                .build();
+
+        when(ucsbDiningCommonsMenuItemRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), eq(Limit.of(ApiController.MAX_PAGE_SIZE + 1))))
+                .thenReturn(new ArrayList<>(Arrays.asList(only)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/page?limit=5000"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        KeysetPage<UCSBDiningCommonMenuItem> expectedPage = KeysetPage.<UCSBDiningCommonMenuItem>builder()
+                .content(Arrays.asList(only))
+                .build();
+        String expectedJson = mapper.writeValueAsString(expectedPage);
+        String responseString = response.getResponse().getContentAsString();
+        assertEquals(expectedJson, responseString);
+    }
+
+    // Tests for POST, PUT and DELETE /api/ucsbdiningcommonsmenuitem/batch
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void regular_users_cannot_post_a_batch() throws Exception {
+        mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]")
+                        .with(csrf()))
+                        .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_post_a_batch_and_ids_are_set_by_the_database() throws Exception {
+        // arrange
+        UCSBDiningCommonMenuItem first = UCSBDiningCommonMenuItem.builder()
+                .id(0L)
+                .diningCommonsCode("ortega")
+                .name("alpha")
+                .station("Entrees")
+                .build();
+        UCSBDiningCommonMenuItem second = UCSBDiningCommonMenuItem.builder()
+                .id(0L)
+                .diningCommonsCode("ortega")
+                .name("bravo")
+                .station("Entrees")
+                .build();
+        UCSBDiningCommonMenuItem firstSaved = UCSBDiningCommonMenuItem.builder()
+                .id(1L)
+                .diningCommonsCode("ortega")
+                .name("alpha")
+                .station("Entrees")
+                .build();
+        UCSBDiningCommonMenuItem secondSaved = UCSBDiningCommonMenuItem.builder()
+                .id(2L)
+                .diningCommonsCode("ortega")
+                .name("bravo")
+                .station("Entrees")
+                .build();
+
+        when(ucsbDiningCommonsMenuItemRepository.saveAll(eq(Arrays.asList(first, second)))).thenReturn(Arrays.asList(firstSaved, secondSaved));
+
+        // act (the ids in the request are ignored)
+        MvcResult response = mockMvc.perform(
+                        post("/api/ucsbdiningcommonsmenuitem/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(firstSaved, secondSaved)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).saveAll(Arrays.asList(first, second));
+        List<BatchItemResult<UCSBDiningCommonMenuItem>> expected = Arrays.asList(
+                        BatchItemResult.<UCSBDiningCommonMenuItem>builder().id(1L).status(BatchItemResult.Status.CREATED).entity(firstSaved).build(),
+                        BatchItemResult.<UCSBDiningCommonMenuItem>builder().id(2L).status(BatchItemResult.Status.CREATED).entity(secondSaved).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_put_a_batch_and_missing_ones_are_reported() throws Exception {
+        // arrange
+        UCSBDiningCommonMenuItem stored = UCSBDiningCommonMenuItem.builder()
+                .id(1L)
+                .diningCommonsCode("ortega")
+                .name("alpha")
+                .station("Entrees")
+                .build();
+        UCSBDiningCommonMenuItem changes = UCSBDiningCommonMenuItem.builder()
+                .id(1L)
+                .diningCommonsCode("ortega")
+                .name("alpha")
+                .station("Entrees")
+                .build();
+        changes.setName("changed");
+        UCSBDiningCommonMenuItem missing = UCSBDiningCommonMenuItem.builder()
+                .id(2L)
+                .diningCommonsCode("ortega")
+                .name("bravo")
+                .station("Entrees")
+                .build();
+
+        when(ucsbDiningCommonsMenuItemRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(changes, missing)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).saveAll(Arrays.asList(changes));
+        List<BatchItemResult<UCSBDiningCommonMenuItem>> expected = Arrays.asList(
+                        BatchItemResult.<UCSBDiningCommonMenuItem>builder().id(1L).status(BatchItemResult.Status.UPDATED).entity(changes).build(),
+                        BatchItemResult.<UCSBDiningCommonMenuItem>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_delete_a_batch_and_missing_ones_are_reported() throws Exception {
+        // arrange
+        UCSBDiningCommonMenuItem stored = UCSBDiningCommonMenuItem.builder()
+                .id(1L)
+                .diningCommonsCode("ortega")
+                .name("alpha")
+                .station("Entrees")
+                .build();
+
+        when(ucsbDiningCommonsMenuItemRepository.findAllById(eq(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        delete("/api/ucsbdiningcommonsmenuitem/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(Arrays.asList(1L, 2L)))
+                                        .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteAllByIdInBatch(Set.of(1L));
+        List<BatchItemResult<UCSBDiningCommonMenuItem>> expected = Arrays.asList(
+                        BatchItemResult.<UCSBDiningCommonMenuItem>builder().id(1L).status(BatchItemResult.Status.DELETED).entity(null).build(),
+                        BatchItemResult.<UCSBDiningCommonMenuItem>builder().id(2L).status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+        assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_send_a_batch_larger_than_the_maximum() throws Exception {
+        // arrange
+        String requestBody = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+        // act
+        MvcResult response = mockMvc.perform(
+                        put("/api/ucsbdiningcommonsmenuitem/batch")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(requestBody)
+                                        .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(0)).findAllById(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("BatchTooLargeException", json.get("type"));
+        assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+    }
+
+    // Tests for GET /api/ucsbdiningcommonsmenuitem?diningCommonsCode=...
+
+    @Test
+    public void logged_out_users_cannot_get_by_diningCommonsCode() throws Exception {
+        mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem?diningCommonsCode=ortega"))
+                        .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_only_the_rows_for_one_dining_commons() throws Exception {
+        // arrange
+        UCSBDiningCommonMenuItem first = UCSBDiningCommonMenuItem.builder()
+                .id(1L)
+                .diningCommonsCode("ortega")
+                .name("alpha")
+                .station("Entrees")
+                .build();
+        UCSBDiningCommonMenuItem second = UCSBDiningCommonMenuItem.builder()
+                .id(2L)
+                .diningCommonsCode("ortega")
+                .name("bravo")
+                .station("Entrees")
+                .build();
+
+        when(ucsbDiningCommonsMenuItemRepository.findAllByDiningCommonsCode(eq("ortega"))).thenReturn(new ArrayList<>(Arrays.asList(first, second)));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem?diningCommonsCode=ortega"))
+                        .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAllByDiningCommonsCode("ortega");
+        verify(ucsbDiningCommonsMenuItemRepository, times(0)).findById(any());
+        String expectedJson = mapper.writeValueAsString(Arrays.asList(first, second));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void logged_out_users_cannot_follow_changes() throws Exception {
+        mockMvc.perform(get("/api/ucsbdiningcommonsmenuitem/changes"))
+            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_follow_changes_starting_with_a_reset() throws Exception {
+        String event = firstChangeEvent("/api/ucsbdiningcommonsmenuitem/changes");
+        assertTrue(event.matches("id:\\w+-\\d+\nevent:reset\ndata:\\{\\}\n\n"), event);
+    }
+
+    // Tests for POST /api/ucsbdiningcommonsmenuitem/import
+
+    @Test
+    public void logged_out_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import").contentType("text/csv").content("").with(csrf()))
+            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/ucsbdiningcommonsmenuitem/import").contentType("text/csv").content("").with(csrf()))
+            .andExpect(status().is(403)); // only admins can import
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_import_a_file() throws Exception {
+        // arrange
+        ImportResult imported = ImportResult.builder().imported(2).errors(List.of()).build();
+        when(importService.importRows(eq(UCSBDiningCommonMenuItem.class), argThat(type -> type.isCompatibleWith(MediaType.parseMediaType("text/csv"))), any())).thenReturn(imported);
+        long before = latestChange("/api/ucsbdiningcommonsmenuitem/changes");
+
+        // act
+        MvcResult response = mockMvc.perform(
+            post("/api/ucsbdiningcommonsmenuitem/import")
+                .contentType("text/csv")
+                .content("diningCommonsCode,name,station\nortega,pasta,entree\n")
+                .with(csrf()))
+            .andExpect(status().isOk()).andReturn();
+
+        // assert
+        assertEquals(mapper.writeValueAsString(imported), response.getResponse().getContentAsString());
+        // followers of the table are told to load it again
+        assertEquals(before + 1, latestChange("/api/ucsbdiningcommonsmenuitem/changes"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_import_with_errors_is_a_bad_request() throws Exception {
+        // arrange
+        ImportResult rejected = ImportResult.builder()
+            .imported(0)
+            .errors(List.of(ImportResult.RowError.builder().line(2).field("name").message("must not be blank").build()))
+            .build();
+        when(importService.importRows(eq(UCSBDiningCommonMenuItem.class), argThat(type -> type.isCompatibleWith(MediaType.APPLICATION_NDJSON)), any())).thenReturn(rejected);
+        long before = latestChange("/api/ucsbdiningcommonsmenuitem/changes");
+
+        // act
+        MvcResult response = mockMvc.perform(
+            post("/api/ucsbdiningcommonsmenuitem/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{}")
+                .with(csrf()))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        assertEquals(mapper.writeValueAsString(rejected), response.getResponse().getContentAsString());
+        assertEquals(before, latestChange("/api/ucsbdiningcommonsmenuitem/changes"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_import_of_another_content_type_is_unsupported() throws Exception {
+        mockMvc.perform(
+            post("/api/ucsbdiningcommonsmenuitem/import")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]")
+                .with(csrf()))
+            .andExpect(status().isUnsupportedMediaType());
+    }
 }
@@ -4,34 +4,51 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
+import edu.ucsb.cs156.example.services.ImportService;
+import edu.ucsb.cs156.example.services.TableVersionService;
+
+import jakarta.persistence.RollbackException;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.TransactionSystemException;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
-@Import(TestConfig.class)
+@Import({TestConfig.class, TableVersionService.class})
 public class UCSBOrganizationControllerTests extends ControllerTestCase {
         
         @MockBean
@@ -40,6 +57,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ImportService importService;
+
         @Test
         public void logged_out_users_cannot_get_all() throws Exception {
                 mockMvc.perform(get("/api/ucsborganizations/all"))
@@ -273,4 +293,593 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganizations with id jsa not found", json.get("message"));
         }
-}
\ No newline at end of file
+
+        // Tests for GET /api/ucsborganizations/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_a_page_with_a_next_cursor() throws Exception {
+                // arrange
+                UCSBOrganizations first = UCSBOrganizations.builder()
+                                .orgCode("bravo")
+                                .orgTranslationShort("bravo")
+                                .orgTranslation("bravo")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations second = UCSBOrganizations.builder()
+                                .orgCode("charlie")
+                                .orgTranslationShort("charlie")
+                                .orgTranslation("charlie")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations extra = UCSBOrganizations.builder()
+                                .orgCode("delta")
+                                .orgTranslationShort("delta")
+                                .orgTranslation("delta")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq("alpha"), eq(Limit.of(3))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(first, second, extra)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/page?after=alpha&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<UCSBOrganizations> expectedPage = KeysetPage.<UCSBOrganizations>builder()
+                                .content(Arrays.asList(first, second))
+                                .nextCursor("charlie")
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void last_page_has_no_next_cursor_and_limit_is_capped() throws Exception {
+                // arrange
+                UCSBOrganizations only = UCSBOrganizations.builder()
+                                .orgCode("bravo")
+                                .orgTranslationShort("bravo")
+                                .orgTranslation("bravo")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.findByOrgCodeGreaterThanOrderByOrgCodeAsc(eq(""), eq(Limit.of(ApiController.MAX_PAGE_SIZE + 1))))
+                                .thenReturn(new ArrayList<>(Arrays.asList(only)));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/page?limit=5000"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<UCSBOrganizations> expectedPage = KeysetPage.<UCSBOrganizations>builder()
+                                .content(Arrays.asList(only))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for POST, PUT and DELETE /api/ucsborganizations/batch
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void regular_users_cannot_post_a_batch() throws Exception {
+                mockMvc.perform(post("/api/ucsborganizations/batch")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .content("[]")
+                                                .with(csrf()))
+                                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_and_existing_ones_are_skipped() throws Exception {
+                // arrange
+                UCSBOrganizations existing = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("alpha")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations added = UCSBOrganizations.builder()
+                                .orgCode("bravo")
+                                .orgTranslationShort("bravo")
+                                .orgTranslation("bravo")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.findAllById(eq(Arrays.asList("alpha", "bravo")))).thenReturn(Arrays.asList(existing));
+                when(ucsbOrganizationsRepository.saveAll(eq(Arrays.asList(added)))).thenReturn(Arrays.asList(added));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                post("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(existing, added)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(1)).saveAll(Arrays.asList(added));
+                List<BatchItemResult<UCSBOrganizations>> expected = Arrays.asList(
+                                                BatchItemResult.<UCSBOrganizations>builder().id("alpha").status(BatchItemResult.Status.ALREADY_EXISTS).entity(null).build(),
+                                                BatchItemResult.<UCSBOrganizations>builder().id("bravo").status(BatchItemResult.Status.CREATED).entity(added).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_put_a_batch_and_missing_ones_are_reported() throws Exception {
+                // arrange
+                UCSBOrganizations stored = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("alpha")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations changes = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("alpha")
+                                .inactive(false)
+                                .build();
+                changes.setOrgTranslation("changed");
+                UCSBOrganizations missing = UCSBOrganizations.builder()
+                                .orgCode("bravo")
+                                .orgTranslationShort("bravo")
+                                .orgTranslation("bravo")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.findAllById(eq(Arrays.asList("alpha", "bravo")))).thenReturn(Arrays.asList(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(changes, missing)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(1)).saveAll(Arrays.asList(changes));
+                List<BatchItemResult<UCSBOrganizations>> expected = Arrays.asList(
+                                                BatchItemResult.<UCSBOrganizations>builder().id("alpha").status(BatchItemResult.Status.UPDATED).entity(changes).build(),
+                                                BatchItemResult.<UCSBOrganizations>builder().id("bravo").status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_delete_a_batch_and_missing_ones_are_reported() throws Exception {
+                // arrange
+                UCSBOrganizations stored = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("alpha")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.findAllById(eq(Arrays.asList("alpha", "bravo")))).thenReturn(Arrays.asList(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                delete("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList("alpha", "bravo")))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(1)).deleteAllByIdInBatch(Set.of("alpha"));
+                List<BatchItemResult<UCSBOrganizations>> expected = Arrays.asList(
+                                                BatchItemResult.<UCSBOrganizations>builder().id("alpha").status(BatchItemResult.Status.DELETED).entity(null).build(),
+                                                BatchItemResult.<UCSBOrganizations>builder().id("bravo").status(BatchItemResult.Status.NOT_FOUND).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_post_a_batch_and_a_repeated_code_is_created_once() throws Exception {
+                // arrange
+                UCSBOrganizations first = UCSBOrganizations.builder()
+                                .orgCode("bravo")
+                                .orgTranslationShort("bravo")
+                                .orgTranslation("bravo")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations repeated = UCSBOrganizations.builder()
+                                .orgCode("bravo")
+                                .orgTranslationShort("bravo again")
+                                .orgTranslation("bravo again")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.findAllById(eq(Arrays.asList("bravo", "bravo")))).thenReturn(Arrays.asList());
+                when(ucsbOrganizationsRepository.saveAll(eq(Arrays.asList(first)))).thenReturn(Arrays.asList(first));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                post("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(first, repeated)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(1)).saveAll(Arrays.asList(first));
+                List<BatchItemResult<UCSBOrganizations>> expected = Arrays.asList(
+                                                BatchItemResult.<UCSBOrganizations>builder().id("bravo").status(BatchItemResult.Status.CREATED).entity(first).build(),
+                                                BatchItemResult.<UCSBOrganizations>builder().id("bravo").status(BatchItemResult.Status.ALREADY_EXISTS).entity(null).build());
+                assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_put_a_batch_that_repeats_a_code() throws Exception {
+                // arrange
+                UCSBOrganizations first = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("first")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations other = UCSBOrganizations.builder()
+                                .orgCode("bravo")
+                                .orgTranslationShort("bravo")
+                                .orgTranslation("bravo")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations second = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("second")
+                                .inactive(false)
+                                .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(first, other, second)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(0)).findAllById(any());
+                verify(ucsbOrganizationsRepository, times(0)).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("DuplicateBatchIdException", json.get("type"));
+                assertEquals("Item 2 of the batch repeats the id alpha", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_put_a_batch_item_without_a_code() throws Exception {
+                // arrange
+                UCSBOrganizations changes = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("alpha")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations noCode = UCSBOrganizations.builder()
+                                .orgTranslationShort("bravo")
+                                .orgTranslation("bravo")
+                                .inactive(false)
+                                .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(changes, noCode)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(0)).findAllById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MissingBatchIdException", json.get("type"));
+                assertEquals("Item 1 of the batch has no id", json.get("message"));
+        }
+
+        private static ConstraintViolationException constraintViolations(UCSBOrganizations org) {
+                return new ConstraintViolationException(
+                                Validation.buildDefaultValidatorFactory().getValidator().validate(org));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_post_an_invalid_org() throws Exception {
+                // arrange
+                UCSBOrganizations invalid = UCSBOrganizations.builder()
+                        .orgCode("tasa")
+                        .orgTranslationShort(" ")
+                        .orgTranslation("UCSB Taiwanese American Student Association")
+                        .inactive(true)
+                        .build();
+
+                when(ucsbOrganizationsRepository.save(eq(invalid))).thenThrow(constraintViolations(invalid));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsborganizations/post?orgCode=tasa&orgTranslationShort= &orgTranslation=UCSB Taiwanese American Student Association&inactive=true")
+                                        .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ConstraintViolationException", json.get("type"));
+                assertEquals("orgTranslationShort must not be blank", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_edit_an_org_to_be_invalid() throws Exception {
+                // arrange
+                UCSBOrganizations invalid = UCSBOrganizations.builder()
+                        .orgCode("vsa")
+                        .orgTranslationShort("")
+                        .orgTranslation("")
+                        .inactive(false)
+                        .build();
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        put("/api/ucsborganizations?orgCode=vsa")
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .characterEncoding("utf-8")
+                                        .content(mapper.writeValueAsString(invalid))
+                                        .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(0)).findById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MethodArgumentNotValidException", json.get("type"));
+                assertEquals("orgTranslation must not be blank, orgTranslationShort must not be blank", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_put_a_batch_with_an_invalid_org() throws Exception {
+                // arrange
+                UCSBOrganizations stored = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("alpha")
+                                .inactive(false)
+                                .build();
+                UCSBOrganizations invalid = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.findAllById(eq(Arrays.asList("alpha")))).thenReturn(Arrays.asList(stored));
+                // Hibernate validates changed entities when it flushes them, as the transaction commits
+                when(ucsbOrganizationsRepository.saveAll(any())).thenThrow(
+                                new TransactionSystemException("Could not commit JPA transaction",
+                                                new RollbackException("Error while committing the transaction", constraintViolations(invalid))));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(invalid)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("ConstraintViolationException", json.get("type"));
+                assertEquals("orgTranslation must not be blank", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_batch_that_fails_to_commit_for_another_reason_is_a_server_error() throws Exception {
+                // arrange
+                UCSBOrganizations org = UCSBOrganizations.builder()
+                                .orgCode("alpha")
+                                .orgTranslationShort("alpha")
+                                .orgTranslation("alpha")
+                                .inactive(false)
+                                .build();
+
+                when(ucsbOrganizationsRepository.saveAll(any())).thenThrow(
+                                new TransactionSystemException("Could not commit JPA transaction",
+                                                new RollbackException("Connection reset")));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                post("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(mapper.writeValueAsString(Arrays.asList(org)))
+                                                                                .with(csrf()))
+                                                .andExpect(status().isInternalServerError()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("TransactionSystemException", json.get("type"));
+                assertEquals("Could not commit JPA transaction", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_send_a_batch_larger_than_the_maximum() throws Exception {
+                // arrange
+                String requestBody = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BATCH_SIZE + 1, "{}")) + "]";
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                                put("/api/ucsborganizations/batch")
+                                                                                .contentType(MediaType.APPLICATION_JSON)
+                                                                                .characterEncoding("utf-8")
+                                                                                .content(requestBody)
+                                                                                .with(csrf()))
+                                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationsRepository, times(0)).findAllById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BatchTooLargeException", json.get("type"));
+                assertEquals("Batch of 1001 items is larger than the maximum of 1000", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_organizations_returns_304_while_the_etag_is_current() throws Exception {
+
+                // arrange
+
+                String etag = mockMvc.perform(get("/api/ucsborganizations/all"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                                .andExpect(header().exists("Last-Modified"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                // act
+
+                mockMvc.perform(get("/api/ucsborganizations/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag))
+                                .andExpect(content().string(""));
+
+                // assert
+
+                verify(ucsbOrganizationsRepository, times(1)).findAll();
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void get_all_organizations_returns_200_after_a_write() throws Exception {
+
+                // arrange
+
+                String etag = mockMvc.perform(get("/api/ucsborganizations/all"))
+                                .andReturn().getResponse().getHeader("ETag");
+                mockMvc.perform(delete("/api/ucsborganizations/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON).content("[]"))
+                                .andExpect(status().isOk());
+
+                // act
+
+                mockMvc.perform(get("/api/ucsborganizations/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", not(etag)));
+
+                // assert
+
+                verify(ucsbOrganizationsRepository, times(2)).findAll();
+        }
+
+        @Test
+        public void logged_out_users_cannot_follow_changes() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/changes"))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_follow_changes_starting_with_a_reset() throws Exception {
+                String event = firstChangeEvent("/api/ucsborganizations/changes");
+                assertTrue(event.matches("id:\\w+-\\d+\nevent:reset\ndata:\\{\\}\n\n"), event);
+        }
+
+        // Tests for POST /api/ucsborganizations/import
+
+        @Test
+        public void logged_out_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsborganizations/import").contentType("text/csv").content("").with(csrf()))
+                        .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_import() throws Exception {
+                mockMvc.perform(post("/api/ucsborganizations/import").contentType("text/csv").content("").with(csrf()))
+                        .andExpect(status().is(403)); // only admins can import
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_a_file() throws Exception {
+                // arrange
+                ImportResult imported = ImportResult.builder().imported(2).errors(List.of()).build();
+                when(importService.importRows(eq(UCSBOrganizations.class), argThat(type -> type.isCompatibleWith(MediaType.parseMediaType("text/csv"))), any())).thenReturn(imported);
+                String etag = mockMvc.perform(get("/api/ucsborganizations/all")).andReturn().getResponse().getHeader("ETag");
+                long before = latestChange("/api/ucsborganizations/changes");
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsborganizations/import")
+                                .contentType("text/csv")
+                                .content("orgCode,orgTranslationShort,orgTranslation\ncsu,CSU,UCSB Chinese Student Union\n")
+                                .with(csrf()))
+                        .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(imported), response.getResponse().getContentAsString());
+                // followers of the table are told to load it again
+                assertEquals(before + 1, latestChange("/api/ucsborganizations/changes"));
+                // clients revalidating the list get the new one
+                mockMvc.perform(get("/api/ucsborganizations/all").header("If-None-Match", etag))
+                        .andExpect(status().isOk());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_import_with_errors_is_a_bad_request() throws Exception {
+                // arrange
+                ImportResult rejected = ImportResult.builder()
+                        .imported(0)
+                        .errors(List.of(ImportResult.RowError.builder().line(2).field("name").message("must not be blank").build()))
+                        .build();
+                when(importService.importRows(eq(UCSBOrganizations.class), argThat(type -> type.isCompatibleWith(MediaType.APPLICATION_NDJSON)), any())).thenReturn(rejected);
+                long before = latestChange("/api/ucsborganizations/changes");
+
+                // act
+                MvcResult response = mockMvc.perform(
+                        post("/api/ucsborganizations/import")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{}")
+                                .with(csrf()))
+                        .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(rejected), response.getResponse().getContentAsString());
+                assertEquals(before, latestChange("/api/ucsborganizations/changes"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_import_of_another_content_type_is_unsupported() throws Exception {
+                mockMvc.perform(
+                        post("/api/ucsborganizations/import")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[]")
+                                .with(csrf()))
+                        .andExpect(status().isUnsupportedMediaType());
+        }
+}
@@ -3,9 +3,11 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.UserCacheService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -13,14 +15,17 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -29,6 +34,9 @@ public class UsersControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @Autowired
+  UserCacheService userCacheService;
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users"))
@@ -70,4 +78,31 @@ public class UsersControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
 
   }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void clear_cache__user_logged_in() throws Exception {
+    mockMvc.perform(delete("/api/admin/users/cache").with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void clear_cache__admin_logged_in() throws Exception {
+
+    // arrange
+
+    userCacheService.put(User.builder().id(1L).email("cgaucho@ucsb.edu").build());
+
+    // act
+
+    MvcResult response = mockMvc.perform(delete("/api/admin/users/cache").with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertTrue(userCacheService.get("cgaucho@ucsb.edu").isEmpty());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("User cache cleared", json.get("message"));
+  }
 }
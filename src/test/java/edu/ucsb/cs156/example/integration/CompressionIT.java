@@ -0,0 +1,62 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("integration")
+public class CompressionIT {
+        @LocalServerPort
+        int port;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private final HttpClient client = HttpClient.newHttpClient();
+
+        private HttpResponse<byte[]> getApiDocs(String acceptEncoding) throws Exception {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v3/api-docs"))
+                                .header("Accept-Encoding", acceptEncoding)
+                                .build();
+                return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        }
+
+        @Test
+        public void large_json_responses_are_gzipped_when_the_client_accepts_gzip() throws Exception {
+                // act
+                HttpResponse<byte[]> response = getApiDocs("gzip");
+
+                // assert
+                assertEquals(200, response.statusCode());
+                assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+                assertTrue(response.headers().firstValue("Vary").orElse("").toLowerCase().contains("accept-encoding"));
+                String json = new String(new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes());
+                assertTrue(json.startsWith("{\"openapi\""));
+        }
+
+        @Test
+        public void responses_are_not_compressed_for_clients_that_do_not_accept_gzip() throws Exception {
+                // act
+                HttpResponse<byte[]> response = getApiDocs("identity");
+
+                // assert
+                assertEquals(200, response.statusCode());
+                assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+                assertTrue(new String(response.body()).startsWith("{\"openapi\""));
+        }
+}
@@ -32,6 +32,7 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -103,4 +104,76 @@ public class HelpRequestIT {
         assertEquals(explanation, savedRequest.getExplanation());
         assertEquals(solved, savedRequest.getSolved());
     }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void the_open_queue_has_only_unsolved_requests_oldest_first() throws Exception {
+        // arrange
+        HelpRequest later = helpRequestRepository.save(HelpRequest.builder()
+                .requesterEmail("later@ucsb.edu")
+                .teamId("team1")
+                .tableOrBreakoutRoom("Table 1")
+                .requestTime(LocalDateTime.parse("2024-10-01T10:05:00"))
+                .explanation("later")
+                .solved(false)
+                .build());
+        helpRequestRepository.save(HelpRequest.builder()
+                .requesterEmail("solved@ucsb.edu")
+                .teamId("team2")
+                .tableOrBreakoutRoom("Table 2")
+                .requestTime(LocalDateTime.parse("2024-10-01T09:00:00"))
+                .explanation("solved")
+                .solved(true)
+                .build());
+        HelpRequest earlier = helpRequestRepository.save(HelpRequest.builder()
+                .requesterEmail("earlier@ucsb.edu")
+                .teamId("team3")
+                .tableOrBreakoutRoom("Table 3")
+                .requestTime(LocalDateTime.parse("2024-10-01T10:00:00"))
+                .explanation("earlier")
+                .solved(false)
+                .build());
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/helprequest/open"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        assertEquals(mapper.writeValueAsString(List.of(earlier, later)),
+                response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_export_every_help_request_as_csv() throws Exception {
+        // arrange
+        HelpRequest first = helpRequestRepository.save(HelpRequest.builder()
+                .requesterEmail("first@ucsb.edu")
+                .teamId("team1")
+                .tableOrBreakoutRoom("Table 1")
+                .requestTime(LocalDateTime.parse("2024-10-01T10:05:00"))
+                .explanation("needs a comma, so it is quoted")
+                .solved(false)
+                .build());
+        HelpRequest second = helpRequestRepository.save(HelpRequest.builder()
+                .requesterEmail("second@ucsb.edu")
+                .teamId("team2")
+                .tableOrBreakoutRoom("Table 2")
+                .requestTime(LocalDateTime.parse("2024-10-01T09:00:00"))
+                .explanation("plain")
+                .solved(true)
+                .build());
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/helprequest/export?format=csv"))
+                .andExpect(request().asyncStarted()).andReturn();
+        String csv = mockMvc.perform(asyncDispatch(response))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // assert
+        assertEquals("id,requesterEmail,teamId,tableOrBreakoutRoom,requestTime,explanation,solved\r\n"
+                + first.getId() + ",first@ucsb.edu,team1,Table 1,2024-10-01T10:05:00,\"needs a comma, so it is quoted\",false\r\n"
+                + second.getId() + ",second@ucsb.edu,team2,Table 2,2024-10-01T09:00:00,plain,true\r\n", csv);
+    }
 }
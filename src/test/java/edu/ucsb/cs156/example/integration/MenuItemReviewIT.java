@@ -17,6 +17,9 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -25,13 +28,21 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -49,6 +60,15 @@ public class MenuItemReviewIT {
         @Autowired
         MenuItemReviewRepository menuItemReviewRepository;
 
+        @Autowired
+        MenuItemRatingRepository menuItemRatingRepository;
+
+        @Autowired
+        MenuItemRatingService menuItemRatingService;
+
+        @Autowired
+        PlatformTransactionManager transactionManager;
+
         @Autowired
         public MockMvc mockMvc;
 
@@ -83,4 +103,66 @@ public class MenuItemReviewIT {
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void test_that_all_reviews_are_streamed_in_id_order() throws Exception {
+                // arrange
+                LocalDateTime ldt = LocalDateTime.parse("2022-01-03T00:00:00");
+                List<MenuItemReview> reviews = new ArrayList<>();
+                for (int i = 1; i <= 3; i++) {
+                        reviews.add(menuItemReviewRepository.save(MenuItemReview.builder()
+                                        .itemId(i)
+                                        .reviewerEmail("test@example.com")
+                                        .comments("review " + i)
+                                        .stars(i)
+                                        .dateReviewed(ldt)
+                                        .build()));
+                }
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreviews/all"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                String responseString = mockMvc.perform(asyncDispatch(response))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/json"))
+                                .andReturn().getResponse().getContentAsString();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(reviews), responseString);
+        }
+
+        @Test
+        public void test_that_concurrent_first_reviews_of_an_item_are_both_counted() throws Exception {
+                // arrange
+                TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                ExecutorService executor = Executors.newFixedThreadPool(2);
+
+                try {
+                        for (long itemId = 1; itemId <= 20; itemId++) {
+                                MenuItemReview review = MenuItemReview.builder().itemId(itemId).stars(4).build();
+                                CyclicBarrier barrier = new CyclicBarrier(2);
+
+                                // act: two transactions each add the first review of the same item
+                                List<Future<?>> writers = new ArrayList<>();
+                                for (int i = 0; i < 2; i++) {
+                                        writers.add(executor.submit(() -> {
+                                                barrier.await();
+                                                transaction.executeWithoutResult(status -> menuItemRatingService
+                                                                .reviewsChanged(List.of(review), List.of()));
+                                                return null;
+                                        }));
+                                }
+                                for (Future<?> writer : writers) {
+                                        writer.get();
+                                }
+
+                                // assert
+                                assertEquals(2, menuItemRatingRepository.findById(itemId).get().getReviewCount());
+                                assertEquals(8, menuItemRatingRepository.findById(itemId).get().getStarsSum());
+                        }
+                } finally {
+                        executor.shutdown();
+                }
+        }
+
 }
@@ -0,0 +1,183 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+
+import edu.ucsb.cs156.example.config.ReplicaLagMonitor;
+import edu.ucsb.cs156.example.config.SecurityConfig;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+
+/**
+ * Runs the app on two H2 databases, the second standing in for a read replica. Nothing
+ * replicates between them, so which one a request read from shows in what it returns.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+                "app.datasource.replica.url=jdbc:h2:mem:${random.uuid};DB_CLOSE_DELAY=-1",
+                "app.datasource.replica.migrate=true",
+                "app.datasource.replica.lag-query=SELECT 0",
+                "app.datasource.replica.lag-check-ms=10" })
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ReplicaIT {
+        @Autowired
+        RestaurantRepository restaurantRepository;
+
+        @Autowired
+        @Qualifier("replicaDataSource")
+        DataSource replicaDataSource;
+
+        @Autowired
+        ReplicaLagMonitor replicaLagMonitor;
+
+        @Autowired
+        public MockMvc mockMvc;
+
+        @Autowired
+        public ObjectMapper mapper;
+
+        @Autowired
+        UserRepository userRepository;
+
+        @Autowired
+        SecurityConfig securityConfig;
+
+        private void waitForReplica() throws InterruptedException {
+                for (int i = 0; i < 500 && !replicaLagMonitor.isReplicaUsable(); i++) {
+                        Thread.sleep(10);
+                }
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void read_only_requests_read_from_the_replica_and_writes_go_to_the_primary() throws Exception {
+                // arrange
+                waitForReplica();
+                Restaurant restaurant = restaurantRepository.save(Restaurant.builder()
+                                .name("Taco Bell")
+                                .description("Mexican")
+                                .build());
+
+                // act and assert: getById is read-only, so the row is not found on the replica
+                mockMvc.perform(get("/api/restaurants?id=" + restaurant.getId()))
+                                .andExpect(status().isNotFound());
+
+                // until it is copied there
+                new JdbcTemplate(replicaDataSource).update(
+                                "INSERT INTO restaurants (id, name, description) VALUES (?, ?, ?)",
+                                restaurant.getId(), "Taco Bell (replica)", "Mexican");
+                MvcResult response = mockMvc.perform(get("/api/restaurants?id=" + restaurant.getId()))
+                                .andExpect(status().isOk()).andReturn();
+                assertEquals("Taco Bell (replica)",
+                                mapper.readValue(response.getResponse().getContentAsString(), Restaurant.class).getName());
+
+                // /all is not read-only (its ETag describes the primary), so it reads the primary
+                MvcResult all = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk()).andReturn();
+                assertEquals(mapper.writeValueAsString(List.of(restaurant)),
+                                all.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void writes_find_the_row_they_change_on_the_primary() throws Exception {
+                // arrange: the row exists only on the primary
+                waitForReplica();
+                Restaurant restaurant = restaurantRepository.save(Restaurant.builder()
+                                .name("Taco Bell")
+                                .description("Mexican")
+                                .build());
+                Restaurant edited = Restaurant.builder()
+                                .id(restaurant.getId())
+                                .name("Taco Bell Cantina")
+                                .description("Mexican")
+                                .build();
+
+                // act and assert: the update looks the row up in its own (read-write) transaction
+                mockMvc.perform(put("/api/restaurants?id=" + restaurant.getId())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(edited))
+                                .with(csrf()))
+                                .andExpect(status().isOk());
+                MvcResult all = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk()).andReturn();
+                assertEquals(mapper.writeValueAsString(List.of(edited)), all.getResponse().getContentAsString());
+
+                // and so does the delete
+                mockMvc.perform(delete("/api/restaurants?id=" + restaurant.getId()).with(csrf()))
+                                .andExpect(status().isOk());
+                all = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk()).andReturn();
+                assertEquals("[]", all.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_quarter_evicted_by_a_write_is_reloaded_from_the_primary() throws Exception {
+                // arrange: the quarter is cached while it is empty
+                waitForReplica();
+                mockMvc.perform(get("/api/ucsbdates?quarter=20222"))
+                                .andExpect(status().isOk())
+                                .andExpect(content().json("[]"));
+
+                // act: the write evicts the quarter, and the replica does not have it
+                MvcResult posted = mockMvc.perform(post("/api/ucsbdates/post")
+                                .param("quarterYYYYQ", "20222")
+                                .param("name", "firstDayOfClasses")
+                                .param("localDateTime", "2022-04-03T00:00:00")
+                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+                UCSBDate date = mapper.readValue(posted.getResponse().getContentAsString(), UCSBDate.class);
+
+                // assert: the quarter is reloaded from the primary, not cached empty again
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?quarter=20222"))
+                                .andExpect(status().isOk()).andReturn();
+                assertEquals(mapper.writeValueAsString(List.of(date)), response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void users_are_looked_up_on_the_primary() throws Exception {
+                // arrange: the user exists only on the primary
+                waitForReplica();
+                userRepository.save(User.builder().email("admin@ucsb.edu").admin(true).build());
+
+                // act and assert: both the login lookup and the (cached) admin check find them
+                assertTrue(userRepository.findByEmail("admin@ucsb.edu").isPresent());
+                assertTrue(securityConfig.getAdmin("admin@ucsb.edu"));
+        }
+}
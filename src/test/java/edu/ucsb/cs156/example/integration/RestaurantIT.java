@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -99,4 +100,30 @@ public class RestaurantIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void a_follower_of_the_change_feed_sees_a_new_restaurant() throws Exception {
+                // arrange
+                MvcResult feed = mockMvc.perform(get("/api/restaurants/changes"))
+                                .andExpect(request().asyncStarted()).andReturn();
+
+                // act
+                mockMvc.perform(post("/api/restaurants/post?name=Freebirds&description=Burritos").with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                Restaurant saved = restaurantRepository.findAll().iterator().next();
+                String insert = "event:insert\ndata:{\"id\":%d,\"entity\":%s}\n\n"
+                                .formatted(saved.getId(), mapper.writeValueAsString(saved));
+                long deadline = System.currentTimeMillis() + 5000;
+                while (!feed.getResponse().getContentAsString().endsWith(insert)
+                                && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(10);
+                }
+                String events = feed.getResponse().getContentAsString();
+                assertTrue(events.startsWith("id:"), events);
+                assertTrue(events.contains("event:reset\n"), events);
+                assertTrue(events.endsWith(insert), events);
+        }
 }
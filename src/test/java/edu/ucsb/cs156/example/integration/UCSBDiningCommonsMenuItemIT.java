@@ -20,10 +20,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonMenuItem;
+import edu.ucsb.cs156.example.models.ImportResult;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
@@ -31,6 +33,8 @@ import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
+import java.util.List;
+
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
@@ -78,4 +82,31 @@ public class UCSBDiningCommonsMenuItemIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_import_menu_items_from_ndjson() throws Exception {
+                // arrange
+                String ndjson = "{\"diningCommonsCode\":\"ortega\",\"name\":\"pasta\",\"station\":\"entree\"}\n"
+                                + "\n"
+                                + "{\"id\":17,\"diningCommonsCode\":\"carrillo\",\"name\":\"salad\",\"station\":\"greens\"}\n";
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/ucsbdiningcommonsmenuitem/import")
+                                                .contentType("application/x-ndjson")
+                                                .content(ndjson)
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                ImportResult result = mapper.readValue(response.getResponse().getContentAsString(), ImportResult.class);
+                assertEquals(2, result.getImported());
+                List<UCSBDiningCommonMenuItem> items = menuItemRepository.findAll();
+                assertEquals(List.of("pasta", "salad"), items.stream().map(UCSBDiningCommonMenuItem::getName).sorted().toList());
+                // the ids are generated by the database (from UCSBDININGCOMMONMENUITEM_SEQ), not taken from the file
+                List<Long> ids = items.stream().map(UCSBDiningCommonMenuItem::getId).distinct().toList();
+                assertEquals(2, ids.size());
+                assertFalse(ids.contains(17L));
+        }
 }
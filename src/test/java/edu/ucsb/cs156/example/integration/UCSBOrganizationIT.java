@@ -1,6 +1,7 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 // import static org.junit.jupiter.api.Assertions.fail;
 
 import org.junit.jupiter.api.Test;
@@ -10,6 +11,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -25,12 +27,16 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.models.ImportResult;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
+import java.util.List;
+import java.util.Map;
+
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -103,4 +109,182 @@ public class UCSBOrganizationIT {
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
     }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_import_orgs_from_csv() throws Exception {
+        // arrange
+        String csv = "orgCode,orgTranslationShort,orgTranslation,inactive\r\n"
+            + "csu,CSU,\"UCSB Chinese Student Union, Santa Barbara\",false\r\n"
+            + "osli,STUDENT LIFE,OFFICE OF STUDENT LIFE,\r\n";
+
+        // act
+        MvcResult response = mockMvc.perform(
+            post("/api/ucsborganizations/import")
+                .contentType("text/csv")
+                .content(csv)
+                .with(csrf()))
+            .andExpect(status().isOk()).andReturn();
+
+        // assert
+        ImportResult result = mapper.readValue(response.getResponse().getContentAsString(), ImportResult.class);
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(), result.getErrors());
+        UCSBOrganizations csu = ucsbOrganizationsRepository.findById("csu").get();
+        assertEquals("UCSB Chinese Student Union, Santa Barbara", csu.getOrgTranslation());
+        assertFalse(csu.getInactive());
+        assertFalse(ucsbOrganizationsRepository.findById("osli").get().getInactive());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_import_with_an_invalid_row_imports_nothing() throws Exception {
+        // arrange
+        String csv = "orgCode,orgTranslationShort,orgTranslation\n"
+            + "csu,CSU,UCSB Chinese Student Union\n"
+            + "osli,,OFFICE OF STUDENT LIFE\n";
+
+        // act
+        MvcResult response = mockMvc.perform(
+            post("/api/ucsborganizations/import")
+                .contentType("text/csv")
+                .content(csv)
+                .with(csrf()))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        ImportResult result = mapper.readValue(response.getResponse().getContentAsString(), ImportResult.class);
+        assertEquals(0, result.getImported());
+        assertEquals(List.of(new ImportResult.RowError(3, "orgTranslationShort", "must not be blank")), result.getErrors());
+        assertEquals(0, ucsbOrganizationsRepository.count());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_import_of_an_org_that_already_exists_imports_nothing() throws Exception {
+        // arrange
+        ucsbOrganizationsRepository.save(UCSBOrganizations.builder()
+            .orgCode("csu")
+            .orgTranslationShort("CSU")
+            .orgTranslation("UCSB Chinese Student Union")
+            .inactive(false)
+            .build());
+        String csv = "orgCode,orgTranslationShort,orgTranslation\n"
+            + "osli,STUDENT LIFE,OFFICE OF STUDENT LIFE\n"
+            + "csu,CSU,UCSB Chinese Student Union\n";
+
+        // act
+        MvcResult response = mockMvc.perform(
+            post("/api/ucsborganizations/import")
+                .contentType("text/csv")
+                .content(csv)
+                .with(csrf()))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        ImportResult result = mapper.readValue(response.getResponse().getContentAsString(), ImportResult.class);
+        assertEquals(0, result.getImported());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(0, result.getErrors().get(0).getLine());
+        assertEquals(1, ucsbOrganizationsRepository.count());
+    }
+
+    private UCSBOrganizations csu() {
+        return UCSBOrganizations.builder()
+            .orgCode("csu")
+            .orgTranslationShort("CSU")
+            .orgTranslation("UCSB Chinese Student Union")
+            .inactive(false)
+            .build();
+    }
+
+    private void assertBadRequest(MvcResult response, String type, String message) throws Exception {
+        Map<String, Object> expected = Map.of("type", type, "message", message);
+        assertEquals(expected, mapper.readValue(response.getResponse().getContentAsString(), Map.class));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void posting_an_invalid_org_is_a_bad_request() throws Exception {
+        // act
+        MvcResult response = mockMvc.perform(
+            post("/api/ucsborganizations/post")
+                .param("orgCode", "csu")
+                .param("orgTranslationShort", " ")
+                .param("orgTranslation", "UCSB Chinese Student Union")
+                .param("inactive", "false")
+                .with(csrf()))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        assertBadRequest(response, "ConstraintViolationException", "orgTranslationShort must not be blank");
+        assertEquals(0, ucsbOrganizationsRepository.count());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void putting_an_invalid_org_is_a_bad_request() throws Exception {
+        // arrange
+        ucsbOrganizationsRepository.save(csu());
+        UCSBOrganizations edited = csu();
+        edited.setOrgTranslation("");
+
+        // act
+        MvcResult response = mockMvc.perform(
+            put("/api/ucsborganizations?orgCode=csu")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(edited))
+                .with(csrf()))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        assertBadRequest(response, "MethodArgumentNotValidException", "orgTranslation must not be blank");
+        assertEquals(csu(), ucsbOrganizationsRepository.findById("csu").get());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void posting_a_batch_with_an_invalid_org_is_a_bad_request() throws Exception {
+        // arrange
+        UCSBOrganizations osli = UCSBOrganizations.builder()
+            .orgCode("osli")
+            .orgTranslation("OFFICE OF STUDENT LIFE")
+            .inactive(false)
+            .build();
+
+        // act
+        MvcResult response = mockMvc.perform(
+            post("/api/ucsborganizations/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(List.of(csu(), osli)))
+                .with(csrf()))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        assertBadRequest(response, "ConstraintViolationException", "orgTranslationShort must not be blank");
+        assertEquals(0, ucsbOrganizationsRepository.count());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void putting_a_batch_with_an_invalid_org_is_a_bad_request() throws Exception {
+        // arrange
+        ucsbOrganizationsRepository.save(csu());
+        UCSBOrganizations edited = csu();
+        edited.setOrgTranslationShort("");
+        edited.setOrgTranslation("");
+
+        // act
+        MvcResult response = mockMvc.perform(
+            put("/api/ucsborganizations/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(List.of(edited)))
+                .with(csrf()))
+            .andExpect(status().isBadRequest()).andReturn();
+
+        // assert
+        assertBadRequest(response, "ConstraintViolationException",
+            "orgTranslation must not be blank, orgTranslationShort must not be blank");
+        assertEquals(csu(), ucsbOrganizationsRepository.findById("csu").get());
+    }
 }
@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.sql.DataSource;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"integration", "virtualthreads"})
+public class VirtualThreadsIT {
+        @MockBean
+        UserRepository userRepository;
+
+        @Autowired
+        ServletWebServerApplicationContext context;
+
+        @Autowired
+        @Qualifier("applicationTaskExecutor")
+        AsyncTaskExecutor applicationTaskExecutor;
+
+        @Autowired
+        DataSource dataSource;
+
+        @Test
+        public void tomcat_handles_requests_on_virtual_threads() {
+                TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+
+                assertInstanceOf(VirtualThreadExecutor.class,
+                                webServer.getTomcat().getConnector().getProtocolHandler().getExecutor());
+                assertEquals(10000, webServer.getTomcat().getConnector().getProperty("maxConnections"));
+        }
+
+        @Test
+        public void async_work_runs_on_virtual_threads() throws Exception {
+                CompletableFuture<Boolean> virtual = applicationTaskExecutor.submitCompletable(
+                                () -> Thread.currentThread().isVirtual());
+
+                assertTrue(virtual.get());
+        }
+
+        @Test
+        public void waiting_for_a_connection_times_out_later() throws Exception {
+                assertEquals(30000, dataSource.unwrap(HikariDataSource.class).getConnectionTimeout());
+        }
+}
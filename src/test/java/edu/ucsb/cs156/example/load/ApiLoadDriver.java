@@ -0,0 +1,420 @@
+package edu.ucsb.cs156.example.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.metrics.EndpointLatency;
+import edu.ucsb.cs156.example.metrics.EndpointLatencyRecorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * This is a load generator for the API. It logs in through the wiremock OAuth provider
+ * (see WiremockServiceImpl.setupOauthMocks), so it never touches Google, and then has a number
+ * of virtual users (one virtual thread and one session each) call the /api endpoints as fast as
+ * they can, with a configurable mix of reads and writes.
+ *
+ * Start the application with the wiremock profile first, e.g. {@code WIREMOCK=true mvn spring-boot:run},
+ * then run {@code mvn -P load test-compile exec:java}.
+ *
+ * It is configured with system properties:
+ * <ul>
+ *   <li>{@code load.base-url}: where the application is running (default http://localhost:8080)</li>
+ *   <li>{@code load.users}: number of concurrent virtual users (default 20)</li>
+ *   <li>{@code load.warmup-seconds}: how long to run before measuring (default 10)</li>
+ *   <li>{@code load.duration-seconds}: how long to measure (default 60)</li>
+ *   <li>{@code load.write-ratio}: fraction of operations that create and then delete a row, from 0.0 to 1.0 (default 0.1)</li>
+ *   <li>{@code load.endpoints}: regex; only endpoints such as "GET /api/restaurants/all" that it finds are called (default all)</li>
+ *   <li>{@code load.output}: CSV file the results are written to (default target/load-result.csv)</li>
+ * </ul>
+ *
+ * Throughput and latency percentiles are reported per endpoint, using the same
+ * EndpointLatencyRecorder as /actuator/latency, so the two can be compared directly.
+ */
+public class ApiLoadDriver {
+
+  private static final String LOGIN_PATH = "/oauth2/authorization/my-oauth-provider";
+  private static final String SOME_DATE = "2022-01-03T00:00:00";
+  private static final int MAX_REDIRECTS = 10;
+
+  /**
+   * An endpoint that is only read.
+   * @param name how it is reported, e.g. "GET /api/restaurants/all"
+   * @param pathAndQuery what is requested
+   */
+  record Read(String name, String pathAndQuery) {
+  }
+
+  /**
+   * A collection that is written to by creating a row with POST {path}/post and deleting it again
+   * with DELETE {path}?{key}=..., so the size of the tables stays the same during a run.
+   * @param path e.g. "/api/restaurants"
+   * @param key the property of the created row passed back to DELETE, e.g. "id"
+   * @param params the parameters of the i-th row created
+   */
+  record Write(String path, String key, IntFunction<Map<String, String>> params) {
+  }
+
+  static final List<Read> READS = List.of(
+      read("/api/currentUser"),
+      read("/api/systemInfo"),
+      read("/api/articles/all"),
+      read("/api/articles/page", "limit=100"),
+      read("/api/helprequest/all"),
+      read("/api/helprequest/page", "limit=100"),
+      read("/api/menuitemreviews/all"),
+      read("/api/menuitemreviews/ratings", "itemIds=1,2,3,4,5,6,7,8,9,10"),
+      read("/api/menuitemreviews/page", "limit=100"),
+      read("/api/recommendationrequest/all"),
+      read("/api/recommendationrequest/page", "limit=100"),
+      read("/api/restaurants/all"),
+      read("/api/restaurants/page", "limit=100"),
+      read("/api/ucsbdates/all"),
+      read("/api/ucsbdates", "quarter=20222"),
+      read("/api/ucsbdates/page", "limit=100"),
+      read("/api/ucsbdiningcommons/all"),
+      read("/api/ucsbdiningcommonsmenuitem/all"),
+      read("/api/ucsborganizations/all"));
+
+  static final List<Write> WRITES = List.of(
+      new Write("/api/articles", "id", i -> Map.of(
+          "title", "Load test " + i, "url", "https://example.org/" + i, "explanation", "load test",
+          "email", "cgaucho@ucsb.edu", "dateAdded", SOME_DATE)),
+      new Write("/api/helprequest", "id", i -> Map.of(
+          "requesterEmail", "cgaucho@ucsb.edu", "teamId", "load", "tableOrBreakoutRoom", "1",
+          "requestTime", SOME_DATE, "explanation", "load test " + i, "solved", "false")),
+      new Write("/api/menuitemreviews", "id", i -> Map.of(
+          "itemId", "1", "reviewerEmail", "cgaucho@ucsb.edu", "stars", String.valueOf(i % 5 + 1),
+          "dateReviewed", SOME_DATE, "comments", "load test " + i)),
+      new Write("/api/recommendationrequest", "id", i -> Map.of(
+          "requesterEmail", "cgaucho@ucsb.edu", "professorEmail", "prof@ucsb.edu", "explanation", "load test " + i,
+          "dateRequested", SOME_DATE, "dateNeeded", SOME_DATE, "done", "false")),
+      new Write("/api/restaurants", "id", i -> Map.of(
+          "name", "Load test " + i, "description", "load test")),
+      new Write("/api/ucsbdates", "id", i -> Map.of(
+          "quarterYYYYQ", "20222", "name", "load test " + i, "localDateTime", SOME_DATE)),
+      new Write("/api/ucsbdiningcommons", "code", i -> Map.of(
+          "code", "load" + i, "name", "Load test " + i, "hasSackMeal", "false", "hasTakeOutMeal", "false",
+          "hasDiningCam", "false", "latitude", "34.41", "longitude", "-119.84")),
+      new Write("/api/ucsbdiningcommonsmenuitem", "id", i -> Map.of(
+          "diningCommonsCode", "ortega", "name", "Load test " + i, "station", "load")),
+      new Write("/api/ucsborganizations", "orgCode", i -> Map.of(
+          "orgCode", "LOAD" + i, "orgTranslationShort", "Load " + i, "orgTranslation", "Load test " + i,
+          "inactive", "false")));
+
+  private final URI baseUrl;
+  private final HttpClient client = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(10))
+      .followRedirects(HttpClient.Redirect.NEVER)
+      .build();
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final EndpointLatencyRecorder recorder = new EndpointLatencyRecorder();
+  private final AtomicLong rowCounter = new AtomicLong(System.currentTimeMillis() % 1_000_000 * 1000);
+  private final List<Read> reads;
+  private final List<Write> writes;
+  private final double writeRatio;
+  private volatile boolean running = true;
+
+  /**
+   * Create a driver.
+   * @param baseUrl where the application is running
+   * @param endpoints only endpoints whose name matches this are called
+   * @param writeRatio fraction of operations that are writes
+   */
+  ApiLoadDriver(URI baseUrl, Pattern endpoints, double writeRatio) {
+    this.baseUrl = baseUrl;
+    this.reads = READS.stream().filter(r -> endpoints.matcher(r.name()).find()).toList();
+    this.writes = WRITES.stream()
+        .filter(w -> endpoints.matcher("POST " + w.path() + "/post").find()
+            || endpoints.matcher("DELETE " + w.path()).find())
+        .toList();
+    this.writeRatio = writes.isEmpty() ? 0 : reads.isEmpty() ? 1 : writeRatio;
+    if (reads.isEmpty() && writes.isEmpty()) {
+      throw new IllegalArgumentException("no endpoint matches " + endpoints);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    URI baseUrl = URI.create(System.getProperty("load.base-url", "http://localhost:8080"));
+    int users = Integer.getInteger("load.users", 20);
+    int warmupSeconds = Integer.getInteger("load.warmup-seconds", 10);
+    int durationSeconds = Integer.getInteger("load.duration-seconds", 60);
+    double writeRatio = Double.parseDouble(System.getProperty("load.write-ratio", "0.1"));
+    Pattern endpoints = Pattern.compile(System.getProperty("load.endpoints", ""));
+    Path output = Path.of(System.getProperty("load.output", "target/load-result.csv"));
+
+    ApiLoadDriver driver = new ApiLoadDriver(baseUrl, endpoints, writeRatio);
+    System.out.printf("Logging in %d users at %s through the wiremock OAuth provider%n", users, baseUrl);
+    List<Session> sessions = new ArrayList<>();
+    for (int i = 0; i < users; i++) {
+      sessions.add(driver.login());
+    }
+
+    System.out.printf("Warming up for %ds, then measuring for %ds (write ratio %.2f)%n",
+        warmupSeconds, durationSeconds, driver.writeRatio);
+    Map<String, EndpointLatency> results;
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      sessions.forEach(session -> executor.submit(() -> driver.run(session)));
+      Thread.sleep(warmupSeconds * 1000L);
+      driver.recorder.reset();
+      Thread.sleep(durationSeconds * 1000L);
+      results = driver.recorder.snapshot();
+      driver.running = false;
+    }
+
+    report(results, System.out);
+    if (output.getParent() != null) {
+      Files.createDirectories(output.getParent());
+    }
+    try (PrintStream csv = new PrintStream(Files.newOutputStream(output), false, StandardCharsets.UTF_8)) {
+      csv(results, csv);
+    }
+    System.out.println("Results written to " + output);
+  }
+
+  /**
+   * The cookies of one logged in user.
+   */
+  static class Session {
+    private final Map<String, String> cookies = new LinkedHashMap<>();
+
+    /**
+     * Remember the cookies set by a response.
+     * @param response the response
+     */
+    void update(HttpResponse<?> response) {
+      for (String header : response.headers().allValues("Set-Cookie")) {
+        String pair = header.split(";", 2)[0];
+        int eq = pair.indexOf('=');
+        if (eq > 0) {
+          cookies.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+        }
+      }
+    }
+
+    /**
+     * @return the value of the Cookie header to send
+     */
+    String cookieHeader() {
+      StringBuilder header = new StringBuilder();
+      cookies.forEach((name, value) -> header.append(header.isEmpty() ? "" : "; ").append(name).append('=').append(value));
+      return header.toString();
+    }
+
+    /**
+     * @return the CSRF token to send with writes (see SecurityConfig), or an empty string if there is none yet
+     */
+    String csrfToken() {
+      return cookies.getOrDefault("XSRF-TOKEN", "");
+    }
+  }
+
+  /**
+   * Log in the way a browser does: start the authorization code flow, submit the wiremock
+   * login form, and follow the redirects back to the application.
+   * @return a session that is logged in
+   * @throws IOException if any step fails
+   * @throws InterruptedException if interrupted
+   */
+  Session login() throws IOException, InterruptedException {
+    Session session = new Session();
+    HttpResponse<String> response = send(session, get(baseUrl.resolve(LOGIN_PATH)));
+    URI authorize = location(response);
+    response = send(session, get(authorize));
+    if (response.statusCode() != 200) {
+      throw new IOException("wiremock login page returned " + response.statusCode() + "; is the app running with the wiremock profile?");
+    }
+
+    Map<String, String> query = query(authorize);
+    Map<String, String> form = Map.of(
+        "state", query.get("state"),
+        "redirectUri", query.get("redirect_uri"),
+        "username", "admingaucho@ucsb.edu",
+        "password", "password");
+    response = send(session, HttpRequest.newBuilder(authorize.resolve("/login"))
+        .header("Content-Type", "application/x-www-form-urlencoded")
+        .POST(HttpRequest.BodyPublishers.ofString(encode(form))));
+
+    for (int i = 0; i < MAX_REDIRECTS && response.statusCode() / 100 == 3; i++) {
+      response = send(session, get(location(response)));
+    }
+
+    response = send(session, get(baseUrl.resolve("/api/currentUser")));
+    if (response.statusCode() != 200 || mapper.readTree(response.body()).path("user").isNull()) {
+      throw new IOException("login failed: /api/currentUser returned " + response.statusCode());
+    }
+    return session;
+  }
+
+  /**
+   * Call endpoints as one user until the run is over.
+   * @param session the logged in user
+   */
+  void run(Session session) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    while (running) {
+      if (random.nextDouble() < writeRatio) {
+        write(session, writes.get(random.nextInt(writes.size())));
+      } else {
+        Read read = reads.get(random.nextInt(reads.size()));
+        call(session, read.name(), get(baseUrl.resolve(read.pathAndQuery())));
+      }
+    }
+  }
+
+  /**
+   * Create a row and delete it again.
+   * @param session the logged in user
+   * @param write the collection to write to
+   */
+  private void write(Session session, Write write) {
+    int i = (int) rowCounter.incrementAndGet();
+    HttpResponse<String> created = call(session, "POST " + write.path() + "/post",
+        HttpRequest.newBuilder(baseUrl.resolve(write.path() + "/post?" + encode(write.params().apply(i))))
+            .POST(HttpRequest.BodyPublishers.noBody()));
+    if (created == null || created.statusCode() != 200) {
+      return;
+    }
+    String key;
+    try {
+      JsonNode row = mapper.readTree(created.body());
+      key = row.path(write.key()).asText();
+    } catch (IOException e) {
+      return;
+    }
+    call(session, "DELETE " + write.path(),
+        HttpRequest.newBuilder(baseUrl.resolve(write.path() + "?" + encode(Map.of(write.key(), key)))).DELETE());
+  }
+
+  /**
+   * Send a request and record how long it took.
+   * @param session the logged in user
+   * @param name the endpoint, as reported
+   * @param request the request
+   * @return the response, or null if the request could not be sent
+   */
+  private HttpResponse<String> call(Session session, String name, HttpRequest.Builder request) {
+    long start = System.nanoTime();
+    try {
+      HttpResponse<String> response = send(session, request);
+      recorder.record(name, System.nanoTime() - start, response.statusCode() >= 400);
+      return response;
+    } catch (IOException e) {
+      recorder.record(name, System.nanoTime() - start, true);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      running = false;
+      return null;
+    }
+  }
+
+  /**
+   * Send a request with the session's cookies and CSRF token, and remember the cookies it sets.
+   * @param session the user
+   * @param request the request
+   * @return the response
+   * @throws IOException if the request fails
+   * @throws InterruptedException if interrupted
+   */
+  private HttpResponse<String> send(Session session, HttpRequest.Builder request) throws IOException, InterruptedException {
+    String cookies = session.cookieHeader();
+    if (!cookies.isEmpty()) {
+      request.header("Cookie", cookies);
+    }
+    if (!session.csrfToken().isEmpty()) {
+      request.header("X-XSRF-TOKEN", session.csrfToken());
+    }
+    HttpResponse<String> response = client.send(request.timeout(Duration.ofSeconds(30)).build(),
+        HttpResponse.BodyHandlers.ofString());
+    session.update(response);
+    return response;
+  }
+
+  private static Read read(String path) {
+    return new Read("GET " + path, path);
+  }
+
+  private static Read read(String path, String query) {
+    return new Read("GET " + path, path + "?" + query);
+  }
+
+  private static HttpRequest.Builder get(URI uri) {
+    return HttpRequest.newBuilder(uri).GET();
+  }
+
+  private static URI location(HttpResponse<?> response) throws IOException {
+    return response.uri().resolve(response.headers().firstValue("Location")
+        .orElseThrow(() -> new IOException(response.uri() + " returned " + response.statusCode() + " instead of a redirect")));
+  }
+
+  private static Map<String, String> query(URI uri) {
+    Map<String, String> params = new LinkedHashMap<>();
+    for (String pair : uri.getRawQuery().split("&")) {
+      String[] parts = pair.split("=", 2);
+      params.put(URLDecoder.decode(parts[0], StandardCharsets.UTF_8),
+          parts.length > 1 ? URLDecoder.decode(parts[1], StandardCharsets.UTF_8) : "");
+    }
+    return params;
+  }
+
+  private static String encode(Map<String, String> params) {
+    StringBuilder encoded = new StringBuilder();
+    params.forEach((name, value) -> encoded.append(encoded.isEmpty() ? "" : "&")
+        .append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=')
+        .append(URLEncoder.encode(value, StandardCharsets.UTF_8)));
+    return encoded.toString();
+  }
+
+  /**
+   * Print the results as a table, latencies in milliseconds.
+   * @param results the results, keyed by endpoint
+   * @param out where to print them
+   */
+  static void report(Map<String, EndpointLatency> results, PrintStream out) {
+    out.printf("%n%-45s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+        "endpoint", "count", "errors", "req/s", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms");
+    long count = 0;
+    double rps = 0;
+    for (Map.Entry<String, EndpointLatency> e : results.entrySet()) {
+      EndpointLatency l = e.getValue();
+      out.printf("%-45s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", e.getKey(), l.getCount(), l.getErrors(),
+          l.getRequestsPerSecond(), l.getMean() / 1000, l.getP50() / 1000.0, l.getP95() / 1000.0,
+          l.getP99() / 1000.0, l.getMax() / 1000.0);
+      count += l.getCount();
+      rps += l.getRequestsPerSecond();
+    }
+    out.printf("%-45s %8d %7s %9.1f%n", "total", count, "", rps);
+  }
+
+  /**
+   * Write the results as CSV, latencies in microseconds.
+   * @param results the results, keyed by endpoint
+   * @param out where to write them
+   */
+  static void csv(Map<String, EndpointLatency> results, PrintStream out) {
+    out.println("endpoint,count,errors,requestsPerSecond,meanMicros,p50Micros,p95Micros,p99Micros,maxMicros");
+    results.forEach((endpoint, l) -> out.printf("%s,%d,%d,%.2f,%.1f,%d,%d,%d,%d%n", endpoint, l.getCount(),
+        l.getErrors(), l.getRequestsPerSecond(), l.getMean(), l.getP50(), l.getP95(), l.getP99(), l.getMax()));
+  }
+}
@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConnectionPoolCustomizerTests {
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+  private final MockEnvironment environment = new MockEnvironment();
+
+  private final PoolStats poolStats = new PoolStats(0) {
+    @Override
+    protected void update() {
+      totalConnections = 5;
+      activeConnections = 5;
+      idleConnections = 0;
+      pendingThreads = 3;
+      maxConnections = 5;
+    }
+  };
+
+  @SuppressWarnings("unchecked")
+  private ConnectionPoolCustomizer customizer(MeterRegistry meterRegistry, int cpus) {
+    ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+    when(provider.getIfAvailable()).thenReturn(meterRegistry);
+    return new ConnectionPoolCustomizer(provider, environment, 20, 100, cpus);
+  }
+
+  @Test
+  void test_pool_size_is_limited_by_cpus_and_by_expected_concurrency() {
+    assertEquals(9, ConnectionPoolCustomizer.poolSize(4, 20));
+    assertEquals(6, ConnectionPoolCustomizer.poolSize(16, 6));
+    assertEquals(2, ConnectionPoolCustomizer.poolSize(16, 1));
+  }
+
+  @Test
+  void test_hikari_data_sources_are_sized_from_the_cpus() {
+    HikariDataSource dataSource = new HikariDataSource();
+
+    Object result = customizer(registry, 2).postProcessBeforeInitialization(dataSource, "dataSource");
+
+    assertSame(dataSource, result);
+    assertEquals(5, dataSource.getMaximumPoolSize());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_default_customizer_uses_the_cpus_of_this_machine() {
+    HikariDataSource dataSource = new HikariDataSource();
+
+    new ConnectionPoolCustomizer(mock(ObjectProvider.class), environment, 20, 100).customize(dataSource);
+
+    assertEquals(ConnectionPoolCustomizer.poolSize(Runtime.getRuntime().availableProcessors(), 20),
+        dataSource.getMaximumPoolSize());
+  }
+
+  @Test
+  void test_an_explicit_pool_size_is_kept() {
+    environment.setProperty("spring.datasource.hikari.maximum-pool-size", "30");
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setMaximumPoolSize(30);
+
+    customizer(registry, 2).postProcessBeforeInitialization(dataSource, "dataSource");
+
+    assertEquals(30, dataSource.getMaximumPoolSize());
+  }
+
+  @Test
+  void test_other_beans_are_left_alone() {
+    Object bean = new Object();
+    assertSame(bean, customizer(registry, 2).postProcessBeforeInitialization(bean, "other"));
+  }
+
+  @Test
+  void test_pool_metrics_are_published_to_the_meter_registry() {
+    HikariDataSource dataSource = new HikariDataSource();
+    customizer(registry, 2).customize(dataSource);
+
+    IMetricsTracker tracker = dataSource.getMetricsTrackerFactory().create("postgres", poolStats);
+    tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(5));
+    tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(250));
+    tracker.recordConnectionUsageMillis(20);
+    tracker.recordConnectionCreatedMillis(30);
+    tracker.recordConnectionTimeout();
+
+    assertEquals(2, registry.get("hikaricp.connections.acquire").tag("pool", "postgres").timer().count());
+    assertEquals(1, registry.get("hikaricp.connections.usage").timer().count());
+    assertEquals(1, registry.get("hikaricp.connections.creation").timer().count());
+    assertEquals(1, registry.get("hikaricp.connections.timeout").counter().count());
+    assertEquals(3, registry.get("hikaricp.connections.pending").gauge().value());
+
+    tracker.close();
+    assertEquals(0, registry.find("hikaricp.connections.acquire").timers().size());
+  }
+
+  @Test
+  void test_without_a_meter_registry_only_slow_acquisitions_are_tracked() {
+    HikariDataSource dataSource = new HikariDataSource();
+    customizer(null, 2).customize(dataSource);
+
+    IMetricsTracker tracker = dataSource.getMetricsTrackerFactory().create("postgres", poolStats);
+    tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(250));
+    tracker.close();
+
+    assertEquals(0, registry.getMeters().size());
+  }
+
+  @Test
+  void test_slow_acquire_tracker_forwards_every_event() {
+    IMetricsTracker delegate = mock(IMetricsTracker.class);
+    IMetricsTracker tracker = new ConnectionPoolCustomizer.SlowAcquireTracker(delegate, "postgres", poolStats,
+        TimeUnit.MILLISECONDS.toNanos(100));
+
+    tracker.recordConnectionAcquiredNanos(1000);
+    tracker.recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(100));
+
+    verify(delegate).recordConnectionAcquiredNanos(1000);
+    verify(delegate).recordConnectionAcquiredNanos(TimeUnit.MILLISECONDS.toNanos(100));
+  }
+}
@@ -0,0 +1,57 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+
+class DataSourceProxyPostProcessorTests {
+
+  private final QueryStatsRecorder recorder = new QueryStatsRecorder();
+  private final DataSourceProxyPostProcessor postProcessor;
+
+  @SuppressWarnings("unchecked")
+  DataSourceProxyPostProcessorTests() {
+    ObjectProvider<QueryStatsRecorder> provider = mock(ObjectProvider.class);
+    when(provider.getObject()).thenReturn(recorder);
+    postProcessor = new DataSourceProxyPostProcessor(provider);
+  }
+
+  @Test
+  void test_data_sources_are_wrapped_and_report_each_statement() throws Exception {
+    DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:proxytest", "sa", "");
+
+    Object wrapped = postProcessor.postProcessAfterInitialization(dataSource, "dataSource");
+
+    assertInstanceOf(ProxyDataSource.class, wrapped);
+    try (Connection connection = ((DataSource) wrapped).getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("select 1");
+    }
+    assertEquals(1, recorder.snapshot().get("select ?").getCount());
+  }
+
+  @Test
+  void test_proxies_and_other_beans_are_left_alone() {
+    ProxyDataSource proxy = new ProxyDataSource();
+    LazyConnectionDataSourceProxy delegating = new LazyConnectionDataSourceProxy(proxy);
+    Object bean = new Object();
+
+    assertSame(proxy, postProcessor.postProcessAfterInitialization(proxy, "proxy"));
+    assertSame(delegating, postProcessor.postProcessAfterInitialization(delegating, "delegating"));
+    assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "other"));
+  }
+}
@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class EndpointLatencyEndpointTests {
+
+  private final EndpointLatencyEndpoint endpoint = new EndpointLatencyEndpoint();
+
+  EndpointLatencyEndpointTests() {
+    endpoint.recorder = mock(EndpointLatencyRecorder.class);
+  }
+
+  @Test
+  void test_latency_returns_recorder_snapshot() {
+    Map<String, EndpointLatency> snapshot = Map.of("GET /api/ucsbdates/all",
+        EndpointLatency.builder().count(1).build());
+    when(endpoint.recorder.snapshot()).thenReturn(snapshot);
+
+    assertEquals(snapshot, endpoint.latency());
+  }
+
+  @Test
+  void test_reset_resets_recorder() {
+    endpoint.reset();
+    verify(endpoint.recorder).reset();
+  }
+}
@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class EndpointLatencyRecorderTests {
+
+  private final Clock clock = mock(Clock.class);
+
+  @Test
+  void test_snapshot_summarizes_each_endpoint() {
+    when(clock.millis()).thenReturn(0L, 2_000L);
+    EndpointLatencyRecorder recorder = new EndpointLatencyRecorder(clock);
+
+    recorder.record("GET /api/ucsbdates/all", 10_000, false);
+    recorder.record("GET /api/ucsbdates/all", 30_000, true);
+    recorder.record("DELETE /api/ucsbdates", 5_000, false);
+
+    Map<String, EndpointLatency> snapshot = recorder.snapshot();
+
+    assertEquals(List.of("DELETE /api/ucsbdates", "GET /api/ucsbdates/all"), List.copyOf(snapshot.keySet()));
+    EndpointLatency expected = EndpointLatency.builder()
+        .count(2)
+        .errors(1)
+        .requestsPerSecond(1.0)
+        .mean(20.0)
+        .p50(10)
+        .p95(30)
+        .p99(30)
+        .max(30)
+        .build();
+    assertEquals(expected, snapshot.get("GET /api/ucsbdates/all"));
+    assertEquals(0, snapshot.get("DELETE /api/ucsbdates").getErrors());
+  }
+
+  @Test
+  void test_reset_discards_everything() {
+    when(clock.millis()).thenReturn(0L, 1_000L, 1_000L);
+    EndpointLatencyRecorder recorder = new EndpointLatencyRecorder(clock);
+    recorder.record("GET /api/ucsbdates/all", 10_000, false);
+
+    recorder.reset();
+
+    assertTrue(recorder.snapshot().isEmpty());
+  }
+
+  @Test
+  void test_default_constructor_uses_system_clock() {
+    EndpointLatencyRecorder recorder = new EndpointLatencyRecorder();
+    recorder.record("GET /api/ucsbdates/all", 1_000, false);
+    assertEquals(1, recorder.snapshot().get("GET /api/ucsbdates/all").getCount());
+  }
+}
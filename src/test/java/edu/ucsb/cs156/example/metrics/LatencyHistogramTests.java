@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTests {
+
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  @Test
+  void test_empty_histogram_reports_zeros() {
+    assertEquals(0, histogram.getCount());
+    assertEquals(0.0, histogram.getMean());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(50));
+  }
+
+  @Test
+  void test_small_values_are_exact() {
+    histogram.record(3);
+    histogram.record(7);
+    histogram.record(20);
+
+    assertEquals(3, histogram.getCount());
+    assertEquals(10.0, histogram.getMean());
+    assertEquals(20, histogram.getMax());
+    assertEquals(3, histogram.getPercentile(0));
+    assertEquals(7, histogram.getPercentile(50));
+    assertEquals(20, histogram.getPercentile(100));
+  }
+
+  @Test
+  void test_percentiles_of_uniform_values_are_within_three_percent() {
+    for (long i = 1; i <= 10_000; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(10_000, histogram.getCount());
+    assertEquals(5000.5, histogram.getMean());
+    assertEquals(10_000, histogram.getMax());
+    assertWithin(5_000, histogram.getPercentile(50));
+    assertWithin(9_500, histogram.getPercentile(95));
+    assertWithin(9_900, histogram.getPercentile(99));
+    assertEquals(10_000, histogram.getPercentile(100));
+  }
+
+  @Test
+  void test_percentile_never_exceeds_max() {
+    histogram.record(1_000);
+    assertEquals(1_000, histogram.getPercentile(99));
+  }
+
+  @Test
+  void test_negative_values_are_recorded_as_zero() {
+    histogram.record(-5);
+    assertEquals(1, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(100));
+  }
+
+  @Test
+  void test_huge_values_are_clamped() {
+    histogram.record(Long.MAX_VALUE);
+    assertEquals((1L << 41) - 1, histogram.getMax());
+    assertEquals((1L << 41) - 1, histogram.getPercentile(50));
+  }
+
+  @Test
+  void test_bucket_bounds_are_consistent() {
+    for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 65, 1_000, 123_456_789L, (1L << 41) - 1}) {
+      int index = LatencyHistogram.bucketIndex(value);
+      long upper = LatencyHistogram.bucketUpperBound(index);
+      assertTrue(value <= upper, "value " + value + " above its bucket bound " + upper);
+      assertEquals(index + 1, LatencyHistogram.bucketIndex(upper + 1), "bucket after " + value);
+    }
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(Math.abs(actual - expected) <= expected * 0.03,
+        "expected about " + expected + " but was " + actual);
+  }
+}
@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class QueryStatsEndpointTests {
+
+  private final QueryStatsEndpoint endpoint = new QueryStatsEndpoint();
+
+  QueryStatsEndpointTests() {
+    endpoint.recorder = mock(QueryStatsRecorder.class);
+  }
+
+  @Test
+  void test_queries_returns_recorder_snapshot() {
+    Map<String, QueryStats> snapshot = Map.of("select * from restaurants",
+        QueryStats.builder().count(1).build());
+    when(endpoint.recorder.snapshot()).thenReturn(snapshot);
+
+    assertEquals(snapshot, endpoint.queries());
+  }
+
+  @Test
+  void test_reset_resets_recorder() {
+    endpoint.reset();
+    verify(endpoint.recorder).reset();
+  }
+}
@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+
+class QueryStatsRecorderTests {
+
+  private final QueryStatsRecorder recorder = new QueryStatsRecorder();
+
+  @Test
+  void test_normalize_collapses_literals_in_lists_and_whitespace() {
+    assertEquals("select * from ucsbdates where quarteryyyyq=? and name=?",
+        QueryStatsRecorder.normalize("select *\n  from ucsbdates where quarteryyyyq='20221' and name='it''s'"));
+    assertEquals("select r1_0.stars1 from menuitemreview r1_0 where r1_0.item_id in (?) limit ?",
+        QueryStatsRecorder.normalize("select r1_0.stars1 from menuitemreview r1_0 where r1_0.item_id in (?,?, ?) limit 10"));
+    assertEquals("update t set x=x+? where id=?", QueryStatsRecorder.normalize("update t set x=x+1.5 where id=?"));
+  }
+
+  @Test
+  void test_record_aggregates_by_shape() {
+    recorder.record("select * from restaurants where id in (?,?)", 10);
+    recorder.record("select * from restaurants where id in (?,?,?)", 30);
+    recorder.record("select * from articles", 5);
+
+    Map<String, QueryStats> snapshot = recorder.snapshot();
+
+    assertEquals(List.of("select * from restaurants where id in (?)", "select * from articles"),
+        List.copyOf(snapshot.keySet()));
+    QueryStats restaurants = snapshot.get("select * from restaurants where id in (?)");
+    assertEquals(2, restaurants.getCount());
+    assertEquals(40, restaurants.getTotalMillis());
+    assertEquals(20.0, restaurants.getMeanMillis());
+    assertEquals(30, restaurants.getMaxMillis());
+    assertEquals(0, restaurants.getSlow());
+  }
+
+  @Test
+  void test_snapshot_breaks_ties_by_shape() {
+    recorder.record("select b", 5);
+    recorder.record("select a", 5);
+
+    assertEquals(List.of("select a", "select b"), List.copyOf(recorder.snapshot().keySet()));
+  }
+
+  @Test
+  void test_slow_queries_are_counted() {
+    recorder.slowQueryMillis = 100;
+    recorder.record("select * from restaurants", 99);
+    recorder.record("select * from restaurants", 100);
+
+    assertEquals(1, recorder.snapshot().get("select * from restaurants").getSlow());
+  }
+
+  @Test
+  void test_shapes_beyond_the_limit_are_counted_together() {
+    for (int i = 0; i < QueryStatsRecorder.MAX_SHAPES + 5; i++) {
+      recorder.record("select * from table" + i, 1);
+    }
+    recorder.record("select * from table0", 1);
+
+    Map<String, QueryStats> snapshot = recorder.snapshot();
+    assertEquals(QueryStatsRecorder.MAX_SHAPES + 1, snapshot.size());
+    assertEquals(5, snapshot.get(QueryStatsRecorder.OTHER).getCount());
+    assertEquals(2, snapshot.get("select * from table0").getCount());
+  }
+
+  @Test
+  void test_reset_discards_everything() {
+    recorder.record("select * from restaurants", 1);
+    recorder.reset();
+    assertTrue(recorder.snapshot().isEmpty());
+  }
+
+  @Test
+  void test_listener_records_each_execution() {
+    ExecutionInfo execution = new ExecutionInfo();
+    execution.setElapsedTime(7);
+    recorder.beforeQuery(execution, List.of(new QueryInfo("insert into t values (?)")));
+    recorder.afterQuery(execution, List.of(new QueryInfo("insert into t values (?)"), new QueryInfo("delete from t")));
+
+    QueryStats stats = recorder.snapshot().get("insert into t values (?); delete from t");
+    assertEquals(1, stats.getCount());
+    assertEquals(7, stats.getTotalMillis());
+  }
+}
@@ -0,0 +1,189 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.errors.InvalidQueryException;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+@SuppressWarnings({ "unchecked", "rawtypes" })
+class ListQueryTests {
+
+  private final ListQuery<HelpRequest> helpRequests = ListQuery.of(HelpRequest.class,
+      List.of("solved", "teamId", "requestTime"), List.of("id", "requestTime", "teamId"));
+  private final ListQuery<MenuItemReview> reviews = ListQuery.of(MenuItemReview.class,
+      List.of("stars", "itemId"), List.of("id"));
+
+  private final Root root = mock(Root.class);
+  private final CriteriaQuery query = mock(CriteriaQuery.class);
+  private final CriteriaBuilder cb = mock(CriteriaBuilder.class);
+  private final Path path = mock(Path.class);
+  private final Predicate predicate = mock(Predicate.class);
+
+  private Predicate toPredicate(Specification<?> spec, String field) {
+    when(root.get(field)).thenReturn(path);
+    return spec.toPredicate(root, query, cb);
+  }
+
+  @Test
+  void test_no_filter_is_null() {
+    assertNull(helpRequests.filter(null));
+    assertNull(helpRequests.filter(Collections.emptyList()));
+  }
+
+  @Test
+  void test_equals_boolean() {
+    when(cb.equal(path, true)).thenReturn(predicate);
+
+    assertSame(predicate, toPredicate(helpRequests.filter(List.of("solved:true")), "solved"));
+  }
+
+  @Test
+  void test_equals_string() {
+    when(cb.equal(path, "s22-5pm-3")).thenReturn(predicate);
+
+    assertSame(predicate, toPredicate(helpRequests.filter(List.of(" teamId:s22-5pm-3 ")), "teamId"));
+  }
+
+  @Test
+  void test_not_equals() {
+    when(cb.notEqual(path, false)).thenReturn(predicate);
+
+    assertSame(predicate, toPredicate(helpRequests.filter(List.of("solved:!false")), "solved"));
+  }
+
+  @Test
+  void test_in() {
+    when(path.in(List.of(3, 4, 5))).thenReturn(predicate);
+
+    assertSame(predicate, toPredicate(reviews.filter(List.of("stars:3|4|5")), "stars"));
+  }
+
+  @Test
+  void test_ranges() {
+    LocalDateTime date = LocalDateTime.parse("2024-10-01T00:00:00");
+    when(cb.greaterThanOrEqualTo(path, date)).thenReturn(predicate);
+    assertSame(predicate, toPredicate(helpRequests.filter(List.of("requestTime:>=2024-10-01T00:00:00")), "requestTime"));
+
+    when(cb.lessThanOrEqualTo(path, 7L)).thenReturn(predicate);
+    assertSame(predicate, toPredicate(reviews.filter(List.of("itemId:<=7")), "itemId"));
+
+    when(cb.greaterThan(path, 2)).thenReturn(predicate);
+    assertSame(predicate, toPredicate(reviews.filter(List.of("stars:>2")), "stars"));
+
+    when(cb.lessThan(path, 4)).thenReturn(predicate);
+    assertSame(predicate, toPredicate(reviews.filter(List.of("stars:<4")), "stars"));
+  }
+
+  @Test
+  void test_clauses_are_combined_with_and() {
+    Path teamId = mock(Path.class);
+    Predicate solvedPredicate = mock(Predicate.class);
+    Predicate teamPredicate = mock(Predicate.class);
+    when(root.get("solved")).thenReturn(path);
+    when(root.get("teamId")).thenReturn(teamId);
+    when(cb.equal(path, false)).thenReturn(solvedPredicate);
+    when(cb.equal(teamId, "t1")).thenReturn(teamPredicate);
+    when(cb.and(solvedPredicate, teamPredicate)).thenReturn(predicate);
+
+    Specification<HelpRequest> spec = helpRequests.filter(List.of("solved:false", "teamId:t1"));
+
+    assertSame(predicate, spec.toPredicate(root, query, cb));
+    verify(cb).and(solvedPredicate, teamPredicate);
+  }
+
+  @Test
+  void test_too_many_clauses() {
+    List<String> clauses = Collections.nCopies(ListQuery.MAX_CLAUSES + 1, "solved:true");
+
+    InvalidQueryException e = assertThrows(InvalidQueryException.class, () -> helpRequests.filter(clauses));
+    assertEquals("filter has 11 clauses; at most 10 are allowed", e.getMessage());
+  }
+
+  @Test
+  void test_malformed_clause() {
+    InvalidQueryException e = assertThrows(InvalidQueryException.class, () -> helpRequests.filter(List.of("solved")));
+    assertEquals("filter clause 'solved' is not of the form field:value", e.getMessage());
+
+    assertThrows(InvalidQueryException.class, () -> helpRequests.filter(List.of(":true")));
+  }
+
+  @Test
+  void test_field_that_cannot_be_filtered() {
+    InvalidQueryException e = assertThrows(InvalidQueryException.class,
+        () -> helpRequests.filter(List.of("explanation:help")));
+    assertEquals("cannot filter on 'explanation'; filterable fields are [solved, teamId, requestTime]", e.getMessage());
+  }
+
+  @Test
+  void test_range_on_field_that_cannot_be_compared() {
+    InvalidQueryException e = assertThrows(InvalidQueryException.class, () -> helpRequests.filter(List.of("teamId:>a")));
+    assertEquals("'teamId' cannot be compared with >", e.getMessage());
+  }
+
+  @Test
+  void test_invalid_values() {
+    InvalidQueryException e = assertThrows(InvalidQueryException.class, () -> helpRequests.filter(List.of("solved:yes")));
+    assertEquals("'yes' is not a valid value for solved", e.getMessage());
+
+    assertThrows(InvalidQueryException.class, () -> reviews.filter(List.of("stars:five")));
+    assertThrows(InvalidQueryException.class, () -> reviews.filter(List.of("itemId:<seven")));
+    assertThrows(InvalidQueryException.class, () -> helpRequests.filter(List.of("requestTime:>yesterday")));
+  }
+
+  @Test
+  void test_no_sort_is_unsorted() {
+    assertEquals(Sort.unsorted(), helpRequests.sort(null));
+    assertEquals(Sort.unsorted(), helpRequests.sort(" "));
+  }
+
+  @Test
+  void test_sort_appends_id_as_tie_breaker() {
+    assertEquals(Sort.by(Sort.Order.desc("requestTime"), Sort.Order.asc("teamId"), Sort.Order.asc("id")),
+        helpRequests.sort("-requestTime, teamId"));
+  }
+
+  @Test
+  void test_sort_by_id_is_not_repeated() {
+    assertEquals(Sort.by(Sort.Order.desc("id")), helpRequests.sort("-id"));
+  }
+
+  @Test
+  void test_field_that_cannot_be_sorted() {
+    InvalidQueryException e = assertThrows(InvalidQueryException.class, () -> reviews.sort("-stars"));
+    assertEquals("cannot sort on 'stars'; sortable fields are [id]", e.getMessage());
+  }
+
+  @Test
+  void test_fields_must_exist_and_have_a_supported_type() {
+    IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+        () -> ListQuery.of(HelpRequest.class, List.of("nope"), List.of()));
+    assertEquals("HelpRequest has no field nope", missing.getMessage());
+
+    assertThrows(IllegalArgumentException.class, () -> ListQuery.of(HelpRequest.class, List.of(), List.of("nope")));
+
+    IllegalArgumentException unsupported = assertThrows(IllegalArgumentException.class,
+        () -> ListQuery.of(UCSBDiningCommons.class, List.of("latitude"), List.of()));
+    assertEquals("cannot filter on UCSBDiningCommons.latitude of type Double", unsupported.getMessage());
+  }
+}
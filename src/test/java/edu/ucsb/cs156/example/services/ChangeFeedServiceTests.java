@@ -0,0 +1,279 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.models.BatchItemResult;
+
+class ChangeFeedServiceTests {
+
+  private final ExecutorService sender = Executors.newSingleThreadExecutor();
+  private final Queue<SseEmitter> emitters = new ArrayDeque<>();
+  private final ChangeFeedService changeFeedService =
+      new ChangeFeedService(new ObjectMapper(), 3, "run1", sender, emitters::remove);
+
+  private final Restaurant restaurant = Restaurant.builder().id(7L).name("Freebirds").description("Burritos").build();
+
+  @AfterEach
+  void stopSender() {
+    sender.shutdownNow();
+  }
+
+  private SseEmitter subscribe(Class<?> table, String lastEventId, String after) throws Exception {
+    SseEmitter emitter = mock(SseEmitter.class);
+    emitters.add(emitter);
+    changeFeedService.subscribe(table, lastEventId, after);
+    waitForSender();
+    return emitter;
+  }
+
+  private void waitForSender() throws Exception {
+    sender.submit(() -> { }).get();
+  }
+
+  private List<String> sentTo(SseEmitter emitter, int count) throws IOException {
+    ArgumentCaptor<SseEventBuilder> captor = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, times(count)).send(captor.capture());
+    return captor.getAllValues().stream().map(this::text).toList();
+  }
+
+  private String text(SseEventBuilder event) {
+    StringBuilder text = new StringBuilder();
+    event.build().forEach(part -> text.append(part.getData()));
+    return text.toString();
+  }
+
+  @Test
+  void test_new_subscriber_starts_with_a_reset() throws Exception {
+    SseEmitter emitter = subscribe(Restaurant.class, null, null);
+
+    assertEquals(List.of("id:run1-0\nevent:reset\ndata:{}\n\n"), sentTo(emitter, 1));
+    assertEquals(1, changeFeedService.getSubscriberCount(Restaurant.class));
+  }
+
+  @Test
+  void test_changes_are_sent_to_subscribers_of_their_table() throws Exception {
+    SseEmitter restaurants = subscribe(Restaurant.class, null, null);
+    SseEmitter organizations = subscribe(UCSBOrganizations.class, null, null);
+
+    changeFeedService.inserted(Restaurant.class, 7L, restaurant);
+    changeFeedService.updated(Restaurant.class, 7L, Restaurant.builder().id(7L).name("Freebirds!").description("Burritos").build());
+    changeFeedService.deleted(Restaurant.class, 7L);
+    waitForSender();
+
+    assertEquals(List.of(
+        "id:run1-0\nevent:reset\ndata:{}\n\n",
+        "id:run1-1\nevent:insert\ndata:{\"id\":7,\"entity\":{\"id\":7,\"name\":\"Freebirds\",\"description\":\"Burritos\"}}\n\n",
+        "id:run1-2\nevent:update\ndata:{\"id\":7,\"entity\":{\"id\":7,\"name\":\"Freebirds!\",\"description\":\"Burritos\"}}\n\n",
+        "id:run1-3\nevent:delete\ndata:{\"id\":7}\n\n"),
+        sentTo(restaurants, 4));
+    assertEquals(1, sentTo(organizations, 1).size());
+  }
+
+  @Test
+  void test_changes_wait_for_the_transaction_to_commit() throws Exception {
+    SseEmitter emitter = subscribe(Restaurant.class, null, null);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      changeFeedService.inserted(Restaurant.class, 7L, restaurant);
+      waitForSender();
+      sentTo(emitter, 1);
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    waitForSender();
+
+    sentTo(emitter, 2);
+  }
+
+  @Test
+  void test_subscriber_resumes_after_the_last_event_it_saw() throws Exception {
+    changeFeedService.inserted(Restaurant.class, 1L, Restaurant.builder().id(1L).build());
+    changeFeedService.inserted(Restaurant.class, 2L, Restaurant.builder().id(2L).build());
+    changeFeedService.deleted(Restaurant.class, 1L);
+
+    SseEmitter fromHeader = subscribe(Restaurant.class, "run1-1", "run1-0");
+    SseEmitter fromParameter = subscribe(Restaurant.class, null, "run1-2");
+    SseEmitter upToDate = subscribe(Restaurant.class, "run1-3", null);
+
+    assertEquals(List.of(
+        "id:run1-2\nevent:insert\ndata:{\"id\":2,\"entity\":{\"id\":2,\"name\":null,\"description\":null}}\n\n",
+        "id:run1-3\nevent:delete\ndata:{\"id\":1}\n\n"),
+        sentTo(fromHeader, 2));
+    assertEquals(List.of("id:run1-3\nevent:delete\ndata:{\"id\":1}\n\n"), sentTo(fromParameter, 1));
+    sentTo(upToDate, 0);
+    assertEquals(3, changeFeedService.getSubscriberCount(Restaurant.class));
+  }
+
+  @Test
+  void test_subscriber_too_far_behind_or_from_another_run_gets_a_reset() throws Exception {
+    for (long id = 1; id <= 5; id++) {
+      changeFeedService.deleted(Restaurant.class, id);
+    }
+
+    // only changes 3, 4 and 5 are still in the buffer
+    SseEmitter oldest = subscribe(Restaurant.class, "run1-2", null);
+    SseEmitter tooOld = subscribe(Restaurant.class, "run1-1", null);
+    SseEmitter future = subscribe(Restaurant.class, "run1-6", null);
+    SseEmitter otherRun = subscribe(Restaurant.class, "run0-4", null);
+    SseEmitter garbage = subscribe(Restaurant.class, "run1-x", null);
+
+    assertEquals(List.of(
+        "id:run1-3\nevent:delete\ndata:{\"id\":3}\n\n",
+        "id:run1-4\nevent:delete\ndata:{\"id\":4}\n\n",
+        "id:run1-5\nevent:delete\ndata:{\"id\":5}\n\n"),
+        sentTo(oldest, 3));
+    for (SseEmitter emitter : List.of(tooOld, future, otherRun, garbage)) {
+      assertEquals(List.of("id:run1-5\nevent:reset\ndata:{}\n\n"), sentTo(emitter, 1));
+    }
+  }
+
+  @Test
+  void test_change_that_cannot_be_serialized_becomes_a_reset() throws Exception {
+    SseEmitter emitter = subscribe(Restaurant.class, null, null);
+
+    changeFeedService.updated(Restaurant.class, 7L, new Object());
+    waitForSender();
+
+    assertEquals("id:run1-1\nevent:reset\ndata:{}\n\n", sentTo(emitter, 2).get(1));
+  }
+
+  @Test
+  void test_reset_tells_subscribers_to_reload_and_is_replayed_to_those_that_reconnect() throws Exception {
+    SseEmitter emitter = subscribe(Restaurant.class, null, null);
+
+    changeFeedService.reset(Restaurant.class);
+    changeFeedService.deleted(Restaurant.class, 7L);
+    waitForSender();
+    SseEmitter reconnected = subscribe(Restaurant.class, "run1-0", null);
+
+    List<String> resumed = List.of("id:run1-1\nevent:reset\ndata:{}\n\n", "id:run1-2\nevent:delete\ndata:{\"id\":7}\n\n");
+    assertEquals(resumed, sentTo(emitter, 3).subList(1, 3));
+    assertEquals(resumed, sentTo(reconnected, 2));
+  }
+
+  @Test
+  void test_batch_results_are_published_as_changes() throws Exception {
+    SseEmitter emitter = subscribe(Restaurant.class, null, null);
+    List<BatchItemResult<Restaurant>> results = List.of(
+        BatchItemResult.<Restaurant>builder().id(7L).status(BatchItemResult.Status.CREATED).entity(restaurant).build(),
+        BatchItemResult.<Restaurant>builder().id(7L).status(BatchItemResult.Status.UPDATED).entity(restaurant).build(),
+        BatchItemResult.<Restaurant>builder().id(8L).status(BatchItemResult.Status.NOT_FOUND).build(),
+        BatchItemResult.<Restaurant>builder().id(9L).status(BatchItemResult.Status.DELETED).build());
+
+    assertSame(results, changeFeedService.publishAll(Restaurant.class, results));
+    waitForSender();
+
+    List<String> sent = sentTo(emitter, 4);
+    assertEquals("id:run1-1\nevent:insert\ndata:{\"id\":7,\"entity\":{\"id\":7,\"name\":\"Freebirds\",\"description\":\"Burritos\"}}\n\n", sent.get(1));
+    assertEquals("id:run1-2\nevent:update\ndata:{\"id\":7,\"entity\":{\"id\":7,\"name\":\"Freebirds\",\"description\":\"Burritos\"}}\n\n", sent.get(2));
+    assertEquals("id:run1-3\nevent:delete\ndata:{\"id\":9}\n\n", sent.get(3));
+  }
+
+  @Test
+  void test_subscriber_that_fails_is_dropped() throws Exception {
+    SseEmitter broken = mock(SseEmitter.class);
+    doThrow(new IOException("Broken pipe")).when(broken).send(any(SseEventBuilder.class));
+    emitters.add(broken);
+    changeFeedService.subscribe(Restaurant.class, null, null);
+    waitForSender();
+    assertEquals(0, changeFeedService.getSubscriberCount(Restaurant.class));
+
+    changeFeedService.inserted(Restaurant.class, 1L, restaurant);
+    SseEmitter resumedThenBroken = mock(SseEmitter.class);
+    doThrow(new IllegalStateException("ResponseBodyEmitter has already completed"))
+        .when(resumedThenBroken).send(any(SseEventBuilder.class));
+    emitters.add(resumedThenBroken);
+    changeFeedService.subscribe(Restaurant.class, "run1-0", null);
+    waitForSender();
+    assertEquals(0, changeFeedService.getSubscriberCount(Restaurant.class));
+
+    SseEmitter healthy = subscribe(Restaurant.class, null, null);
+    SseEmitter failsLater = subscribe(Restaurant.class, null, null);
+    doThrow(new IOException("Broken pipe")).when(failsLater).send(any(SseEventBuilder.class));
+    changeFeedService.deleted(Restaurant.class, 1L);
+    waitForSender();
+
+    sentTo(healthy, 2);
+    assertEquals(1, changeFeedService.getSubscriberCount(Restaurant.class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_subscriber_is_dropped_when_its_stream_ends() throws Exception {
+    SseEmitter completed = subscribe(Restaurant.class, null, null);
+    SseEmitter failed = subscribe(Restaurant.class, null, null);
+    SseEmitter timedOut = subscribe(Restaurant.class, null, null);
+    assertEquals(3, changeFeedService.getSubscriberCount(Restaurant.class));
+
+    ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+    verify(completed).onCompletion(onCompletion.capture());
+    onCompletion.getValue().run();
+
+    ArgumentCaptor<Consumer<Throwable>> onError = ArgumentCaptor.forClass(Consumer.class);
+    verify(failed).onError(onError.capture());
+    onError.getValue().accept(new IOException("Connection reset"));
+
+    assertEquals(1, changeFeedService.getSubscriberCount(Restaurant.class));
+
+    ArgumentCaptor<Runnable> onTimeout = ArgumentCaptor.forClass(Runnable.class);
+    verify(timedOut).onTimeout(onTimeout.capture());
+    onTimeout.getValue().run();
+    verify(timedOut).complete();
+  }
+
+  @Test
+  void test_shutdown_closes_every_stream() throws Exception {
+    SseEmitter restaurants = subscribe(Restaurant.class, null, null);
+    SseEmitter organizations = subscribe(UCSBOrganizations.class, null, null);
+
+    changeFeedService.shutdown();
+
+    verify(restaurants).complete();
+    verify(organizations).complete();
+    assertEquals(0, changeFeedService.getSubscriberCount(Restaurant.class));
+  }
+
+  @Test
+  void test_each_subscriber_gets_its_own_stream_with_the_configured_timeout() {
+    ChangeFeedService configured = new ChangeFeedService(new ObjectMapper(), 10, 1000);
+    try {
+      SseEmitter first = configured.subscribe(Restaurant.class, null, null);
+      SseEmitter second = configured.subscribe(Restaurant.class, null, null);
+
+      assertNotSame(first, second);
+      assertEquals(1000L, first.getTimeout());
+    } finally {
+      configured.shutdown();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CsvDecoderTests {
+
+  private CsvDecoder decoder(String csv) {
+    return new CsvDecoder(new BufferedReader(new StringReader(csv)));
+  }
+
+  @Test
+  void test_records_are_split_into_fields() throws Exception {
+    CsvDecoder decoder = decoder("a,b,c\r\n1,,3\n");
+
+    assertEquals(List.of("a", "b", "c"), decoder.next());
+    assertEquals(1, decoder.getLine());
+    assertEquals(List.of("1", "", "3"), decoder.next());
+    assertEquals(2, decoder.getLine());
+    assertNull(decoder.next());
+  }
+
+  @Test
+  void test_last_record_may_have_no_line_break() throws Exception {
+    CsvDecoder decoder = decoder("a,b\r\n1,2");
+
+    decoder.next();
+
+    assertEquals(List.of("1", "2"), decoder.next());
+    assertNull(decoder.next());
+  }
+
+  @Test
+  void test_quoted_fields_may_hold_commas_quotes_and_line_breaks() throws Exception {
+    CsvDecoder decoder = decoder("\"a, b\",\"say \"\"hi\"\"\",\"\"\r\n\"line\nbreak\",x\"y\r\nnext\r");
+
+    assertEquals(List.of("a, b", "say \"hi\"", ""), decoder.next());
+    assertEquals(List.of("line\nbreak", "x\"y"), decoder.next());
+    assertEquals(2, decoder.getLine());
+    assertEquals(List.of("next"), decoder.next());
+    assertEquals(4, decoder.getLine());
+    assertNull(decoder.next());
+  }
+
+  @Test
+  void test_blank_lines_are_skipped() throws Exception {
+    CsvDecoder decoder = decoder("\r\n1\n\n\n2\n");
+
+    assertEquals(List.of("1"), decoder.next());
+    assertEquals(2, decoder.getLine());
+    assertEquals(List.of("2"), decoder.next());
+    assertEquals(5, decoder.getLine());
+    assertNull(decoder.next());
+  }
+
+  @Test
+  void test_unclosed_quote_runs_to_the_end_of_the_input() throws Exception {
+    CsvDecoder decoder = decoder("1,\"two\nthree");
+
+    assertEquals(List.of("1", "two\nthree"), decoder.next());
+    assertNull(decoder.next());
+  }
+}
@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.AllArgsConstructor;
+
+class CsvEncoderTests {
+
+  @AllArgsConstructor
+  static class Row {
+    static final String IGNORED = "static fields are not columns";
+
+    private long id;
+    private String name;
+    private Integer count;
+    private boolean done;
+    private LocalDateTime when;
+  }
+
+  private final CsvEncoder<Row> encoder = CsvEncoder.of(Row.class);
+  private final StringWriter out = new StringWriter();
+
+  @Test
+  void test_header_names_the_instance_fields_in_order() throws Exception {
+    encoder.writeHeader(out);
+
+    assertEquals("id,name,count,done,when\r\n", out.toString());
+  }
+
+  @Test
+  void test_values_are_written_as_is() throws Exception {
+    encoder.writeRow(out, new Row(7, "plain text", 3, true, LocalDateTime.parse("2022-01-03T00:00:00")));
+
+    assertEquals("7,plain text,3,true,2022-01-03T00:00:00\r\n", out.toString());
+  }
+
+  @Test
+  void test_nulls_are_empty_fields() throws Exception {
+    encoder.writeRow(out, new Row(7, null, null, false, null));
+
+    assertEquals("7,,,false,\r\n", out.toString());
+  }
+
+  @Test
+  void test_values_with_commas_quotes_or_line_breaks_are_quoted() throws Exception {
+    encoder.writeRow(out, new Row(1, "a, b", 0, false, null));
+    encoder.writeRow(out, new Row(2, "say \"hi\"", 0, false, null));
+    encoder.writeRow(out, new Row(3, "line\nbreak", 0, false, null));
+    encoder.writeRow(out, new Row(4, "line\rbreak", 0, false, null));
+
+    assertEquals("1,\"a, b\",0,false,\r\n"
+        + "2,\"say \"\"hi\"\"\",0,false,\r\n"
+        + "3,\"line\nbreak\",0,false,\r\n"
+        + "4,\"line\rbreak\",0,false,\r\n", out.toString());
+  }
+
+  @Test
+  void test_empty_strings_are_quoted_to_tell_them_from_nulls() throws Exception {
+    encoder.writeRow(out, new Row(1, "", null, false, null));
+
+    assertEquals("1,\"\",,false,\r\n", out.toString());
+  }
+}
@@ -0,0 +1,144 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.InvalidQueryException;
+import jakarta.persistence.EntityManager;
+
+class EntityStreamServiceTests {
+
+  private final ObjectMapper mapper = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+  private final EntityManager entityManager = mock(EntityManager.class);
+  private final EntityStreamService entityStreamService =
+      new EntityStreamService(mapper, transactionManager, entityManager);
+
+  private final UCSBDate first = UCSBDate.builder()
+      .id(1L)
+      .name("firstDayOfClasses")
+      .quarterYYYYQ("20222")
+      .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+      .build();
+  private final UCSBDate last = UCSBDate.builder()
+      .id(2L)
+      .name("lastDayOfClasses")
+      .quarterYYYYQ("20222")
+      .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+      .build();
+
+  @Test
+  void test_rows_are_written_as_a_json_array_in_a_read_only_transaction() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    entityStreamService.jsonArray(() -> Stream.of(first, last).onClose(() -> closed.set(true))).writeTo(out);
+
+    assertEquals(mapper.writeValueAsString(List.of(first, last)), out.toString());
+    assertTrue(closed.get());
+    verify(entityManager).detach(first);
+    verify(entityManager).detach(last);
+    ArgumentCaptor<TransactionDefinition> transaction = ArgumentCaptor.forClass(TransactionDefinition.class);
+    verify(transactionManager).getTransaction(transaction.capture());
+    assertTrue(transaction.getValue().isReadOnly());
+    verify(transactionManager).commit(any());
+  }
+
+  @Test
+  void test_no_rows_is_an_empty_array() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    entityStreamService.jsonArray(Stream::<UCSBDate>empty).writeTo(out);
+
+    assertEquals("[]", out.toString());
+  }
+
+  @Test
+  void test_write_error_closes_the_stream_and_rolls_back() {
+    AtomicBoolean closed = new AtomicBoolean();
+    IOException brokenPipe = new IOException("Broken pipe");
+
+    IOException e = assertThrows(IOException.class, () -> entityStreamService.forEach(
+        () -> Stream.of(first, last).onClose(() -> closed.set(true)),
+        row -> {
+          throw brokenPipe;
+        }));
+
+    assertSame(brokenPipe, e);
+    assertTrue(closed.get());
+    verify(entityManager, never()).detach(any());
+    verify(transactionManager).rollback(any());
+  }
+
+  @Test
+  void test_ndjson_writes_one_row_per_line() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    entityStreamService.ndjson(() -> Stream.of(first, last)).writeTo(out);
+
+    assertEquals(mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(last) + "\n", out.toString());
+    verify(entityManager).detach(first);
+    verify(entityManager).detach(last);
+  }
+
+  @Test
+  void test_csv_writes_a_header_and_one_row_per_line() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    entityStreamService.csv(UCSBDate.class, () -> Stream.of(first, last)).writeTo(out);
+
+    assertEquals("id,quarterYYYYQ,name,localDateTime\r\n"
+        + "1,20222,firstDayOfClasses,2022-01-03T00:00:00\r\n"
+        + "2,20222,lastDayOfClasses,2022-03-11T00:00:00\r\n", out.toString());
+    verify(entityManager).detach(first);
+    verify(entityManager).detach(last);
+  }
+
+  @Test
+  void test_export_is_a_download_named_after_the_table() throws Exception {
+    ResponseEntity<StreamingResponseBody> csv = entityStreamService.export(UCSBDate.class, "csv", Stream::empty);
+    ResponseEntity<StreamingResponseBody> ndjson = entityStreamService.export(UCSBDate.class, "ndjson", Stream::empty);
+
+    assertEquals(EntityStreamService.TEXT_CSV, csv.getHeaders().getContentType());
+    assertEquals("attachment; filename=\"ucsbdate.csv\"", csv.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(MediaType.APPLICATION_NDJSON, ndjson.getHeaders().getContentType());
+    assertEquals("attachment; filename=\"ucsbdate.ndjson\"", ndjson.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+  }
+
+  @Test
+  void test_export_in_an_unknown_format_is_rejected() {
+    InvalidQueryException e = assertThrows(InvalidQueryException.class,
+        () -> entityStreamService.export(UCSBDate.class, "xml", Stream::empty));
+
+    assertEquals("export format 'xml' is not supported; use csv or ndjson", e.getMessage());
+  }
+}
@@ -0,0 +1,186 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+class HelpRequestQueueServiceTests {
+
+  private final ExecutorService sender = Executors.newSingleThreadExecutor();
+  private final Queue<SseEmitter> emitters = new ArrayDeque<>();
+  private final HelpRequestQueueService helpRequestQueueService = new HelpRequestQueueService(sender, emitters::remove);
+
+  private final HelpRequest open = HelpRequest.builder()
+      .id(7L)
+      .requesterEmail("alpha@ucsb.edu")
+      .teamId("s22-5pm-3")
+      .tableOrBreakoutRoom("7")
+      .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+      .explanation("alpha")
+      .solved(false)
+      .build();
+
+  @AfterEach
+  void stopSender() {
+    sender.shutdownNow();
+  }
+
+  private SseEmitter subscribe() {
+    SseEmitter emitter = mock(SseEmitter.class);
+    emitters.add(emitter);
+    helpRequestQueueService.subscribe();
+    return emitter;
+  }
+
+  private void waitForSender() throws Exception {
+    sender.submit(() -> { }).get();
+  }
+
+  private SseEventBuilder sentTo(SseEmitter emitter) throws IOException {
+    ArgumentCaptor<SseEventBuilder> captor = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter).send(captor.capture());
+    return captor.getValue();
+  }
+
+  private String text(SseEventBuilder event) {
+    StringBuilder text = new StringBuilder();
+    event.build().forEach(part -> text.append(part.getData() instanceof String s ? s : "<" + part.getData() + ">"));
+    return text.toString();
+  }
+
+  @Test
+  void test_unsolved_request_is_sent_as_open_to_every_subscriber() throws Exception {
+    SseEmitter first = subscribe();
+    SseEmitter second = subscribe();
+
+    helpRequestQueueService.changed(open);
+    waitForSender();
+
+    assertEquals("event:open\ndata:<" + open + ">\n\n", text(sentTo(first)));
+    assertEquals("event:open\ndata:<" + open + ">\n\n", text(sentTo(second)));
+  }
+
+  @Test
+  void test_solved_and_deleted_requests_are_sent_as_closed() throws Exception {
+    SseEmitter emitter = subscribe();
+
+    open.setSolved(true);
+    helpRequestQueueService.changed(open);
+    helpRequestQueueService.removed(8L);
+    waitForSender();
+
+    ArgumentCaptor<SseEventBuilder> captor = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, times(2)).send(captor.capture());
+    List<SseEventBuilder> events = captor.getAllValues();
+    assertEquals("event:closed\ndata:<" + Map.of("id", 7L) + ">\n\n", text(events.get(0)));
+    assertEquals("event:closed\ndata:<" + Map.of("id", 8L) + ">\n\n", text(events.get(1)));
+  }
+
+  @Test
+  void test_events_wait_for_the_transaction_to_commit() throws Exception {
+    SseEmitter emitter = subscribe();
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      helpRequestQueueService.changed(open);
+      waitForSender();
+      verify(emitter, times(0)).send(any(SseEventBuilder.class));
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    waitForSender();
+
+    verify(emitter, times(1)).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  void test_subscriber_that_fails_is_dropped() throws Exception {
+    SseEmitter broken = subscribe();
+    SseEmitter healthy = subscribe();
+    doThrow(new IOException("Broken pipe")).when(broken).send(any(SseEventBuilder.class));
+
+    helpRequestQueueService.changed(open);
+    helpRequestQueueService.changed(open);
+    waitForSender();
+
+    verify(broken, times(1)).send(any(SseEventBuilder.class));
+    verify(healthy, times(2)).send(any(SseEventBuilder.class));
+    assertEquals(1, helpRequestQueueService.getSubscriberCount());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_subscriber_is_dropped_when_its_stream_ends() {
+    SseEmitter completed = subscribe();
+    SseEmitter failed = subscribe();
+    SseEmitter timedOut = subscribe();
+    assertEquals(3, helpRequestQueueService.getSubscriberCount());
+
+    ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+    verify(completed).onCompletion(onCompletion.capture());
+    onCompletion.getValue().run();
+
+    ArgumentCaptor<Consumer<Throwable>> onError = ArgumentCaptor.forClass(Consumer.class);
+    verify(failed).onError(onError.capture());
+    onError.getValue().accept(new IOException("Connection reset"));
+
+    assertEquals(1, helpRequestQueueService.getSubscriberCount());
+
+    ArgumentCaptor<Runnable> onTimeout = ArgumentCaptor.forClass(Runnable.class);
+    verify(timedOut).onTimeout(onTimeout.capture());
+    onTimeout.getValue().run();
+    verify(timedOut).complete();
+  }
+
+  @Test
+  void test_shutdown_closes_every_stream() {
+    SseEmitter emitter = subscribe();
+
+    helpRequestQueueService.shutdown();
+
+    verify(emitter).complete();
+    assertEquals(0, helpRequestQueueService.getSubscriberCount());
+    assertTrue(sender.isShutdown());
+  }
+
+  @Test
+  void test_each_subscriber_gets_its_own_stream_with_the_configured_timeout() {
+    HelpRequestQueueService configured = new HelpRequestQueueService(1000);
+    try {
+      SseEmitter first = configured.subscribe();
+      SseEmitter second = configured.subscribe();
+
+      assertNotSame(first, second);
+      assertEquals(1000L, first.getTimeout());
+    } finally {
+      configured.shutdown();
+    }
+  }
+}
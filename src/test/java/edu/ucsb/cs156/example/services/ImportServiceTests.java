@@ -0,0 +1,357 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.Assigned;
+import org.hibernate.metamodel.spi.MappingMetamodelImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBOrganizations;
+import edu.ucsb.cs156.example.errors.InvalidQueryException;
+import edu.ucsb.cs156.example.models.ImportResult;
+import edu.ucsb.cs156.example.models.ImportResult.RowError;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+class ImportServiceTests {
+
+  private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+  private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+  private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final Connection connection = mock(Connection.class);
+  private final PreparedStatement statement = mock(PreparedStatement.class);
+  private final SimpleTransactionStatus transaction = new SimpleTransactionStatus();
+
+  private final ImportTable<UCSBOrganizations> organizations = new ImportTable<>(UCSBOrganizations.class,
+      "UCSBORGANIZATIONS", "orgCode",
+      List.of("orgCode", "orgTranslationShort", "orgTranslation", "inactive"),
+      List.of("ORG_CODE", "ORG_TRANSLATION_SHORT", "ORG_TRANSLATION", "INACTIVE"));
+  private final ImportTable<UCSBDate> dates = new ImportTable<>(UCSBDate.class,
+      "UCSBDATES", "id",
+      List.of("quarterYYYYQ", "name", "localDateTime"),
+      List.of("QUARTERYYYYQ", "NAME", "LOCAL_DATE_TIME"));
+
+  private final ImportService importService = new ImportService(mapper, validator, transactionManager, jdbcTemplate,
+      type -> type == UCSBDate.class ? dates : organizations);
+
+  @BeforeEach
+  void setUp() throws Exception {
+    when(transactionManager.getTransaction(any())).thenReturn(transaction);
+    when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+        .thenAnswer(invocation -> invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+    when(connection.prepareStatement(any())).thenReturn(statement);
+  }
+
+  private static InputStream file(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private ImportResult importCsv(Class<?> type, String csv) {
+    return importService.importRows(type, EntityStreamService.TEXT_CSV, file(csv));
+  }
+
+  private ImportResult importNdjson(Class<?> type, String ndjson) {
+    return importService.importRows(type, MediaType.APPLICATION_NDJSON, file(ndjson));
+  }
+
+  private static RowError error(long line, String field, String message) {
+    return RowError.builder().line(line).field(field).message(message).build();
+  }
+
+  @Test
+  void test_csv_rows_are_inserted_in_a_batch() throws Exception {
+    ImportResult result = importCsv(UCSBOrganizations.class,
+        "orgCode,orgTranslationShort,orgTranslation,inactive\r\n"
+        + "csu,CSU,\"UCSB Chinese Student Union, Santa Barbara\",false\r\n"
+        + "osli,STUDENT LIFE,OFFICE OF STUDENT LIFE,\r\n");
+
+    assertEquals(ImportResult.builder().imported(2).errors(List.of()).build(), result);
+    verify(connection).prepareStatement(
+        "INSERT INTO UCSBORGANIZATIONS (ORG_CODE, ORG_TRANSLATION_SHORT, ORG_TRANSLATION, INACTIVE) VALUES (?, ?, ?, ?)");
+    verify(statement).setObject(1, "csu");
+    verify(statement).setObject(3, "UCSB Chinese Student Union, Santa Barbara");
+    verify(statement).setObject(1, "osli");
+    verify(statement, times(2)).setObject(4, false);
+    verify(statement, times(2)).addBatch();
+    verify(statement).executeBatch();
+    verify(statement).close();
+    verify(transactionManager).commit(transaction);
+    assertFalse(transaction.isRollbackOnly());
+  }
+
+  @Test
+  void test_batches_are_sent_every_batch_size_rows() throws Exception {
+    StringBuilder csv = new StringBuilder("orgCode,orgTranslationShort,orgTranslation\n");
+    for (int i = 0; i < ImportService.BATCH_SIZE; i++) {
+      csv.append("org").append(i).append(",ORG,Organization\n");
+    }
+
+    ImportResult result = importCsv(UCSBOrganizations.class, csv.toString());
+
+    assertEquals(ImportService.BATCH_SIZE, result.getImported());
+    verify(statement, times(ImportService.BATCH_SIZE)).addBatch();
+    verify(statement, times(1)).executeBatch();
+  }
+
+  @Test
+  void test_ndjson_rows_are_read_one_per_line() throws Exception {
+    ImportResult result = importNdjson(UCSBDate.class,
+        "{\"quarterYYYYQ\":\"20224\",\"name\":\"firstDayOfClasses\",\"localDateTime\":\"2022-09-22T00:00:00\"}\n"
+        + "\n"
+        + "{\"id\":17,\"quarterYYYYQ\":\"20224\",\"name\":\"lastDayOfClasses\",\"localDateTime\":\"2022-12-02T00:00:00\"}");
+
+    assertEquals(2, result.getImported());
+    verify(connection).prepareStatement("INSERT INTO UCSBDATES (QUARTERYYYYQ, NAME, LOCAL_DATE_TIME) VALUES (?, ?, ?)");
+    verify(statement).setObject(3, LocalDateTime.parse("2022-09-22T00:00:00"));
+    verify(statement).setObject(2, "lastDayOfClasses");
+    verify(statement, never()).setObject(anyInt(), eq(17L));
+  }
+
+  @Test
+  void test_rows_are_copied_on_postgres() throws Exception {
+    CopyIn copyIn = copyIn();
+    ByteArrayOutputStream copied = new ByteArrayOutputStream();
+    doAnswer(invocation -> {
+      copied.write(invocation.<byte[]>getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+      return null;
+    }).when(copyIn).writeToCopy(any(), anyInt(), anyInt());
+    String longName = "x".repeat(ImportService.COPY_BUFFER_SIZE);
+
+    ImportResult result = importCsv(UCSBOrganizations.class,
+        "orgCode,orgTranslationShort,orgTranslation\n"
+        + "csu,\"\"\"CSU\"\"\",UCSB Chinese Student Union\n"
+        + "long,LONG," + longName + "\n"
+        + "osli,STUDENT LIFE,OFFICE OF STUDENT LIFE\n");
+
+    assertEquals(3, result.getImported());
+    assertEquals("csu,\"\"\"CSU\"\"\",UCSB Chinese Student Union,false\n"
+        + "long,LONG," + longName + ",false\n"
+        + "osli,STUDENT LIFE,OFFICE OF STUDENT LIFE,false\n", copied.toString(StandardCharsets.UTF_8));
+    verify(copyIn, times(2)).writeToCopy(any(), anyInt(), anyInt());
+    verify(copyIn).endCopy();
+    verify(copyIn, never()).cancelCopy();
+    verify(connection, never()).prepareStatement(any());
+  }
+
+  @Test
+  void test_copy_is_cancelled_when_a_row_is_invalid() throws Exception {
+    CopyIn copyIn = copyIn();
+    when(copyIn.isActive()).thenReturn(true);
+
+    ImportResult result = importCsv(UCSBOrganizations.class,
+        "orgCode,orgTranslationShort,orgTranslation\n"
+        + "csu,CSU,UCSB Chinese Student Union\n"
+        + "osli,,OFFICE OF STUDENT LIFE\n");
+
+    assertEquals(List.of(error(3, "orgTranslationShort", "must not be blank")), result.getErrors());
+    verify(copyIn, never()).endCopy();
+    verify(copyIn).cancelCopy();
+    assertTrue(transaction.isRollbackOnly());
+  }
+
+  private CopyIn copyIn() throws SQLException {
+    PGConnection pgConnection = mock(PGConnection.class);
+    CopyManager copyManager = mock(CopyManager.class);
+    CopyIn copyIn = mock(CopyIn.class);
+    when(connection.isWrapperFor(PGConnection.class)).thenReturn(true);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    when(copyManager.copyIn(
+        "COPY UCSBORGANIZATIONS (ORG_CODE, ORG_TRANSLATION_SHORT, ORG_TRANSLATION, INACTIVE) FROM STDIN (FORMAT csv)"))
+        .thenReturn(copyIn);
+    return copyIn;
+  }
+
+  @Test
+  void test_invalid_rows_are_reported_and_nothing_is_imported() throws Exception {
+    ImportResult result = importCsv(UCSBDate.class,
+        "quarterYYYYQ,name,localDateTime\n"
+        + "20224,firstDayOfClasses,2022-09-22T00:00:00\n"
+        + "2022,,\n"
+        + "20224,lastDayOfClasses,2022-12-02T00:00:00\n"
+        + "20225,finals,2022-12-03T00:00:00\n");
+
+    assertEquals(ImportResult.builder()
+        .imported(0)
+        .errors(List.of(
+            error(3, "localDateTime", "must not be null"),
+            error(3, "name", "must not be blank"),
+            error(3, "quarterYYYYQ", "must be a year and a quarter 1-4, e.g. 20224"),
+            error(5, "quarterYYYYQ", "must be a year and a quarter 1-4, e.g. 20224")))
+        .build(), result);
+    // rows after the first error are checked but not written
+    verify(statement, times(1)).addBatch();
+    verify(statement, never()).executeBatch();
+    assertTrue(transaction.isRollbackOnly());
+  }
+
+  @Test
+  void test_rows_that_cannot_be_read_are_reported() throws Exception {
+    ImportResult csv = importCsv(UCSBDate.class,
+        "quarterYYYYQ,name,localDateTime\n"
+        + "20224,firstDayOfClasses,yesterday\n"
+        + "20224,lastDayOfClasses\n");
+    ImportResult ndjson = importNdjson(UCSBDate.class,
+        "{\"quarterYYYYQ\":\"20224\",\"name\":\"firstDayOfClasses\",\"localDateTime\":\"2022-09-22T00:00:00\",\"room\":1}\n"
+        + "{\"quarterYYYYQ\":\"20224\",\n"
+        + "[]\n");
+
+    assertEquals("localDateTime", csv.getErrors().get(0).getField());
+    assertEquals(2, csv.getErrors().get(0).getLine());
+    assertEquals(error(3, null, "expected 3 fields but found 2"), csv.getErrors().get(1));
+    assertEquals("room", ndjson.getErrors().get(0).getField());
+    assertEquals(2, ndjson.getErrors().get(1).getLine());
+    assertNull(ndjson.getErrors().get(1).getField());
+    assertEquals(error(3, null, "expected a JSON object"), ndjson.getErrors().get(2));
+    assertEquals(0, ndjson.getImported());
+  }
+
+  @Test
+  void test_mapping_errors_outside_a_field_have_no_field() {
+    assertEquals(error(4, null, "bad row"),
+        ImportService.rowError(4, JsonMappingException.from((JsonParser) null, "bad row")));
+  }
+
+  @Test
+  void test_reading_stops_after_max_errors() throws Exception {
+    StringBuilder malformed = new StringBuilder("orgCode,orgTranslationShort,orgTranslation\n");
+    StringBuilder invalid = new StringBuilder("orgCode,orgTranslationShort,orgTranslation\n");
+    for (int i = 0; i < 2 * ImportService.MAX_ERRORS; i++) {
+      malformed.append("org").append(i).append('\n');
+      invalid.append(",,\n");
+    }
+
+    ImportResult tooManyFields = importCsv(UCSBOrganizations.class, malformed.toString());
+    ImportResult tooManyViolations = importCsv(UCSBOrganizations.class, invalid.toString());
+
+    assertEquals(ImportService.MAX_ERRORS, tooManyFields.getErrors().size());
+    assertEquals(ImportService.MAX_ERRORS + 1, tooManyFields.getErrors().get(ImportService.MAX_ERRORS - 1).getLine());
+    // each row has three errors, so the 34th row takes the count past the limit
+    assertEquals(ImportService.MAX_ERRORS, tooManyViolations.getErrors().size());
+    assertEquals(35, tooManyViolations.getErrors().get(ImportService.MAX_ERRORS - 1).getLine());
+  }
+
+  @Test
+  void test_empty_csv_imports_nothing() throws Exception {
+    assertEquals(ImportResult.builder().imported(0).errors(List.of()).build(), importCsv(UCSBOrganizations.class, ""));
+  }
+
+  @Test
+  void test_csv_header_may_name_a_generated_id_but_no_other_unknown_column() {
+    assertEquals(1, importCsv(UCSBDate.class, "id,quarterYYYYQ,name,localDateTime\n"
+        + "1,20224,firstDayOfClasses,2022-09-22T00:00:00\n").getImported());
+
+    InvalidQueryException e = assertThrows(InvalidQueryException.class,
+        () -> importCsv(UCSBDate.class, "quarterYYYYQ,name,date\n"));
+
+    assertEquals("unknown column 'date' in the CSV header; the columns are [id, quarterYYYYQ, name, localDateTime]",
+        e.getMessage());
+  }
+
+  @Test
+  void test_other_content_types_are_rejected() {
+    InvalidQueryException e = assertThrows(InvalidQueryException.class,
+        () -> importService.importRows(UCSBDate.class, MediaType.APPLICATION_JSON, file("[]")));
+
+    assertEquals("import content type 'application/json' is not supported; use text/csv or application/x-ndjson",
+        e.getMessage());
+  }
+
+  @Test
+  void test_a_row_the_database_rejects_fails_the_whole_file() throws Exception {
+    when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+        .thenThrow(new DuplicateKeyException("insert failed", new SQLException("duplicate key value")));
+
+    ImportResult result = importCsv(UCSBOrganizations.class, "orgCode,orgTranslationShort,orgTranslation\n"
+        + "csu,CSU,UCSB Chinese Student Union\n");
+
+    assertEquals(ImportResult.builder().imported(0).errors(List.of(error(0, null, "duplicate key value"))).build(),
+        result);
+  }
+
+  @Test
+  void test_read_errors_are_rethrown() {
+    InputStream broken = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("connection reset");
+      }
+    };
+
+    assertThrows(UncheckedIOException.class,
+        () -> importService.importRows(UCSBDate.class, EntityStreamService.TEXT_CSV, broken));
+    assertThrows(UncheckedIOException.class,
+        () -> importService.importRows(UCSBDate.class, MediaType.APPLICATION_NDJSON, broken));
+  }
+
+  @Test
+  void test_tables_are_read_from_the_hibernate_mapping_once() {
+    EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+    SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+    MappingMetamodelImplementor metamodel = mock(MappingMetamodelImplementor.class);
+    AbstractEntityPersister persister = mock(AbstractEntityPersister.class);
+    when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+    when(sessionFactory.getMappingMetamodel()).thenReturn(metamodel);
+    when(metamodel.getEntityDescriptor(UCSBOrganizations.class)).thenReturn(persister);
+    when(persister.getGenerator()).thenReturn(new Assigned());
+    when(persister.getIdentifierPropertyName()).thenReturn("orgCode");
+    when(persister.getIdentifierColumnNames()).thenReturn(new String[] { "ORG_CODE" });
+    when(persister.getPropertyNames()).thenReturn(new String[] { "orgTranslation" });
+    when(persister.getPropertyColumnNames("orgTranslation")).thenReturn(new String[] { "ORG_TRANSLATION" });
+    when(persister.getTableName()).thenReturn("UCSBORGANIZATIONS");
+    ImportService service = new ImportService(mapper, validator, transactionManager, jdbcTemplate, entityManagerFactory);
+
+    service.importRows(UCSBOrganizations.class, EntityStreamService.TEXT_CSV, file("orgCode\n"));
+    InvalidQueryException e = assertThrows(InvalidQueryException.class,
+        () -> service.importRows(UCSBOrganizations.class, EntityStreamService.TEXT_CSV, file("inactive\n")));
+
+    assertEquals("unknown column 'inactive' in the CSV header; the columns are [orgCode, orgTranslation]",
+        e.getMessage());
+    verify(metamodel, times(1)).getEntityDescriptor(UCSBOrganizations.class);
+  }
+}
@@ -0,0 +1,71 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentityGenerator;
+import org.hibernate.metamodel.spi.MappingMetamodelImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import jakarta.persistence.EntityManagerFactory;
+
+class ImportTableTests {
+
+  private ImportTable<UCSBDate> mappedTable() {
+    EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+    SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+    MappingMetamodelImplementor metamodel = mock(MappingMetamodelImplementor.class);
+    AbstractEntityPersister persister = mock(AbstractEntityPersister.class);
+    when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+    when(sessionFactory.getMappingMetamodel()).thenReturn(metamodel);
+    when(metamodel.getEntityDescriptor(UCSBDate.class)).thenReturn(persister);
+    when(persister.getGenerator()).thenReturn(new IdentityGenerator());
+    when(persister.getIdentifierPropertyName()).thenReturn("id");
+    when(persister.getPropertyNames()).thenReturn(new String[] { "localDateTime", "name", "quarterYYYYQ" });
+    when(persister.getPropertyColumnNames("localDateTime")).thenReturn(new String[] { "LOCAL_DATE_TIME" });
+    when(persister.getPropertyColumnNames("name")).thenReturn(new String[] { "NAME" });
+    when(persister.getPropertyColumnNames("quarterYYYYQ")).thenReturn(new String[] { "QUARTERYYYYQ" });
+    when(persister.getTableName()).thenReturn("UCSBDATES");
+    return ImportTable.of(entityManagerFactory, UCSBDate.class);
+  }
+
+  @Test
+  void test_generated_ids_are_left_to_the_database() {
+    ImportTable<UCSBDate> table = mappedTable();
+
+    assertEquals(UCSBDate.class, table.getType());
+    assertEquals("COPY UCSBDATES (LOCAL_DATE_TIME, NAME, QUARTERYYYYQ) FROM STDIN (FORMAT csv)", table.copySql());
+    assertEquals("INSERT INTO UCSBDATES (LOCAL_DATE_TIME, NAME, QUARTERYYYYQ) VALUES (?, ?, ?)", table.insertSql());
+    assertEquals(List.of("id", "localDateTime", "name", "quarterYYYYQ"), table.getProperties());
+    assertTrue(table.hasProperty("id"));
+    assertTrue(table.hasProperty("name"));
+    assertFalse(table.hasProperty("date"));
+  }
+
+  @Test
+  void test_rows_are_written_as_copy_reads_them() throws Exception {
+    ImportTable<UCSBDate> table = mappedTable();
+    StringWriter out = new StringWriter();
+
+    table.writeCsv(out, UCSBDate.builder()
+        .id(7L)
+        .quarterYYYYQ("20224")
+        .name("first, \"day\"")
+        .localDateTime(LocalDateTime.parse("2022-09-22T08:00:00"))
+        .build());
+    table.writeCsv(out, UCSBDate.builder().name("").build());
+
+    assertEquals(3, table.size());
+    assertEquals("2022-09-22T08:00:00,\"first, \"\"day\"\"\",20224\n" + ",\"\",\n", out.toString());
+  }
+}
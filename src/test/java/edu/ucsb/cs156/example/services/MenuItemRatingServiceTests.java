@@ -0,0 +1,121 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+
+class MenuItemRatingServiceTests {
+
+  private final MenuItemRatingService menuItemRatingService = new MenuItemRatingService();
+
+  MenuItemRatingServiceTests() {
+    menuItemRatingService.menuItemRatingRepository = mock(MenuItemRatingRepository.class);
+  }
+
+  private static MenuItemReview review(long itemId, int stars) {
+    return MenuItemReview.builder().itemId(itemId).stars(stars).build();
+  }
+
+  @Test
+  void test_getRatings_fills_in_items_without_reviews() {
+    MenuItemRating rated = MenuItemRating.builder().itemId(3L).reviewCount(1).starsSum(4).stars4(1).build();
+    when(menuItemRatingService.menuItemRatingRepository.findAllById(Set.of(3L, 7L))).thenReturn(List.of(rated));
+
+    List<MenuItemRating> ratings = menuItemRatingService.getRatings(List.of(7L, 3L, 7L));
+
+    assertEquals(List.of(rated, MenuItemRating.builder().itemId(7L).build()), ratings);
+  }
+
+  @Test
+  void test_new_reviews_are_added_to_existing_rating() {
+    when(menuItemRatingService.menuItemRatingRepository.addToRating(any())).thenReturn(1);
+
+    menuItemRatingService.reviewsChanged(List.of(review(7L, 4), review(7L, 5)), List.of());
+
+    verify(menuItemRatingService.menuItemRatingRepository, times(1)).addToRating(
+        MenuItemRating.builder().itemId(7L).reviewCount(2).starsSum(9).stars4(1).stars5(1).build());
+    verify(menuItemRatingService.menuItemRatingRepository, times(0)).createRatingIfAbsent(anyLong());
+  }
+
+  @Test
+  void test_first_review_of_an_item_creates_its_rating() {
+    MenuItemRating expected = MenuItemRating.builder().itemId(7L).reviewCount(1).starsSum(2).stars2(1).build();
+    when(menuItemRatingService.menuItemRatingRepository.addToRating(expected)).thenReturn(0, 1);
+
+    menuItemRatingService.reviewsChanged(List.of(review(7L, 2)), List.of());
+
+    verify(menuItemRatingService.menuItemRatingRepository, times(1)).createRatingIfAbsent(7L);
+    verify(menuItemRatingService.menuItemRatingRepository, times(2)).addToRating(expected);
+    verify(menuItemRatingService.menuItemRatingRepository, times(0)).save(any());
+  }
+
+  @Test
+  void test_first_review_of_an_item_adds_to_a_rating_created_at_the_same_time() {
+    MenuItemRating expected = MenuItemRating.builder().itemId(7L).reviewCount(1).starsSum(2).stars2(1).build();
+    when(menuItemRatingService.menuItemRatingRepository.addToRating(expected)).thenReturn(0, 1);
+    when(menuItemRatingService.menuItemRatingRepository.createRatingIfAbsent(7L)).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+    menuItemRatingService.reviewsChanged(List.of(review(7L, 2)), List.of());
+
+    verify(menuItemRatingService.menuItemRatingRepository, times(2)).addToRating(expected);
+  }
+
+  @Test
+  void test_removing_a_review_without_a_rating_does_not_create_one() {
+    menuItemRatingService.reviewsChanged(List.of(), List.of(review(7L, 3)));
+
+    verify(menuItemRatingService.menuItemRatingRepository, times(1)).addToRating(
+        MenuItemRating.builder().itemId(7L).reviewCount(-1).starsSum(-3).stars3(-1).build());
+    verify(menuItemRatingService.menuItemRatingRepository, times(0)).createRatingIfAbsent(anyLong());
+  }
+
+  @Test
+  void test_moving_a_review_updates_both_items() {
+    when(menuItemRatingService.menuItemRatingRepository.addToRating(any())).thenReturn(1);
+
+    menuItemRatingService.reviewsChanged(List.of(review(8L, 1)), List.of(review(7L, 1)));
+
+    verify(menuItemRatingService.menuItemRatingRepository, times(1)).addToRating(
+        MenuItemRating.builder().itemId(7L).reviewCount(-1).starsSum(-1).stars1(-1).build());
+    verify(menuItemRatingService.menuItemRatingRepository, times(1)).addToRating(
+        MenuItemRating.builder().itemId(8L).reviewCount(1).starsSum(1).stars1(1).build());
+  }
+
+  @Test
+  void test_edit_that_does_not_change_the_rating_writes_nothing() {
+    menuItemRatingService.reviewsChanged(List.of(review(7L, 4)), List.of(review(7L, 4)));
+
+    verify(menuItemRatingService.menuItemRatingRepository, times(0)).addToRating(any());
+    verify(menuItemRatingService.menuItemRatingRepository, times(0)).createRatingIfAbsent(anyLong());
+  }
+
+  @Test
+  void test_stars_outside_one_to_five_go_in_the_nearest_bucket() {
+    when(menuItemRatingService.menuItemRatingRepository.addToRating(any())).thenReturn(1);
+
+    menuItemRatingService.reviewsChanged(List.of(review(7L, 0), review(7L, 6)), List.of());
+
+    verify(menuItemRatingService.menuItemRatingRepository, times(1)).addToRating(
+        MenuItemRating.builder().itemId(7L).reviewCount(2).starsSum(6).stars1(1).stars5(1).build());
+  }
+
+  @Test
+  void test_average_stars() {
+    assertEquals(0.0, MenuItemRating.builder().itemId(7L).build().getAverageStars());
+    assertEquals(4.5, MenuItemRating.builder().itemId(7L).reviewCount(2).starsSum(9).build().getAverageStars());
+  }
+}
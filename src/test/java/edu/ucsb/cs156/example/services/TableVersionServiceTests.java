@@ -0,0 +1,79 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.services.TableVersionService.TableVersion;
+
+class TableVersionServiceTests {
+
+  private final AtomicLong millis = new AtomicLong(1_700_000_000_500L);
+  private final TableVersionService tableVersionService = new TableVersionService(millis::get);
+
+  @Test
+  void test_version_is_stable_until_bumped() {
+    TableVersion first = tableVersionService.current(Restaurant.class);
+    millis.addAndGet(5000);
+    TableVersion second = tableVersionService.current(Restaurant.class);
+
+    assertEquals(first, second);
+    assertTrue(first.eTag().startsWith("W/\"") && first.eTag().endsWith("\""));
+    assertEquals(1_700_000_000_000L, first.lastModified());
+  }
+
+  @Test
+  void test_bump_changes_only_that_table() {
+    TableVersion restaurants = tableVersionService.current(Restaurant.class);
+    TableVersion commons = tableVersionService.current(UCSBDiningCommons.class);
+
+    millis.addAndGet(5000);
+    tableVersionService.bump(Restaurant.class);
+
+    TableVersion bumped = tableVersionService.current(Restaurant.class);
+    assertNotEquals(restaurants.eTag(), bumped.eTag());
+    assertEquals(1_700_000_005_000L, bumped.lastModified());
+    assertEquals(commons, tableVersionService.current(UCSBDiningCommons.class));
+  }
+
+  @Test
+  void test_last_modified_moves_forward_within_the_same_second() {
+    TableVersion first = tableVersionService.current(Restaurant.class);
+    tableVersionService.bump(Restaurant.class);
+    tableVersionService.bump(Restaurant.class);
+
+    assertEquals(first.lastModified() + 2000, tableVersionService.current(Restaurant.class).lastModified());
+  }
+
+  @Test
+  void test_etags_differ_across_restarts() {
+    TableVersion before = tableVersionService.current(Restaurant.class);
+    millis.addAndGet(60_000);
+    TableVersion after = new TableVersionService(millis::get).current(Restaurant.class);
+
+    assertNotEquals(before.eTag(), after.eTag());
+  }
+
+  @Test
+  void test_bump_inside_a_transaction_waits_for_commit() {
+    TableVersion before = tableVersionService.current(Restaurant.class);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      tableVersionService.bump(Restaurant.class);
+      assertEquals(before, tableVersionService.current(Restaurant.class));
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertNotEquals(before, tableVersionService.current(Restaurant.class));
+  }
+}
@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+
+class UCSBDateCacheServiceTests {
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final UCSBDateCacheService ucsbDateCacheService = new UCSBDateCacheService(100, 60, nanos::get);
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final Function<String, List<UCSBDate>> loader = quarter -> {
+    loads.incrementAndGet();
+    return List.of(UCSBDate.builder()
+        .quarterYYYYQ(quarter)
+        .name("firstDayOfClasses")
+        .localDateTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .build());
+  };
+
+  @Test
+  void test_quarter_is_loaded_once() {
+    List<UCSBDate> first = ucsbDateCacheService.getQuarter("20221", loader);
+    List<UCSBDate> second = ucsbDateCacheService.getQuarter("20221", loader);
+
+    assertEquals(first, second);
+    assertEquals("20221", first.get(0).getQuarterYYYYQ());
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void test_quarters_expire_after_ttl() {
+    ucsbDateCacheService.getQuarter("20221", loader);
+    nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+    ucsbDateCacheService.getQuarter("20221", loader);
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void test_evict_removes_one_quarter() {
+    ucsbDateCacheService.getQuarter("20221", loader);
+    ucsbDateCacheService.getQuarter("20222", loader);
+
+    ucsbDateCacheService.evict("20221");
+    ucsbDateCacheService.getQuarter("20221", loader);
+    ucsbDateCacheService.getQuarter("20222", loader);
+
+    assertEquals(3, loads.get());
+  }
+
+  @Test
+  void test_evictAll_removes_every_quarter() {
+    ucsbDateCacheService.getQuarter("20221", loader);
+    ucsbDateCacheService.getQuarter("20222", loader);
+
+    ucsbDateCacheService.evictAll();
+    ucsbDateCacheService.getQuarter("20221", loader);
+    ucsbDateCacheService.getQuarter("20222", loader);
+
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  void test_evict_inside_a_transaction_waits_for_commit() {
+    ucsbDateCacheService.getQuarter("20221", loader);
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      ucsbDateCacheService.evict("20221");
+      ucsbDateCacheService.getQuarter("20221", loader);
+      assertEquals(1, loads.get());
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    ucsbDateCacheService.getQuarter("20221", loader);
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void test_default_constructor_uses_configured_sizes() {
+    UCSBDateCacheService service = new UCSBDateCacheService(10, 60);
+    service.getQuarter("20221", loader);
+    service.getQuarter("20221", loader);
+    assertEquals(1, loads.get());
+  }
+}
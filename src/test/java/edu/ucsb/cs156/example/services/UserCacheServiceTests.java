@@ -0,0 +1,103 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.User;
+
+class UserCacheServiceTests {
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final UserCacheService userCacheService = new UserCacheService(100, 60, nanos::get);
+
+  private User user(String email) {
+    return User.builder().email(email).admin(false).build();
+  }
+
+  @Test
+  void test_put_then_get_returns_user() {
+    User u = user("cgaucho@ucsb.edu");
+    userCacheService.put(u);
+    assertEquals(Optional.of(u), userCacheService.get("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void test_get_of_unknown_email_is_empty() {
+    assertTrue(userCacheService.get("nobody@ucsb.edu").isEmpty());
+  }
+
+  @Test
+  void test_entries_expire_after_ttl() {
+    userCacheService.put(user("cgaucho@ucsb.edu"));
+    nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+    assertTrue(userCacheService.get("cgaucho@ucsb.edu").isEmpty());
+  }
+
+  @Test
+  void test_evict_removes_one_user() {
+    User other = user("ldelplaya@ucsb.edu");
+    userCacheService.put(user("cgaucho@ucsb.edu"));
+    userCacheService.put(other);
+
+    userCacheService.evict("cgaucho@ucsb.edu");
+
+    assertTrue(userCacheService.get("cgaucho@ucsb.edu").isEmpty());
+    assertEquals(Optional.of(other), userCacheService.get("ldelplaya@ucsb.edu"));
+  }
+
+  @Test
+  void test_evictAll_removes_every_user() {
+    userCacheService.put(user("cgaucho@ucsb.edu"));
+    userCacheService.put(user("ldelplaya@ucsb.edu"));
+
+    userCacheService.evictAll();
+
+    assertTrue(userCacheService.get("cgaucho@ucsb.edu").isEmpty());
+    assertTrue(userCacheService.get("ldelplaya@ucsb.edu").isEmpty());
+  }
+
+  @Test
+  void test_spring_constructor_uses_configured_sizes() {
+    UserCacheService service = new UserCacheService(100, 60);
+    User u = user("cgaucho@ucsb.edu");
+    service.put(u);
+    assertEquals(Optional.of(u), service.get("cgaucho@ucsb.edu"));
+  }
+
+  @Test
+  void test_isAdmin_uses_cached_user_without_calling_loader() {
+    userCacheService.put(User.builder().email("admin@ucsb.edu").admin(true).build());
+    assertTrue(userCacheService.isAdmin("admin@ucsb.edu", email -> fail("loader should not be called")));
+  }
+
+  @Test
+  void test_isAdmin_caches_loader_result() {
+    AtomicInteger calls = new AtomicInteger();
+    assertTrue(userCacheService.isAdmin("admin@ucsb.edu", email -> calls.incrementAndGet() > 0));
+    assertTrue(userCacheService.isAdmin("admin@ucsb.edu", email -> calls.incrementAndGet() > 0));
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void test_evict_clears_cached_admin_flag() {
+    assertFalse(userCacheService.isAdmin("cgaucho@ucsb.edu", email -> false));
+    userCacheService.evict("cgaucho@ucsb.edu");
+    assertTrue(userCacheService.isAdmin("cgaucho@ucsb.edu", email -> true));
+  }
+
+  @Test
+  void test_evictAll_clears_cached_admin_flags() {
+    assertFalse(userCacheService.isAdmin("cgaucho@ucsb.edu", email -> false));
+    userCacheService.evictAll();
+    assertTrue(userCacheService.isAdmin("cgaucho@ucsb.edu", email -> true));
+  }
+}
@@ -5,12 +5,15 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
 
+import edu.ucsb.cs156.example.services.ChangeFeedService;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.EntityStreamService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.UserCacheService;
 import org.springframework.context.annotation.Import;
 
 @TestConfiguration
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, UserCacheService.class, ChangeFeedService.class, EntityStreamService.class})
 public class TestConfig {
 
     @Bean